@@ -20,6 +20,8 @@ import net.minidev.json.JSONObject;
  * <p>A sentence is broken down into word grams.</p>
  * <p>Each word is given a numeric id; each wordgram is
  * given an id composed of the numeric Ids of each word in it</p>
+ * <p>See {@link org.topicquests.hyperbrane.util.WordGramIdCodec} for the
+ * encodings of those ids.</p>
  */
 public interface ISentence  {
 	public static final String
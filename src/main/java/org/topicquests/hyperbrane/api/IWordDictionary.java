@@ -0,0 +1,48 @@
+/*
+ * Copyright 2026 TopicQuests Foundation
+ *  This source code is available under the terms of the Affero General Public License v3.
+ *  Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+ */
+package org.topicquests.hyperbrane.api;
+
+/**
+ * <p>Maps surface words to the numeric word ids from which
+ * {@link IWordGram} ids are composed (see {@link ISentence}).</p>
+ * <p>Implementations must be safe for use by many reader threads.</p>
+ */
+public interface IWordDictionary {
+	/** Returned when a word is not known; never assigned to a word */
+	public static final long NO_WORD = 0L;
+
+	/**
+	 * Return the id of <code>word</code> without adding it
+	 * @param word
+	 * @return {@link #NO_WORD} if <code>word</code> is not known
+	 */
+	long getWordId(String word);
+	
+	/**
+	 * Return the id of <code>word</code>, assigning a new id if
+	 * it is not known
+	 * @param word
+	 * @return
+	 */
+	long addWord(String word);
+	
+	/**
+	 * 
+	 * @param wordId
+	 * @return can return <code>null</code>
+	 */
+	String getWord(long wordId);
+	
+	/**
+	 * @return number of words known
+	 */
+	int size();
+	
+	/**
+	 * @return the largest id assigned so far
+	 */
+	long getMaxWordId();
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2026 TopicQuests Foundation
+ *  This source code is available under the terms of the Affero General Public License v3.
+ *  Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+ */
+package org.topicquests.hyperbrane.api;
+
+/**
+ * <p>Names of the {@link IWordGram} fields which have a persistence
+ * setter, i.e. a twin taking an <code>IPostgresConnection</code>.</p>
+ * <p>Used to describe pending changes to a gram without
+ * going through a gram instance.</p>
+ */
+public interface IWordGramFields {
+	//scalars: last write wins
+	public static final String
+		VERSION						= "version",
+		LEMMA						= "lemma",
+		IS_STOP_WORD				= "isStopWord",
+		REDIRECT_TO_ID				= "redirectToId",
+		IS_INVERSE_PREDICATE		= "isInversePredicate",
+		IS_NEGATIVE_PREDICATE		= "isNegativePredicate",
+		CONTRADICTION_PREDICATE_ID	= "contradictionPredicateId",
+		PREDICATE_PROPERTY_TYPE		= "predicatePropertyType",
+		PREDICATE_TENSE				= "predicateTense",
+		WORDGRAM_SIZE				= "wordGramSize",
+		DBPEDIA_URI					= "dbPediaURI",
+		FORMULA_ID					= "formulaId",
+		WORDS						= "words";
+	//lists: values are added and removed
+	public static final String
+		SENTENCE_IDS				= "sentenceIds",
+		TOPIC_LOCATORS				= "topicLocators",
+		WORD_IDS					= "wordIds",
+		ONT_REFERENCES				= "ontReferences",
+		LENS_CODES					= "lensCodes",
+		LATTICE_TYPES				= "latticeTypes",
+		LEX_TYPES					= "lexTypes",
+		EXPECTATIONS				= "expectations",
+		HYPERNYMS					= "hypernyms",
+		HYPONYMS					= "hyponyms",
+		SYNONYMS					= "synonyms",
+		SEMANTIC_FRAME_IDS			= "semanticFrameIds",
+		ATTRIBUTES					= "attributes",
+		SYNONYM_IDS					= "synonymIds";
+	//maps: values are put by key
+	public static final String
+		ROLES						= "roles",		// sentenceId -> role
+		DAEMONS						= "daemons";	// wordId -> daemonToken
+}
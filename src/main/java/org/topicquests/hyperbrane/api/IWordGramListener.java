@@ -0,0 +1,58 @@
+/*
+ * Copyright 2026 TopicQuests Foundation
+ *  This source code is available under the terms of the Affero General Public License v3.
+ *  Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+ */
+package org.topicquests.hyperbrane.api;
+
+/**
+ * <p>Told about changes to {@link IWordGram}s which other components
+ * index or cache.</p>
+ * <p>{@link IWordGram} implementations fire these from the matching
+ * methods, after the change is made. Every method has an empty default
+ * so listeners implement only what they care about.</p>
+ */
+public interface IWordGramListener {
+
+	/**
+	 * Fired once a new gram (see {@link IWordGram#isNew()}) has been stored
+	 * @param gramId
+	 */
+	default void wordGramCreated(String gramId) {}
+
+	/**
+	 * Fired by {@link IWordGram#setVersion(String)}
+	 * @param gramId
+	 * @param version
+	 */
+	default void versionChanged(String gramId, String version) {}
+
+	/**
+	 * Fired by {@link IWordGram#addTopicLocator(String)}
+	 * @param gramId
+	 * @param topicLocator
+	 */
+	default void topicLocatorAdded(String gramId, String topicLocator) {}
+	
+	/**
+	 * Fired by {@link IWordGram#removeTopicLocator(String)}
+	 * @param gramId
+	 * @param topicLocator
+	 */
+	default void topicLocatorRemoved(String gramId, String topicLocator) {}
+	
+	/**
+	 * Fired by {@link IWordGram#substituteTopicLocator(String, String)}
+	 * @param gramId
+	 * @param oldLocator
+	 * @param newLocator
+	 */
+	default void topicLocatorSubstituted(String gramId, String oldLocator, String newLocator) {}
+	
+	/**
+	 * Fired by {@link IWordGram#setRedirectToId(String)}
+	 * @param gramId
+	 * @param newWordGramId the new redirect target; <code>null</code> if the redirect was removed
+	 */
+	default void redirectChanged(String gramId, String newWordGramId) {}
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2026 TopicQuests Foundation
+ *  This source code is available under the terms of the Affero General Public License v3.
+ *  Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+ */
+package org.topicquests.hyperbrane.persist;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.function.Function;
+
+import org.topicquests.hyperbrane.api.IDocument;
+import org.topicquests.hyperbrane.api.ISentence;
+import org.topicquests.hyperbrane.api.IWordGram;
+import org.topicquests.pg.jdbc.BulkLoader;
+
+/**
+ * <p>Feeds {@link IDocument}s, {@link ISentence}s and {@link IWordGram}s
+ * to a {@link BulkLoader} for an initial corpus load.</p>
+ * <p>Each kind goes to its own table, turned into a row by a mapper whose
+ * values match the columns the table was registered with on the loader.
+ * The <code>ID_AND_JSON</code> mappers give <code>(id, json)</code> rows.</p>
+ * <p>Thread safe: any number of parsing threads may add.</p>
+ */
+public class CorpusBulkLoader {
+	public static final Function<IDocument, Object[]> DOCUMENT_ID_AND_JSON =
+		d -> new Object[] {d.getId(), d.toJSONString()};
+	public static final Function<ISentence, Object[]> SENTENCE_ID_AND_JSON =
+		s -> new Object[] {s.getID(), s.toJSONString()};
+	public static final Function<IWordGram, Object[]> WORDGRAM_ID_AND_JSON =
+		g -> new Object[] {g.getID(), g.getJSONObject().toJSONString()};
+	private final BulkLoader loader;
+	private final String documentTable;
+	private final String sentenceTable;
+	private final String wordGramTable;
+	private final Function<IDocument, Object[]> documentRow;
+	private final Function<ISentence, Object[]> sentenceRow;
+	private final Function<IWordGram, Object[]> wordGramRow;
+
+	/**
+	 * @param loader its tables already added
+	 * @param documentTable
+	 * @param documentRow
+	 * @param sentenceTable
+	 * @param sentenceRow
+	 * @param wordGramTable
+	 * @param wordGramRow
+	 */
+	public CorpusBulkLoader(BulkLoader loader,
+			String documentTable, Function<IDocument, Object[]> documentRow,
+			String sentenceTable, Function<ISentence, Object[]> sentenceRow,
+			String wordGramTable, Function<IWordGram, Object[]> wordGramRow) {
+		this.loader = loader;
+		this.documentTable = documentTable;
+		this.documentRow = documentRow;
+		this.sentenceTable = sentenceTable;
+		this.sentenceRow = sentenceRow;
+		this.wordGramTable = wordGramTable;
+		this.wordGramRow = wordGramRow;
+	}
+
+	public void addDocument(IDocument doc) throws SQLException {
+		loader.add(documentTable, documentRow.apply(doc));
+	}
+
+	public void addSentence(ISentence sentence) throws SQLException {
+		loader.add(sentenceTable, sentenceRow.apply(sentence));
+	}
+
+	public void addWordGram(IWordGram gram) throws SQLException {
+		loader.add(wordGramTable, wordGramRow.apply(gram));
+	}
+
+	public void addWordGrams(Collection<IWordGram> grams) throws SQLException {
+		for (IWordGram g : grams)
+			addWordGram(g);
+	}
+
+	public BulkLoader getLoader() {
+		return loader;
+	}
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2026 TopicQuests Foundation
+ *  This source code is available under the terms of the Affero General Public License v3.
+ *  Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+ */
+package org.topicquests.hyperbrane.persist;
+
+/**
+ * <p>Count-Min sketch of 4-bit counters estimating how often a key has
+ * been seen recently, as used by TinyLFU admission. Once as many
+ * increments as ten times the expected entries have been made, every
+ * counter is halved, so old popularity fades.</p>
+ * <p>Not thread safe; its users, e.g. {@link WordGramCache}, guard it.</p>
+ */
+class FrequencySketch {
+	private static final long [] SEEDS = {
+		0xC3A5C85C97CB3127L, 0xB492B66FBE98F273L, 0x9AE16A3B2F90404FL, 0xCBF29CE484222325L};
+	private static final long RESET_MASK = 0x7777777777777777L;
+	private final long [] table;
+	private final int tableMask;
+	private final int sampleSize;
+	private int size;
+
+	FrequencySketch(int expectedEntries) {
+		int n = Integer.highestOneBit(Math.max(expectedEntries, 16) - 1) << 1;
+		table = new long[n];
+		tableMask = n - 1;
+		sampleSize = 10 * Math.max(expectedEntries, 16);
+	}
+
+	/**
+	 * @param hash
+	 * @return estimated recent frequency, <code>0</code> to <code>15</code>
+	 */
+	int frequency(int hash) {
+		int start = (hash & 3) << 2;
+		int result = Integer.MAX_VALUE;
+		for (int i = 0; i < 4; i++) {
+			int index = indexOf(hash, i);
+			int count = (int)((table[index] >>> ((start + i) << 2)) & 0xF);
+			result = Math.min(result, count);
+		}
+		return result;
+	}
+
+	void increment(int hash) {
+		int start = (hash & 3) << 2;
+		boolean added = false;
+		for (int i = 0; i < 4; i++) {
+			int index = indexOf(hash, i);
+			int offset = (start + i) << 2;
+			long mask = 0xFL << offset;
+			if ((table[index] & mask) != mask) {
+				table[index] += 1L << offset;
+				added = true;
+			}
+		}
+		if (added && ++size == sampleSize)
+			reset();
+	}
+
+	private void reset() {
+		for (int i = 0; i < table.length; i++)
+			table[i] = (table[i] >>> 1) & RESET_MASK;
+		size /= 2;
+	}
+
+	private int indexOf(int hash, int i) {
+		long h = (hash + SEEDS[i]) * SEEDS[i];
+		h += h >>> 32;
+		return ((int)h) & tableMask;
+	}
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2026 TopicQuests Foundation
+ *  This source code is available under the terms of the Affero General Public License v3.
+ *  Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+ */
+package org.topicquests.hyperbrane.persist;
+
+import org.topicquests.hyperbrane.api.IWordGram;
+import org.topicquests.pg.api.IPostgresConnection;
+import org.topicquests.support.api.IResult;
+
+/**
+ * <p>A change to one {@link IWordGram} guarded by its version
+ * (see {@link IWordGram#setVersion(String)}).</p>
+ * <p>A typical implementation issues one
+ * <code>UPDATE ... WHERE id = ? AND version = ?</code> with
+ * <code>gram.getVersion()</code>, setting a new version, and reports a
+ * conflict when no row was updated.</p>
+ */
+public interface IVersionedUpdate {
+
+	/**
+	 * Apply the change to a freshly fetched <code>gram</code>
+	 * @param conn
+	 * @param gram
+	 * @param r collects any errors
+	 * @return <code>false</code> if the gram's version changed underneath,
+	 * in which case the update will be retried against a fresh copy
+	 * @throws Exception on any failure other than a version conflict
+	 */
+	boolean apply(IPostgresConnection conn, IWordGram gram, IResult r) throws Exception;
+}
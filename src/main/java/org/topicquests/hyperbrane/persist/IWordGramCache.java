@@ -0,0 +1,31 @@
+/*
+ * Copyright 2026 TopicQuests Foundation
+ *  This source code is available under the terms of the Affero General Public License v3.
+ *  Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+ */
+package org.topicquests.hyperbrane.persist;
+
+import org.topicquests.hyperbrane.api.IWordGram;
+
+/**
+ * A shared, in-process cache of {@link IWordGram}s keyed by gram id
+ */
+public interface IWordGramCache {
+
+	/**
+	 * 
+	 * @param gramId
+	 * @return can return <code>null</code>
+	 */
+	IWordGram get(String gramId);
+	
+	/**
+	 * Cache <code>gram</code> under its <code>getID()</code>
+	 * @param gram
+	 */
+	void put(IWordGram gram);
+	
+	void invalidate(String gramId);
+	
+	void clear();
+}
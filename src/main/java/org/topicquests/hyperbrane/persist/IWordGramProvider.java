@@ -0,0 +1,26 @@
+/*
+ * Copyright 2026 TopicQuests Foundation
+ *  This source code is available under the terms of the Affero General Public License v3.
+ *  Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+ */
+package org.topicquests.hyperbrane.persist;
+
+import org.topicquests.hyperbrane.api.IWordGram;
+import org.topicquests.pg.api.IPostgresConnection;
+import org.topicquests.support.api.IResult;
+
+/**
+ * Fetches {@link IWordGram}s from the database
+ */
+public interface IWordGramProvider {
+
+	/**
+	 * Fetch the current state of a gram
+	 * @param conn
+	 * @param gramId
+	 * @param r collects any errors
+	 * @return can return <code>null</code> if no such gram exists
+	 * @throws Exception
+	 */
+	IWordGram getWordGram(IPostgresConnection conn, String gramId, IResult r) throws Exception;
+}
@@ -0,0 +1,25 @@
+/*
+ * Copyright 2026 TopicQuests Foundation
+ *  This source code is available under the terms of the Affero General Public License v3.
+ *  Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+ */
+package org.topicquests.hyperbrane.persist;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.topicquests.hyperbrane.api.IWordGram;
+
+/**
+ * Builds an {@link IWordGram} from the current row of a wordgram query
+ */
+public interface IWordGramRowMapper {
+
+	/**
+	 * Must not move the cursor
+	 * @param rs
+	 * @return
+	 * @throws SQLException
+	 */
+	IWordGram toWordGram(ResultSet rs) throws SQLException;
+}
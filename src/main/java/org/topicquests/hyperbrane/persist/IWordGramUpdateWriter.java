@@ -0,0 +1,29 @@
+/*
+ * Copyright 2026 TopicQuests Foundation
+ *  This source code is available under the terms of the Affero General Public License v3.
+ *  Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+ */
+package org.topicquests.hyperbrane.persist;
+
+import java.util.List;
+
+import org.topicquests.pg.api.IPostgresConnection;
+import org.topicquests.support.api.IResult;
+
+/**
+ * <p>Persists coalesced {@link WordGramUpdate}s, typically as one row
+ * update per gram, sent with <code>executeBatch</code>.</p>
+ * <p>Implementations know the wordgram table; callers supply the
+ * transaction.</p>
+ */
+public interface IWordGramUpdateWriter {
+
+	/**
+	 * Persist <code>updates</code>; there is at most one update per gram
+	 * @param conn
+	 * @param updates
+	 * @param r collects any errors
+	 * @throws Exception
+	 */
+	void writeUpdates(IPostgresConnection conn, List<WordGramUpdate> updates, IResult r) throws Exception;
+}
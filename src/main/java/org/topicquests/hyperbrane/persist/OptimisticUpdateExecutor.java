@@ -0,0 +1,294 @@
+/*
+ * Copyright 2026 TopicQuests Foundation
+ *  This source code is available under the terms of the Affero General Public License v3.
+ *  Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+ */
+package org.topicquests.hyperbrane.persist;
+
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.topicquests.hyperbrane.api.IWordGram;
+import org.topicquests.pg.api.IPostgresConnection;
+import org.topicquests.support.ResultPojo;
+import org.topicquests.support.api.IResult;
+
+/**
+ * <p>Applies {@link IVersionedUpdate}s to {@link IWordGram}s under optimistic
+ * locking: fetch the gram, apply, and on a version conflict fetch it
+ * again and retry, up to <code>maxAttempts</code> times with jittered
+ * exponential backoff.</p>
+ * <p>Recent conflicts per gram are estimated with a {@link FrequencySketch},
+ * whose counts fade over time, and the {@value #HOT_GRAMS} grams with the
+ * most are remembered, so the hot grams (stop words, frequent nouns) can be
+ * found with {@link #listHotGrams(int)} while memory stays bounded however
+ * many grams conflict.</p>
+ * <p>{@link #executeBatch(IPostgresConnection, Map)} applies updates to many
+ * grams in one transaction, each gram behind its own savepoint, so one
+ * gram's conflict rolls back only that gram; conflicting grams are retried
+ * together in the next round.</p>
+ * <p>Thread safe; each caller supplies its own connection.</p>
+ */
+public class OptimisticUpdateExecutor {
+	/** most grams remembered by {@link #listHotGrams(int)} */
+	public static final int HOT_GRAMS = 64;
+	private final IWordGramProvider provider;
+	private final int maxAttempts;
+	private final long baseBackoffMillis;
+	private final long maxBackoffMillis;
+	/** guards sketch and hot */
+	private final Object statsLock = new Object();
+	private FrequencySketch sketch;
+	/** ids of the grams with the most recent conflicts */
+	private final Set<String> hot = new LinkedHashSet<String>();
+	private final LongAdder totalConflicts = new LongAdder();
+	private final LongAdder exhausted = new LongAdder();
+
+	/**
+	 * @param provider fetches fresh copies of grams
+	 * @param maxAttempts at least <code>1</code>
+	 * @param baseBackoffMillis backoff before the first retry
+	 * @param maxBackoffMillis backoff ceiling
+	 */
+	public OptimisticUpdateExecutor(IWordGramProvider provider, int maxAttempts,
+			long baseBackoffMillis, long maxBackoffMillis) {
+		this.provider = provider;
+		this.maxAttempts = Math.max(1, maxAttempts);
+		this.baseBackoffMillis = baseBackoffMillis;
+		this.maxBackoffMillis = maxBackoffMillis;
+		this.sketch = new FrequencySketch(HOT_GRAMS * 16);
+	}
+
+	/**
+	 * <p>Apply <code>update</code> to <code>gramId</code>, retrying on conflict.
+	 * No transaction is opened: an update which issues more than one
+	 * statement should be run inside the caller's transaction.</p>
+	 * @param conn
+	 * @param gramId
+	 * @param update
+	 * @return result object is the updated {@link IWordGram}; an error
+	 * if the gram is missing, the update failed or retries ran out
+	 */
+	public IResult execute(IPostgresConnection conn, String gramId, IVersionedUpdate update) {
+		IResult result = new ResultPojo();
+		for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+			try {
+				IWordGram g = provider.getWordGram(conn, gramId, result);
+				if (g == null) {
+					if (!result.hasError())
+						result.addErrorString("Missing WordGram " + gramId);
+					return result;
+				}
+				if (update.apply(conn, g, result)) {
+					result.setResultObject(g);
+					return result;
+				}
+			} catch (Exception e) {
+				result.addErrorString(e.getMessage());
+				return result;
+			}
+			if (result.hasError())
+				return result;
+			conflicted(gramId);
+			if (attempt < maxAttempts)
+				backoff(attempt);
+		}
+		exhausted.increment();
+		result.addErrorString("Version conflict on WordGram " + gramId + " after " + maxAttempts + " attempts");
+		return result;
+	}
+
+	/**
+	 * <p>Apply updates to many grams, each round in one transaction.
+	 * Each gram gets a savepoint; a gram whose update conflicts is rolled
+	 * back to it and retried in the next round, after a backoff. A gram whose
+	 * update fails is rolled back and not retried.</p>
+	 * @param conn must not already be in a transaction
+	 * @param updates per gram id, applied in list order to the same fresh copy
+	 * @return result object is the <code>List&lt;String&gt;</code> of gram ids
+	 * which were not updated; errors name each failure
+	 */
+	public IResult executeBatch(IPostgresConnection conn, Map<String, List<IVersionedUpdate>> updates) {
+		IResult result = new ResultPojo();
+		List<String> notUpdated = new ArrayList<String>();
+		Map<String, List<IVersionedUpdate>> todo = updates;
+		for (int attempt = 1; attempt <= maxAttempts && !todo.isEmpty(); attempt++) {
+			if (attempt > 1)
+				backoff(attempt - 1);
+			Map<String, List<IVersionedUpdate>> retry = new LinkedHashMap<String, List<IVersionedUpdate>>();
+			IResult r = conn.beginTransaction();
+			if (r.hasError()) {
+				result.addErrorString(r.getErrorString());
+				notUpdated.addAll(todo.keySet());
+				todo = retry;
+				break;
+			}
+			List<String> applied = new ArrayList<String>(todo.size());
+			for (Map.Entry<String, List<IVersionedUpdate>> e : todo.entrySet()) {
+				String gramId = e.getKey();
+				int outcome = applyOne(conn, gramId, e.getValue(), result);
+				if (outcome > 0)
+					applied.add(gramId);
+				else if (outcome == 0) {
+					conflicted(gramId);
+					retry.put(gramId, e.getValue());
+				} else
+					notUpdated.add(gramId);
+			}
+			r = conn.endTransaction();
+			if (r.hasError()) {
+				// nothing in this round was committed
+				conn.rollback();
+				result.addErrorString(r.getErrorString());
+				notUpdated.addAll(applied);
+				notUpdated.addAll(retry.keySet());
+				todo = Collections.emptyMap();
+				break;
+			}
+			todo = retry;
+		}
+		if (!todo.isEmpty()) {
+			exhausted.add(todo.size());
+			for (String gramId : todo.keySet())
+				result.addErrorString("Version conflict on WordGram " + gramId + " after " + maxAttempts + " attempts");
+			notUpdated.addAll(todo.keySet());
+		}
+		result.setResultObject(notUpdated);
+		return result;
+	}
+
+	/**
+	 * @return 1 applied, 0 conflict, -1 failed
+	 */
+	private int applyOne(IPostgresConnection conn, String gramId, List<IVersionedUpdate> ups, IResult result) {
+		IResult sr = conn.setSavepoint();
+		if (sr.hasError()) {
+			result.addErrorString(sr.getErrorString());
+			return -1;
+		}
+		Savepoint svpt = (Savepoint)sr.getResultObject();
+		IResult r = new ResultPojo();
+		int outcome = 1;
+		try {
+			IWordGram g = provider.getWordGram(conn, gramId, r);
+			if (g == null) {
+				if (!r.hasError())
+					r.addErrorString("Missing WordGram " + gramId);
+			} else {
+				for (IVersionedUpdate u : ups) {
+					if (!u.apply(conn, g, r)) {
+						outcome = 0;
+						break;
+					}
+				}
+			}
+		} catch (Exception e) {
+			r.addErrorString(e.getMessage());
+		}
+		if (r.hasError()) {
+			result.addErrorString(gramId + ": " + r.getErrorString());
+			outcome = -1;
+		}
+		if (outcome == 1) {
+			r = conn.releaseSavepoint(svpt);
+			if (!r.hasError())
+				return outcome;
+			result.addErrorString(gramId + ": " + r.getErrorString());
+			outcome = -1;
+		}
+		conn.rollback(svpt);
+		return outcome;
+	}
+
+	/**
+	 * Full jitter: sleep a random time up to the capped exponential backoff
+	 */
+	private void backoff(int attempt) {
+		long cap = Math.min(maxBackoffMillis, baseBackoffMillis << Math.min(attempt - 1, 20));
+		if (cap <= 0)
+			return;
+		try {
+			Thread.sleep(ThreadLocalRandom.current().nextLong(cap + 1));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void conflicted(String gramId) {
+		totalConflicts.increment();
+		int hash = gramId.hashCode();
+		synchronized (statsLock) {
+			sketch.increment(hash);
+			if (hot.add(gramId) && hot.size() > HOT_GRAMS) {
+				String coldest = null;
+				int least = Integer.MAX_VALUE;
+				for (String id : hot) {
+					int f = sketch.frequency(id.hashCode());
+					if (f < least) {
+						least = f;
+						coldest = id;
+					}
+				}
+				hot.remove(coldest);
+			}
+		}
+	}
+
+	//////////////////////////////
+	// Stats
+	//////////////////////////////
+
+	/**
+	 * @param gramId
+	 * @return estimated recent conflicts on <code>gramId</code>,
+	 * <code>0</code> to <code>15</code>
+	 */
+	public long getConflictCount(String gramId) {
+		synchronized (statsLock) {
+			return sketch.frequency(gramId.hashCode());
+		}
+	}
+
+	public long getTotalConflictCount() {
+		return totalConflicts.sum();
+	}
+
+	/**
+	 * @return number of updates given up after <code>maxAttempts</code>
+	 */
+	public long getExhaustedCount() {
+		return exhausted.sum();
+	}
+
+	/**
+	 * @param howMany
+	 * @return the gram ids with the most conflicts, most first
+	 */
+	public List<String> listHotGrams(int howMany) {
+		Map<String, Integer> counts = new LinkedHashMap<String, Integer>();
+		synchronized (statsLock) {
+			for (String gramId : hot)
+				counts.put(gramId, sketch.frequency(gramId.hashCode()));
+		}
+		List<String> all = new ArrayList<String>(counts.keySet());
+		all.sort((a, b) -> Integer.compare(counts.get(b), counts.get(a)));
+		return new ArrayList<String>(all.subList(0, Math.min(howMany, all.size())));
+	}
+
+	public void resetStats() {
+		synchronized (statsLock) {
+			sketch = new FrequencySketch(HOT_GRAMS * 16);
+			hot.clear();
+		}
+		totalConflicts.reset();
+		exhausted.reset();
+	}
+}
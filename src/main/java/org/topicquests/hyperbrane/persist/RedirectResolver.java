@@ -0,0 +1,178 @@
+/*
+ * Copyright 2026 TopicQuests Foundation
+ *  This source code is available under the terms of the Affero General Public License v3.
+ *  Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+ */
+package org.topicquests.hyperbrane.persist;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.topicquests.hyperbrane.api.IWordGram;
+import org.topicquests.hyperbrane.api.IWordGramListener;
+import org.topicquests.pg.api.IPostgresConnection;
+import org.topicquests.support.ResultPojo;
+import org.topicquests.support.api.IResult;
+
+/**
+ * <p>Resolves a gram id through its chain of redirects
+ * (see {@link IWordGram#setRedirectToId(String)}) to the terminal gram id.</p>
+ * <p>Direct links are fetched once each, through an {@link IWordGramProvider},
+ * and remembered. Every gram on a resolved path is then pointed straight at
+ * the terminal, as path compression does in union-find, so later lookups
+ * are a single map probe.</p>
+ * <p>Register with {@link WordGramEvents} so that
+ * {@link #redirectChanged(String, String)} hears of new links. A change
+ * bumps an epoch which retires every compressed path at once; the direct
+ * links are kept, so paths are rebuilt from memory rather than fetched.</p>
+ * <p>A chain which loops back on itself is reported as an error.</p>
+ * <p>Thread safe.</p>
+ */
+public class RedirectResolver implements IWordGramListener {
+	/** a known gram with no redirect */
+	private static final String NONE = "";
+	private final IWordGramProvider provider;
+	private final int maxEntries;
+	/** gramId -&gt; direct redirect target, or {@link #NONE} */
+	private final ConcurrentHashMap<String, String> links;
+	/** gramId -&gt; terminal, valid only for its epoch */
+	private final ConcurrentHashMap<String, Resolved> resolved;
+	private final AtomicLong epoch = new AtomicLong();
+
+	private static final class Resolved {
+		final String terminal;
+		final long epoch;
+
+		Resolved(String terminal, long epoch) {
+			this.terminal = terminal;
+			this.epoch = epoch;
+		}
+	}
+
+	/**
+	 * @param provider fetches grams whose links are not yet known
+	 * @param maxEntries when more grams than this are remembered, memory is cleared
+	 */
+	public RedirectResolver(IWordGramProvider provider, int maxEntries) {
+		this.provider = provider;
+		this.maxEntries = maxEntries;
+		this.links = new ConcurrentHashMap<String, String>();
+		this.resolved = new ConcurrentHashMap<String, Resolved>();
+	}
+
+	/**
+	 * Resolve <code>gramId</code> to the end of its redirect chain
+	 * @param conn used only for grams not yet seen
+	 * @param gramId
+	 * @param r collects any errors
+	 * @return <code>gramId</code> itself if it has no redirect;
+	 * <code>null</code> on a redirect cycle or a fetch error
+	 */
+	public String resolve(IPostgresConnection conn, String gramId, IResult r) {
+		long e = epoch.get();
+		Resolved c = resolved.get(gramId);
+		if (c != null && c.epoch == e)
+			return c.terminal;
+		List<String> path = new ArrayList<String>(4);
+		Set<String> seen = null;
+		String cur = gramId;
+		String terminal;
+		while (true) {
+			c = resolved.get(cur);
+			if (c != null && c.epoch == e) {
+				terminal = c.terminal;
+				break;
+			}
+			String link = links.get(cur);
+			if (link == null) {
+				link = fetchLink(conn, cur, r);
+				if (link == null)
+					return null;
+			}
+			if (link.isEmpty() || link.equals(cur)) {
+				terminal = cur;
+				break;
+			}
+			path.add(cur);
+			if (path.size() > 8) {
+				// long chains are rare; only then pay for a set
+				if (seen == null)
+					seen = new HashSet<String>(path);
+				if (!seen.add(link)) {
+					r.addErrorString("Redirect cycle at WordGram " + link + " from " + gramId);
+					return null;
+				}
+			} else if (path.contains(link)) {
+				r.addErrorString("Redirect cycle at WordGram " + link + " from " + gramId);
+				return null;
+			}
+			cur = link;
+		}
+		Resolved res = new Resolved(terminal, e);
+		for (String p : path)
+			resolved.put(p, res);
+		if (!terminal.equals(gramId))
+			resolved.put(gramId, res);
+		return terminal;
+	}
+
+	/**
+	 * Forget what is known about <code>gramId</code>, e.g. when it is deleted
+	 * @param gramId
+	 */
+	public void forget(String gramId) {
+		links.remove(gramId);
+		retirePaths();
+	}
+
+	public void clear() {
+		links.clear();
+		retirePaths();
+	}
+
+	/**
+	 * @return number of grams whose direct link is known
+	 */
+	public int size() {
+		return links.size();
+	}
+
+	@Override
+	public void redirectChanged(String gramId, String newWordGramId) {
+		links.put(gramId, newWordGramId == null ? NONE : newWordGramId);
+		retirePaths();
+	}
+
+	private void retirePaths() {
+		epoch.incrementAndGet();
+		resolved.clear();
+	}
+
+	/**
+	 * @return the direct link, {@link #NONE}, or <code>null</code> on error
+	 */
+	private String fetchLink(IPostgresConnection conn, String gramId, IResult r) {
+		String result = NONE;
+		IResult fr = new ResultPojo();
+		try {
+			IWordGram g = provider.getWordGram(conn, gramId, fr);
+			if (fr.hasError()) {
+				r.addErrorString(fr.getErrorString());
+				return null;
+			}
+			if (g != null && g.hasRedirectToId())
+				result = g.getRedirectToId();
+		} catch (Exception x) {
+			r.addErrorString(x.getMessage());
+			return null;
+		}
+		if (links.size() >= maxEntries)
+			clear();
+		String prior = links.putIfAbsent(gramId, result);
+		return prior != null ? prior : result;
+	}
+}
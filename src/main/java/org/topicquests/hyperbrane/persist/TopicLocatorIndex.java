@@ -0,0 +1,281 @@
+/*
+ * Copyright 2026 TopicQuests Foundation
+ *  This source code is available under the terms of the Affero General Public License v3.
+ *  Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+ */
+package org.topicquests.hyperbrane.persist;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.topicquests.hyperbrane.api.IWordGram;
+import org.topicquests.hyperbrane.api.IWordGramFields;
+import org.topicquests.hyperbrane.api.IWordGramListener;
+import org.topicquests.pg.api.IPostgresConnection;
+import org.topicquests.support.ResultPojo;
+import org.topicquests.support.api.IResult;
+
+/**
+ * <p>Inverted index from topic locator to the ids of the
+ * {@link IWordGram}s which carry it.</p>
+ * <p>When topics merge, every gram carrying the old locator needs
+ * surgical updating; this index finds them without a scan. It is kept
+ * current by registering it with the {@link WordGramEvents} which gram
+ * implementations fire into, and seeded at startup with
+ * {@link #load(IPostgresConnection, String, IResult)}.</p>
+ * <p>Thread safe.</p>
+ */
+public class TopicLocatorIndex implements IWordGramListener {
+	private final ConcurrentHashMap<String, Set<String>> index;
+
+	public TopicLocatorIndex() {
+		index = new ConcurrentHashMap<String, Set<String>>();
+	}
+
+	/**
+	 * Seed from a query whose rows are <code>(gramId, topicLocator)</code>
+	 * @param conn
+	 * @param sql
+	 * @param r collects any errors
+	 * @return number of rows indexed
+	 */
+	public int load(IPostgresConnection conn, String sql, IResult r) {
+		int result = 0;
+		IResult rx = conn.executeSelect(sql);
+		if (rx.hasError()) {
+			r.addErrorString(rx.getErrorString());
+			return result;
+		}
+		ResultSet rs = (ResultSet)rx.getResultObject();
+		if (rs == null)
+			return result;
+		Statement stmt = null;
+		try {
+			stmt = rs.getStatement();
+			while (rs.next()) {
+				add(rs.getString(1), rs.getString(2));
+				result++;
+			}
+		} catch (Exception e) {
+			r.addErrorString(e.getMessage());
+		}
+		conn.closeResultSet(rs, r);
+		if (stmt != null)
+			conn.closeStatement(stmt, r);
+		return result;
+	}
+
+	/**
+	 * Index every locator on <code>gram</code>
+	 * @param gram
+	 */
+	public void index(IWordGram gram) {
+		List<String> locs = gram.listTopicLocators();
+		if (locs != null)
+			for (String loc : locs)
+				add(gram.getID(), loc);
+	}
+
+	/**
+	 * @param topicLocator
+	 * @return ids of grams carrying <code>topicLocator</code>; never <code>null</code>
+	 */
+	public List<String> listWordGramIds(String topicLocator) {
+		Set<String> s = index.get(topicLocator);
+		if (s == null)
+			return Collections.emptyList();
+		return new ArrayList<String>(s);
+	}
+
+	public int getWordGramCount(String topicLocator) {
+		Set<String> s = index.get(topicLocator);
+		return s == null ? 0 : s.size();
+	}
+
+	/**
+	 * @return number of distinct locators indexed
+	 */
+	public int size() {
+		return index.size();
+	}
+
+	//////////////////////////////
+	// IWordGramListener
+	//////////////////////////////
+
+	@Override
+	public void topicLocatorAdded(String gramId, String topicLocator) {
+		add(gramId, topicLocator);
+	}
+
+	@Override
+	public void topicLocatorRemoved(String gramId, String topicLocator) {
+		remove(gramId, topicLocator);
+	}
+
+	@Override
+	public void topicLocatorSubstituted(String gramId, String oldLocator, String newLocator) {
+		remove(gramId, oldLocator);
+		add(gramId, newLocator);
+	}
+
+	//////////////////////////////
+	// Merge surgery
+	//////////////////////////////
+
+	/**
+	 * <p>Substitute <code>newLocator</code> for <code>oldLocator</code> in
+	 * every gram which carries it, in one transaction and two round trips:
+	 * the grams are fetched with one <code>selectSql</code> whose one
+	 * parameter is the array of their ids, e.g.</p>
+	 * <pre>SELECT json FROM tq_wordgram WHERE id = ANY(?)</pre>
+	 * <p>changed in memory with
+	 * {@link IWordGram#substituteTopicLocator(String, String)}, and written
+	 * back with one batch of <code>updateSql</code>, whose parameters are the
+	 * gram's JSON and its id, e.g.</p>
+	 * <pre>UPDATE tq_wordgram SET json = ?::jsonb WHERE id = ?</pre>
+	 * <p>The events the grams fire into <code>events</code> are held until
+	 * the commit, and dropped on rollback; this index changes only after
+	 * the commit, and each event is fired once. Grams which no longer carry
+	 * <code>oldLocator</code> are left alone and dropped from its entry.</p>
+	 * @param conn must not already be in a transaction
+	 * @param oldLocator
+	 * @param newLocator
+	 * @param mapper maps each row of <code>selectSql</code>
+	 * @param selectSql takes one parameter: a <code>String[]</code> of gram ids
+	 * @param updateSql takes two parameters: the gram's JSON and its id
+	 * @param events what the grams fire into; can be <code>null</code> if they fire nothing
+	 * @return result object is the <code>Integer</code> number of rows updated;
+	 * on error nothing is changed
+	 */
+	public IResult substituteTopicLocator(IPostgresConnection conn, String oldLocator, String newLocator,
+			IWordGramRowMapper mapper, String selectSql, String updateSql, WordGramEvents events) {
+		IResult result = new ResultPojo();
+		List<String> ids = listWordGramIds(oldLocator);
+		if (ids.isEmpty()) {
+			result.setResultObject(0);
+			return result;
+		}
+		IResult r = conn.beginTransaction();
+		if (r.hasError())
+			return r;
+		if (events != null)
+			events.defer();
+		Set<String> changed = new HashSet<String>(ids.size() * 2);
+		int count = 0;
+		// wrap: a bare String[] would be spread over the varargs
+		r = conn.executeSelect(selectSql, new Object[] {ids.toArray(new String[ids.size()])});
+		if (r.hasError())
+			result.addErrorString(r.getErrorString());
+		else {
+			List<Object> vals = new ArrayList<Object>(ids.size() * 2);
+			fetchAndSubstitute(conn, (ResultSet)r.getResultObject(), mapper,
+					oldLocator, newLocator, changed, vals, result);
+			if (!result.hasError() && !vals.isEmpty()) {
+				r = conn.executeBatch(updateSql, vals.toArray());
+				if (r.hasError())
+					result.addErrorString(r.getErrorString());
+				else
+					count = (Integer)r.getResultObject();
+			}
+		}
+		if (result.hasError()) {
+			conn.rollback();
+			if (events != null)
+				events.discard();
+			return result;
+		}
+		r = conn.endTransaction();
+		if (r.hasError()) {
+			conn.rollback();
+			if (events != null)
+				events.discard();
+			result.addErrorString(r.getErrorString());
+			return result;
+		}
+		if (events != null)
+			events.release();
+		if (events == null || !events.hasListener(this))
+			for (String id : changed)
+				topicLocatorSubstituted(id, oldLocator, newLocator);
+		for (String id : ids)
+			if (!changed.contains(id))
+				remove(id, oldLocator);
+		result.setResultObject(count);
+		return result;
+	}
+
+	/**
+	 * Substitute in each gram of <code>rs</code> which carries <code>oldLocator</code>,
+	 * adding its id to <code>changed</code> and its update parameters to <code>vals</code>
+	 */
+	private void fetchAndSubstitute(IPostgresConnection conn, ResultSet rs, IWordGramRowMapper mapper,
+			String oldLocator, String newLocator, Set<String> changed, List<Object> vals, IResult r) {
+		if (rs == null)
+			return;
+		Statement stmt = null;
+		try {
+			stmt = rs.getStatement();
+			while (rs.next()) {
+				IWordGram g = mapper.toWordGram(rs);
+				List<String> locs = g == null ? null : g.listTopicLocators();
+				if (locs == null || !locs.contains(oldLocator))
+					continue;
+				g.substituteTopicLocator(oldLocator, newLocator);
+				changed.add(g.getID());
+				vals.add(g.getJSONObject().toJSONString());
+				vals.add(g.getID());
+			}
+		} catch (Exception e) {
+			r.addErrorString(e.getMessage());
+		}
+		conn.closeResultSet(rs, r);
+		if (stmt != null)
+			conn.closeStatement(stmt, r);
+	}
+
+	/**
+	 * <p>Record the substitution for every gram carrying <code>oldLocator</code>
+	 * in <code>buffer</code>, where it coalesces with other pending changes
+	 * and is written in the buffer's next batch.</p>
+	 * @param oldLocator
+	 * @param newLocator
+	 * @param buffer
+	 * @param listener told of each substitution, e.g. to refresh cached grams;
+	 * can be <code>null</code>
+	 * @return number of grams affected
+	 */
+	public int substituteTopicLocator(String oldLocator, String newLocator,
+			WordGramWriteBehindBuffer buffer, IWordGramListener listener) {
+		List<String> ids = listWordGramIds(oldLocator);
+		for (String id : ids) {
+			buffer.substitute(id, IWordGramFields.TOPIC_LOCATORS, oldLocator, newLocator);
+			topicLocatorSubstituted(id, oldLocator, newLocator);
+			if (listener != null && listener != this)
+				listener.topicLocatorSubstituted(id, oldLocator, newLocator);
+		}
+		return ids.size();
+	}
+
+	private void add(String gramId, String topicLocator) {
+		index.compute(topicLocator, (k, s) -> {
+			if (s == null)
+				s = ConcurrentHashMap.newKeySet();
+			s.add(gramId);
+			return s;
+		});
+	}
+
+	private void remove(String gramId, String topicLocator) {
+		index.computeIfPresent(topicLocator, (k, s) -> {
+			s.remove(gramId);
+			return s.isEmpty() ? null : s;
+		});
+	}
+}
@@ -0,0 +1,350 @@
+/*
+ * Copyright 2026 TopicQuests Foundation
+ *  This source code is available under the terms of the Affero General Public License v3.
+ *  Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+ */
+package org.topicquests.hyperbrane.persist;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.topicquests.hyperbrane.api.IWordGramListener;
+import org.topicquests.hyperbrane.util.GramBuffer;
+import org.topicquests.hyperbrane.util.WordGramIdCodec;
+import org.topicquests.pg.api.IPostgresConnection;
+import org.topicquests.support.api.IResult;
+
+/**
+ * <p>Scalable Bloom filter over the ids of every stored
+ * {@link org.topicquests.hyperbrane.api.IWordGram}.</p>
+ * <p>Most generated grams, especially the long ones, have never been seen.
+ * When {@link #mightContain(String)} answers <code>false</code> the gram
+ * is certainly new and the database probe can be skipped; a
+ * <code>true</code> is wrong at most <code>fpp</code> of the time.</p>
+ * <p>The filter grows by adding stages, each twice the size of and with
+ * a tighter error rate than the last, so the overall error rate holds as
+ * the corpus grows. It is rebuilt at startup from the wordgram table with
+ * {@link #load(IPostgresConnection, String, IResult)} or read back from
+ * disk with {@link #readFrom(Path)}, and kept current as a listener on
+ * {@link WordGramEvents} or by calling {@link #add(String)} after inserts.</p>
+ * <p>Numeric gram ids hash through {@link WordGramIdCodec#hash64(long[], int, int)},
+ * so a probe from a {@link GramBuffer} needs no <code>String</code>.</p>
+ * <p>Thread safe; adds are lock-free except when a new stage is started.</p>
+ */
+public class WordGramBloomFilter implements IWordGramListener {
+	private static final int MAGIC = 0x54514246; // "TQBF"
+	private static final int VERSION = 1;
+	private static final double GROWTH = 2.0;
+	private static final double TIGHTENING = 0.5;
+	private final long initialCapacity;
+	private final double fpp;
+	private volatile Stage [] stages;
+	private final ThreadLocal<long []> scratch = ThreadLocal.withInitial(() -> new long[WordGramIdCodec.MAX_GRAM_SIZE]);
+
+	private static final class Stage {
+		final AtomicLongArray bits;
+		final long bitCount;
+		final int hashes;
+		final long capacity;
+		final AtomicLong count = new AtomicLong();
+
+		Stage(long capacity, double fpp) {
+			this(capacity, optimalBits(capacity, fpp), 0);
+		}
+
+		Stage(long capacity, long bitCount, int hashes) {
+			long words = (bitCount + 63) >>> 6;
+			if (words > Integer.MAX_VALUE)
+				throw new IllegalArgumentException("Bloom stage too large");
+			this.capacity = capacity;
+			this.bitCount = words << 6;
+			this.bits = new AtomicLongArray((int)words);
+			this.hashes = hashes > 0 ? hashes :
+				Math.max(1, (int)Math.round((double)this.bitCount / capacity * Math.log(2)));
+		}
+
+		static long optimalBits(long n, double p) {
+			return (long)Math.ceil(-n * Math.log(p) / (Math.log(2) * Math.log(2)));
+		}
+
+		boolean put(long hash) {
+			long h1 = hash;
+			long h2 = WordGramIdCodec.mix64(hash) | 1;
+			boolean changed = false;
+			for (int i = 0; i < hashes; i++) {
+				long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+				int w = (int)(bit >>> 6);
+				long mask = 1L << bit;
+				long old = bits.get(w);
+				while ((old & mask) == 0) {
+					if (bits.compareAndSet(w, old, old | mask)) {
+						changed = true;
+						break;
+					}
+					old = bits.get(w);
+				}
+			}
+			return changed;
+		}
+
+		boolean mightContain(long hash) {
+			long h1 = hash;
+			long h2 = WordGramIdCodec.mix64(hash) | 1;
+			for (int i = 0; i < hashes; i++) {
+				long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+				if ((bits.get((int)(bit >>> 6)) & (1L << bit)) == 0)
+					return false;
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * @param initialCapacity grams in the first stage
+	 * @param fpp target false positive rate, e.g. <code>0.01</code>
+	 */
+	public WordGramBloomFilter(long initialCapacity, double fpp) {
+		this.initialCapacity = initialCapacity;
+		this.fpp = fpp;
+		this.stages = new Stage[] {new Stage(initialCapacity, fpp * (1 - TIGHTENING))};
+	}
+
+	//////////////////////////////
+	// Probing
+	//////////////////////////////
+
+	/**
+	 * @param gramId
+	 * @return <code>false</code> if <code>gramId</code> has certainly never been added
+	 */
+	public boolean mightContain(String gramId) {
+		return mightContain(hashId(gramId));
+	}
+
+	/**
+	 * @param words
+	 * @param off
+	 * @param len
+	 * @return <code>false</code> if the gram has certainly never been added
+	 */
+	public boolean mightContain(long [] words, int off, int len) {
+		return mightContain(WordGramIdCodec.hash64(words, off, len));
+	}
+
+	/**
+	 * @param grams
+	 * @param index a gram in <code>grams</code>
+	 * @return <code>false</code> if the gram has certainly never been added
+	 */
+	public boolean mightContain(GramBuffer grams, int index) {
+		return mightContain(grams.hash64(index));
+	}
+
+	private boolean mightContain(long hash) {
+		Stage [] s = stages;
+		for (int i = s.length - 1; i >= 0; i--)
+			if (s[i].mightContain(hash))
+				return true;
+		return false;
+	}
+
+	//////////////////////////////
+	// Adding
+	//////////////////////////////
+
+	public void add(String gramId) {
+		add(hashId(gramId));
+	}
+
+	public void add(long [] words, int off, int len) {
+		add(WordGramIdCodec.hash64(words, off, len));
+	}
+
+	private void add(long hash) {
+		Stage [] s = stages;
+		Stage last = s[s.length - 1];
+		if (last.put(hash) && last.count.incrementAndGet() >= last.capacity)
+			grow(last);
+	}
+
+	private synchronized void grow(Stage full) {
+		Stage [] s = stages;
+		if (s[s.length - 1] != full)
+			return;
+		Stage [] more = new Stage[s.length + 1];
+		System.arraycopy(s, 0, more, 0, s.length);
+		long capacity = (long)(full.capacity * GROWTH);
+		double p = fpp * Math.pow(TIGHTENING, s.length + 1);
+		more[s.length] = new Stage(capacity, p);
+		stages = more;
+	}
+
+	@Override
+	public void wordGramCreated(String gramId) {
+		add(gramId);
+	}
+
+	/**
+	 * @return approximate number of distinct grams added
+	 */
+	public long getApproximateCount() {
+		long result = 0;
+		for (Stage s : stages)
+			result += s.count.get();
+		return result;
+	}
+
+	/**
+	 * @return bits in use across all stages
+	 */
+	public long getBitCount() {
+		long result = 0;
+		for (Stage s : stages)
+			result += s.bitCount;
+		return result;
+	}
+
+	//////////////////////////////
+	// Startup
+	//////////////////////////////
+
+	/**
+	 * Add every gram id returned by <code>sql</code>, e.g.
+	 * <code>SELECT id FROM tq_wordgram</code>
+	 * @param conn
+	 * @param sql first column is the gram id
+	 * @param r collects any errors
+	 * @return number of rows read
+	 */
+	public long load(IPostgresConnection conn, String sql, IResult r) {
+		long result = 0;
+		IResult rx = conn.executeSelect(sql);
+		if (rx.hasError()) {
+			r.addErrorString(rx.getErrorString());
+			return result;
+		}
+		ResultSet rs = (ResultSet)rx.getResultObject();
+		if (rs == null)
+			return result;
+		Statement stmt = null;
+		try {
+			stmt = rs.getStatement();
+			while (rs.next()) {
+				add(rs.getString(1));
+				result++;
+			}
+		} catch (Exception e) {
+			r.addErrorString(e.getMessage());
+		}
+		conn.closeResultSet(rs, r);
+		if (stmt != null)
+			conn.closeStatement(stmt, r);
+		return result;
+	}
+
+	public void writeTo(Path path) throws IOException {
+		try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(path), 1 << 16)) {
+			writeTo(out);
+		}
+	}
+
+	public void writeTo(OutputStream os) throws IOException {
+		DataOutputStream out = new DataOutputStream(os);
+		Stage [] s = stages;
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeLong(initialCapacity);
+		out.writeDouble(fpp);
+		out.writeInt(s.length);
+		for (Stage st : s) {
+			out.writeLong(st.capacity);
+			out.writeLong(st.bitCount);
+			out.writeInt(st.hashes);
+			out.writeLong(st.count.get());
+			int n = st.bits.length();
+			for (int i = 0; i < n; i++)
+				out.writeLong(st.bits.get(i));
+		}
+		out.flush();
+	}
+
+	public static WordGramBloomFilter readFrom(Path path) throws IOException {
+		try (InputStream in = new BufferedInputStream(Files.newInputStream(path), 1 << 16)) {
+			return readFrom(in);
+		}
+	}
+
+	public static WordGramBloomFilter readFrom(InputStream is) throws IOException {
+		DataInputStream in = new DataInputStream(is);
+		if (in.readInt() != MAGIC || in.readInt() != VERSION)
+			throw new IOException("Not a WordGram bloom filter");
+		WordGramBloomFilter result = new WordGramBloomFilter(in.readLong(), in.readDouble());
+		int n = in.readInt();
+		Stage [] s = new Stage[n];
+		for (int k = 0; k < n; k++) {
+			long capacity = in.readLong();
+			long bitCount = in.readLong();
+			int hashes = in.readInt();
+			Stage st = new Stage(capacity, bitCount, hashes);
+			st.count.set(in.readLong());
+			int words = st.bits.length();
+			for (int i = 0; i < words; i++)
+				st.bits.set(i, in.readLong());
+			s[k] = st;
+		}
+		result.stages = s;
+		return result;
+	}
+
+	//////////////////////////////
+	// Hashing
+	//////////////////////////////
+
+	/**
+	 * Numeric ids hash as their word ids do; anything else by FNV-1a
+	 */
+	private long hashId(String gramId) {
+		if (isNumericId(gramId)) {
+			long [] words = scratch.get();
+			int len = WordGramIdCodec.parse(gramId, words, 0);
+			return WordGramIdCodec.hash64(words, 0, len);
+		}
+		long h = 0xCBF29CE484222325L;
+		int n = gramId.length();
+		for (int i = 0; i < n; i++) {
+			h ^= gramId.charAt(i);
+			h *= 0x100000001B3L;
+		}
+		return WordGramIdCodec.mix64(h);
+	}
+
+	private static boolean isNumericId(String s) {
+		int n = s.length();
+		int parts = 1;
+		int digits = 0;
+		for (int i = 0; i < n; i++) {
+			char c = s.charAt(i);
+			if (c == WordGramIdCodec.DELIMITER) {
+				if (digits == 0 || ++parts > WordGramIdCodec.MAX_GRAM_SIZE)
+					return false;
+				digits = 0;
+			} else if (c >= '0' && c <= '9') {
+				if (++digits > 18)
+					return false;
+			} else
+				return false;
+		}
+		return digits > 0;
+	}
+}
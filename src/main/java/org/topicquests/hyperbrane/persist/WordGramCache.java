@@ -0,0 +1,358 @@
+/*
+ * Copyright 2026 TopicQuests Foundation
+ *  This source code is available under the terms of the Affero General Public License v3.
+ *  Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+ */
+package org.topicquests.hyperbrane.persist;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToIntFunction;
+
+import org.topicquests.hyperbrane.api.IWordGram;
+import org.topicquests.hyperbrane.api.IWordGramListener;
+
+/**
+ * <p>Bounded {@link IWordGramCache} with W-TinyLFU eviction.</p>
+ * <p>New grams enter a small LRU <em>window</em> (1% of capacity). A gram
+ * pushed out of the window is admitted to the main space only if a
+ * frequency sketch says it has been wanted more often than the gram it
+ * would displace. So one pass over a huge document, touching millions of
+ * grams once each, does not flush the stop words and frequent nouns
+ * every sentence needs. The main space is a segmented LRU: grams hit again
+ * while on probation move to a protected segment (80% of main).</p>
+ * <p>Capacity is in estimated bytes; see {@link #estimateBytes(IWordGram)}.</p>
+ * <p>Register with {@link WordGramEvents}: a gram is dropped when its version,
+ * a topic locator or its redirect changes, so readers refetch it.</p>
+ * <p>Lookups are lock-free. Recording a hit takes the policy lock only if
+ * it is free, so under contention some hits go uncounted rather than
+ * making readers wait.</p>
+ */
+public class WordGramCache implements IWordGramCache, IWordGramListener {
+	private static final int WINDOW = 0, PROBATION = 1, PROTECTED = 2;
+	private final ConcurrentHashMap<String, Node> data;
+	private final ReentrantLock lock = new ReentrantLock();
+	private final FrequencySketch sketch;
+	private final ToIntFunction<IWordGram> weigher;
+	private final long maxWeight;
+	private final long windowMax;
+	private final long protectedMax;
+	private final AccessQueue [] queues = {new AccessQueue(), new AccessQueue(), new AccessQueue()};
+	private final long [] weights = new long[3];
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	private final LongAdder invalidations = new LongAdder();
+
+	private static final class Node {
+		final String key;
+		final IWordGram value;
+		final int weight;
+		int queue = -1;
+		Node prev, next;
+
+		Node(String key, IWordGram value, int weight) {
+			this.key = key;
+			this.value = value;
+			this.weight = weight;
+		}
+	}
+
+	/** access ordered: head is least recently used */
+	private static final class AccessQueue {
+		final Node head = new Node(null, null, 0);
+
+		AccessQueue() {
+			head.prev = head;
+			head.next = head;
+		}
+
+		boolean isEmpty() {
+			return head.next == head;
+		}
+
+		Node first() {
+			return head.next;
+		}
+
+		void addLast(Node n) {
+			n.prev = head.prev;
+			n.next = head;
+			head.prev.next = n;
+			head.prev = n;
+		}
+
+		void unlink(Node n) {
+			n.prev.next = n.next;
+			n.next.prev = n.prev;
+			n.prev = n.next = null;
+		}
+	}
+
+	/**
+	 * Weighs grams with {@link #estimateBytes(IWordGram)}
+	 * @param maxBytes
+	 * @param expectedEntries sizes the frequency sketch
+	 */
+	public WordGramCache(long maxBytes, int expectedEntries) {
+		this(maxBytes, expectedEntries, WordGramCache::estimateBytes);
+	}
+
+	/**
+	 * @param maxWeight
+	 * @param expectedEntries sizes the frequency sketch
+	 * @param weigher
+	 */
+	public WordGramCache(long maxWeight, int expectedEntries, ToIntFunction<IWordGram> weigher) {
+		this.maxWeight = maxWeight;
+		this.windowMax = Math.max(1, maxWeight / 100);
+		this.protectedMax = (long)((maxWeight - windowMax) * 0.8);
+		this.weigher = weigher;
+		this.sketch = new FrequencySketch(expectedEntries);
+		this.data = new ConcurrentHashMap<String, Node>(expectedEntries);
+	}
+
+	@Override
+	public IWordGram get(String gramId) {
+		Node n = data.get(gramId);
+		if (n == null) {
+			misses.increment();
+			if (lock.tryLock()) {
+				try {
+					sketch.increment(gramId.hashCode());
+				} finally {
+					lock.unlock();
+				}
+			}
+			return null;
+		}
+		hits.increment();
+		if (lock.tryLock()) {
+			try {
+				sketch.increment(gramId.hashCode());
+				if (n.queue >= 0)
+					touch(n);
+			} finally {
+				lock.unlock();
+			}
+		}
+		return n.value;
+	}
+
+	@Override
+	public void put(IWordGram gram) {
+		String key = gram.getID();
+		Node n = new Node(key, gram, Math.max(1, weigher.applyAsInt(gram)));
+		if (n.weight > maxWeight)
+			return;
+		lock.lock();
+		try {
+			Node old = data.put(key, n);
+			if (old != null)
+				unlink(old);
+			sketch.increment(key.hashCode());
+			link(n, WINDOW);
+			evict();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void invalidate(String gramId) {
+		Node n = data.remove(gramId);
+		if (n != null) {
+			invalidations.increment();
+			lock.lock();
+			try {
+				unlink(n);
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	@Override
+	public void clear() {
+		lock.lock();
+		try {
+			data.clear();
+			for (int q = 0; q < 3; q++) {
+				while (!queues[q].isEmpty())
+					unlink(queues[q].first());
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	//////////////////////////////
+	// IWordGramListener
+	//////////////////////////////
+
+	@Override
+	public void versionChanged(String gramId, String version) {
+		invalidate(gramId);
+	}
+
+	@Override
+	public void topicLocatorSubstituted(String gramId, String oldLocator, String newLocator) {
+		invalidate(gramId);
+	}
+
+	@Override
+	public void redirectChanged(String gramId, String newWordGramId) {
+		invalidate(gramId);
+	}
+
+	//////////////////////////////
+	// Stats
+	//////////////////////////////
+
+	public int size() {
+		return data.size();
+	}
+
+	/**
+	 * @return estimated bytes held
+	 */
+	public long getWeightedSize() {
+		lock.lock();
+		try {
+			return weights[WINDOW] + weights[PROBATION] + weights[PROTECTED];
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public long getHitCount() {
+		return hits.sum();
+	}
+
+	public long getMissCount() {
+		return misses.sum();
+	}
+
+	public long getEvictionCount() {
+		return evictions.sum();
+	}
+
+	public long getInvalidationCount() {
+		return invalidations.sum();
+	}
+
+	/**
+	 * <p>Rough heap footprint of a gram: its JSON data walked as
+	 * maps, lists and strings, plus object overheads.</p>
+	 * @param gram
+	 * @return
+	 */
+	public static int estimateBytes(IWordGram gram) {
+		long result = 96 + estimate(gram.getJSONObject());
+		return (int)Math.min(Integer.MAX_VALUE, result);
+	}
+
+	private static long estimate(Object o) {
+		if (o == null)
+			return 0;
+		if (o instanceof String)
+			return 40 + 2L * ((String)o).length();
+		if (o instanceof Map) {
+			long result = 64;
+			for (Map.Entry<?, ?> e : ((Map<?, ?>)o).entrySet())
+				result += 32 + estimate(e.getKey()) + estimate(e.getValue());
+			return result;
+		}
+		if (o instanceof List) {
+			long result = 40;
+			for (Object x : (List<?>)o)
+				result += 8 + estimate(x);
+			return result;
+		}
+		return 24;
+	}
+
+	//////////////////////////////
+	// Policy, under lock
+	//////////////////////////////
+
+	private void link(Node n, int queue) {
+		n.queue = queue;
+		queues[queue].addLast(n);
+		weights[queue] += n.weight;
+	}
+
+	private void unlink(Node n) {
+		if (n.queue >= 0) {
+			queues[n.queue].unlink(n);
+			weights[n.queue] -= n.weight;
+			n.queue = -1;
+		}
+	}
+
+	private void touch(Node n) {
+		int q = n.queue;
+		unlink(n);
+		if (q == PROBATION) {
+			link(n, PROTECTED);
+			while (weights[PROTECTED] > protectedMax) {
+				Node demoted = queues[PROTECTED].first();
+				unlink(demoted);
+				link(demoted, PROBATION);
+			}
+		} else
+			link(n, q);
+	}
+
+	private void evict() {
+		// grams leaving the window are candidates for the main space
+		while (weights[WINDOW] > windowMax) {
+			Node candidate = queues[WINDOW].first();
+			unlink(candidate);
+			link(candidate, PROBATION);
+			while (total() > maxWeight) {
+				Node victim = mainVictim(candidate);
+				if (victim == null)
+					break;
+				if (victim != candidate &&
+						sketch.frequency(candidate.key.hashCode()) > sketch.frequency(victim.key.hashCode()))
+					remove(victim);
+				else {
+					remove(candidate);
+					break;
+				}
+			}
+		}
+		// the window alone can still be over capacity with huge grams
+		while (total() > maxWeight && !queues[WINDOW].isEmpty())
+			remove(queues[WINDOW].first());
+	}
+
+	/**
+	 * Least recently used gram of the main space, other than the candidate
+	 * if possible
+	 */
+	private Node mainVictim(Node candidate) {
+		Node n = queues[PROBATION].first();
+		if (n == candidate && n.next != queues[PROBATION].head)
+			return n.next;
+		if (n != queues[PROBATION].head && n != candidate)
+			return n;
+		if (!queues[PROTECTED].isEmpty())
+			return queues[PROTECTED].first();
+		return n == queues[PROBATION].head ? null : n;
+	}
+
+	private void remove(Node n) {
+		unlink(n);
+		data.remove(n.key, n);
+		evictions.increment();
+	}
+
+	private long total() {
+		return weights[WINDOW] + weights[PROBATION] + weights[PROTECTED];
+	}
+}
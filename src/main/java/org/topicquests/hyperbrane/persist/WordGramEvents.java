@@ -0,0 +1,125 @@
+/*
+ * Copyright 2026 TopicQuests Foundation
+ *  This source code is available under the terms of the Affero General Public License v3.
+ *  Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+ */
+package org.topicquests.hyperbrane.persist;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.topicquests.hyperbrane.api.IWordGramListener;
+
+/**
+ * <p>Fans {@link IWordGramListener} events out to every registered listener.</p>
+ * <p>An {@link org.topicquests.hyperbrane.api.IWordGram} implementation
+ * holds one of these and fires into it; indexes and caches register
+ * with it.</p>
+ * <p>Inside a transaction, call {@link #defer()} first: events fired on
+ * that thread are then held until {@link #release()}, after the commit,
+ * or dropped by {@link #discard()} on rollback, so listeners never see a
+ * change which did not happen.</p>
+ */
+public class WordGramEvents implements IWordGramListener {
+	private final CopyOnWriteArrayList<IWordGramListener> listeners =
+			new CopyOnWriteArrayList<IWordGramListener>();
+	private final ThreadLocal<List<Runnable>> deferred = new ThreadLocal<List<Runnable>>();
+
+	public void addListener(IWordGramListener l) {
+		listeners.addIfAbsent(l);
+	}
+
+	public void removeListener(IWordGramListener l) {
+		listeners.remove(l);
+	}
+
+	public boolean hasListener(IWordGramListener l) {
+		return listeners.contains(l);
+	}
+
+	/**
+	 * Hold events fired on this thread until {@link #release()} or {@link #discard()}
+	 */
+	public void defer() {
+		if (deferred.get() == null)
+			deferred.set(new ArrayList<Runnable>());
+	}
+
+	/**
+	 * Deliver the events held on this thread, in order, and stop holding
+	 */
+	public void release() {
+		List<Runnable> held = deferred.get();
+		deferred.remove();
+		if (held != null)
+			for (Runnable r : held)
+				r.run();
+	}
+
+	/**
+	 * Drop the events held on this thread and stop holding
+	 */
+	public void discard() {
+		deferred.remove();
+	}
+
+	/**
+	 * @return <code>true</code> if <code>event</code> was held for later
+	 */
+	private boolean held(Runnable event) {
+		List<Runnable> held = deferred.get();
+		if (held == null)
+			return false;
+		held.add(event);
+		return true;
+	}
+
+	@Override
+	public void wordGramCreated(String gramId) {
+		if (held(() -> wordGramCreated(gramId)))
+			return;
+		for (IWordGramListener l : listeners)
+			l.wordGramCreated(gramId);
+	}
+
+	@Override
+	public void versionChanged(String gramId, String version) {
+		if (held(() -> versionChanged(gramId, version)))
+			return;
+		for (IWordGramListener l : listeners)
+			l.versionChanged(gramId, version);
+	}
+
+	@Override
+	public void topicLocatorAdded(String gramId, String topicLocator) {
+		if (held(() -> topicLocatorAdded(gramId, topicLocator)))
+			return;
+		for (IWordGramListener l : listeners)
+			l.topicLocatorAdded(gramId, topicLocator);
+	}
+
+	@Override
+	public void topicLocatorRemoved(String gramId, String topicLocator) {
+		if (held(() -> topicLocatorRemoved(gramId, topicLocator)))
+			return;
+		for (IWordGramListener l : listeners)
+			l.topicLocatorRemoved(gramId, topicLocator);
+	}
+
+	@Override
+	public void topicLocatorSubstituted(String gramId, String oldLocator, String newLocator) {
+		if (held(() -> topicLocatorSubstituted(gramId, oldLocator, newLocator)))
+			return;
+		for (IWordGramListener l : listeners)
+			l.topicLocatorSubstituted(gramId, oldLocator, newLocator);
+	}
+
+	@Override
+	public void redirectChanged(String gramId, String newWordGramId) {
+		if (held(() -> redirectChanged(gramId, newWordGramId)))
+			return;
+		for (IWordGramListener l : listeners)
+			l.redirectChanged(gramId, newWordGramId);
+	}
+}
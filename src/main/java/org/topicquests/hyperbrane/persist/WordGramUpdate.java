@@ -0,0 +1,185 @@
+/*
+ * Copyright 2026 TopicQuests Foundation
+ *  This source code is available under the terms of the Affero General Public License v3.
+ *  Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+ */
+package org.topicquests.hyperbrane.persist;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.topicquests.hyperbrane.api.IWordGramFields;
+
+/**
+ * <p>The coalesced, not yet persisted changes to one
+ * {@link org.topicquests.hyperbrane.api.IWordGram}, keyed by
+ * {@link IWordGramFields} names.</p>
+ * <ul>
+ * <li>Scalars: last write wins</li>
+ * <li>Lists: values keep their order and duplicates; an add followed by
+ *   a remove of the same value, or the reverse, cancels one occurrence of
+ *   the first and keeps the last. Writers apply removes before adds.</li>
+ * <li>Maps: last put per key wins</li>
+ * </ul>
+ * <p>Not thread safe; {@link WordGramWriteBehindBuffer} guards it.</p>
+ */
+public class WordGramUpdate {
+	private final String gramId;
+	private final Map<String, Object> sets = new LinkedHashMap<String, Object>();
+	private final Map<String, List<String>> adds = new LinkedHashMap<String, List<String>>();
+	private final Map<String, List<String>> removes = new LinkedHashMap<String, List<String>>();
+	private final Map<String, Map<String, String>> puts = new LinkedHashMap<String, Map<String, String>>();
+	private int mutationCount;
+
+	public WordGramUpdate(String gramId) {
+		this.gramId = gramId;
+	}
+
+	public String getGramId() {
+		return gramId;
+	}
+
+	/**
+	 * Set a scalar field
+	 * @param field e.g. {@link IWordGramFields#LEMMA}
+	 * @param value
+	 */
+	public void set(String field, Object value) {
+		sets.put(field, value);
+		mutationCount++;
+	}
+
+	/**
+	 * Add <code>value</code> to a list field
+	 * @param field e.g. {@link IWordGramFields#SENTENCE_IDS}
+	 * @param value
+	 */
+	public void add(String field, String value) {
+		List<String> r = removes.get(field);
+		if (r != null)
+			r.remove(value);
+		valuesOf(adds, field).add(value);
+		mutationCount++;
+	}
+
+	/**
+	 * Remove <code>value</code> from a list field
+	 * @param field
+	 * @param value
+	 */
+	public void remove(String field, String value) {
+		List<String> a = adds.get(field);
+		int i = a == null ? -1 : a.lastIndexOf(value);
+		if (i >= 0)
+			a.remove(i);
+		valuesOf(removes, field).add(value);
+		mutationCount++;
+	}
+
+	/**
+	 * Swap <code>oldValue</code> for <code>newValue</code> in a list field,
+	 * e.g. <code>substituteTopicLocator</code>
+	 * @param field
+	 * @param oldValue
+	 * @param newValue
+	 */
+	public void substitute(String field, String oldValue, String newValue) {
+		remove(field, oldValue);
+		add(field, newValue);
+		mutationCount--;
+	}
+
+	/**
+	 * Put a keyed value, e.g. {@link IWordGramFields#ROLES}
+	 * @param field
+	 * @param key
+	 * @param value
+	 */
+	public void put(String field, String key, String value) {
+		Map<String, String> m = puts.get(field);
+		if (m == null) {
+			m = new LinkedHashMap<String, String>();
+			puts.put(field, m);
+		}
+		m.put(key, value);
+		mutationCount++;
+	}
+
+	/**
+	 * Fold <code>later</code>'s changes into this one, as if they
+	 * had been made here after everything already recorded
+	 * @param later
+	 */
+	public void merge(WordGramUpdate later) {
+		int before = mutationCount;
+		sets.putAll(later.sets);
+		for (Map.Entry<String, List<String>> e : later.removes.entrySet())
+			for (String v : e.getValue())
+				remove(e.getKey(), v);
+		for (Map.Entry<String, List<String>> e : later.adds.entrySet())
+			for (String v : e.getValue())
+				add(e.getKey(), v);
+		for (Map.Entry<String, Map<String, String>> e : later.puts.entrySet())
+			for (Map.Entry<String, String> kv : e.getValue().entrySet())
+				put(e.getKey(), kv.getKey(), kv.getValue());
+		mutationCount = before + later.mutationCount;
+	}
+
+	public boolean isEmpty() {
+		return sets.isEmpty() && isEmpty(adds) && isEmpty(removes) && puts.isEmpty();
+	}
+
+	/**
+	 * @return number of mutations folded into this update
+	 */
+	public int getMutationCount() {
+		return mutationCount;
+	}
+
+	/**
+	 * @return scalar fields to set; read-only
+	 */
+	public Map<String, Object> getSets() {
+		return Collections.unmodifiableMap(sets);
+	}
+
+	/**
+	 * @return values to add, per list field; read-only
+	 */
+	public Map<String, List<String>> getAdds() {
+		return Collections.unmodifiableMap(adds);
+	}
+
+	/**
+	 * @return values to remove, per list field; read-only
+	 */
+	public Map<String, List<String>> getRemoves() {
+		return Collections.unmodifiableMap(removes);
+	}
+
+	/**
+	 * @return keyed values to put, per map field; read-only
+	 */
+	public Map<String, Map<String, String>> getPuts() {
+		return Collections.unmodifiableMap(puts);
+	}
+
+	private static List<String> valuesOf(Map<String, List<String>> m, String field) {
+		List<String> result = m.get(field);
+		if (result == null) {
+			result = new ArrayList<String>();
+			m.put(field, result);
+		}
+		return result;
+	}
+
+	private static boolean isEmpty(Map<String, List<String>> m) {
+		for (List<String> s : m.values())
+			if (!s.isEmpty())
+				return false;
+		return true;
+	}
+}
@@ -0,0 +1,434 @@
+/*
+ * Copyright 2026 TopicQuests Foundation
+ *  This source code is available under the terms of the Affero General Public License v3.
+ *  Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+ */
+package org.topicquests.hyperbrane.persist;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.topicquests.hyperbrane.api.IWordGramFields;
+import org.topicquests.pg.api.IPostgresConnection;
+import org.topicquests.support.ResultPojo;
+import org.topicquests.support.api.IResult;
+
+/**
+ * <p>Write-behind buffer for the persistence setters of
+ * {@link org.topicquests.hyperbrane.api.IWordGram}.</p>
+ * <p>Rather than one <code>UPDATE</code> per call to, say,
+ * <code>addSentenceId(conn, ...)</code>, a gram implementation records the
+ * mutation here; all mutations to one gram are coalesced into a single
+ * {@link WordGramUpdate}, and updates are handed to an
+ * {@link IWordGramUpdateWriter} in batches when:</p>
+ * <ul>
+ * <li>the number of grams pending reaches <code>maxPendingGrams</code></li>
+ * <li><code>maxDelayMillis</code> has passed, once {@link #start()} is called</li>
+ * <li>a caller reaches a transaction boundary and calls
+ *   {@link #flush(IPostgresConnection, IResult)} or {@link #flush()}</li>
+ * </ul>
+ * <p>Recording is safe from any number of threads; flushing uses the
+ * buffer's own connection, one flush at a time. A batch which fails is
+ * rolled back and its updates are put back, ahead of anything recorded
+ * since, for the next flush.</p>
+ * <p>Once pending grams reach <code>maxPendingGrams</code>, a mutation
+ * without a scheduler to hand off to flushes inline, one thread at a time.
+ * If that flush fails, or leaves the buffer still full (e.g. its grams are
+ * in flight), inline and requested flushes wait <code>maxDelayMillis</code>
+ * before trying again rather than retrying on every mutation.</p>
+ * <p>Updates written into a caller's transaction stay in flight until the
+ * caller reports its outcome with {@link #committed(InFlight)} or
+ * {@link #rolledBack(InFlight)}; meanwhile no other flush writes those
+ * grams, and a rollback puts the updates back.</p>
+ * <p>Field names are those of {@link IWordGramFields}.</p>
+ */
+public class WordGramWriteBehindBuffer {
+	private final IPostgresConnection conn;
+	private final IWordGramUpdateWriter writer;
+	private final int maxPendingGrams;
+	private final int batchSize;
+	private final long maxDelayMillis;
+	private final ConcurrentHashMap<String, WordGramUpdate> pending;
+	/** grams written into a caller's transaction which is not yet over */
+	private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+	private final Object flushLock = new Object();
+	private final AtomicBoolean flushRequested = new AtomicBoolean(false);
+	private final LongAdder mutations = new LongAdder();
+	private final LongAdder gramsWritten = new LongAdder();
+	private final LongAdder flushes = new LongAdder();
+	private final LongAdder failures = new LongAdder();
+	private volatile String lastError;
+	/** no flush is requested by a mutation before this time */
+	private volatile long retryAfter;
+	private volatile ScheduledExecutorService scheduler;
+
+	/**
+	 * Updates written into a caller's transaction, awaiting its outcome
+	 */
+	public static final class InFlight {
+		private final List<WordGramUpdate> updates;
+		private boolean over;
+
+		InFlight(List<WordGramUpdate> updates) {
+			this.updates = updates;
+		}
+
+		/**
+		 * @return number of grams written
+		 */
+		public int size() {
+			return updates.size();
+		}
+	}
+
+	/**
+	 * @param conn used only for flushing
+	 * @param writer
+	 * @param maxPendingGrams flush when this many grams have pending changes
+	 * @param batchSize most grams per physical transaction
+	 * @param maxDelayMillis longest a change waits once {@link #start()} is called
+	 */
+	public WordGramWriteBehindBuffer(IPostgresConnection conn, IWordGramUpdateWriter writer,
+			int maxPendingGrams, int batchSize, long maxDelayMillis) {
+		this.conn = conn;
+		this.writer = writer;
+		this.maxPendingGrams = maxPendingGrams;
+		this.batchSize = batchSize;
+		this.maxDelayMillis = maxDelayMillis;
+		this.pending = new ConcurrentHashMap<String, WordGramUpdate>(maxPendingGrams * 2);
+	}
+
+	/**
+	 * Begin time-based flushing
+	 */
+	public synchronized void start() {
+		if (scheduler != null)
+			return;
+		scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "WordGramWriteBehind");
+			t.setDaemon(true);
+			return t;
+		});
+		scheduler.scheduleWithFixedDelay(this::backgroundFlush,
+				maxDelayMillis, maxDelayMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stop time-based flushing and flush whatever is pending
+	 * @return
+	 */
+	public IResult close() {
+		synchronized (this) {
+			if (scheduler != null) {
+				scheduler.shutdown();
+				try {
+					scheduler.awaitTermination(maxDelayMillis * 2, TimeUnit.MILLISECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				scheduler = null;
+			}
+		}
+		return flush();
+	}
+
+	//////////////////////////////
+	// Recording
+	//////////////////////////////
+
+	/**
+	 * @param gramId
+	 * @param field a scalar field, e.g. {@link IWordGramFields#LEMMA}
+	 * @param value
+	 */
+	public void set(String gramId, String field, Object value) {
+		pending.compute(gramId, (k, u) -> {
+			u = u == null ? new WordGramUpdate(k) : u;
+			u.set(field, value);
+			return u;
+		});
+		recorded();
+	}
+
+	/**
+	 * @param gramId
+	 * @param field a list field, e.g. {@link IWordGramFields#SENTENCE_IDS}
+	 * @param value
+	 */
+	public void add(String gramId, String field, String value) {
+		pending.compute(gramId, (k, u) -> {
+			u = u == null ? new WordGramUpdate(k) : u;
+			u.add(field, value);
+			return u;
+		});
+		recorded();
+	}
+
+	/**
+	 * @param gramId
+	 * @param field a list field
+	 * @param value
+	 */
+	public void remove(String gramId, String field, String value) {
+		pending.compute(gramId, (k, u) -> {
+			u = u == null ? new WordGramUpdate(k) : u;
+			u.remove(field, value);
+			return u;
+		});
+		recorded();
+	}
+
+	/**
+	 * @param gramId
+	 * @param field a list field, e.g. {@link IWordGramFields#TOPIC_LOCATORS}
+	 * @param oldValue
+	 * @param newValue
+	 */
+	public void substitute(String gramId, String field, String oldValue, String newValue) {
+		pending.compute(gramId, (k, u) -> {
+			u = u == null ? new WordGramUpdate(k) : u;
+			u.substitute(field, oldValue, newValue);
+			return u;
+		});
+		recorded();
+	}
+
+	/**
+	 * @param gramId
+	 * @param field a map field, e.g. {@link IWordGramFields#ROLES}
+	 * @param key
+	 * @param value
+	 */
+	public void put(String gramId, String field, String key, String value) {
+		pending.compute(gramId, (k, u) -> {
+			u = u == null ? new WordGramUpdate(k) : u;
+			u.put(field, key, value);
+			return u;
+		});
+		recorded();
+	}
+
+	/**
+	 * Returns <code>true</code> if <code>gramId</code> has changes
+	 * which are not yet persisted
+	 * @param gramId
+	 * @return
+	 */
+	public boolean hasPending(String gramId) {
+		return pending.containsKey(gramId);
+	}
+
+	/**
+	 * @return number of grams with pending changes
+	 */
+	public int getPendingCount() {
+		return pending.size();
+	}
+
+	//////////////////////////////
+	// Flushing
+	//////////////////////////////
+
+	/**
+	 * Persist everything pending, using this buffer's connection,
+	 * one transaction per batch
+	 * @return any errors
+	 */
+	public IResult flush() {
+		IResult result = new ResultPojo();
+		synchronized (flushLock) {
+			flushRequested.set(false);
+			List<WordGramUpdate> all = drain();
+			for (int i = 0; i < all.size(); i += batchSize) {
+				List<WordGramUpdate> batch = all.subList(i, Math.min(i + batchSize, all.size()));
+				IResult r = conn.beginTransaction();
+				if (!r.hasError()) {
+					try {
+						writer.writeUpdates(conn, batch, r);
+					} catch (Exception e) {
+						r.addErrorString(e.getMessage());
+					}
+				}
+				if (r.hasError()) {
+					conn.rollback();
+					failed(all.subList(i, all.size()), r.getErrorString(), result);
+					break;
+				}
+				r = conn.endTransaction();
+				if (r.hasError()) {
+					conn.rollback();
+					failed(all.subList(i, all.size()), r.getErrorString(), result);
+					break;
+				}
+				gramsWritten.add(batch.size());
+			}
+			flushes.increment();
+		}
+		return result;
+	}
+
+	/**
+	 * <p>Persist everything pending inside the caller's transaction, e.g.
+	 * just before the caller's <code>endTransaction</code>. The caller must
+	 * then pass the returned value to {@link #committed(InFlight)} once its
+	 * transaction commits, or to {@link #rolledBack(InFlight)} if it rolls
+	 * back or its commit fails. On error the updates are put back at once
+	 * and the caller should roll back.</p>
+	 * @param callerConn
+	 * @param r collects any errors
+	 * @return what was written
+	 * @throws Exception
+	 */
+	public InFlight flush(IPostgresConnection callerConn, IResult r) throws Exception {
+		synchronized (flushLock) {
+			List<WordGramUpdate> all = drain();
+			if (all.isEmpty())
+				return new InFlight(Collections.<WordGramUpdate>emptyList());
+			try {
+				writer.writeUpdates(callerConn, all, r);
+			} catch (Exception e) {
+				failed(all, e.getMessage(), r);
+				throw e;
+			}
+			flushes.increment();
+			if (r.hasError()) {
+				failed(all, r.getErrorString(), new ResultPojo());
+				return new InFlight(Collections.<WordGramUpdate>emptyList());
+			}
+			for (WordGramUpdate u : all)
+				inFlight.add(u.getGramId());
+			return new InFlight(all);
+		}
+	}
+
+	/**
+	 * The caller's transaction holding <code>f</code> committed
+	 * @param f
+	 */
+	public void committed(InFlight f) {
+		synchronized (flushLock) {
+			if (f.over)
+				return;
+			f.over = true;
+			gramsWritten.add(f.updates.size());
+			for (WordGramUpdate u : f.updates)
+				inFlight.remove(u.getGramId());
+		}
+	}
+
+	/**
+	 * The caller's transaction holding <code>f</code> rolled back, or its
+	 * commit failed: put its updates back for the next flush
+	 * @param f
+	 */
+	public void rolledBack(InFlight f) {
+		synchronized (flushLock) {
+			if (f.over)
+				return;
+			f.over = true;
+			if (f.updates.isEmpty())
+				return;
+			failed(f.updates, "Caller's transaction rolled back", new ResultPojo());
+			for (WordGramUpdate u : f.updates)
+				inFlight.remove(u.getGramId());
+		}
+	}
+
+	//////////////////////////////
+	// Stats
+	//////////////////////////////
+
+	/**
+	 * @return mutations recorded
+	 */
+	public long getMutationCount() {
+		return mutations.sum();
+	}
+
+	/**
+	 * @return gram updates persisted; the ratio to {@link #getMutationCount()}
+	 * is the saving from coalescing
+	 */
+	public long getGramsWrittenCount() {
+		return gramsWritten.sum();
+	}
+
+	public long getFlushCount() {
+		return flushes.sum();
+	}
+
+	public long getFailureCount() {
+		return failures.sum();
+	}
+
+	/**
+	 * @return can return <code>null</code>
+	 */
+	public String getLastError() {
+		return lastError;
+	}
+
+	private void recorded() {
+		mutations.increment();
+		int n = pending.size();
+		if (n < maxPendingGrams || System.currentTimeMillis() < retryAfter
+				|| !flushRequested.compareAndSet(false, true))
+			return;
+		ScheduledExecutorService s = scheduler;
+		if (s == null || n >= maxPendingGrams * 2)
+			requestedFlush(); // no flusher, or writers are outrunning it: push back
+		else
+			s.execute(this::requestedFlush);
+	}
+
+	private void requestedFlush() {
+		IResult r = flush();
+		if (r.hasError() || pending.size() >= maxPendingGrams)
+			retryAfter = System.currentTimeMillis() + maxDelayMillis;
+	}
+
+	private void backgroundFlush() {
+		IResult r = flush();
+		if (r.hasError())
+			lastError = r.getErrorString();
+	}
+
+	/**
+	 * Take everything pending except grams in a caller's transaction
+	 */
+	private List<WordGramUpdate> drain() {
+		List<WordGramUpdate> result = new ArrayList<WordGramUpdate>(pending.size());
+		for (String id : pending.keySet()) {
+			if (inFlight.contains(id))
+				continue;
+			WordGramUpdate u = pending.remove(id);
+			if (u != null && !u.isEmpty())
+				result.add(u);
+		}
+		return result;
+	}
+
+	/**
+	 * Put <code>updates</code> back ahead of anything recorded since they were drained
+	 */
+	private void failed(List<WordGramUpdate> updates, String error, IResult r) {
+		failures.increment();
+		lastError = error;
+		r.addErrorString(error);
+		for (WordGramUpdate u : updates) {
+			pending.compute(u.getGramId(), (k, newer) -> {
+				if (newer != null)
+					u.merge(newer);
+				return u;
+			});
+		}
+	}
+}
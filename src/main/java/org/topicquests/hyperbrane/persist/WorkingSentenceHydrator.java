@@ -0,0 +1,162 @@
+/*
+ * Copyright 2026 TopicQuests Foundation
+ *  This source code is available under the terms of the Affero General Public License v3.
+ *  Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+ */
+package org.topicquests.hyperbrane.persist;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.topicquests.hyperbrane.api.IParagraph;
+import org.topicquests.hyperbrane.api.ISentence;
+import org.topicquests.hyperbrane.api.IWordGram;
+import org.topicquests.pg.api.IPostgresConnection;
+import org.topicquests.support.ResultPojo;
+import org.topicquests.support.api.IResult;
+
+/**
+ * <p>Hydrates <em>working sentences</em>: for each {@link ISentence}, fetch the
+ * {@link IWordGram}s named by {@link ISentence#getWorkingSentenceIds()} and
+ * call {@link ISentence#setWorkingSentence(List)}.</p>
+ * <p>Gram ids are deduplicated across all the sentences given, looked up in
+ * the shared {@link IWordGramCache} first, and whatever is left is fetched
+ * with a single <code>executeSelect</code> whose one parameter is the array
+ * of ids, e.g.</p>
+ * <pre>SELECT json FROM tq_wordgram WHERE id = ANY(?)</pre>
+ * <p>Very large requests are split into <code>maxIdsPerQuery</code> sized
+ * round trips. Fetched grams are added to the cache.</p>
+ * <p>Thread safe if the cache is; each caller supplies its own connection.</p>
+ */
+public class WorkingSentenceHydrator {
+	private final IWordGramCache cache;
+	private final IWordGramRowMapper mapper;
+	private final String selectSql;
+	private final int maxIdsPerQuery;
+
+	/**
+	 * @param cache can be <code>null</code>
+	 * @param mapper
+	 * @param selectSql takes one parameter: a <code>String[]</code> of gram ids
+	 * @param maxIdsPerQuery
+	 */
+	public WorkingSentenceHydrator(IWordGramCache cache, IWordGramRowMapper mapper,
+			String selectSql, int maxIdsPerQuery) {
+		this.cache = cache;
+		this.mapper = mapper;
+		this.selectSql = selectSql;
+		this.maxIdsPerQuery = maxIdsPerQuery;
+	}
+
+	/**
+	 * @param conn
+	 * @param sentence
+	 * @return result object is the <code>Integer</code> number of grams fetched from the database
+	 */
+	public IResult hydrate(IPostgresConnection conn, ISentence sentence) {
+		return hydrate(conn, Collections.singletonList(sentence));
+	}
+
+	/**
+	 * Hydrate every sentence of <code>paragraph</code>
+	 * @param conn
+	 * @param paragraph
+	 * @return result object is the <code>Integer</code> number of grams fetched from the database
+	 */
+	public IResult hydrate(IPostgresConnection conn, IParagraph paragraph) {
+		List<ISentence> sentences = paragraph.listSentences();
+		if (sentences == null)
+			sentences = Collections.emptyList();
+		return hydrate(conn, sentences);
+	}
+
+	/**
+	 * @param conn
+	 * @param sentences
+	 * @return result object is the <code>Integer</code> number of grams fetched from the database
+	 */
+	public IResult hydrate(IPostgresConnection conn, List<ISentence> sentences) {
+		IResult result = new ResultPojo();
+		Set<String> wanted = new LinkedHashSet<String>();
+		for (ISentence s : sentences) {
+			List<String> ids = s.getWorkingSentenceIds();
+			if (ids != null)
+				wanted.addAll(ids);
+		}
+		Map<String, IWordGram> found = new HashMap<String, IWordGram>(wanted.size() * 2);
+		List<String> missing = new ArrayList<String>();
+		for (String id : wanted) {
+			IWordGram g = cache == null ? null : cache.get(id);
+			if (g != null)
+				found.put(id, g);
+			else
+				missing.add(id);
+		}
+		int fetched = 0;
+		for (int i = 0; i < missing.size() && !result.hasError(); i += maxIdsPerQuery) {
+			List<String> chunk = missing.subList(i, Math.min(i + maxIdsPerQuery, missing.size()));
+			fetched += fetch(conn, chunk, found, result);
+		}
+		if (result.hasError())
+			return result;
+		for (ISentence s : sentences) {
+			List<String> ids = s.getWorkingSentenceIds();
+			if (ids == null)
+				continue;
+			List<IWordGram> ws = new ArrayList<IWordGram>(ids.size());
+			for (String id : ids) {
+				IWordGram g = found.get(id);
+				if (g != null)
+					ws.add(g);
+				else
+					result.addErrorString("Missing WordGram " + id + " in sentence " + s.getID());
+			}
+			s.setWorkingSentence(ws);
+		}
+		result.setResultObject(fetched);
+		return result;
+	}
+
+	/**
+	 * One round trip
+	 * @return number of grams fetched
+	 */
+	private int fetch(IPostgresConnection conn, List<String> ids, Map<String, IWordGram> found, IResult result) {
+		int count = 0;
+		// wrap: a bare String[] would be spread over the varargs
+		IResult r = conn.executeSelect(selectSql, new Object[] {ids.toArray(new String[ids.size()])});
+		if (r.hasError()) {
+			result.addErrorString(r.getErrorString());
+			return count;
+		}
+		ResultSet rs = (ResultSet)r.getResultObject();
+		if (rs == null)
+			return count;
+		Statement stmt = null;
+		try {
+			stmt = rs.getStatement();
+			while (rs.next()) {
+				IWordGram g = mapper.toWordGram(rs);
+				if (g == null)
+					continue;
+				found.put(g.getID(), g);
+				if (cache != null)
+					cache.put(g);
+				count++;
+			}
+		} catch (Exception e) {
+			result.addErrorString(e.getMessage());
+		}
+		conn.closeResultSet(rs, result);
+		if (stmt != null)
+			conn.closeStatement(stmt, result);
+		return count;
+	}
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2026 TopicQuests Foundation
+ *  This source code is available under the terms of the Affero General Public License v3.
+ *  Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+ */
+package org.topicquests.hyperbrane.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
+import org.topicquests.hyperbrane.api.IWordDictionary;
+
+/**
+ * <p>Growing, thread-safe {@link IWordDictionary}.</p>
+ * <p>Words known at startup live in a {@link FrozenWordDictionary}, typically
+ * memory-mapped; words first seen while reading go into a
+ * {@link ConcurrentHashMap}. Lookups never lock; a new word only locks
+ * its own hash bin while its id is assigned, so inserts from many reader
+ * threads do not contend on a global lock.</p>
+ * <p>{@link #freeze()} folds both into a new frozen dictionary which can
+ * be written out for the next startup.</p>
+ */
+public class ConcurrentWordDictionary implements IWordDictionary {
+	private static final int PAGE_BITS = 12;
+	private static final int PAGE_SIZE = 1 << PAGE_BITS;
+	private static final int PAGE_COUNT = 1 << 16;
+	private final FrozenWordDictionary base;
+	private final ConcurrentHashMap<String, Long> added;
+	/** reverse lookup of added words, paged by id */
+	private final AtomicReferenceArray<AtomicReferenceArray<String>> pages;
+	private final AtomicLong nextId;
+	private final Function<String, Long> assigner;
+
+	public ConcurrentWordDictionary() {
+		this(FrozenWordDictionary.empty());
+	}
+
+	/**
+	 * @param base words already known; can be memory-mapped
+	 */
+	public ConcurrentWordDictionary(FrozenWordDictionary base) {
+		this.base = base;
+		this.added = new ConcurrentHashMap<String, Long>(1024);
+		this.pages = new AtomicReferenceArray<AtomicReferenceArray<String>>(PAGE_COUNT);
+		this.nextId = new AtomicLong(base.getMaxWordId() + 1);
+		this.assigner = new Function<String, Long>() {
+			@Override
+			public Long apply(String word) {
+				long id = nextId.getAndIncrement();
+				remember(id, word);
+				return id;
+			}
+		};
+	}
+
+	@Override
+	public long getWordId(String word) {
+		long result = base.getWordId(word);
+		if (result == NO_WORD) {
+			Long id = added.get(word);
+			if (id != null)
+				result = id.longValue();
+		}
+		return result;
+	}
+
+	@Override
+	public long addWord(String word) {
+		long result = getWordId(word);
+		if (result == NO_WORD)
+			result = added.computeIfAbsent(word, assigner).longValue();
+		return result;
+	}
+
+	@Override
+	public String getWord(long wordId) {
+		if (wordId <= base.getMaxWordId())
+			return base.getWord(wordId);
+		long offset = wordId - base.getMaxWordId() - 1;
+		int page = (int)(offset >>> PAGE_BITS);
+		if (page >= PAGE_COUNT)
+			return null;
+		AtomicReferenceArray<String> p = pages.get(page);
+		if (p == null)
+			return null;
+		return p.get((int)(offset & (PAGE_SIZE - 1)));
+	}
+
+	@Override
+	public int size() {
+		return base.size() + added.size();
+	}
+
+	@Override
+	public long getMaxWordId() {
+		return nextId.get() - 1;
+	}
+
+	/**
+	 * A snapshot of every word known so far, in compact form
+	 * @return
+	 */
+	public FrozenWordDictionary freeze() {
+		Map<String, Long> all = new HashMap<String, Long>(size() * 2);
+		int n = base.size();
+		for (int i = 0; i < n; i++)
+			all.put(base.wordAt(i), base.wordIdAt(i));
+		all.putAll(added);
+		return FrozenWordDictionary.build(all);
+	}
+
+	private void remember(long id, String word) {
+		long offset = id - base.getMaxWordId() - 1;
+		int page = (int)(offset >>> PAGE_BITS);
+		if (page >= PAGE_COUNT)
+			throw new IllegalStateException("Word dictionary is full");
+		AtomicReferenceArray<String> p = pages.get(page);
+		if (p == null) {
+			pages.compareAndSet(page, null, new AtomicReferenceArray<String>(PAGE_SIZE));
+			p = pages.get(page);
+		}
+		p.set((int)(offset & (PAGE_SIZE - 1)), word);
+	}
+}
@@ -0,0 +1,286 @@
+/*
+ * Copyright 2026 TopicQuests Foundation
+ *  This source code is available under the terms of the Affero General Public License v3.
+ *  Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+ */
+package org.topicquests.hyperbrane.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import org.topicquests.hyperbrane.api.IWordDictionary;
+
+/**
+ * <p>Read-only, compact {@link IWordDictionary}: words are kept as sorted
+ * UTF-8 bytes in one {@link ByteBuffer}, looked up by binary search
+ * without decoding. The same layout is used on disk, so a dictionary
+ * written with {@link #write(Path)} can be memory-mapped at startup with
+ * {@link #map(Path)} instead of being rebuilt.</p>
+ * <p>Layout (big-endian):</p>
+ * <pre>
+ * int magic, int version, int count, int reserved, long maxWordId
+ * long[count]   word ids, in word order
+ * int[count]    word indexes, in word id order
+ * int[count+1]  offsets of each word in the byte area
+ * byte[]        UTF-8 words, in unsigned byte order
+ * </pre>
+ * <p>Safe for concurrent reads.</p>
+ */
+public class FrozenWordDictionary implements IWordDictionary {
+	private static final int MAGIC = 0x54515744; // "TQWD"
+	private static final int VERSION = 1;
+	private static final int HEADER_BYTES = 24;
+	private static final int SUBSTITUTE = '?';
+	private final ByteBuffer buf;
+	private final int count;
+	private final long maxWordId;
+	private final int idsStart;
+	private final int idOrderStart;
+	private final int offsetsStart;
+	private final int bytesStart;
+
+	private FrozenWordDictionary(ByteBuffer buf) {
+		this.buf = buf;
+		if (buf.getInt(0) != MAGIC || buf.getInt(4) != VERSION)
+			throw new IllegalArgumentException("Not a word dictionary");
+		count = buf.getInt(8);
+		maxWordId = buf.getLong(16);
+		idsStart = HEADER_BYTES;
+		idOrderStart = idsStart + count * 8;
+		offsetsStart = idOrderStart + count * 4;
+		bytesStart = offsetsStart + (count + 1) * 4;
+	}
+
+	/**
+	 * An empty dictionary
+	 * @return
+	 */
+	public static FrozenWordDictionary empty() {
+		return build(new java.util.HashMap<String, Long>());
+	}
+
+	/**
+	 * Build a frozen dictionary from <code>word -&gt; id</code> entries
+	 * @param words
+	 * @return
+	 */
+	public static FrozenWordDictionary build(Map<String, Long> words) {
+		int n = words.size();
+		List<byte []> keys = new ArrayList<byte []>(n);
+		final List<Long> vals = new ArrayList<Long>(n);
+		for (Map.Entry<String, Long> e : words.entrySet()) {
+			keys.add(e.getKey().getBytes(StandardCharsets.UTF_8));
+			vals.add(e.getValue());
+		}
+		Integer [] order = new Integer[n];
+		for (int i = 0; i < n; i++)
+			order[i] = i;
+		final List<byte []> k = keys;
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				return compareBytes(k.get(a), k.get(b));
+			}
+		});
+		long [] ids = new long[n];
+		int byteCount = 0;
+		long max = NO_WORD;
+		for (int i = 0; i < n; i++) {
+			ids[i] = vals.get(order[i]);
+			if (ids[i] <= NO_WORD)
+				throw new IllegalArgumentException("Bad word id: " + ids[i]);
+			max = Math.max(max, ids[i]);
+			byteCount += keys.get(order[i]).length;
+		}
+		Integer [] byId = new Integer[n];
+		for (int i = 0; i < n; i++)
+			byId[i] = i;
+		final long [] idz = ids;
+		Arrays.sort(byId, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				return Long.compare(idz[a], idz[b]);
+			}
+		});
+		ByteBuffer bb = ByteBuffer.allocate(HEADER_BYTES + n * 8 + n * 4 + (n + 1) * 4 + byteCount);
+		bb.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(0).putLong(max);
+		for (int i = 0; i < n; i++)
+			bb.putLong(ids[i]);
+		for (int i = 0; i < n; i++)
+			bb.putInt(byId[i]);
+		int offset = 0;
+		for (int i = 0; i < n; i++) {
+			bb.putInt(offset);
+			offset += keys.get(order[i]).length;
+		}
+		bb.putInt(offset);
+		for (int i = 0; i < n; i++)
+			bb.put(keys.get(order[i]));
+		bb.flip();
+		return new FrozenWordDictionary(bb);
+	}
+
+	/**
+	 * Memory-map a dictionary written by {@link #write(Path)}
+	 * @param path
+	 * @return
+	 * @throws IOException
+	 */
+	public static FrozenWordDictionary map(Path path) throws IOException {
+		try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+			return new FrozenWordDictionary(ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size()));
+		}
+	}
+
+	/**
+	 * @param path
+	 * @throws IOException
+	 */
+	public void write(Path path) throws IOException {
+		try (FileChannel ch = FileChannel.open(path, StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer b = buf.duplicate();
+			b.clear();
+			while (b.hasRemaining())
+				ch.write(b);
+		}
+	}
+
+	@Override
+	public long getWordId(String word) {
+		int lo = 0, hi = count - 1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			int c = compareTo(mid, word);
+			if (c < 0)
+				lo = mid + 1;
+			else if (c > 0)
+				hi = mid - 1;
+			else
+				return buf.getLong(idsStart + mid * 8);
+		}
+		return NO_WORD;
+	}
+
+	/**
+	 * A frozen dictionary cannot grow
+	 * @throws UnsupportedOperationException if <code>word</code> is not known
+	 */
+	@Override
+	public long addWord(String word) {
+		long result = getWordId(word);
+		if (result == NO_WORD)
+			throw new UnsupportedOperationException("Frozen dictionary");
+		return result;
+	}
+
+	@Override
+	public String getWord(long wordId) {
+		int lo = 0, hi = count - 1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			int index = buf.getInt(idOrderStart + mid * 4);
+			long id = buf.getLong(idsStart + index * 8);
+			if (id < wordId)
+				lo = mid + 1;
+			else if (id > wordId)
+				hi = mid - 1;
+			else
+				return wordAt(index);
+		}
+		return null;
+	}
+
+	@Override
+	public int size() {
+		return count;
+	}
+
+	@Override
+	public long getMaxWordId() {
+		return maxWordId;
+	}
+
+	/**
+	 * @param index position in word order
+	 * @return the word at <code>index</code>
+	 */
+	public String wordAt(int index) {
+		int start = bytesStart + buf.getInt(offsetsStart + index * 4);
+		int end = bytesStart + buf.getInt(offsetsStart + (index + 1) * 4);
+		byte [] b = new byte[end - start];
+		ByteBuffer d = buf.duplicate();
+		d.position(start);
+		d.get(b);
+		return new String(b, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * @param index position in word order
+	 * @return the id of the word at <code>index</code>
+	 */
+	public long wordIdAt(int index) {
+		return buf.getLong(idsStart + index * 8);
+	}
+
+	/**
+	 * Compare the stored word at <code>index</code> to <code>word</code>
+	 * in UTF-8 byte order, encoding <code>word</code> on the fly
+	 */
+	private int compareTo(int index, String word) {
+		int pos = bytesStart + buf.getInt(offsetsStart + index * 4);
+		int end = bytesStart + buf.getInt(offsetsStart + (index + 1) * 4);
+		int n = word.length();
+		int i = 0;
+		while (i < n) {
+			int cp = word.codePointAt(i);
+			i += Character.charCount(cp);
+			if (cp >= Character.MIN_SURROGATE && cp <= Character.MAX_SURROGATE)
+				cp = SUBSTITUTE; // as String.getBytes does for lone surrogates
+			int c;
+			if (cp < 0x80) {
+				c = compareByte(pos++, end, cp);
+			} else if (cp < 0x800) {
+				c = compareByte(pos++, end, 0xC0 | (cp >> 6));
+				if (c == 0) c = compareByte(pos++, end, 0x80 | (cp & 0x3F));
+			} else if (cp < 0x10000) {
+				c = compareByte(pos++, end, 0xE0 | (cp >> 12));
+				if (c == 0) c = compareByte(pos++, end, 0x80 | ((cp >> 6) & 0x3F));
+				if (c == 0) c = compareByte(pos++, end, 0x80 | (cp & 0x3F));
+			} else {
+				c = compareByte(pos++, end, 0xF0 | (cp >> 18));
+				if (c == 0) c = compareByte(pos++, end, 0x80 | ((cp >> 12) & 0x3F));
+				if (c == 0) c = compareByte(pos++, end, 0x80 | ((cp >> 6) & 0x3F));
+				if (c == 0) c = compareByte(pos++, end, 0x80 | (cp & 0x3F));
+			}
+			if (c != 0)
+				return c;
+		}
+		return pos < end ? 1 : 0;
+	}
+
+	private int compareByte(int pos, int end, int expected) {
+		if (pos >= end)
+			return -1;
+		return (buf.get(pos) & 0xFF) - expected;
+	}
+
+	static int compareBytes(byte [] a, byte [] b) {
+		int n = Math.min(a.length, b.length);
+		for (int i = 0; i < n; i++) {
+			int c = (a[i] & 0xFF) - (b[i] & 0xFF);
+			if (c != 0)
+				return c;
+		}
+		return a.length - b.length;
+	}
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2026 TopicQuests Foundation
+ *  This source code is available under the terms of the Affero General Public License v3.
+ *  Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+ */
+package org.topicquests.hyperbrane.util;
+
+import java.util.Arrays;
+
+/**
+ * <p>Reusable output of {@link SentenceGramGenerator}.</p>
+ * <p>Every gram in a sentence is a window over the sentence's word ids,
+ * so a gram is stored as a <code>(start, size)</code> pair into a single
+ * copy of those ids. Once the arrays have grown to the longest sentence
+ * seen, filling the buffer allocates nothing.</p>
+ * <p>Not thread safe: keep one per reader thread.</p>
+ */
+public class GramBuffer {
+	private long [] words;
+	private int wordCount;
+	private int [] starts;
+	private byte [] sizes;
+	private int count;
+
+	public GramBuffer() {
+		this(64);
+	}
+
+	/**
+	 * @param expectedSentenceLength
+	 */
+	public GramBuffer(int expectedSentenceLength) {
+		int n = Math.max(expectedSentenceLength, 1);
+		words = new long[n];
+		starts = new int[n * 2];
+		sizes = new byte[n * 2];
+	}
+
+	/**
+	 * Forget all grams and load a new sentence
+	 * @param sentence
+	 * @param off
+	 * @param len
+	 */
+	void reset(long [] sentence, int off, int len) {
+		if (words.length < len)
+			words = new long[Math.max(len, words.length * 2)];
+		System.arraycopy(sentence, off, words, 0, len);
+		wordCount = len;
+		count = 0;
+	}
+
+	void ensureCapacity(int gramCount) {
+		if (starts.length < gramCount) {
+			int n = Math.max(gramCount, starts.length * 2);
+			starts = Arrays.copyOf(starts, n);
+			sizes = Arrays.copyOf(sizes, n);
+		}
+	}
+
+	void add(int start, int size) {
+		if (count == starts.length) {
+			int n = count * 2;
+			starts = Arrays.copyOf(starts, n);
+			sizes = Arrays.copyOf(sizes, n);
+		}
+		starts[count] = start;
+		sizes[count] = (byte)size;
+		count++;
+	}
+
+	public void clear() {
+		wordCount = 0;
+		count = 0;
+	}
+
+	/**
+	 * @return number of grams in the buffer
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * @return number of words in the current sentence
+	 */
+	public int getWordCount() {
+		return wordCount;
+	}
+
+	/**
+	 * The sentence's word ids; valid from <code>0</code> to {@link #getWordCount()}
+	 * @return
+	 */
+	public long [] getWords() {
+		return words;
+	}
+
+	/**
+	 * @param index gram index
+	 * @return offset of the gram's first word in {@link #getWords()}
+	 */
+	public int getStart(int index) {
+		return starts[index];
+	}
+
+	/**
+	 * @param index gram index
+	 * @return number of words in the gram
+	 */
+	public int getGramSize(int index) {
+		return sizes[index];
+	}
+
+	/**
+	 * @param index gram index
+	 * @param position <code>0</code> based position in the gram
+	 * @return
+	 */
+	public long getWordId(int index, int position) {
+		return words[starts[index] + position];
+	}
+
+	public long hash64(int index) {
+		return WordGramIdCodec.hash64(words, starts[index], sizes[index]);
+	}
+
+	/**
+	 * @param index
+	 * @return the packed id or {@link WordGramIdCodec#NOT_PACKABLE}
+	 */
+	public long pack(int index) {
+		return WordGramIdCodec.pack(words, starts[index], sizes[index]);
+	}
+
+	public StringBuilder appendId(int index, StringBuilder buf) {
+		return WordGramIdCodec.appendTo(words, starts[index], sizes[index], buf);
+	}
+
+	/**
+	 * The <code>String</code> form of a gram's id
+	 * @param index
+	 * @return
+	 */
+	public String getId(int index) {
+		return WordGramIdCodec.toString(words, starts[index], sizes[index]);
+	}
+
+	public WordGramId toWordGramId(int index) {
+		return WordGramId.of(words, starts[index], sizes[index]);
+	}
+}
@@ -0,0 +1,23 @@
+/*
+ * Copyright 2026 TopicQuests Foundation
+ *  This source code is available under the terms of the Affero General Public License v3.
+ *  Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+ */
+package org.topicquests.hyperbrane.util;
+
+/**
+ * Receives grams from a {@link SentenceGramGenerator}
+ */
+public interface IGramVisitor {
+
+	/**
+	 * <p>Called once per gram. The gram is <code>words[start..start+size)</code>;
+	 * <code>words</code> is the caller's sentence array and must not be
+	 * modified or retained.</p>
+	 * @param words
+	 * @param start
+	 * @param size
+	 * @return <code>false</code> to stop generating
+	 */
+	boolean visit(long [] words, int start, int size);
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2026 TopicQuests Foundation
+ *  This source code is available under the terms of the Affero General Public License v3.
+ *  Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+ */
+package org.topicquests.hyperbrane.util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.topicquests.hyperbrane.api.ILexTypes;
+
+/**
+ * <p>The {@link ILexTypes} codes as an enumeration, so that a set of
+ * lex types fits in the bits of one <code>long</code>.</p>
+ * <p>Each type belongs to a <em>family</em>; <code>containsLexTypeLike</code>
+ * matches within a family, e.g. <code>"v"</code> matches
+ * <code>"v"</code>, <code>"iv"</code>, <code>"vp"</code> and <code>"ivp"</code>.
+ * Those matches are precomputed by {@link #likeMask()}.</p>
+ */
+public enum LexType {
+	NOUN(ILexTypes.NOUN, Family.NOUN),
+	INFERRED_NOUN(ILexTypes.INFERRED_NOUN, Family.NOUN),
+	NOUN_PHRASE(ILexTypes.NOUN_PHRASE, Family.NOUN),
+	INFERRED_NOUNPHRASE(ILexTypes.INFERRED_NOUNPHRASE, Family.NOUN),
+	PROPER_NOUN(ILexTypes.PROPER_NOUN, Family.NOUN),
+	GERUND(ILexTypes.GERUND, Family.NOUN),
+	DETERMINER(ILexTypes.DETERMINER, Family.DETERMINER),
+	VERB(ILexTypes.VERB, Family.VERB),
+	INFERRED_VERB(ILexTypes.INFERRED_VERB, Family.VERB),
+	VERB_PHRASE(ILexTypes.VERB_PHRASE, Family.VERB),
+	INFERRED_VERBPRASE(ILexTypes.INFERRED_VERBPRASE, Family.VERB),
+	TUPLE_TYPE(ILexTypes.TUPLE_TYPE, Family.TUPLE),
+	ADJECTIVE(ILexTypes.ADJECTIVE, Family.ADJECTIVE),
+	ADVERB(ILexTypes.ADVERB, Family.ADVERB),
+	ADVERBIAL_PHRASE(ILexTypes.ADVERBIAL_PHRASE, Family.ADVERB),
+	PREPOSITION(ILexTypes.PREPOSITION, Family.PREPOSITION),
+	PRONOUN(ILexTypes.PRONOUN, Family.PRONOUN),
+	PUNCTUATION(ILexTypes.PUNCTUATION, Family.PUNCTUATION),
+	CONJUNCTION(ILexTypes.CONJUNCTION, Family.CONJUNCTION),
+	C_CONJUNCTION(ILexTypes.C_CONJUNCTION, Family.CONJUNCTION),
+	CONJUNCTIVE_ADVERB(ILexTypes.CONJUNCTIVE_ADVERB, Family.ADVERB),
+	R_CONJUNCTION(ILexTypes.R_CONJUNCTION, Family.CONJUNCTION),
+	QUESTION_WORD(ILexTypes.QUESTION_WORD, Family.QUESTION_WORD),
+	STOP_WORD(ILexTypes.STOP_WORD, Family.STOP_WORD),
+	NUMBER(ILexTypes.NUMBER, Family.NUMBER),
+	PERCENT_NUMBER(ILexTypes.PERCENT_NUMBER, Family.NUMBER),
+	DATE(ILexTypes.DATE, Family.DATE),
+	EMAIL(ILexTypes.EMAIL, Family.EMAIL),
+	IP_ADDRESS(ILexTypes.IP_ADDRESS, Family.IP_ADDRESS),
+	TIME(ILexTypes.TIME, Family.TIME),
+	HREF(ILexTypes.HREF, Family.HREF),
+	GEO_LOC(ILexTypes.GEO_LOC, Family.GEO_LOC),
+	META_TYPE(ILexTypes.META_TYPE, Family.META);
+
+	enum Family {
+		NOUN, DETERMINER, VERB, TUPLE, ADJECTIVE, ADVERB, PREPOSITION, PRONOUN,
+		PUNCTUATION, CONJUNCTION, QUESTION_WORD, STOP_WORD, NUMBER, DATE, EMAIL,
+		IP_ADDRESS, TIME, HREF, GEO_LOC, META
+	}
+
+	private static final Map<String, LexType> byCode = new HashMap<String, LexType>();
+	static {
+		for (LexType t : values())
+			byCode.put(t.code, t);
+		for (LexType t : values()) {
+			long like = 0;
+			for (LexType o : values())
+				if (o.family == t.family && o.code.contains(t.code))
+					like |= o.bit;
+			t.likeMask = like;
+		}
+	}
+	private final String code;
+	private final Family family;
+	private final long bit;
+	private long likeMask;
+
+	private LexType(String code, Family family) {
+		this.code = code;
+		this.family = family;
+		this.bit = 1L << ordinal();
+	}
+
+	/**
+	 * The {@link ILexTypes} code
+	 * @return
+	 */
+	public String getCode() {
+		return code;
+	}
+
+	public long bit() {
+		return bit;
+	}
+
+	/**
+	 * Bits of every type in this type's family whose code contains
+	 * this type's code; used by <code>containsLexTypeLike</code>
+	 * @return
+	 */
+	public long likeMask() {
+		return likeMask;
+	}
+
+	/**
+	 * @param code an {@link ILexTypes} code
+	 * @return can return <code>null</code> if <code>code</code> is not
+	 * one of {@link ILexTypes}
+	 */
+	public static LexType forCode(String code) {
+		return byCode.get(code);
+	}
+
+	/**
+	 * @param types
+	 * @return the bits of <code>types</code>
+	 */
+	public static long mask(LexType... types) {
+		long result = 0;
+		for (LexType t : types)
+			result |= t.bit;
+		return result;
+	}
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2026 TopicQuests Foundation
+ *  This source code is available under the terms of the Affero General Public License v3.
+ *  Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+ */
+package org.topicquests.hyperbrane.util;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>A set of lex types, or of expectations, for an
+ * {@link org.topicquests.hyperbrane.api.IWordGram}.</p>
+ * <p>Known {@link org.topicquests.hyperbrane.api.ILexTypes} codes are bits in
+ * a <code>long</code>, so <code>containsLexType</code>, <code>containsLexTypeLike</code>,
+ * <code>isNoun</code>, <code>expectsVerb</code> and friends are a single
+ * <code>AND</code> against the masks below. Lex types are an open set, so
+ * codes which are not in {@link LexType} are kept in a side list.</p>
+ * <p>{@link #asList()} is a <code>List&lt;String&gt;</code> view for
+ * <code>listLexTypes()</code> and JSON.</p>
+ * <p>Not thread safe, like the gram which owns it.</p>
+ */
+public class LexTypeSet {
+	public static final long
+		NOUNS			= LexType.mask(LexType.NOUN, LexType.INFERRED_NOUN, LexType.NOUN_PHRASE,
+							LexType.INFERRED_NOUNPHRASE, LexType.PROPER_NOUN),
+		GERUNDS			= LexType.mask(LexType.GERUND),
+		DETERMINERS		= LexType.mask(LexType.DETERMINER),
+		VERBS			= LexType.mask(LexType.VERB, LexType.INFERRED_VERB, LexType.VERB_PHRASE,
+							LexType.INFERRED_VERBPRASE),
+		ADJECTIVES		= LexType.mask(LexType.ADJECTIVE),
+		ADVERBS			= LexType.mask(LexType.ADVERB, LexType.ADVERBIAL_PHRASE),
+		PRONOUNS		= LexType.mask(LexType.PRONOUN),
+		PREPOSITIONS	= LexType.mask(LexType.PREPOSITION),
+		CONJUNCTIONS	= LexType.mask(LexType.CONJUNCTION, LexType.C_CONJUNCTION, LexType.R_CONJUNCTION),
+		CONJUNCTIVE_ADVERBS = LexType.mask(LexType.CONJUNCTIVE_ADVERB),
+		QUESTION_WORDS	= LexType.mask(LexType.QUESTION_WORD),
+		STOP_WORDS		= LexType.mask(LexType.STOP_WORD),
+		META			= LexType.mask(LexType.META_TYPE),
+		NUMBERS			= LexType.mask(LexType.NUMBER, LexType.PERCENT_NUMBER),
+		PERCENTAGES		= LexType.mask(LexType.PERCENT_NUMBER);
+
+	private long bits;
+	/** codes not found in {@link LexType}; usually <code>null</code> */
+	private List<String> others;
+
+	public LexTypeSet() {
+	}
+
+	/**
+	 * @param codes can be <code>null</code>
+	 * @return
+	 */
+	public static LexTypeSet fromList(List<String> codes) {
+		LexTypeSet result = new LexTypeSet();
+		if (codes != null)
+			for (String c : codes)
+				result.add(c);
+		return result;
+	}
+
+	/**
+	 * @param code an {@link org.topicquests.hyperbrane.api.ILexTypes} code
+	 * @return <code>true</code> if the set changed
+	 */
+	public boolean add(String code) {
+		LexType t = LexType.forCode(code);
+		if (t != null) {
+			long old = bits;
+			bits |= t.bit();
+			return bits != old;
+		}
+		if (others == null)
+			others = new ArrayList<String>(2);
+		else if (others.contains(code))
+			return false;
+		others.add(code);
+		return true;
+	}
+
+	/**
+	 * @param code
+	 * @return <code>true</code> if the set changed
+	 */
+	public boolean remove(String code) {
+		LexType t = LexType.forCode(code);
+		if (t != null) {
+			long old = bits;
+			bits &= ~t.bit();
+			return bits != old;
+		}
+		return others != null && others.remove(code);
+	}
+
+	public boolean contains(String code) {
+		LexType t = LexType.forCode(code);
+		if (t != null)
+			return (bits & t.bit()) != 0;
+		return others != null && others.contains(code);
+	}
+
+	/**
+	 * Use Case: "v" will match with "v" or "vp" or "iv", same for nouns
+	 * @param code
+	 * @return
+	 */
+	public boolean containsLike(String code) {
+		LexType t = LexType.forCode(code);
+		if (t != null)
+			return (bits & t.likeMask()) != 0;
+		if (others != null)
+			for (String o : others)
+				if (o.contains(code))
+					return true;
+		return false;
+	}
+
+	/**
+	 * @param mask e.g. {@link #NOUNS}
+	 * @return <code>true</code> if any type in <code>mask</code> is present
+	 */
+	public boolean containsAny(long mask) {
+		return (bits & mask) != 0;
+	}
+
+	public boolean isEmpty() {
+		return bits == 0 && (others == null || others.isEmpty());
+	}
+
+	/**
+	 * @return the {@link LexType} bits
+	 */
+	public long getBits() {
+		return bits;
+	}
+
+	public void clear() {
+		bits = 0;
+		others = null;
+	}
+
+	public int size() {
+		return Long.bitCount(bits) + (others == null ? 0 : others.size());
+	}
+
+	/**
+	 * A read-only view of the codes: known types in {@link LexType} order,
+	 * then any others in the order they were added
+	 * @return
+	 */
+	public List<String> asList() {
+		return new AbstractList<String>() {
+			private final LexType [] types = LexType.values();
+
+			@Override
+			public String get(int index) {
+				int known = Long.bitCount(bits);
+				if (index < 0 || index >= size())
+					throw new IndexOutOfBoundsException(Integer.toString(index));
+				if (index >= known)
+					return others.get(index - known);
+				long b = bits;
+				for (int i = 0; i < index; i++)
+					b &= b - 1;
+				return types[Long.numberOfTrailingZeros(b)].getCode();
+			}
+
+			@Override
+			public int size() {
+				return LexTypeSet.this.size();
+			}
+		};
+	}
+
+	@Override
+	public String toString() {
+		return asList().toString();
+	}
+}
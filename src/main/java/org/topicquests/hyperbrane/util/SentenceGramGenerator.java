@@ -0,0 +1,184 @@
+/*
+ * Copyright 2026 TopicQuests Foundation
+ *  This source code is available under the terms of the Affero General Public License v3.
+ *  Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+ */
+package org.topicquests.hyperbrane.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import org.topicquests.hyperbrane.api.IHyperMembraneConstants;
+import org.topicquests.hyperbrane.api.ISentence;
+import org.topicquests.hyperbrane.api.IWordGram;
+
+/**
+ * <p>Sliding window generator of every gram in a tokenized sentence,
+ * from <em>TERMINAL</em> to <em>EIGHTER</em>.</p>
+ * <p>A sentence is given as the numeric ids of its words. Grams are
+ * emitted in sentence order: at each word position, the terminal first,
+ * then the pair starting there, and so on up to the largest gram which
+ * fits. Neither {@link #generate(long[], int, int, GramBuffer)} nor
+ * {@link #generate(long[], int, int, IGramVisitor)} allocate per gram.</p>
+ * <p>Instances hold no per-sentence state and may be shared across threads;
+ * {@link GramBuffer}s may not.</p>
+ */
+public class SentenceGramGenerator {
+	private static final String [] SIZE_TYPES = {
+		null,
+		IHyperMembraneConstants.TERMINAL,
+		IHyperMembraneConstants.PAIR,
+		IHyperMembraneConstants.TRIPLE,
+		IHyperMembraneConstants.QUAD,
+		IHyperMembraneConstants.FIVER,
+		IHyperMembraneConstants.SIXER,
+		IHyperMembraneConstants.SEVENER,
+		IHyperMembraneConstants.EIGHTER
+	};
+	private static final String [] SIZE_COUNTS = {
+		null,
+		IWordGram.COUNT_1,
+		IWordGram.COUNT_2,
+		IWordGram.COUNT_3,
+		IWordGram.COUNT_4,
+		IWordGram.COUNT_5,
+		IWordGram.COUNT_6,
+		IWordGram.COUNT_7,
+		IWordGram.COUNT_8
+	};
+	private final int minGramSize;
+	private final int maxGramSize;
+
+	/**
+	 * Generates all gram sizes
+	 */
+	public SentenceGramGenerator() {
+		this(1, WordGramIdCodec.MAX_GRAM_SIZE);
+	}
+
+	/**
+	 * @param minGramSize smallest gram to emit, at least <code>1</code>
+	 * @param maxGramSize largest gram to emit, at most {@link WordGramIdCodec#MAX_GRAM_SIZE}
+	 */
+	public SentenceGramGenerator(int minGramSize, int maxGramSize) {
+		if (!WordGramIdCodec.isValidSize(minGramSize) ||
+				!WordGramIdCodec.isValidSize(maxGramSize) ||
+				minGramSize > maxGramSize)
+			throw new IllegalArgumentException("Bad gram sizes: " + minGramSize + ", " + maxGramSize);
+		this.minGramSize = minGramSize;
+		this.maxGramSize = maxGramSize;
+	}
+
+	/**
+	 * The {@link IHyperMembraneConstants} name of a gram size,
+	 * e.g. {@link IHyperMembraneConstants#TRIPLE}
+	 * @param size
+	 * @return
+	 */
+	public static String gramType(int size) {
+		return SIZE_TYPES[size];
+	}
+
+	/**
+	 * The {@link IWordGram} count name of a gram size,
+	 * e.g. {@link IWordGram#COUNT_3}
+	 * @param size
+	 * @return
+	 */
+	public static String gramCount(int size) {
+		return SIZE_COUNTS[size];
+	}
+
+	/**
+	 * Number of grams {@link #generate(long[], int, int, GramBuffer)}
+	 * will emit for a sentence of <code>sentenceLength</code> words
+	 * @param sentenceLength
+	 * @return
+	 */
+	public int countGrams(int sentenceLength) {
+		int result = 0;
+		int top = Math.min(maxGramSize, sentenceLength);
+		for (int size = minGramSize; size <= top; size++)
+			result += sentenceLength - size + 1;
+		return result;
+	}
+
+	/**
+	 * Fill <code>out</code> with every gram in <code>words[off..off+len)</code>
+	 * @param words the sentence's word ids
+	 * @param off
+	 * @param len
+	 * @param out cleared before use
+	 * @return number of grams
+	 */
+	public int generate(long [] words, int off, int len, GramBuffer out) {
+		out.reset(words, off, len);
+		out.ensureCapacity(countGrams(len));
+		for (int start = 0; start < len; start++) {
+			int top = Math.min(maxGramSize, len - start);
+			for (int size = minGramSize; size <= top; size++)
+				out.add(start, size);
+		}
+		return out.size();
+	}
+
+	/**
+	 * Visit every gram in <code>words[off..off+len)</code> without buffering
+	 * @param words
+	 * @param off
+	 * @param len
+	 * @param visitor
+	 * @return number of grams visited
+	 */
+	public int generate(long [] words, int off, int len, IGramVisitor visitor) {
+		int result = 0;
+		int end = off + len;
+		for (int start = off; start < end; start++) {
+			int top = Math.min(maxGramSize, end - start);
+			for (int size = minGramSize; size <= top; size++) {
+				result++;
+				if (!visitor.visit(words, start, size))
+					return result;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * <p>Add the id of every gram in <code>grams</code> to <code>sentence</code>
+	 * by way of {@link ISentence#addWordGramId(String)}. This is the edge
+	 * where <code>String</code> ids are made.</p>
+	 * @param sentence
+	 * @param grams
+	 */
+	public void addWordGramIds(ISentence sentence, GramBuffer grams) {
+		StringBuilder buf = new StringBuilder(64);
+		int n = grams.size();
+		for (int i = 0; i < n; i++) {
+			buf.setLength(0);
+			sentence.addWordGramId(grams.appendId(i, buf).toString());
+		}
+	}
+
+	/**
+	 * <p>Set <code>sentence</code>'s <em>working sentence</em> to the
+	 * terminal grams of <code>grams</code>, in sentence order.</p>
+	 * @param sentence
+	 * @param grams
+	 * @param wordGrams resolves a gram id to its {@link IWordGram};
+	 *  a <code>null</code> answer leaves that word out
+	 */
+	public void setWorkingSentence(ISentence sentence, GramBuffer grams,
+			Function<String, IWordGram> wordGrams) {
+		List<IWordGram> ws = new ArrayList<IWordGram>(grams.getWordCount());
+		long [] words = grams.getWords();
+		int n = grams.getWordCount();
+		for (int i = 0; i < n; i++) {
+			IWordGram g = wordGrams.apply(WordGramIdCodec.toString(words, i, 1));
+			if (g != null)
+				ws.add(g);
+		}
+		sentence.setWorkingSentence(ws);
+	}
+}
@@ -0,0 +1,718 @@
+/*
+ * Copyright 2026 TopicQuests Foundation
+ *  This source code is available under the terms of the Affero General Public License v3.
+ *  Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+ */
+package org.topicquests.hyperbrane.util;
+
+import java.io.ByteArrayOutputStream;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.IntConsumer;
+
+/**
+ * <p>A compressed, sorted set of numeric sentence ids for
+ * <code>IWordGram.addSentenceId</code> and <code>listSentenceIds</code>.</p>
+ * <p>Ids are split on their high 16 bits into containers, in the manner of
+ * Roaring bitmaps: a sparse container is a sorted <code>char[]</code>, a dense
+ * one (more than {@value #ARRAY_MAX} ids) is a 8KB bitmap. Adding, removing
+ * and probing an id is a binary search over the containers then over, or
+ * into, one container. Union and intersection work container by container.</p>
+ * <p>{@link #toBytes()} stores sparse containers as delta varints, so
+ * a gram's posting list can be kept in its JSON as a short Base64
+ * <code>String</code> ({@link #toBase64()}) rather than as a list of
+ * <code>String</code> ids.</p>
+ * <p>Ids are treated as unsigned. Sentence ids which are not numeric can be
+ * given numbers through an {@link org.topicquests.hyperbrane.api.IWordDictionary}.
+ * Not thread safe.</p>
+ */
+public class SentencePostingList implements Iterable<Integer> {
+	static final int ARRAY_MAX = 4096;
+	private static final int BITMAP_WORDS = 1024;
+	private static final byte ARRAY = 0, BITMAP = 1;
+	private char [] keys;
+	private Container [] containers;
+	private int count;
+	private int cardinality;
+
+	public SentencePostingList() {
+		keys = new char[4];
+		containers = new Container[4];
+	}
+
+	/**
+	 * @param sentenceIds numeric sentence ids; can be <code>null</code>
+	 * @return
+	 */
+	public static SentencePostingList fromStrings(List<String> sentenceIds) {
+		SentencePostingList result = new SentencePostingList();
+		if (sentenceIds != null)
+			for (String s : sentenceIds)
+				result.add(s);
+		return result;
+	}
+
+	/**
+	 * @param sentenceId
+	 * @return <code>true</code> if the list changed
+	 */
+	public boolean add(int sentenceId) {
+		char high = (char)(sentenceId >>> 16);
+		char low = (char)sentenceId;
+		int i = findKey(high);
+		if (i >= 0) {
+			Container c = containers[i];
+			int before = c.cardinality();
+			containers[i] = c.add(low);
+			if (containers[i].cardinality() == before)
+				return false;
+		} else {
+			insertAt(-i - 1, high, new ArrayContainer().add(low));
+		}
+		cardinality++;
+		return true;
+	}
+
+	/**
+	 * @param sentenceId a numeric sentence id
+	 * @return <code>true</code> if the list changed
+	 * @throws NumberFormatException if <code>sentenceId</code> is not numeric
+	 */
+	public boolean add(String sentenceId) {
+		return add(Integer.parseUnsignedInt(sentenceId));
+	}
+
+	/**
+	 * @param sentenceId
+	 * @return <code>true</code> if the list changed
+	 */
+	public boolean remove(int sentenceId) {
+		int i = findKey((char)(sentenceId >>> 16));
+		if (i < 0)
+			return false;
+		Container c = containers[i];
+		int before = c.cardinality();
+		Container nc = c.remove((char)sentenceId);
+		if (nc.cardinality() == before)
+			return false;
+		cardinality--;
+		if (nc.cardinality() == 0)
+			removeAt(i);
+		else
+			containers[i] = nc;
+		return true;
+	}
+
+	public boolean remove(String sentenceId) {
+		return remove(Integer.parseUnsignedInt(sentenceId));
+	}
+
+	public boolean contains(int sentenceId) {
+		int i = findKey((char)(sentenceId >>> 16));
+		return i >= 0 && containers[i].contains((char)sentenceId);
+	}
+
+	public boolean contains(String sentenceId) {
+		return contains(Integer.parseUnsignedInt(sentenceId));
+	}
+
+	/**
+	 * @return number of sentence ids
+	 */
+	public int size() {
+		return cardinality;
+	}
+
+	public boolean isEmpty() {
+		return cardinality == 0;
+	}
+
+	/**
+	 * @param a
+	 * @param b
+	 * @return a new list with the ids in either <code>a</code> or <code>b</code>
+	 */
+	public static SentencePostingList union(SentencePostingList a, SentencePostingList b) {
+		SentencePostingList result = new SentencePostingList();
+		int i = 0, j = 0;
+		while (i < a.count || j < b.count) {
+			int c = i == a.count ? 1 : j == b.count ? -1 : Character.compare(a.keys[i], b.keys[j]);
+			if (c < 0) {
+				result.append(a.keys[i], a.containers[i].copy());
+				i++;
+			} else if (c > 0) {
+				result.append(b.keys[j], b.containers[j].copy());
+				j++;
+			} else {
+				result.append(a.keys[i], a.containers[i].or(b.containers[j]));
+				i++;
+				j++;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @param a
+	 * @param b
+	 * @return a new list with the ids in both <code>a</code> and <code>b</code>
+	 */
+	public static SentencePostingList intersection(SentencePostingList a, SentencePostingList b) {
+		SentencePostingList result = new SentencePostingList();
+		int i = 0, j = 0;
+		while (i < a.count && j < b.count) {
+			int c = Character.compare(a.keys[i], b.keys[j]);
+			if (c < 0)
+				i++;
+			else if (c > 0)
+				j++;
+			else {
+				Container x = a.containers[i].and(b.containers[j]);
+				if (x.cardinality() > 0)
+					result.append(a.keys[i], x);
+				i++;
+				j++;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Number of ids in both lists, without building the intersection
+	 * @param a
+	 * @param b
+	 * @return
+	 */
+	public static int intersectionSize(SentencePostingList a, SentencePostingList b) {
+		int result = 0;
+		int i = 0, j = 0;
+		while (i < a.count && j < b.count) {
+			int c = Character.compare(a.keys[i], b.keys[j]);
+			if (c < 0)
+				i++;
+			else if (c > 0)
+				j++;
+			else {
+				result += a.containers[i].and(b.containers[j]).cardinality();
+				i++;
+				j++;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Visit every id in order, without boxing
+	 * @param consumer
+	 */
+	public void forEachId(IntConsumer consumer) {
+		for (int i = 0; i < count; i++)
+			containers[i].forEach(keys[i] << 16, consumer);
+	}
+
+	/**
+	 * Ids in unsigned order
+	 */
+	@Override
+	public PrimitiveIterator.OfInt iterator() {
+		return new PrimitiveIterator.OfInt() {
+			private int ci = 0;
+			private int pos = -1;
+			private int next = advance();
+
+			private int advance() {
+				while (ci < count) {
+					pos = containers[ci].nextIndex(pos);
+					if (pos >= 0)
+						return (keys[ci] << 16) | containers[ci].valueAt(pos);
+					ci++;
+					pos = -1;
+				}
+				return 0;
+			}
+
+			@Override
+			public boolean hasNext() {
+				return ci < count;
+			}
+
+			@Override
+			public int nextInt() {
+				if (ci >= count)
+					throw new NoSuchElementException();
+				int result = next;
+				next = advance();
+				return result;
+			}
+		};
+	}
+
+	/**
+	 * A read-only <code>List&lt;String&gt;</code> view for callers of
+	 * <code>listSentenceIds()</code>; each <code>get</code> walks the list,
+	 * so iterate rather than index
+	 * @return
+	 */
+	public List<String> asStringList() {
+		return new AbstractList<String>() {
+			@Override
+			public String get(int index) {
+				if (index < 0 || index >= cardinality)
+					throw new IndexOutOfBoundsException(Integer.toString(index));
+				PrimitiveIterator.OfInt itr = SentencePostingList.this.iterator();
+				for (int i = 0; i < index; i++)
+					itr.nextInt();
+				return Integer.toUnsignedString(itr.nextInt());
+			}
+
+			@Override
+			public java.util.Iterator<String> iterator() {
+				final PrimitiveIterator.OfInt itr = SentencePostingList.this.iterator();
+				return new java.util.Iterator<String>() {
+					@Override
+					public boolean hasNext() {
+						return itr.hasNext();
+					}
+
+					@Override
+					public String next() {
+						return Integer.toUnsignedString(itr.nextInt());
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return cardinality;
+			}
+		};
+	}
+
+	/////////////////////////////
+	// Serialization
+	/////////////////////////////
+
+	/**
+	 * <p>Compact form: a varint container count, then per container a varint
+	 * key, a type byte and a varint cardinality, followed by delta varints
+	 * (sparse) or 1024 big-endian longs (dense).</p>
+	 * @return
+	 */
+	public byte [] toBytes() {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(16 + cardinality * 2);
+		writeVarint(out, count);
+		for (int i = 0; i < count; i++) {
+			writeVarint(out, keys[i]);
+			Container c = containers[i];
+			if (c instanceof ArrayContainer) {
+				ArrayContainer ac = (ArrayContainer)c;
+				out.write(ARRAY);
+				writeVarint(out, ac.card);
+				int prev = 0;
+				for (int k = 0; k < ac.card; k++) {
+					writeVarint(out, ac.content[k] - prev);
+					prev = ac.content[k];
+				}
+			} else {
+				BitmapContainer bc = (BitmapContainer)c;
+				out.write(BITMAP);
+				writeVarint(out, bc.card);
+				for (long w : bc.words)
+					for (int s = 56; s >= 0; s -= 8)
+						out.write((int)(w >>> s));
+			}
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * @param bytes from {@link #toBytes()}
+	 * @return
+	 */
+	public static SentencePostingList fromBytes(byte [] bytes) {
+		SentencePostingList result = new SentencePostingList();
+		int [] pos = {0};
+		int n = readVarint(bytes, pos);
+		for (int i = 0; i < n; i++) {
+			char key = (char)readVarint(bytes, pos);
+			byte type = bytes[pos[0]++];
+			int card = readVarint(bytes, pos);
+			Container c;
+			if (type == ARRAY) {
+				ArrayContainer ac = new ArrayContainer(card);
+				int prev = 0;
+				for (int k = 0; k < card; k++) {
+					prev += readVarint(bytes, pos);
+					ac.content[k] = (char)prev;
+				}
+				ac.card = card;
+				c = ac;
+			} else {
+				BitmapContainer bc = new BitmapContainer();
+				for (int k = 0; k < BITMAP_WORDS; k++) {
+					long w = 0;
+					for (int s = 0; s < 8; s++)
+						w = (w << 8) | (bytes[pos[0]++] & 0xFF);
+					bc.words[k] = w;
+				}
+				bc.card = card;
+				c = bc;
+			}
+			result.append(key, c);
+		}
+		return result;
+	}
+
+	public String toBase64() {
+		return Base64.getEncoder().encodeToString(toBytes());
+	}
+
+	public static SentencePostingList fromBase64(String encoded) {
+		return fromBytes(Base64.getDecoder().decode(encoded));
+	}
+
+	private static void writeVarint(ByteArrayOutputStream out, int v) {
+		while ((v & ~0x7F) != 0) {
+			out.write((v & 0x7F) | 0x80);
+			v >>>= 7;
+		}
+		out.write(v);
+	}
+
+	private static int readVarint(byte [] b, int [] pos) {
+		int result = 0;
+		int shift = 0;
+		int x;
+		do {
+			x = b[pos[0]++];
+			result |= (x & 0x7F) << shift;
+			shift += 7;
+		} while ((x & 0x80) != 0);
+		return result;
+	}
+
+	/////////////////////////////
+	// Container bookkeeping
+	/////////////////////////////
+
+	private int findKey(char high) {
+		int lo = 0, hi = count - 1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			char k = keys[mid];
+			if (k < high)
+				lo = mid + 1;
+			else if (k > high)
+				hi = mid - 1;
+			else
+				return mid;
+		}
+		return -(lo + 1);
+	}
+
+	private void insertAt(int i, char key, Container c) {
+		if (count == keys.length) {
+			keys = Arrays.copyOf(keys, count * 2);
+			containers = Arrays.copyOf(containers, count * 2);
+		}
+		System.arraycopy(keys, i, keys, i + 1, count - i);
+		System.arraycopy(containers, i, containers, i + 1, count - i);
+		keys[i] = key;
+		containers[i] = c;
+		count++;
+	}
+
+	private void removeAt(int i) {
+		System.arraycopy(keys, i + 1, keys, i, count - i - 1);
+		System.arraycopy(containers, i + 1, containers, i, count - i - 1);
+		count--;
+		containers[count] = null;
+	}
+
+	/** keys must arrive in order */
+	private void append(char key, Container c) {
+		insertAt(count, key, c);
+		cardinality += c.cardinality();
+	}
+
+	private static abstract class Container {
+		abstract int cardinality();
+		abstract boolean contains(char low);
+		abstract Container add(char low);
+		abstract Container remove(char low);
+		abstract Container or(Container other);
+		abstract Container and(Container other);
+		abstract Container copy();
+		abstract void forEach(int high, IntConsumer consumer);
+		/** @return index of the next value after <code>index</code>, or <code>-1</code> */
+		abstract int nextIndex(int index);
+		abstract int valueAt(int index);
+	}
+
+	private static final class ArrayContainer extends Container {
+		char [] content;
+		int card;
+
+		ArrayContainer() {
+			this(4);
+		}
+
+		ArrayContainer(int capacity) {
+			content = new char[Math.max(capacity, 1)];
+		}
+
+		@Override
+		int cardinality() {
+			return card;
+		}
+
+		@Override
+		boolean contains(char low) {
+			return Arrays.binarySearch(content, 0, card, low) >= 0;
+		}
+
+		@Override
+		Container add(char low) {
+			int i = Arrays.binarySearch(content, 0, card, low);
+			if (i >= 0)
+				return this;
+			if (card >= ARRAY_MAX)
+				return toBitmap().add(low);
+			i = -i - 1;
+			if (card == content.length)
+				content = Arrays.copyOf(content, Math.min(ARRAY_MAX, card * 2));
+			System.arraycopy(content, i, content, i + 1, card - i);
+			content[i] = low;
+			card++;
+			return this;
+		}
+
+		@Override
+		Container remove(char low) {
+			int i = Arrays.binarySearch(content, 0, card, low);
+			if (i >= 0) {
+				System.arraycopy(content, i + 1, content, i, card - i - 1);
+				card--;
+			}
+			return this;
+		}
+
+		@Override
+		Container or(Container other) {
+			if (other instanceof BitmapContainer)
+				return other.or(this);
+			ArrayContainer o = (ArrayContainer)other;
+			char [] merged = new char[card + o.card];
+			int i = 0, j = 0, n = 0;
+			while (i < card && j < o.card) {
+				char a = content[i], b = o.content[j];
+				if (a < b) {
+					merged[n++] = a;
+					i++;
+				} else if (a > b) {
+					merged[n++] = b;
+					j++;
+				} else {
+					merged[n++] = a;
+					i++;
+					j++;
+				}
+			}
+			while (i < card)
+				merged[n++] = content[i++];
+			while (j < o.card)
+				merged[n++] = o.content[j++];
+			ArrayContainer result = new ArrayContainer(0);
+			result.content = merged;
+			result.card = n;
+			return n > ARRAY_MAX ? result.toBitmap() : result;
+		}
+
+		@Override
+		Container and(Container other) {
+			ArrayContainer result = new ArrayContainer(card);
+			if (other instanceof BitmapContainer) {
+				for (int i = 0; i < card; i++)
+					if (other.contains(content[i]))
+						result.content[result.card++] = content[i];
+				return result;
+			}
+			ArrayContainer o = (ArrayContainer)other;
+			int i = 0, j = 0;
+			while (i < card && j < o.card) {
+				char a = content[i], b = o.content[j];
+				if (a < b)
+					i++;
+				else if (a > b)
+					j++;
+				else {
+					result.content[result.card++] = a;
+					i++;
+					j++;
+				}
+			}
+			return result;
+		}
+
+		@Override
+		Container copy() {
+			ArrayContainer result = new ArrayContainer(0);
+			result.content = Arrays.copyOf(content, Math.max(card, 1));
+			result.card = card;
+			return result;
+		}
+
+		@Override
+		void forEach(int high, IntConsumer consumer) {
+			for (int i = 0; i < card; i++)
+				consumer.accept(high | content[i]);
+		}
+
+		@Override
+		int nextIndex(int index) {
+			return index + 1 < card ? index + 1 : -1;
+		}
+
+		@Override
+		int valueAt(int index) {
+			return content[index];
+		}
+
+		BitmapContainer toBitmap() {
+			BitmapContainer result = new BitmapContainer();
+			for (int i = 0; i < card; i++)
+				result.words[content[i] >>> 6] |= 1L << content[i];
+			result.card = card;
+			return result;
+		}
+	}
+
+	private static final class BitmapContainer extends Container {
+		final long [] words = new long[BITMAP_WORDS];
+		int card;
+
+		@Override
+		int cardinality() {
+			return card;
+		}
+
+		@Override
+		boolean contains(char low) {
+			return (words[low >>> 6] & (1L << low)) != 0;
+		}
+
+		@Override
+		Container add(char low) {
+			long before = words[low >>> 6];
+			long after = before | (1L << low);
+			if (before != after) {
+				words[low >>> 6] = after;
+				card++;
+			}
+			return this;
+		}
+
+		@Override
+		Container remove(char low) {
+			long before = words[low >>> 6];
+			long after = before & ~(1L << low);
+			if (before != after) {
+				words[low >>> 6] = after;
+				card--;
+				if (card <= ARRAY_MAX)
+					return toArray();
+			}
+			return this;
+		}
+
+		@Override
+		Container or(Container other) {
+			BitmapContainer result = (BitmapContainer)copy();
+			if (other instanceof BitmapContainer) {
+				long [] o = ((BitmapContainer)other).words;
+				int c = 0;
+				for (int i = 0; i < BITMAP_WORDS; i++) {
+					result.words[i] |= o[i];
+					c += Long.bitCount(result.words[i]);
+				}
+				result.card = c;
+			} else {
+				ArrayContainer o = (ArrayContainer)other;
+				for (int i = 0; i < o.card; i++)
+					result.add(o.content[i]);
+			}
+			return result;
+		}
+
+		@Override
+		Container and(Container other) {
+			if (other instanceof ArrayContainer)
+				return other.and(this);
+			long [] o = ((BitmapContainer)other).words;
+			BitmapContainer result = new BitmapContainer();
+			int c = 0;
+			for (int i = 0; i < BITMAP_WORDS; i++) {
+				result.words[i] = words[i] & o[i];
+				c += Long.bitCount(result.words[i]);
+			}
+			result.card = c;
+			return c <= ARRAY_MAX ? result.toArray() : result;
+		}
+
+		@Override
+		Container copy() {
+			BitmapContainer result = new BitmapContainer();
+			System.arraycopy(words, 0, result.words, 0, BITMAP_WORDS);
+			result.card = card;
+			return result;
+		}
+
+		@Override
+		void forEach(int high, IntConsumer consumer) {
+			for (int i = 0; i < BITMAP_WORDS; i++) {
+				long w = words[i];
+				while (w != 0) {
+					consumer.accept(high | (i << 6) | Long.numberOfTrailingZeros(w));
+					w &= w - 1;
+				}
+			}
+		}
+
+		@Override
+		int nextIndex(int index) {
+			int from = index + 1;
+			if (from >= BITMAP_WORDS * 64)
+				return -1;
+			int wi = from >>> 6;
+			long w = words[wi] & (-1L << from);
+			while (true) {
+				if (w != 0)
+					return (wi << 6) | Long.numberOfTrailingZeros(w);
+				if (++wi == BITMAP_WORDS)
+					return -1;
+				w = words[wi];
+			}
+		}
+
+		@Override
+		int valueAt(int index) {
+			return index;
+		}
+
+		ArrayContainer toArray() {
+			ArrayContainer result = new ArrayContainer(card);
+			for (int i = 0; i < BITMAP_WORDS; i++) {
+				long w = words[i];
+				while (w != 0) {
+					result.content[result.card++] = (char)((i << 6) | Long.numberOfTrailingZeros(w));
+					w &= w - 1;
+				}
+			}
+			return result;
+		}
+	}
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2026 TopicQuests Foundation
+ *  This source code is available under the terms of the Affero General Public License v3.
+ *  Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+ */
+package org.topicquests.hyperbrane.util;
+
+import java.util.Arrays;
+
+/**
+ * <p>Immutable value form of an {@link org.topicquests.hyperbrane.api.IWordGram} id:
+ * the numeric ids of the words in the gram.</p>
+ * <p>Equality and hashing work on the word ids, never on the <code>String</code>
+ * form, which is built lazily and only if asked for.</p>
+ */
+public final class WordGramId implements Comparable<WordGramId> {
+	private final long [] words;
+	private final int hash;
+	private String idString;
+
+	private WordGramId(long [] words, String idString) {
+		this.words = words;
+		this.hash = (int)WordGramIdCodec.hash64(words, 0, words.length);
+		this.idString = idString;
+	}
+
+	/**
+	 * @param wordIds from one to {@link WordGramIdCodec#MAX_GRAM_SIZE} word ids
+	 * @return
+	 */
+	public static WordGramId of(long... wordIds) {
+		return of(wordIds, 0, wordIds.length);
+	}
+
+	/**
+	 * Copies <code>wordIds[off..off+len)</code>
+	 * @param wordIds
+	 * @param off
+	 * @param len
+	 * @return
+	 */
+	public static WordGramId of(long [] wordIds, int off, int len) {
+		if (!WordGramIdCodec.isValidSize(len))
+			throw new IllegalArgumentException("Bad WordGram size: " + len);
+		return new WordGramId(Arrays.copyOfRange(wordIds, off, off + len), null);
+	}
+
+	/**
+	 * @param packed a value from {@link WordGramIdCodec#pack(long[], int, int)}
+	 * @return
+	 */
+	public static WordGramId fromPacked(long packed) {
+		long [] buf = new long[WordGramIdCodec.MAX_GRAM_SIZE];
+		int len = WordGramIdCodec.unpack(packed, buf, 0);
+		return new WordGramId(Arrays.copyOf(buf, len), null);
+	}
+
+	/**
+	 * @param id the <code>String</code> form, e.g. <code>"12.7.3391"</code>
+	 * @return
+	 */
+	public static WordGramId parse(String id) {
+		long [] buf = new long[WordGramIdCodec.MAX_GRAM_SIZE];
+		int len = WordGramIdCodec.parse(id, buf, 0);
+		return new WordGramId(Arrays.copyOf(buf, len), id);
+	}
+
+	public int size() {
+		return words.length;
+	}
+
+	/**
+	 * @param index <code>0</code> based position in the gram
+	 * @return
+	 */
+	public long getWordId(int index) {
+		return words[index];
+	}
+
+	/**
+	 * Copy the word ids into <code>dest</code>
+	 * @param dest
+	 * @param off
+	 * @return the gram size
+	 */
+	public int copyWordIds(long [] dest, int off) {
+		System.arraycopy(words, 0, dest, off, words.length);
+		return words.length;
+	}
+
+	public boolean isPackable() {
+		return WordGramIdCodec.isPackable(words, 0, words.length);
+	}
+
+	/**
+	 * @return the packed form or {@link WordGramIdCodec#NOT_PACKABLE}
+	 */
+	public long pack() {
+		return WordGramIdCodec.pack(words, 0, words.length);
+	}
+
+	public long hash64() {
+		return WordGramIdCodec.hash64(words, 0, words.length);
+	}
+
+	/**
+	 * Returns <code>true</code> if this gram's words are the words
+	 * found at <code>wordIds[off..off+len)</code>
+	 * @param wordIds
+	 * @param off
+	 * @param len
+	 * @return
+	 */
+	public boolean matches(long [] wordIds, int off, int len) {
+		if (len != words.length)
+			return false;
+		for (int i = 0; i < len; i++)
+			if (words[i] != wordIds[off + i])
+				return false;
+		return true;
+	}
+
+	/**
+	 * The <code>String</code> form, as returned by <code>IWordGram.getID()</code>
+	 */
+	@Override
+	public String toString() {
+		String result = idString;
+		if (result == null) {
+			result = WordGramIdCodec.toString(words, 0, words.length);
+			idString = result;
+		}
+		return result;
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o)
+			return true;
+		if (!(o instanceof WordGramId))
+			return false;
+		WordGramId other = (WordGramId)o;
+		return hash == other.hash && Arrays.equals(words, other.words);
+	}
+
+	@Override
+	public int compareTo(WordGramId o) {
+		return WordGramIdCodec.compare(words, 0, words.length, o.words, 0, o.words.length);
+	}
+}
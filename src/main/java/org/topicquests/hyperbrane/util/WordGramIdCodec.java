@@ -0,0 +1,236 @@
+/*
+ * Copyright 2026 TopicQuests Foundation
+ *  This source code is available under the terms of the Affero General Public License v3.
+ *  Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+ */
+package org.topicquests.hyperbrane.util;
+
+/**
+ * <p>Encodings for {@link org.topicquests.hyperbrane.api.IWordGram} identifiers.</p>
+ * <p>Each word is given a numeric id; a wordgram id is composed of the numeric
+ * ids of each word in it (see {@link org.topicquests.hyperbrane.api.ISentence}).
+ * The canonical form is a slice of a <code>long[]</code>, one word id per slot.
+ * Grams whose word ids are small enough can also be packed into a single
+ * <code>long</code>; the <code>String</code> form, e.g. <code>"12.7.3391"</code>,
+ * is only needed at the edges, when talking to JSON or the database.</p>
+ * <p>All methods work on caller-supplied arrays and do not allocate,
+ * other than the <code>String</code> views.</p>
+ */
+public final class WordGramIdCodec {
+	/** Separates word ids in the <code>String</code> form of a gram id */
+	public static final char DELIMITER = '.';
+	/** Word id <code>0</code> is never assigned to a word */
+	public static final long NO_WORD = 0L;
+	/** Largest gram: an <em>EIGHTER</em> */
+	public static final int MAX_GRAM_SIZE = 8;
+	/** Returned by {@link #pack(long[], int, int)} when the gram cannot be packed */
+	public static final long NOT_PACKABLE = Long.MIN_VALUE;
+
+	private static final int SIZE_BITS = 3;
+	private static final int PAYLOAD_BITS = Long.SIZE - SIZE_BITS;
+	/** bits available to each word id when packed, indexed by gram size */
+	private static final int [] BITS_PER_WORD = {0, 61, 30, 20, 15, 12, 10, 8, 7};
+
+	private WordGramIdCodec() {}
+
+	/**
+	 * Returns <code>true</code> if <code>size</code> is a legal gram size
+	 * @param size
+	 * @return
+	 */
+	public static boolean isValidSize(int size) {
+		return size > 0 && size <= MAX_GRAM_SIZE;
+	}
+
+	/**
+	 * Returns <code>true</code> if the gram <code>words[off..off+len)</code>
+	 * can be represented by {@link #pack(long[], int, int)}
+	 * @param words
+	 * @param off
+	 * @param len
+	 * @return
+	 */
+	public static boolean isPackable(long [] words, int off, int len) {
+		if (!isValidSize(len))
+			return false;
+		long limit = 1L << BITS_PER_WORD[len];
+		for (int i = off; i < off + len; i++) {
+			long w = words[i];
+			if (w <= NO_WORD || w >= limit)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * <p>Pack a gram into a single <code>long</code>. The top three bits
+	 * carry the gram size; the remaining 61 bits are split evenly
+	 * among the words.</p>
+	 * @param words
+	 * @param off
+	 * @param len
+	 * @return the packed id or {@link #NOT_PACKABLE}
+	 */
+	public static long pack(long [] words, int off, int len) {
+		if (!isPackable(words, off, len))
+			return NOT_PACKABLE;
+		int bits = BITS_PER_WORD[len];
+		long result = ((long)(len - 1)) << PAYLOAD_BITS;
+		for (int i = 0; i < len; i++)
+			result |= words[off + i] << (bits * i);
+		return result;
+	}
+
+	/**
+	 * Size of a gram packed by {@link #pack(long[], int, int)}
+	 * @param packed
+	 * @return
+	 */
+	public static int packedSize(long packed) {
+		return (int)(packed >>> PAYLOAD_BITS) + 1;
+	}
+
+	/**
+	 * Unpack a packed gram into <code>dest</code> starting at <code>off</code>
+	 * @param packed
+	 * @param dest
+	 * @param off
+	 * @return the gram size
+	 */
+	public static int unpack(long packed, long [] dest, int off) {
+		int len = packedSize(packed);
+		int bits = BITS_PER_WORD[len];
+		long mask = (1L << bits) - 1;
+		for (int i = 0; i < len; i++)
+			dest[off + i] = (packed >>> (bits * i)) & mask;
+		return len;
+	}
+
+	/**
+	 * A well mixed 64-bit hash of a gram; equal grams hash equally
+	 * regardless of whether they are packed.
+	 * @param words
+	 * @param off
+	 * @param len
+	 * @return
+	 */
+	public static long hash64(long [] words, int off, int len) {
+		long h = 0x9E3779B97F4A7C15L * len;
+		for (int i = off; i < off + len; i++)
+			h = mix64(h ^ mix64(words[i]));
+		return h;
+	}
+
+	/**
+	 * Finalizer from MurmurHash3
+	 * @param z
+	 * @return
+	 */
+	public static long mix64(long z) {
+		z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+		z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+		return z ^ (z >>> 33);
+	}
+
+	/**
+	 * Compare two grams word by word; shorter prefixes sort first
+	 * @return
+	 */
+	public static int compare(long [] a, int aOff, int aLen, long [] b, int bOff, int bLen) {
+		int n = Math.min(aLen, bLen);
+		for (int i = 0; i < n; i++) {
+			int c = Long.compare(a[aOff + i], b[bOff + i]);
+			if (c != 0)
+				return c;
+		}
+		return Integer.compare(aLen, bLen);
+	}
+
+	/**
+	 * Append the <code>String</code> form of a gram to <code>buf</code>
+	 * @param words
+	 * @param off
+	 * @param len
+	 * @param buf
+	 * @return <code>buf</code>
+	 */
+	public static StringBuilder appendTo(long [] words, int off, int len, StringBuilder buf) {
+		for (int i = 0; i < len; i++) {
+			if (i > 0)
+				buf.append(DELIMITER);
+			buf.append(words[off + i]);
+		}
+		return buf;
+	}
+
+	/**
+	 * The <code>String</code> form of a gram
+	 * @param words
+	 * @param off
+	 * @param len
+	 * @return
+	 */
+	public static String toString(long [] words, int off, int len) {
+		return appendTo(words, off, len, new StringBuilder(len * 8)).toString();
+	}
+
+	/**
+	 * The <code>String</code> form of a packed gram
+	 * @param packed
+	 * @return
+	 */
+	public static String toString(long packed) {
+		long [] words = new long[MAX_GRAM_SIZE];
+		int len = unpack(packed, words, 0);
+		return toString(words, 0, len);
+	}
+
+	/**
+	 * <p>Parse the <code>String</code> form of a gram id into <code>dest</code>
+	 * without splitting or boxing.</p>
+	 * @param id e.g. <code>"12.7.3391"</code>
+	 * @param dest must have room for {@link #MAX_GRAM_SIZE} words from <code>off</code>
+	 * @param off
+	 * @return the gram size
+	 * @throws IllegalArgumentException if <code>id</code> is not a well formed gram id
+	 */
+	public static int parse(CharSequence id, long [] dest, int off) {
+		int n = id.length();
+		if (n == 0)
+			throw new IllegalArgumentException("Empty WordGram id");
+		int len = 0;
+		long w = 0;
+		boolean digits = false;
+		for (int i = 0; i < n; i++) {
+			char c = id.charAt(i);
+			if (c == DELIMITER) {
+				if (!digits || len == MAX_GRAM_SIZE)
+					throw new IllegalArgumentException("Bad WordGram id: " + id);
+				dest[off + len++] = w;
+				w = 0;
+				digits = false;
+			} else if (c >= '0' && c <= '9') {
+				if (w > (Long.MAX_VALUE - 9) / 10)
+					throw new IllegalArgumentException("WordGram id overflow: " + id);
+				w = w * 10 + (c - '0');
+				digits = true;
+			} else
+				throw new IllegalArgumentException("Bad WordGram id: " + id);
+		}
+		if (!digits || len == MAX_GRAM_SIZE)
+			throw new IllegalArgumentException("Bad WordGram id: " + id);
+		dest[off + len++] = w;
+		return len;
+	}
+
+	/**
+	 * Parse and pack the <code>String</code> form of a gram id
+	 * @param id
+	 * @return the packed id or {@link #NOT_PACKABLE}
+	 */
+	public static long parsePacked(CharSequence id) {
+		long [] words = new long[MAX_GRAM_SIZE];
+		int len = parse(id, words, 0);
+		return pack(words, 0, len);
+	}
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2026, TopicQuests
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package org.topicquests.pg.api;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import org.topicquests.support.api.IResult;
+
+/**
+ * <p>Asynchronous companion to {@link IPostgresConnection}: each call runs
+ * on a pooled connection in the background and completes its future with
+ * the IResult. Database errors are reported in the IResult; a future which
+ * times out completes exceptionally with a
+ * <code>java.util.concurrent.TimeoutException</code>.</p>
+ * <p>Cancelling a future, or timing out, cancels its running statement.</p>
+ * <p>No ResultSet outlives its connection, so selects map their rows.</p>
+ */
+public interface IAsyncPostgresConnection extends AutoCloseable {
+
+  /**
+   * Run <code>work</code> with a pooled connection, which is returned
+   * afterwards.
+   * @param role the role to run in, or <code>null</code> for any
+   * @param timeoutMillis <code>0</code> for the default
+   * @param work
+   * @return
+   */
+  public CompletableFuture<IResult> execute(String role, long timeoutMillis,
+                                            Function<IExtendedPostgresConnection, IResult> work);
+
+  /**
+   * Run <code>work</code> in the default role with the default timeout.
+   * @param work
+   * @return
+   */
+  public CompletableFuture<IResult> execute(Function<IExtendedPostgresConnection, IResult> work);
+
+  /**
+   * Execute the prepared statement SELECT SQL
+   * @param sql
+   * @param mapper
+   * @param vals
+   * @return a future IResult containing the <code>List</code> of mapped rows and any error messages
+   */
+  public <T> CompletableFuture<IResult> executeSelect(String sql, IRowMapper<T> mapper, Object... vals);
+
+  /**
+   * Execute the prepared statement UPDATE SQL
+   * @param sql
+   * @param vals
+   * @return a future IResult containing the <code>Integer</code> number of rows and any error messages
+   */
+  public CompletableFuture<IResult> executeUpdate(String sql, Object... vals);
+
+  /**
+   * Execute SQL which returns a count.
+   * @param sql
+   * @return a future IResult containing the row count and any error messages
+   */
+  public CompletableFuture<IResult> executeCount(String sql);
+
+  /**
+   * See {@link IExtendedPostgresConnection#executeBatch(String, List, int, boolean, IResult)}.
+   */
+  public CompletableFuture<IResult> executeBatch(String sql, List<Object[]> rows, int chunkSize,
+                                                 boolean rewriteValues);
+
+  /**
+   * Stop taking work; running calls finish.
+   */
+  @Override
+  public void close();
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2026, TopicQuests
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package org.topicquests.pg.api;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Opens new physical database connections, e.g.
+ * <code>() -&gt; DriverManager.getConnection(url, props)</code>
+ */
+public interface IConnectionSource {
+
+  /**
+   * Open a new connection.
+   * @return a new java.sql.Connection
+   * @throws SQLException
+   */
+  public Connection newConnection() throws SQLException;
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2026, TopicQuests
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package org.topicquests.pg.api;
+
+import java.util.Iterator;
+import java.util.List;
+
+import org.topicquests.support.api.IResult;
+
+/**
+ * Operations beyond {@link IPostgresConnection} offered by the JDBC
+ * implementations.
+ */
+public interface IExtendedPostgresConnection extends IPostgresConnection {
+
+  /**
+   * Drop any cached prepared statements, e.g. after the schema has been
+   * changed by another connection.
+   */
+  public void invalidateStatements();
+
+  /**
+   * Cancel the statement running on this connection; may be called from
+   * any thread.
+   */
+  public void cancel();
+
+  /**
+   * Execute <code>sql</code> once per row, <code>chunkSize</code> rows per
+   * round trip. With <code>rewriteValues</code>, an
+   * <code>INSERT ... VALUES (?, ...)</code> is sent as one statement with a
+   * <code>VALUES</code> group per row; other SQL, or SQL that cannot be
+   * rewritten, goes as a JDBC batch. Stops at the first failed chunk.
+   * @param sql a prepared statement
+   * @param rows each array holds the parameters of one row
+   * @param chunkSize rows per round trip
+   * @param rewriteValues
+   * @param result an IResult object
+   * @return An updated IResult object: the result object is the
+   * <code>Integer</code> number of rows updated, and
+   * <code>getResultObjectA()</code> an <code>int[]</code> of rows updated
+   * by each chunk which succeeded.
+   */
+  public IResult executeBatch(String sql, Iterator<Object[]> rows, int chunkSize,
+                              boolean rewriteValues, IResult result);
+
+  /**
+   * See {@link #executeBatch(String, Iterator, int, boolean, IResult)}.
+   */
+  public IResult executeBatch(String sql, List<Object[]> rows, int chunkSize,
+                              boolean rewriteValues, IResult result);
+
+  /**
+   * Execute the SQL strings, none of which may return rows, as one batch
+   * sent in a single round trip. Either all take effect or none do: inside
+   * a transaction, a failure rolls back to a savepoint taken just before
+   * the batch and the transaction stays usable; otherwise the batch runs
+   * in a transaction of its own.
+   * @param stmts The SQL strings to be executed.
+   * @param result an IResult object
+   * @return An updated IResult object containing an <code>int[]</code> of
+   * update counts, one per statement, and any error messages. On error, the
+   * counts cover only the statements before the one which failed.
+   */
+  public IResult executeMultiSQLPipelined(String[] stmts, IResult result);
+
+  /**
+   * See {@link #executeMultiSQLPipelined(String[], IResult)}.
+   */
+  public IResult executeMultiSQLPipelined(List<String> sql, IResult result);
+
+  /**
+   * Open a server-side cursor on a SELECT, fetching <code>fetchSize</code>
+   * rows per round trip, so tables larger than memory can be read.
+   * If not already in a transaction, one is held open until the cursor closes.
+   * @param sql The prepared statement to be executed.
+   * @param fetchSize rows per round trip
+   * @param mapper
+   * @param vals The values to be injected into the prepared statement.
+   * @return An IResult object containing an {@link IResultCursor} and any error messages.
+   */
+  public <T> IResult openCursor(String sql, int fetchSize, IRowMapper<T> mapper, Object... vals);
+
+  /**
+   * Stream the rows of a SELECT to <code>handler</code> through a server-side
+   * cursor; everything is closed when this returns.
+   * @param sql The prepared statement to be executed.
+   * @param fetchSize rows per round trip
+   * @param handler
+   * @param vals The values to be injected into the prepared statement.
+   * @return An IResult object containing the <code>Long</code> number of rows handled and any error messages.
+   */
+  public IResult executeStream(String sql, int fetchSize, IRowHandler handler, Object... vals);
+
+  /**
+   * Pass each row of a SELECT to <code>visitor</code> a column at a time,
+   * without building a row object or boxing primitive columns; everything
+   * is closed when this returns.
+   * @param sql The prepared statement to be executed.
+   * @param visitor
+   * @param result reused, e.g. a {@link IResettableResult}
+   * @param vals The values to be injected into the prepared statement.
+   * @return <code>result</code>, whose result object is the <code>Long</code> number of rows visited
+   */
+  public IResult executeSelect(String sql, IRowVisitor visitor, IResult result, Object... vals);
+}
@@ -186,6 +186,18 @@ public interface IPostgresConnection {
    */
   public IResult rollback(Savepoint svpt, IResult result);
 
+  /**
+   * Release the given savepoint; changes made since it stay in the transaction.
+   * @return IResult
+   */
+  public IResult releaseSavepoint(Savepoint svpt);
+
+  /**
+   * Release the given savepoint; changes made since it stay in the transaction.
+   * @return updated IResult
+   */
+  public IResult releaseSavepoint(Savepoint svpt, IResult result);
+
   /**
    * Rollback a transaction. If a savepoint is set in a result object,
    * the transaction will be rolled back to the savepoint.
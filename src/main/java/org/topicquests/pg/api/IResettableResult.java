@@ -0,0 +1,30 @@
+/*
+ * Copyright 2026, TopicQuests
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package org.topicquests.pg.api;
+
+import org.topicquests.support.api.IResult;
+
+/**
+ * An IResult which can be used again.
+ */
+public interface IResettableResult extends IResult {
+
+  /**
+   * Clear both result objects and all errors, leaving it as if new. A
+   * result must not be reset while anyone still reads it.
+   */
+  public void reset();
+}
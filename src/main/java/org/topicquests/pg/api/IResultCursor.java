@@ -0,0 +1,47 @@
+/*
+ * Copyright 2026, TopicQuests
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package org.topicquests.pg.api;
+
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * <p>Rows of a streamed select, fetched from the server a batch at a time.</p>
+ * <p>The cursor closes itself when the last row has been read or on error;
+ * close it yourself when stopping early. A database error ends the
+ * iteration and is reported by {@link #hasError()}, which callers must check
+ * when iteration ends.</p>
+ * @param <T>
+ */
+public interface IResultCursor<T> extends Iterator<T>, AutoCloseable {
+
+  /**
+   * @return the remaining rows; closing the stream closes the cursor
+   */
+  public Stream<T> stream();
+
+  /**
+   * @return rows read so far
+   */
+  public long getRowCount();
+
+  public boolean hasError();
+
+  public String getErrorString();
+
+  @Override
+  public void close();
+}
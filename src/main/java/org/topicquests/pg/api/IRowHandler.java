@@ -0,0 +1,32 @@
+/*
+ * Copyright 2026, TopicQuests
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package org.topicquests.pg.api;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Called for each row of a streamed select.
+ */
+public interface IRowHandler {
+
+  /**
+   * @param rs positioned on a row; do not move it
+   * @return <code>false</code> to stop
+   * @throws SQLException
+   */
+  public boolean handle(ResultSet rs) throws SQLException;
+}
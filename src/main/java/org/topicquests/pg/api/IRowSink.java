@@ -0,0 +1,43 @@
+/*
+ * Copyright 2026, TopicQuests
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package org.topicquests.pg.api;
+
+import java.sql.SQLException;
+
+/**
+ * Receives the rows of one table during a bulk load.
+ */
+public interface IRowSink {
+
+  /**
+   * Write one row, in the column order the sink was opened with.
+   * @param row
+   * @throws SQLException
+   */
+  public void write(Object [] row) throws SQLException;
+
+  /**
+   * Finish the load.
+   * @return number of rows loaded
+   * @throws SQLException
+   */
+  public long finish() throws SQLException;
+
+  /**
+   * Give up the load; nothing written is kept.
+   */
+  public void cancel();
+}
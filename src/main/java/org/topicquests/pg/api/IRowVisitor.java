@@ -0,0 +1,72 @@
+/*
+ * Copyright 2026, TopicQuests
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package org.topicquests.pg.api;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+/**
+ * <p>Receives the rows of a select column by column, in column order, and
+ * then {@link #endRow()}. Integer, floating point and boolean columns
+ * arrive unboxed; <code>isNull</code> tells SQL NULL from zero or
+ * <code>false</code>.</p>
+ * <p>Columns are numbered from 1, as in JDBC.</p>
+ */
+public interface IRowVisitor {
+
+  /**
+   * Called once before the first row
+   * @param md
+   * @throws SQLException
+   */
+  public default void start(ResultSetMetaData md) throws SQLException {
+  }
+
+  /** smallint, integer and bigint columns */
+  public void longColumn(int column, long value, boolean isNull);
+
+  /** real and double precision columns */
+  public void doubleColumn(int column, double value, boolean isNull);
+
+  public void booleanColumn(int column, boolean value, boolean isNull);
+
+  /**
+   * Character, text, json, jsonb and uuid columns
+   * @param column
+   * @param value <code>null</code> for SQL NULL
+   */
+  public void stringColumn(int column, String value);
+
+  /**
+   * bytea columns
+   * @param column
+   * @param value <code>null</code> for SQL NULL
+   */
+  public void bytesColumn(int column, byte [] value);
+
+  /**
+   * Anything else, e.g. numeric, timestamps and arrays
+   * @param column
+   * @param value <code>null</code> for SQL NULL
+   */
+  public void objectColumn(int column, Object value);
+
+  /**
+   * @return <code>false</code> to stop
+   * @throws SQLException
+   */
+  public boolean endRow() throws SQLException;
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright 2026, TopicQuests
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package org.topicquests.pg.jdbc;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.topicquests.pg.api.IAsyncPostgresConnection;
+import org.topicquests.pg.api.IExtendedPostgresConnection;
+import org.topicquests.pg.api.IRowMapper;
+import org.topicquests.support.ResultPojo;
+import org.topicquests.support.api.IResult;
+
+/**
+ * <p>{@link IAsyncPostgresConnection} over a {@link PostgresConnectionPool}.</p>
+ * <p>Work runs on the given executor: by default a fixed pool of daemon
+ * platform threads named <code>pg-async-</code><em>n</em>, as large as the
+ * connection pool, since more could only wait for connections. On Java 21 and later a virtual thread per task executor may
+ * be passed instead, with the connection pool still bounding what reaches
+ * the database.</p>
+ * <p>Thread safe.</p>
+ */
+public class AsyncPostgresConnection implements IAsyncPostgresConnection {
+  private static final AtomicInteger THREADS = new AtomicInteger();
+  private final PostgresConnectionPool pool;
+  private final ExecutorService executor;
+  private final boolean ownsExecutor;
+  private final ScheduledExecutorService timer;
+  private final String role;
+  private final long defaultTimeoutMillis;
+
+  /** the connection a call is using, guarded by itself */
+  private static final class Running {
+    JdbcPostgresConnection conn;
+  }
+
+  /**
+   * @param pool
+   * @param role default role, or <code>null</code> for any
+   * @param defaultTimeoutMillis <code>0</code> for none
+   */
+  public AsyncPostgresConnection(PostgresConnectionPool pool, String role, long defaultTimeoutMillis) {
+    this(pool, Executors.newFixedThreadPool(pool.getMaxSize(), r -> {
+      Thread t = new Thread(r, "pg-async-" + THREADS.incrementAndGet());
+      t.setDaemon(true);
+      return t;
+    }), true, role, defaultTimeoutMillis);
+  }
+
+  /**
+   * @param pool
+   * @param executor runs the calls; not shut down by {@link #close()}
+   * @param role default role, or <code>null</code> for any
+   * @param defaultTimeoutMillis <code>0</code> for none
+   */
+  public AsyncPostgresConnection(PostgresConnectionPool pool, ExecutorService executor,
+                                 String role, long defaultTimeoutMillis) {
+    this(pool, executor, false, role, defaultTimeoutMillis);
+  }
+
+  private AsyncPostgresConnection(PostgresConnectionPool pool, ExecutorService executor, boolean ownsExecutor,
+                                  String role, long defaultTimeoutMillis) {
+    this.pool = pool;
+    this.executor = executor;
+    this.ownsExecutor = ownsExecutor;
+    this.role = role;
+    this.defaultTimeoutMillis = defaultTimeoutMillis;
+    this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread t = new Thread(r, "pg-async-timer");
+      t.setDaemon(true);
+      return t;
+    });
+  }
+
+  @Override
+  public CompletableFuture<IResult> execute(Function<IExtendedPostgresConnection, IResult> work) {
+    return execute(role, 0, work);
+  }
+
+  @Override
+  public CompletableFuture<IResult> execute(final String role, long timeoutMillis,
+                                            final Function<IExtendedPostgresConnection, IResult> work) {
+    final CompletableFuture<IResult> result = new CompletableFuture<IResult>();
+    final Running running = new Running();
+    final Future<?> task;
+    try {
+      task = executor.submit(() -> run(role, work, result, running));
+    } catch (RejectedExecutionException e) {
+      result.completeExceptionally(e);
+      return result;
+    }
+    long timeout = timeoutMillis > 0 ? timeoutMillis : defaultTimeoutMillis;
+    final ScheduledFuture<?> timing = timeout <= 0 ? null :
+      timer.schedule(() -> {
+        result.completeExceptionally(new TimeoutException("Database call timed out after " + timeout + "ms"));
+      }, timeout, TimeUnit.MILLISECONDS);
+    result.whenComplete((r, x) -> {
+      if (timing != null)
+        timing.cancel(false);
+      if (x instanceof TimeoutException || x instanceof CancellationException) {
+        task.cancel(false);
+        synchronized (running) {
+          if (running.conn != null)
+            running.conn.cancel();
+        }
+      }
+    });
+    return result;
+  }
+
+  private void run(String role, Function<IExtendedPostgresConnection, IResult> work,
+                   CompletableFuture<IResult> result, Running running) {
+    if (result.isDone())
+      return;
+    JdbcPostgresConnection conn;
+    try {
+      conn = role == null ? pool.getConnection() : pool.getConnection(role);
+    } catch (SQLException e) {
+      IResult r = new ResultPojo();
+      r.addErrorString(e.getMessage());
+      result.complete(r);
+      return;
+    } catch (Throwable e) {
+      result.completeExceptionally(e);
+      return;
+    }
+    try {
+      synchronized (running) {
+        running.conn = conn;
+      }
+      if (!result.isDone())
+        result.complete(work.apply(conn));
+    } catch (Throwable e) {
+      // whatever it is, the caller must not wait forever
+      result.completeExceptionally(e);
+    } finally {
+      // the canceller must not reach the connection once it is back in the pool
+      synchronized (running) {
+        running.conn = null;
+      }
+      conn.closeConnection(new ResultPojo());
+    }
+  }
+
+  @Override
+  public <T> CompletableFuture<IResult> executeSelect(final String sql, final IRowMapper<T> mapper,
+                                                      final Object... vals) {
+    return execute(c -> select(c, sql, mapper, vals));
+  }
+
+  @Override
+  public CompletableFuture<IResult> executeUpdate(final String sql, final Object... vals) {
+    return execute(c -> c.executeUpdate(sql, vals));
+  }
+
+  @Override
+  public CompletableFuture<IResult> executeCount(final String sql) {
+    return execute(c -> c.executeCount(sql));
+  }
+
+  @Override
+  public CompletableFuture<IResult> executeBatch(final String sql, final List<Object[]> rows,
+                                                 final int chunkSize, final boolean rewriteValues) {
+    return execute(c -> c.executeBatch(sql, rows, chunkSize, rewriteValues, new ResultPojo()));
+  }
+
+  @Override
+  public void close() {
+    timer.shutdown();
+    if (ownsExecutor)
+      executor.shutdown();
+  }
+
+  private static <T> IResult select(IExtendedPostgresConnection conn, String sql,
+                                    IRowMapper<T> mapper, Object [] vals) {
+    IResult result = conn.executeSelect(sql, vals);
+    ResultSet rs = (ResultSet)result.getResultObject();
+    if (rs == null)
+      return result;
+    List<T> rows = new ArrayList<T>();
+    Statement stmt = null;
+    try {
+      stmt = rs.getStatement();
+      while (rs.next())
+        rows.add(mapper.map(rs));
+    } catch (SQLException e) {
+      result.addErrorString(e.getMessage());
+    }
+    conn.closeResultSet(rs, result);
+    if (stmt != null)
+      conn.closeStatement(stmt, result);
+    result.setResultObject(rows);
+    return result;
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2026, TopicQuests
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package org.topicquests.pg.jdbc;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.topicquests.pg.api.IRowSink;
+import org.topicquests.pg.api.IRowSinkFactory;
+import org.topicquests.support.ResultPojo;
+import org.topicquests.support.api.IResult;
+
+/**
+ * <p>Loads rows with multi-row <code>INSERT ... VALUES</code> statements,
+ * for databases without <code>COPY</code>, such as an in-process stand-in.</p>
+ */
+public class BatchRowSink implements IRowSink {
+  private final JdbcPostgresConnection conn;
+  private final String sql;
+  private final int chunkSize;
+  private final List<Object[]> pending;
+  private long rows;
+
+  /**
+   * @param chunkSize rows per statement
+   * @return
+   */
+  public static IRowSinkFactory factory(final int chunkSize) {
+    return new IRowSinkFactory() {
+      @Override
+      public IRowSink open(Connection conn, String table, String [] columns) {
+        return new BatchRowSink(conn, table, columns, chunkSize);
+      }
+    };
+  }
+
+  public BatchRowSink(Connection conn, String table, String [] columns, int chunkSize) {
+    this.conn = new JdbcPostgresConnection(conn, PostgresRoles.NONE);
+    this.chunkSize = chunkSize;
+    this.pending = new ArrayList<Object[]>(chunkSize);
+    StringBuilder buf = new StringBuilder("INSERT INTO ").append(table).append(" (");
+    StringBuilder vals = new StringBuilder(") VALUES (");
+    for (int i = 0; i < columns.length; i++) {
+      if (i > 0) {
+        buf.append(", ");
+        vals.append(", ");
+      }
+      buf.append(columns[i]);
+      vals.append('?');
+    }
+    this.sql = buf.append(vals).append(')').toString();
+  }
+
+  @Override
+  public void write(Object [] row) throws SQLException {
+    pending.add(row);
+    if (pending.size() >= chunkSize)
+      flush();
+  }
+
+  @Override
+  public long finish() throws SQLException {
+    flush();
+    return rows;
+  }
+
+  @Override
+  public void cancel() {
+    pending.clear();
+  }
+
+  private void flush() throws SQLException {
+    if (pending.isEmpty())
+      return;
+    IResult r = conn.executeBatch(sql, pending, chunkSize, true, new ResultPojo());
+    if (r.hasError())
+      throw new SQLException(r.getErrorString());
+    rows += pending.size();
+    pending.clear();
+  }
+}
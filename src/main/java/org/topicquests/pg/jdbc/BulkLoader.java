@@ -0,0 +1,273 @@
+/*
+ * Copyright 2026, TopicQuests
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package org.topicquests.pg.jdbc;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.topicquests.pg.api.IConnectionSource;
+import org.topicquests.pg.api.IRowSink;
+import org.topicquests.pg.api.IRowSinkFactory;
+import org.topicquests.support.ResultPojo;
+import org.topicquests.support.api.IResult;
+
+/**
+ * <p>Loads several tables at once, each on its own connection and thread.</p>
+ * <p>Producers hand rows to {@link #add(String, Object[])}, which blocks
+ * while the table's queue is full, so memory stays bounded however large
+ * the load. Each table's rows go to an {@link IRowSink}: usually
+ * {@link CopyRowSink#FACTORY}, or {@link BatchRowSink#factory(int)} where
+ * there is no <code>COPY</code>.</p>
+ * <p>For each table, <code>preSql</code> runs before the load, e.g. to drop
+ * indexes or foreign keys, and <code>postSql</code> after it has committed,
+ * e.g. to recreate them and <code>ANALYZE</code>. The load itself is one
+ * transaction per table. If the load fails once <code>preSql</code> has
+ * run, it is rolled back and <code>postSql</code> is still run, so what
+ * <code>preSql</code> dropped is put back.</p>
+ * <p>Usage: {@link #addTable}, then {@link #start()}, {@link #add(String, Object[])}
+ * from any number of threads, and finally {@link #finish()}.</p>
+ */
+public class BulkLoader {
+  private static final Object [] END = new Object[0];
+  private static final long OFFER_MILLIS = 100;
+  private final IConnectionSource source;
+  private final IRowSinkFactory sinks;
+  private final int queueCapacity;
+  private final Map<String, Table> tables = new LinkedHashMap<String, Table>();
+  private ExecutorService executor;
+
+  private static final class Table {
+    final String name;
+    final String [] columns;
+    final List<String> preSql;
+    final List<String> postSql;
+    final BlockingQueue<Object[]> queue;
+    volatile boolean failed;
+    Future<Long> future;
+
+    Table(String name, String [] columns, List<String> preSql, List<String> postSql, int capacity) {
+      this.name = name;
+      this.columns = columns;
+      this.preSql = preSql;
+      this.postSql = postSql;
+      this.queue = new ArrayBlockingQueue<Object[]>(capacity);
+    }
+  }
+
+  /**
+   * @param source opens one connection per table
+   * @param sinks
+   * @param queueCapacity rows buffered per table
+   */
+  public BulkLoader(IConnectionSource source, IRowSinkFactory sinks, int queueCapacity) {
+    this.source = source;
+    this.sinks = sinks;
+    this.queueCapacity = queueCapacity;
+  }
+
+  /**
+   * @param table
+   * @param columns in the order of each row
+   * @param preSql can be <code>null</code>
+   * @param postSql can be <code>null</code>; also run after a failed load,
+   * against the table as it was, so it must not depend on the new rows
+   */
+  public void addTable(String table, String [] columns, List<String> preSql, List<String> postSql) {
+    if (executor != null)
+      throw new IllegalStateException("BulkLoader already started");
+    tables.put(table, new Table(table, columns,
+      preSql == null ? Collections.<String>emptyList() : preSql,
+      postSql == null ? Collections.<String>emptyList() : postSql, queueCapacity));
+  }
+
+  public synchronized void start() {
+    if (executor != null)
+      return;
+    executor = Executors.newFixedThreadPool(Math.max(1, tables.size()));
+    for (final Table t : tables.values())
+      t.future = executor.submit(() -> load(t));
+  }
+
+  /**
+   * Queue a row for <code>table</code>
+   * @param table
+   * @param row
+   * @throws SQLException if the table's load has failed
+   */
+  public void add(String table, Object [] row) throws SQLException {
+    Table t = tables.get(table);
+    if (t == null)
+      throw new SQLException("No bulk load for table " + table);
+    if (row.length != t.columns.length)
+      throw new SQLException("Row of " + row.length + " values for " + t.columns.length + " columns of " + table);
+    put(t, row);
+  }
+
+  /**
+   * Wait for every table to be loaded
+   * @return result object is a <code>Map&lt;String, Long&gt;</code> of rows loaded per table
+   */
+  public IResult finish() {
+    start();
+    IResult result = new ResultPojo();
+    Map<String, Long> counts = new LinkedHashMap<String, Long>();
+    for (Table t : tables.values()) {
+      try {
+        put(t, END);
+      } catch (SQLException e) {
+        // failure is reported from its future
+      }
+    }
+    for (Table t : tables.values()) {
+      try {
+        counts.put(t.name, t.future.get());
+      } catch (ExecutionException e) {
+        Throwable c = e.getCause() != null ? e.getCause() : e;
+        result.addErrorString(t.name + ": " + c.getMessage());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        result.addErrorString(t.name + ": interrupted");
+      }
+    }
+    executor.shutdown();
+    result.setResultObject(counts);
+    return result;
+  }
+
+  /**
+   * Stop every load; nothing is committed that was not already
+   */
+  public void abort() {
+    for (Table t : tables.values()) {
+      t.failed = true;
+      t.queue.clear();
+    }
+    if (executor != null)
+      executor.shutdownNow();
+  }
+
+  private void put(Table t, Object [] row) throws SQLException {
+    try {
+      do {
+        if (t.failed)
+          throw new SQLException("Bulk load of " + t.name + " failed");
+      } while (!t.queue.offer(row, OFFER_MILLIS, TimeUnit.MILLISECONDS));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SQLException("Interrupted loading " + t.name);
+    }
+  }
+
+  private long load(Table t) throws Exception {
+    Connection conn = null;
+    IRowSink sink = null;
+    boolean restore = false;
+    try {
+      conn = source.newConnection();
+      conn.setAutoCommit(true);
+      restore = true;
+      execute(conn, t.preSql);
+      conn.setAutoCommit(false);
+      sink = sinks.open(conn, t.name, t.columns);
+      while (true) {
+        Object [] row = t.queue.take();
+        if (row == END)
+          break;
+        sink.write(row);
+      }
+      long result = sink.finish();
+      sink = null;
+      conn.commit();
+      conn.setAutoCommit(true);
+      restore = false;
+      execute(conn, t.postSql);
+      return result;
+    } catch (Exception e) {
+      t.failed = true;
+      t.queue.clear();
+      if (sink != null)
+        sink.cancel();
+      if (restore)
+        restore(conn, t, e);
+      throw e;
+    } finally {
+      if (conn != null)
+        close(conn);
+    }
+  }
+
+  /**
+   * Roll back the failed load and run <code>postSql</code>, so whatever
+   * <code>preSql</code> dropped is back; its own failures go with <code>cause</code>
+   */
+  private static void restore(Connection conn, Table t, Exception cause) {
+    try {
+      if (!conn.getAutoCommit()) {
+        conn.rollback();
+        conn.setAutoCommit(true);
+      }
+      execute(conn, t.postSql);
+    } catch (SQLException e) {
+      cause.addSuppressed(e);
+    }
+  }
+
+  /** closing rolls back anything uncommitted */
+  private static void close(Connection conn) {
+    try {
+      if (!conn.getAutoCommit())
+        conn.rollback();
+    } catch (SQLException e) {
+      // closing anyway
+    }
+    try {
+      conn.close();
+    } catch (SQLException e) {
+      // nothing to recover
+    }
+  }
+
+  private static void execute(Connection conn, List<String> sql) throws SQLException {
+    for (String s : sql) {
+      Statement stmt = conn.createStatement();
+      try {
+        stmt.execute(s);
+      } finally {
+        stmt.close();
+      }
+    }
+  }
+
+  /**
+   * @return names of the tables being loaded
+   */
+  public List<String> listTables() {
+    return new ArrayList<String>(tables.keySet());
+  }
+}
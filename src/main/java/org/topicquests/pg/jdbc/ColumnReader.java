@@ -0,0 +1,130 @@
+/*
+ * Copyright 2026, TopicQuests
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package org.topicquests.pg.jdbc;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+
+import org.topicquests.pg.api.IRowVisitor;
+
+/**
+ * Walks a ResultSet into an {@link IRowVisitor}, reading each column with
+ * the getter for its type.
+ */
+final class ColumnReader {
+  static final byte LONG = 0, DOUBLE = 1, BOOLEAN = 2, STRING = 3, BYTES = 4, OBJECT = 5;
+
+  private ColumnReader() {
+  }
+
+  /**
+   * @param md
+   * @return the kind of each column, at its JDBC index
+   * @throws SQLException
+   */
+  static byte [] kinds(ResultSetMetaData md) throws SQLException {
+    int n = md.getColumnCount();
+    byte [] result = new byte[n + 1];
+    for (int i = 1; i <= n; i++)
+      result[i] = kind(md.getColumnType(i), md.getColumnTypeName(i));
+    return result;
+  }
+
+  static byte kind(int sqlType, String typeName) {
+    switch (sqlType) {
+      case Types.TINYINT:
+      case Types.SMALLINT:
+      case Types.INTEGER:
+      case Types.BIGINT:
+        return LONG;
+      case Types.REAL:
+      case Types.FLOAT:
+      case Types.DOUBLE:
+        return DOUBLE;
+      case Types.BIT:
+      case Types.BOOLEAN:
+        return BOOLEAN;
+      case Types.CHAR:
+      case Types.VARCHAR:
+      case Types.LONGVARCHAR:
+      case Types.NCHAR:
+      case Types.NVARCHAR:
+      case Types.LONGNVARCHAR:
+      case Types.CLOB:
+        return STRING;
+      case Types.BINARY:
+      case Types.VARBINARY:
+      case Types.LONGVARBINARY:
+        return BYTES;
+      case Types.OTHER:
+        if ("json".equalsIgnoreCase(typeName) || "jsonb".equalsIgnoreCase(typeName) ||
+            "uuid".equalsIgnoreCase(typeName))
+          return STRING;
+        return OBJECT;
+      default:
+        return OBJECT;
+    }
+  }
+
+  /**
+   * @param rs
+   * @param visitor
+   * @return rows visited
+   * @throws SQLException
+   */
+  static long visit(ResultSet rs, IRowVisitor visitor) throws SQLException {
+    ResultSetMetaData md = rs.getMetaData();
+    byte [] kinds = kinds(md);
+    int n = kinds.length - 1;
+    visitor.start(md);
+    long result = 0;
+    while (rs.next()) {
+      result++;
+      for (int i = 1; i <= n; i++) {
+        switch (kinds[i]) {
+          case LONG: {
+            long v = rs.getLong(i);
+            visitor.longColumn(i, v, rs.wasNull());
+            break;
+          }
+          case DOUBLE: {
+            double v = rs.getDouble(i);
+            visitor.doubleColumn(i, v, rs.wasNull());
+            break;
+          }
+          case BOOLEAN: {
+            boolean v = rs.getBoolean(i);
+            visitor.booleanColumn(i, v, rs.wasNull());
+            break;
+          }
+          case STRING:
+            visitor.stringColumn(i, rs.getString(i));
+            break;
+          case BYTES:
+            visitor.bytesColumn(i, rs.getBytes(i));
+            break;
+          default:
+            visitor.objectColumn(i, rs.getObject(i));
+        }
+      }
+      if (!visitor.endRow())
+        break;
+    }
+    return result;
+  }
+}
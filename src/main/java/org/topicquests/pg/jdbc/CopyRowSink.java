@@ -0,0 +1,153 @@
+/*
+ * Copyright 2026, TopicQuests
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package org.topicquests.pg.jdbc;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.topicquests.pg.api.IRowSink;
+import org.topicquests.pg.api.IRowSinkFactory;
+
+/**
+ * <p>Streams rows into one <code>COPY ... FROM STDIN (FORMAT csv)</code>
+ * through the PostgreSQL driver, flushing every 64KB, so a table of any
+ * size loads in one statement with bounded memory.</p>
+ * <p>Values are written as CSV: <code>null</code> as an empty field,
+ * strings quoted, <code>byte[]</code> as <code>bytea</code> hex and
+ * <code>Object[]</code> as an array literal; anything else by
+ * <code>toString()</code>.</p>
+ * <p>Binary <code>COPY</code> is not supported: it needs each column's
+ * wire type to encode a value, which a row of plain objects does not
+ * carry, whereas CSV is parsed by the server with the column types it
+ * already knows.</p>
+ * <p>Needs the <code>org.postgresql:postgresql</code> driver.</p>
+ */
+public class CopyRowSink implements IRowSink {
+  public static final IRowSinkFactory FACTORY = new IRowSinkFactory() {
+    @Override
+    public IRowSink open(Connection conn, String table, String [] columns) throws SQLException {
+      return new CopyRowSink(conn, table, columns);
+    }
+  };
+  private static final int FLUSH_AT = 1 << 16;
+  private static final char [] HEX = "0123456789abcdef".toCharArray();
+  private final CopyIn copy;
+  private final StringBuilder buf = new StringBuilder(FLUSH_AT + 1024);
+  private long rows;
+
+  public CopyRowSink(Connection conn, String table, String [] columns) throws SQLException {
+    this.copy = conn.unwrap(PGConnection.class).getCopyAPI().copyIn(copySql(table, columns));
+  }
+
+  public static String copySql(String table, String [] columns) {
+    StringBuilder sql = new StringBuilder("COPY ").append(table).append(" (");
+    for (int i = 0; i < columns.length; i++) {
+      if (i > 0)
+        sql.append(", ");
+      sql.append(columns[i]);
+    }
+    return sql.append(") FROM STDIN WITH (FORMAT csv)").toString();
+  }
+
+  @Override
+  public void write(Object [] row) throws SQLException {
+    for (int i = 0; i < row.length; i++) {
+      if (i > 0)
+        buf.append(',');
+      appendField(buf, row[i]);
+    }
+    buf.append('\n');
+    rows++;
+    if (buf.length() >= FLUSH_AT)
+      flush();
+  }
+
+  @Override
+  public long finish() throws SQLException {
+    flush();
+    copy.endCopy();
+    return rows;
+  }
+
+  @Override
+  public void cancel() {
+    try {
+      if (copy.isActive())
+        copy.cancelCopy();
+    } catch (SQLException e) {
+      // the connection is rolled back or closed anyway
+    }
+  }
+
+  private void flush() throws SQLException {
+    if (buf.length() == 0)
+      return;
+    byte [] b = buf.toString().getBytes(StandardCharsets.UTF_8);
+    copy.writeToCopy(b, 0, b.length);
+    buf.setLength(0);
+  }
+
+  static void appendField(StringBuilder buf, Object v) {
+    if (v == null)
+      return;
+    if (v instanceof Number || v instanceof Boolean)
+      buf.append(v);
+    else if (v instanceof byte[]) {
+      byte [] b = (byte[])v;
+      buf.append("\\x");
+      for (byte x : b)
+        buf.append(HEX[(x >> 4) & 15]).append(HEX[x & 15]);
+    } else if (v instanceof Object[]) {
+      StringBuilder a = new StringBuilder("{");
+      Object [] arr = (Object[])v;
+      for (int i = 0; i < arr.length; i++) {
+        if (i > 0)
+          a.append(',');
+        if (arr[i] == null)
+          a.append("NULL");
+        else
+          appendArrayElement(a, arr[i].toString());
+      }
+      appendQuoted(buf, a.append('}'));
+    } else
+      appendQuoted(buf, v.toString());
+  }
+
+  private static void appendArrayElement(StringBuilder a, String s) {
+    a.append('"');
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (c == '"' || c == '\\')
+        a.append('\\');
+      a.append(c);
+    }
+    a.append('"');
+  }
+
+  private static void appendQuoted(StringBuilder buf, CharSequence s) {
+    buf.append('"');
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (c == '"')
+        buf.append('"');
+      buf.append(c);
+    }
+    buf.append('"');
+  }
+}
@@ -0,0 +1,439 @@
+/*
+ * Copyright 2026, TopicQuests
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package org.topicquests.pg.jdbc;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.List;
+
+import org.topicquests.pg.api.IExtendedPostgresConnection;
+import org.topicquests.pg.api.IRowHandler;
+import org.topicquests.pg.api.IRowMapper;
+import org.topicquests.pg.api.IRowVisitor;
+import org.topicquests.support.ResultPojo;
+import org.topicquests.support.api.IResult;
+
+/**
+ * <p>Passes every call to the connection {@link #delegate()} chooses.
+ * If none can be had, the call's IResult carries the error.</p>
+ * <p>Calls without an IResult go to their IResult forms, so subclasses
+ * need only override those.</p>
+ */
+public abstract class DelegatingPostgresConnection implements IExtendedPostgresConnection {
+
+  /**
+   * @return the connection to use now
+   * @throws SQLException if none can be had
+   */
+  protected abstract IExtendedPostgresConnection delegate() throws SQLException;
+
+  /**
+   * @return the connection in use, or <code>null</code> if there is none
+   */
+  protected abstract IExtendedPostgresConnection current();
+
+  private IExtendedPostgresConnection delegate(IResult result) {
+    try {
+      return delegate();
+    } catch (SQLException e) {
+      result.addErrorString(e.getMessage());
+      return null;
+    }
+  }
+
+  @Override
+  public IResult beginTransaction() {
+    return beginTransaction(new ResultPojo());
+  }
+
+  @Override
+  public IResult beginTransaction(IResult result) {
+    IExtendedPostgresConnection c = delegate(result);
+    return c == null ? result : c.beginTransaction(result);
+  }
+
+  @Override
+  public IResult endTransaction() {
+    return endTransaction(new ResultPojo());
+  }
+
+  @Override
+  public IResult endTransaction(IResult result) {
+    IExtendedPostgresConnection c = delegate(result);
+    return c == null ? result : c.endTransaction(result);
+  }
+
+  @Override
+  public IResult setProxyRole() {
+    return setProxyRole(new ResultPojo());
+  }
+
+  @Override
+  public IResult setProxyRole(IResult result) {
+    IExtendedPostgresConnection c = delegate(result);
+    return c == null ? result : c.setProxyRole(result);
+  }
+
+  @Override
+  public IResult setUsersRole() {
+    return setUsersRole(new ResultPojo());
+  }
+
+  @Override
+  public IResult setUsersRole(IResult result) {
+    IExtendedPostgresConnection c = delegate(result);
+    return c == null ? result : c.setUsersRole(result);
+  }
+
+  @Override
+  public IResult setConvRole() {
+    return setConvRole(new ResultPojo());
+  }
+
+  @Override
+  public IResult setConvRole(IResult result) {
+    IExtendedPostgresConnection c = delegate(result);
+    return c == null ? result : c.setConvRole(result);
+  }
+
+  @Override
+  public IResult setProxyRORole() {
+    return setProxyRORole(new ResultPojo());
+  }
+
+  @Override
+  public IResult setProxyRORole(IResult result) {
+    IExtendedPostgresConnection c = delegate(result);
+    return c == null ? result : c.setProxyRORole(result);
+  }
+
+  @Override
+  public IResult setUsersRORole() {
+    return setUsersRORole(new ResultPojo());
+  }
+
+  @Override
+  public IResult setUsersRORole(IResult result) {
+    IExtendedPostgresConnection c = delegate(result);
+    return c == null ? result : c.setUsersRORole(result);
+  }
+
+  @Override
+  public IResult setConvRORole() {
+    return setConvRORole(new ResultPojo());
+  }
+
+  @Override
+  public IResult setConvRORole(IResult result) {
+    IExtendedPostgresConnection c = delegate(result);
+    return c == null ? result : c.setConvRORole(result);
+  }
+
+  @Override
+  public IResult resetRole() {
+    return resetRole(new ResultPojo());
+  }
+
+  @Override
+  public IResult resetRole(IResult result) {
+    IExtendedPostgresConnection c = delegate(result);
+    return c == null ? result : c.resetRole(result);
+  }
+
+  @Override
+  public IResult setSavepoint() {
+    return setSavepoint(new ResultPojo());
+  }
+
+  @Override
+  public IResult setSavepoint(IResult result) {
+    IExtendedPostgresConnection c = delegate(result);
+    return c == null ? result : c.setSavepoint(result);
+  }
+
+  @Override
+  public IResult setSavepoint(String name) {
+    return setSavepoint(name, new ResultPojo());
+  }
+
+  @Override
+  public IResult setSavepoint(String name, IResult result) {
+    IExtendedPostgresConnection c = delegate(result);
+    return c == null ? result : c.setSavepoint(name, result);
+  }
+
+  @Override
+  public IResult rollback() {
+    return rollback(new ResultPojo());
+  }
+
+  @Override
+  public IResult rollback(Savepoint svpt) {
+    return rollback(svpt, new ResultPojo());
+  }
+
+  @Override
+  public IResult rollback(Savepoint svpt, IResult result) {
+    IExtendedPostgresConnection c = delegate(result);
+    return c == null ? result : c.rollback(svpt, result);
+  }
+
+  @Override
+  public IResult releaseSavepoint(Savepoint svpt) {
+    return releaseSavepoint(svpt, new ResultPojo());
+  }
+
+  @Override
+  public IResult releaseSavepoint(Savepoint svpt, IResult result) {
+    IExtendedPostgresConnection c = delegate(result);
+    return c == null ? result : c.releaseSavepoint(svpt, result);
+  }
+
+  @Override
+  public IResult rollback(IResult result) {
+    IExtendedPostgresConnection c = delegate(result);
+    return c == null ? result : c.rollback(result);
+  }
+
+  @Override
+  public IResult executeSQL(String sql) {
+    return executeSQL(sql, new ResultPojo());
+  }
+
+  @Override
+  public IResult executeSQL(String sql, IResult result) {
+    IExtendedPostgresConnection c = delegate(result);
+    return c == null ? result : c.executeSQL(sql, result);
+  }
+
+  @Override
+  public IResult executeMultiSQL(String[] stmts) {
+    return executeMultiSQL(stmts, new ResultPojo());
+  }
+
+  @Override
+  public IResult executeMultiSQL(String[] stmts, IResult result) {
+    IExtendedPostgresConnection c = delegate(result);
+    return c == null ? result : c.executeMultiSQL(stmts, result);
+  }
+
+  @Override
+  public IResult executeMultiSQL(List<String> sql) {
+    return executeMultiSQL(sql, new ResultPojo());
+  }
+
+  @Override
+  public IResult executeMultiSQL(List<String> sql, IResult result) {
+    return executeMultiSQL(sql.toArray(new String[sql.size()]), result);
+  }
+
+  @Override
+  public IResult executeMultiSQLPipelined(String[] stmts, IResult result) {
+    IExtendedPostgresConnection c = delegate(result);
+    return c == null ? result : c.executeMultiSQLPipelined(stmts, result);
+  }
+
+  @Override
+  public IResult executeMultiSQLPipelined(List<String> sql, IResult result) {
+    return executeMultiSQLPipelined(sql.toArray(new String[sql.size()]), result);
+  }
+
+  @Override
+  public IResult executeCount(String sql) {
+    return executeCount(sql, new ResultPojo());
+  }
+
+  @Override
+  public IResult executeCount(String sql, IResult result) {
+    IExtendedPostgresConnection c = delegate(result);
+    return c == null ? result : c.executeCount(sql, result);
+  }
+
+  @Override
+  public IResult executeUpdate(String sql) {
+    return executeUpdate(sql, new ResultPojo());
+  }
+
+  @Override
+  public IResult executeUpdate(String sql, IResult result) {
+    IExtendedPostgresConnection c = delegate(result);
+    return c == null ? result : c.executeUpdate(sql, result);
+  }
+
+  @Override
+  public IResult executeSelect(String sql) {
+    return executeSelect(sql, new ResultPojo());
+  }
+
+  @Override
+  public IResult executeSelect(String sql, IResult result) {
+    IExtendedPostgresConnection c = delegate(result);
+    return c == null ? result : c.executeSelect(sql, result);
+  }
+
+  @Override
+  public IResult executeSQL(String sql, Object... vals) {
+    return executeSQL(sql, new ResultPojo(), vals);
+  }
+
+  @Override
+  public IResult executeSQL(String sql, IResult result, Object... vals) {
+    IExtendedPostgresConnection c = delegate(result);
+    return c == null ? result : c.executeSQL(sql, result, vals);
+  }
+
+  @Override
+  public IResult executeUpdate(String sql, Object... vals) {
+    return executeUpdate(sql, new ResultPojo(), vals);
+  }
+
+  @Override
+  public IResult executeUpdate(String sql, IResult result, Object... vals) {
+    IExtendedPostgresConnection c = delegate(result);
+    return c == null ? result : c.executeUpdate(sql, result, vals);
+  }
+
+  @Override
+  public IResult executeBatch(String sql, Object... vals) {
+    return executeBatch(sql, new ResultPojo(), vals);
+  }
+
+  @Override
+  public IResult executeBatch(String sql, IResult result, Object... vals) {
+    IExtendedPostgresConnection c = delegate(result);
+    return c == null ? result : c.executeBatch(sql, result, vals);
+  }
+
+  @Override
+  public IResult executeBatch(String sql, Iterator<Object[]> rows, int chunkSize,
+                              boolean rewriteValues, IResult result) {
+    IExtendedPostgresConnection c = delegate(result);
+    return c == null ? result : c.executeBatch(sql, rows, chunkSize, rewriteValues, result);
+  }
+
+  @Override
+  public IResult executeBatch(String sql, List<Object[]> rows, int chunkSize,
+                              boolean rewriteValues, IResult result) {
+    return executeBatch(sql, rows.iterator(), chunkSize, rewriteValues, result);
+  }
+
+  @Override
+  public IResult executeSelect(String sql, Object... vals) {
+    return executeSelect(sql, new ResultPojo(), vals);
+  }
+
+  @Override
+  public IResult executeSelect(String sql, IResult result, Object... vals) {
+    IExtendedPostgresConnection c = delegate(result);
+    return c == null ? result : c.executeSelect(sql, result, vals);
+  }
+
+  @Override
+  public IResult executeSelect(String sql, IResult result, int resultSetType,
+          int resultSetConcurrency, Object... vals) {
+    IExtendedPostgresConnection c = delegate(result);
+    return c == null ? result : c.executeSelect(sql, result, resultSetType, resultSetConcurrency, vals);
+  }
+
+  @Override
+  public IResult executeSelect(String sql, IRowVisitor visitor, IResult result, Object... vals) {
+    IExtendedPostgresConnection c = delegate(result);
+    return c == null ? result : c.executeSelect(sql, visitor, result, vals);
+  }
+
+  @Override
+  public <T> IResult openCursor(String sql, int fetchSize, IRowMapper<T> mapper, Object... vals) {
+    IResult result = new ResultPojo();
+    IExtendedPostgresConnection c = delegate(result);
+    return c == null ? result : c.openCursor(sql, fetchSize, mapper, vals);
+  }
+
+  @Override
+  public IResult executeStream(String sql, int fetchSize, IRowHandler handler, Object... vals) {
+    IResult result = new ResultPojo();
+    IExtendedPostgresConnection c = delegate(result);
+    return c == null ? result : c.executeStream(sql, fetchSize, handler, vals);
+  }
+
+  @Override
+  public IResult validateDatabase(String [] tableSchema) {
+    IResult result = new ResultPojo();
+    IExtendedPostgresConnection c = delegate(result);
+    return c == null ? result : c.validateDatabase(tableSchema);
+  }
+
+  @Override
+  public IResult createStatement() {
+    return createStatement(new ResultPojo());
+  }
+
+  @Override
+  public IResult createStatement(IResult result) {
+    IExtendedPostgresConnection c = delegate(result);
+    return c == null ? result : c.createStatement(result);
+  }
+
+  @Override
+  public void closeResultSet(ResultSet rs, IResult result) {
+    IExtendedPostgresConnection c = current();
+    if (c != null)
+      c.closeResultSet(rs, result);
+    else {
+      try {
+        rs.close();
+      } catch (SQLException e) {
+        result.addErrorString(e.getMessage());
+      }
+    }
+  }
+
+  @Override
+  public void closeStatement(Statement stmt, IResult result) {
+    IExtendedPostgresConnection c = current();
+    if (c != null)
+      c.closeStatement(stmt, result);
+    else {
+      try {
+        stmt.close();
+      } catch (SQLException e) {
+        result.addErrorString(e.getMessage());
+      }
+    }
+  }
+
+  @Override
+  public void closeStatement(PreparedStatement stmt, IResult result) {
+    closeStatement((Statement)stmt, result);
+  }
+
+  @Override
+  public void invalidateStatements() {
+    IExtendedPostgresConnection c = current();
+    if (c != null)
+      c.invalidateStatements();
+  }
+
+  @Override
+  public void cancel() {
+    IExtendedPostgresConnection c = current();
+    if (c != null)
+      c.cancel();
+  }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2026, TopicQuests
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package org.topicquests.pg.jdbc;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.topicquests.pg.api.IConnectionSource;
+
+/**
+ * <p>An in-memory H2 database in PostgreSQL mode for tests and benchmarks,
+ * so persistence code can run on a laptop with no server.</p>
+ * <p>Its connections are ordinary {@link JdbcPostgresConnection}s with
+ * {@link PostgresRoles#NONE}, so role methods do nothing. Transactions,
+ * savepoints, <code>executeCount</code>, <code>executeBatch</code> and
+ * array parameters work as they do against PostgreSQL. It can back a
+ * {@link PostgresConnectionPool} or a {@link BulkLoader} using
+ * {@link BatchRowSink}; COPY is not available.</p>
+ * <p>DDL given to <code>validateDatabase</code> is translated as it is run
+ * (see {@link #translate(String)}). Grants, role and extension statements,
+ * ownership changes, and GIN and GiST indexes, are skipped.</p>
+ * <p>The database lives until {@link #close()}. Databases with different
+ * names are independent.</p>
+ * <p>Needs <code>com.h2database:h2</code> on the class path.</p>
+ */
+public class EmbeddedDatabase implements IConnectionSource, AutoCloseable {
+  /** run in place of a skipped statement */
+  static final String NOOP = "SET @TQ_SKIPPED = 0";
+  private static final Pattern SKIP = Pattern.compile(
+      "(?is)\\s*(GRANT|REVOKE|CREATE\\s+(ROLE|USER|EXTENSION)|DROP\\s+(ROLE|USER|EXTENSION)|ALTER\\s+(ROLE|USER|DEFAULT\\s+PRIVILEGES)" +
+      "|CREATE\\s+(UNIQUE\\s+)?INDEX\\s.*\\sUSING\\s+(GIN|GIST|BRIN|SPGIST)\\b" +
+      "|ALTER\\s+(MATERIALIZED\\s+)?\\S+\\s+(IF\\s+EXISTS\\s+)?(ONLY\\s+)?\\S+\\s+OWNER\\s+TO\\s).*");
+  private static final Pattern DDL = Pattern.compile("(?is)\\s*(CREATE|ALTER|DROP|GRANT|REVOKE)\\s.*");
+  private static final Pattern TABLE_DDL = Pattern.compile("(?is)\\s*(CREATE|ALTER)\\s+(UNLOGGED\\s+)?TABLE\\s.*");
+  private static final Pattern COLUMN = Pattern.compile(
+      "(?i)((?:[(,]|\\bADD\\s+(?:COLUMN\\s+)?(?:IF\\s+NOT\\s+EXISTS\\s+)?)\\s*\"?\\w+\"?\\s+)(\\w+)(\\s*\\[\\])?");
+  private static final Pattern USING = Pattern.compile("(?i)\\s+USING\\s+(BTREE|HASH)\\b");
+  private static final Map<String, String> TYPES = new HashMap<String, String>();
+  static {
+    TYPES.put("JSON", "CLOB");
+    TYPES.put("JSONB", "CLOB");
+    TYPES.put("TEXT", "VARCHAR");
+    TYPES.put("BYTEA", "VARBINARY");
+    TYPES.put("TIMESTAMPTZ", "TIMESTAMP WITH TIME ZONE");
+  }
+  private final String url;
+
+  /**
+   * @param name distinguishes this database from others in the same JVM
+   */
+  public EmbeddedDatabase(String name) {
+    this.url = "jdbc:h2:mem:" + name +
+        ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1";
+  }
+
+  @Override
+  public Connection newConnection() throws SQLException {
+    return wrap(DriverManager.getConnection(url, "sa", ""));
+  }
+
+  /**
+   * @return a connection of its own, not pooled
+   * @throws SQLException
+   */
+  public JdbcPostgresConnection getConnection() throws SQLException {
+    return new JdbcPostgresConnection(newConnection(), PostgresRoles.NONE);
+  }
+
+  /**
+   * @param maxSize
+   * @return a pool over this database, caching prepared statements
+   */
+  public PostgresConnectionPool newPool(int maxSize) {
+    return new PostgresConnectionPool(this, PostgresRoles.NONE, maxSize, 10000, 60000, 256, 2);
+  }
+
+  /**
+   * Drop the database and everything in it
+   */
+  @Override
+  public void close() throws SQLException {
+    try (Connection c = DriverManager.getConnection(url, "sa", "");
+         Statement s = c.createStatement()) {
+      s.execute("SHUTDOWN");
+    }
+  }
+
+  //////////////////////////////
+  // Dialect
+  //////////////////////////////
+
+  /**
+   * <p>Rewrite PostgreSQL DDL for H2. In table DDL the column types
+   * <code>json</code> and <code>jsonb</code> become <code>CLOB</code>,
+   * <code>text</code> becomes <code>VARCHAR</code>, and
+   * <code>type[]</code> becomes <code>type ARRAY</code>. Index methods are
+   * dropped, as are the options of <code>EXPLAIN (...)</code>. Other SQL,
+   * including any DML, is returned unchanged, whatever its literals hold.</p>
+   * @param sql
+   * @return the statement to run; {@link #NOOP} if it should be skipped
+   */
+  public static String translate(String sql) {
+    if (sql.regionMatches(true, 0, "EXPLAIN (", 0, 9))
+      return "EXPLAIN " + sql.substring(sql.indexOf(')') + 1).trim();
+    if (!DDL.matcher(sql).matches())
+      return sql;
+    if (SKIP.matcher(sql).matches())
+      return NOOP;
+    if (!TABLE_DDL.matcher(sql).matches())
+      return USING.matcher(sql).replaceAll("");
+    Matcher m = COLUMN.matcher(sql);
+    StringBuffer buf = new StringBuffer(sql.length() + 16);
+    while (m.find()) {
+      String type = m.group(2);
+      String mapped = TYPES.get(type.toUpperCase(Locale.ROOT));
+      if (mapped == null)
+        mapped = type;
+      if (m.group(3) != null)
+        mapped += " ARRAY";
+      m.appendReplacement(buf, Matcher.quoteReplacement(m.group(1) + mapped));
+    }
+    m.appendTail(buf);
+    return buf.toString();
+  }
+
+  /**
+   * Translate SQL passed to statements made by <code>conn</code>
+   */
+  static Connection wrap(Connection conn) {
+    return (Connection)Proxy.newProxyInstance(EmbeddedDatabase.class.getClassLoader(),
+        new Class<?>[] {Connection.class}, new Translating(conn));
+  }
+
+  private static final class Translating implements InvocationHandler {
+    private final Object target;
+
+    Translating(Object target) {
+      this.target = target;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method m, Object[] args) throws Throwable {
+      String name = m.getName();
+      if (name.equals("equals"))
+        return proxy == args[0];
+      if (name.equals("hashCode"))
+        return System.identityHashCode(proxy);
+      if (args != null && args.length > 0 && args[0] instanceof String &&
+          (name.startsWith("execute") || name.equals("addBatch") || name.equals("prepareStatement")))
+        args[0] = translate((String)args[0]);
+      Object result;
+      try {
+        result = m.invoke(target, args);
+      } catch (InvocationTargetException e) {
+        throw e.getCause();
+      }
+      if (name.equals("createStatement"))
+        return Proxy.newProxyInstance(EmbeddedDatabase.class.getClassLoader(),
+            new Class<?>[] {Statement.class}, new Translating(result));
+      return result;
+    }
+  }
+}
@@ -0,0 +1,352 @@
+/*
+ * Copyright 2026, TopicQuests
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package org.topicquests.pg.jdbc;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import org.topicquests.pg.api.IExtendedPostgresConnection;
+import org.topicquests.support.ResultPojo;
+import org.topicquests.support.api.IResult;
+
+/**
+ * <p>Group commit: small transactions submitted by many threads share
+ * physical transactions, so a burst of tiny updates pays for one commit
+ * and one fsync rather than one each.</p>
+ * <p>Each submitted function is a logical transaction. A committer thread
+ * takes the first waiting one. It then gathers others until
+ * <code>windowMillis</code> after the first was submitted, or until it has
+ * <code>maxGroupSize</code>. It runs them in order in one transaction,
+ * each behind its own savepoint. A logical transaction whose result has an
+ * error, which throws, or which calls <code>rollback()</code> is rolled back
+ * to its savepoint alone. The rest of its group commits. Rolling back to
+ * a savepoint the function set itself, including through
+ * <code>rollback(IResult)</code> with that savepoint as the result
+ * object, undoes only that part, as on any other connection.</p>
+ * <p>The connection given to the function treats
+ * <code>beginTransaction</code>, <code>endTransaction</code> and
+ * <code>closeConnection</code> as no-ops. The function must not keep the
+ * connection, or open result sets, once it returns.</p>
+ * <p>A future completes when its group has committed. If the commit fails,
+ * every result in the group carries the error.</p>
+ * <p>Thread safe.</p>
+ */
+public class GroupCommitCoordinator {
+  private final PostgresConnectionPool pool;
+  private final String role;
+  private final long windowNanos;
+  private final int maxGroupSize;
+  private final LinkedBlockingQueue<Job> queue = new LinkedBlockingQueue<Job>();
+  private final ExecutorService committers;
+  private volatile boolean closed;
+  private final LongAdder groups = new LongAdder();
+  private final LongAdder transactions = new LongAdder();
+  private final LongAdder failed = new LongAdder();
+  private final LongAdder failedGroups = new LongAdder();
+
+  private static final class Job {
+    final Function<IExtendedPostgresConnection, IResult> work;
+    final CompletableFuture<IResult> future = new CompletableFuture<IResult>();
+    final long submitted = System.nanoTime();
+    IResult result;
+
+    Job(Function<IExtendedPostgresConnection, IResult> work) {
+      this.work = work;
+    }
+  }
+
+  /** What a logical transaction sees of the shared connection */
+  private static final class Logical extends DelegatingPostgresConnection {
+    final JdbcPostgresConnection conn;
+    boolean rollbackOnly;
+
+    Logical(JdbcPostgresConnection conn) {
+      this.conn = conn;
+    }
+
+    @Override
+    protected IExtendedPostgresConnection delegate() {
+      return conn;
+    }
+
+    @Override
+    protected IExtendedPostgresConnection current() {
+      return conn;
+    }
+
+    @Override
+    public IResult beginTransaction(IResult result) {
+      return result;
+    }
+
+    @Override
+    public IResult endTransaction(IResult result) {
+      return result;
+    }
+
+    @Override
+    public IResult rollback(IResult result) {
+      // to a savepoint the work set itself: that undoes only part of it
+      if (result.getResultObject() instanceof Savepoint)
+        return conn.rollback(result);
+      rollbackOnly = true;
+      return result;
+    }
+
+    @Override
+    public void closeConnection(IResult result) {
+    }
+  }
+
+  /**
+   * @param pool
+   * @param role role of every group, or <code>null</code> for any
+   * @param windowMillis longest a logical transaction waits for others to join it
+   * @param maxGroupSize
+   * @param committerCount groups that can be in flight at once
+   */
+  public GroupCommitCoordinator(PostgresConnectionPool pool, String role, long windowMillis,
+                                int maxGroupSize, int committerCount) {
+    this.pool = pool;
+    this.role = role;
+    this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+    this.maxGroupSize = maxGroupSize;
+    final AtomicInteger n = new AtomicInteger();
+    this.committers = Executors.newFixedThreadPool(committerCount, r -> {
+      Thread t = new Thread(r, "pg-group-commit-" + n.incrementAndGet());
+      t.setDaemon(true);
+      return t;
+    });
+    for (int i = 0; i < committerCount; i++)
+      committers.execute(this::commitLoop);
+  }
+
+  /**
+   * @param work one logical transaction
+   * @return completes with the result of <code>work</code> once it is committed
+   * or rolled back; exceptionally with whatever <code>work</code> throws, even
+   * an <code>Error</code>
+   */
+  public CompletableFuture<IResult> submit(Function<IExtendedPostgresConnection, IResult> work) {
+    Job job = new Job(work);
+    if (closed) {
+      job.future.complete(error("Group commit is closed"));
+      return job.future;
+    }
+    queue.add(job);
+    return job.future;
+  }
+
+  /**
+   * Submit <code>work</code> and wait for its group to commit
+   * @param work
+   * @return
+   */
+  public IResult execute(Function<IExtendedPostgresConnection, IResult> work) {
+    try {
+      return submit(work).get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return error("Interrupted waiting for group commit");
+    } catch (ExecutionException e) {
+      return error(e.getCause().toString());
+    }
+  }
+
+  /**
+   * Stop taking work; logical transactions still waiting fail
+   */
+  public void close() {
+    closed = true;
+    committers.shutdownNow();
+    Job j;
+    while ((j = queue.poll()) != null)
+      j.future.complete(error("Group commit is closed"));
+  }
+
+  //////////////////////////////
+  // Committing
+  //////////////////////////////
+
+  private void commitLoop() {
+    List<Job> group = new ArrayList<Job>(maxGroupSize);
+    try {
+      while (!closed) {
+        Job first = queue.poll(100, TimeUnit.MILLISECONDS);
+        if (first == null)
+          continue;
+        group.add(first);
+        long deadline = first.submitted + windowNanos;
+        while (group.size() < maxGroupSize) {
+          long wait = deadline - System.nanoTime();
+          Job j = wait > 0 ? queue.poll(wait, TimeUnit.NANOSECONDS) : queue.poll();
+          if (j == null)
+            break;
+          group.add(j);
+        }
+        try {
+          commit(group);
+        } catch (RuntimeException e) {
+          // keep committing for everyone else
+          failAll(group, e.toString());
+        }
+        group.clear();
+      }
+    } catch (InterruptedException e) {
+      for (Job j : group)
+        j.future.complete(error("Group commit is closed"));
+    }
+  }
+
+  private void commit(List<Job> group) {
+    JdbcPostgresConnection conn;
+    try {
+      conn = role == null ? pool.getConnection() : pool.getConnection(role);
+    } catch (SQLException e) {
+      failAll(group, e.getMessage());
+      return;
+    }
+    try {
+      IResult r = conn.beginTransaction();
+      if (r.hasError()) {
+        failAll(group, r.getErrorString());
+        return;
+      }
+      Connection jdbc = conn.getConnection();
+      Logical logical = new Logical(conn);
+      List<Job> done = new ArrayList<Job>(group.size());
+      for (Job job : group) {
+        if (job.future.isDone())
+          continue;
+        if (role != null)
+          conn.setRole(role, new ResultPojo());
+        Savepoint svpt = jdbc.setSavepoint();
+        logical.rollbackOnly = false;
+        Throwable thrown = null;
+        try {
+          job.result = job.work.apply(logical);
+        } catch (Throwable t) {
+          thrown = t;
+        }
+        if (job.result == null)
+          job.result = new ResultPojo();
+        transactions.increment();
+        if (thrown != null || logical.rollbackOnly || job.result.hasError()) {
+          jdbc.rollback(svpt);
+          failed.increment();
+          // already rolled back: no need to wait for the group
+          if (thrown != null)
+            job.future.completeExceptionally(thrown);
+          else
+            job.future.complete(job.result);
+        } else {
+          jdbc.releaseSavepoint(svpt);
+          done.add(job);
+        }
+      }
+      r = conn.endTransaction();
+      if (r.hasError()) {
+        failAll(done, r.getErrorString());
+        return;
+      }
+      groups.increment();
+      for (Job job : done)
+        job.future.complete(job.result);
+    } catch (SQLException e) {
+      failAll(group, e.getMessage());
+    } finally {
+      if (conn.isInTransaction())
+        conn.rollback();
+      conn.closeConnection(new ResultPojo());
+    }
+  }
+
+  private void failAll(List<Job> group, String message) {
+    failedGroups.increment();
+    for (Job job : group) {
+      if (job.future.isDone())
+        continue;
+      IResult r = job.result != null ? job.result : new ResultPojo();
+      r.addErrorString("Group commit failed: " + message);
+      job.future.complete(r);
+    }
+  }
+
+  private static IResult error(String message) {
+    IResult result = new ResultPojo();
+    result.addErrorString(message);
+    return result;
+  }
+
+  //////////////////////////////
+  // Metrics
+  //////////////////////////////
+
+  /**
+   * @return physical transactions committed
+   */
+  public long getGroupCount() {
+    return groups.sum();
+  }
+
+  /**
+   * @return logical transactions run, whether committed or not
+   */
+  public long getTransactionCount() {
+    return transactions.sum();
+  }
+
+  /**
+   * @return logical transactions rolled back on their own
+   */
+  public long getFailedCount() {
+    return failed.sum();
+  }
+
+  /**
+   * @return groups which could not start or commit
+   */
+  public long getFailedGroupCount() {
+    return failedGroups.sum();
+  }
+
+  /**
+   * @return logical transactions per committed group
+   */
+  public double getMeanGroupSize() {
+    long g = groups.sum();
+    return g == 0 ? 0 : (double)(transactions.sum() - failed.sum()) / g;
+  }
+
+  /**
+   * @return logical transactions waiting for a committer
+   */
+  public int getQueuedCount() {
+    return queue.size();
+  }
+}
@@ -0,0 +1,1285 @@
+/*
+ * Copyright 2026, TopicQuests
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package org.topicquests.pg.jdbc;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.topicquests.pg.api.IExtendedPostgresConnection;
+import org.topicquests.pg.api.IPostgresConnection;
+import org.topicquests.pg.api.IResultCursor;
+import org.topicquests.pg.api.IRowHandler;
+import org.topicquests.pg.api.IRowMapper;
+import org.topicquests.pg.api.IRowVisitor;
+import org.topicquests.support.ResultPojo;
+import org.topicquests.support.api.IResult;
+
+/**
+ * <p>{@link IPostgresConnection} over a single <code>java.sql.Connection</code>.</p>
+ * <p>The role in effect is remembered, so setting the role the connection
+ * already has costs no round trip.</p>
+ * <p>Given a {@link StatementCache}, the parameterized <code>execute*</code>
+ * methods reuse prepared statements; closing a cached statement leaves it
+ * open for the next caller. The cache is dropped when a statement fails, when
+ * SQL run through this connection changes the schema, and on
+ * {@link #invalidateStatements()}.</p>
+ * <p>Result objects: statements which return rows give the open
+ * <code>ResultSet</code>, to be closed with {@link #closeResultSet(ResultSet, IResult)}
+ * and its statement with {@link #closeStatement(Statement, IResult)};
+ * updates and batches give the <code>Integer</code> number of rows;
+ * counts give a <code>Long</code>.</p>
+ * <p>Given {@link QueryMetrics}, every statement is timed and recorded
+ * under its SQL template, as is the time between beginning and ending each
+ * transaction. A <code>ResultSet</code> handed back is recorded once it has
+ * been read to the end or closed, so its time includes fetching the rows
+ * and its row count is the rows read.</p>
+ * <p>Not thread safe: one connection per thread at a time.</p>
+ */
+public class JdbcPostgresConnection implements IExtendedPostgresConnection {
+  /** most bind parameters PostgreSQL takes in one statement */
+  public static final int MAX_PARAMETERS = 32767;
+  private static final Pattern ROLE_CHANGE = Pattern.compile(
+      "\\s*(SET\\s+(LOCAL\\s+|SESSION\\s+)?(ROLE|SESSION\\s+AUTHORIZATION)|RESET\\s+(ROLE|ALL|SESSION)|DISCARD\\s+ALL)",
+      Pattern.CASE_INSENSITIVE);
+  protected final Connection conn;
+  protected final PostgresRoles roles;
+  /** can be <code>null</code> */
+  protected final StatementCache statements;
+  /** the role set by SET ROLE, or <code>null</code> for the session user */
+  private String currentRole;
+  /** <code>false</code> when the server's role may differ from {@link #currentRole} */
+  private boolean roleKnown = true;
+  /** the role was changed in the current transaction, so a rollback undoes it */
+  private boolean roleSetInTransaction;
+  private boolean inTransaction;
+  /** the statement last run, for {@link #cancel()} */
+  private volatile Statement current;
+  private QueryMetrics metrics;
+  private long transactionStart;
+
+  /**
+   * @param conn
+   * @param roles
+   * @param currentRole the role <code>conn</code> already has, or <code>null</code>
+   * @param statements can be <code>null</code>
+   */
+  public JdbcPostgresConnection(Connection conn, PostgresRoles roles, String currentRole,
+                                StatementCache statements) {
+    this.conn = conn;
+    this.roles = roles;
+    this.currentRole = currentRole;
+    this.statements = statements;
+  }
+
+  public JdbcPostgresConnection(Connection conn, PostgresRoles roles, String currentRole) {
+    this(conn, roles, currentRole, null);
+  }
+
+  public JdbcPostgresConnection(Connection conn, PostgresRoles roles) {
+    this(conn, roles, null);
+  }
+
+  /**
+   * @return the underlying connection
+   */
+  public Connection getConnection() {
+    return conn;
+  }
+
+  /**
+   * @return the role in effect, or <code>null</code> for the session user;
+   * meaningless unless {@link #isRoleKnown()}
+   */
+  public String getCurrentRole() {
+    return currentRole;
+  }
+
+  /**
+   * @return <code>false</code> if the role may have changed behind the
+   * cache, e.g. by a rollback undoing a <code>SET ROLE</code>; the next
+   * role method then always goes to the server
+   */
+  public boolean isRoleKnown() {
+    return roleKnown;
+  }
+
+  /**
+   * Make the next role method go to the server
+   */
+  public void forgetRole() {
+    roleKnown = false;
+  }
+
+  public boolean isInTransaction() {
+    return inTransaction;
+  }
+
+  /**
+   * @return can be <code>null</code>
+   */
+  public StatementCache getStatementCache() {
+    return statements;
+  }
+
+  /**
+   * @param metrics where to record statements and transactions; can be <code>null</code>
+   */
+  public void setQueryMetrics(QueryMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  public QueryMetrics getQueryMetrics() {
+    return metrics;
+  }
+
+  @Override
+  public void invalidateStatements() {
+    if (statements != null)
+      statements.invalidateAll();
+  }
+
+  /**
+   * Ask the server to cancel the statement running on this connection.
+   * The one thread safe method: it is meant to be called from another
+   * thread. A statement which has just finished is not affected.
+   */
+  @Override
+  public void cancel() {
+    Statement s = current;
+    if (s != null) {
+      try {
+        s.cancel();
+      } catch (SQLException e) {
+        // finished or closed meanwhile
+      }
+    }
+  }
+
+  //////////////////////////////
+  // Transactions
+  //////////////////////////////
+
+  @Override
+  public IResult beginTransaction() {
+    return beginTransaction(new ResultPojo());
+  }
+
+  @Override
+  public IResult beginTransaction(IResult result) {
+    try {
+      conn.setAutoCommit(false);
+      if (!inTransaction)
+        transactionStart = System.nanoTime();
+      inTransaction = true;
+    } catch (SQLException e) {
+      result.addErrorString(e.getMessage());
+    }
+    return result;
+  }
+
+  @Override
+  public IResult endTransaction() {
+    return endTransaction(new ResultPojo());
+  }
+
+  @Override
+  public IResult endTransaction(IResult result) {
+    try {
+      conn.commit();
+      roleSetInTransaction = false;
+      conn.setAutoCommit(true);
+      transactionEnded();
+    } catch (SQLException e) {
+      // the server has rolled back, or must be told to: end the
+      // transaction here either way so the connection is usable again
+      result.addErrorString(e.getMessage());
+      rolledBack();
+      try {
+        conn.rollback();
+        conn.setAutoCommit(true);
+      } catch (SQLException x) {
+        result.addErrorString(x.getMessage());
+      }
+      transactionEnded();
+    }
+    return result;
+  }
+
+  @Override
+  public IResult setSavepoint() {
+    return setSavepoint(new ResultPojo());
+  }
+
+  @Override
+  public IResult setSavepoint(IResult result) {
+    try {
+      result.setResultObject(conn.setSavepoint());
+    } catch (SQLException e) {
+      result.addErrorString(e.getMessage());
+    }
+    return result;
+  }
+
+  @Override
+  public IResult setSavepoint(String name) {
+    return setSavepoint(name, new ResultPojo());
+  }
+
+  @Override
+  public IResult setSavepoint(String name, IResult result) {
+    try {
+      result.setResultObject(conn.setSavepoint(name));
+    } catch (SQLException e) {
+      result.addErrorString(e.getMessage());
+    }
+    return result;
+  }
+
+  @Override
+  public IResult rollback() {
+    return rollback(new ResultPojo());
+  }
+
+  @Override
+  public IResult rollback(Savepoint svpt) {
+    return rollback(svpt, new ResultPojo());
+  }
+
+  @Override
+  public IResult rollback(Savepoint svpt, IResult result) {
+    // the role may or may not have been set after svpt
+    if (roleSetInTransaction)
+      roleKnown = false;
+    try {
+      conn.rollback(svpt);
+    } catch (SQLException e) {
+      result.addErrorString(e.getMessage());
+    }
+    return result;
+  }
+
+  @Override
+  public IResult releaseSavepoint(Savepoint svpt) {
+    return releaseSavepoint(svpt, new ResultPojo());
+  }
+
+  @Override
+  public IResult releaseSavepoint(Savepoint svpt, IResult result) {
+    try {
+      conn.releaseSavepoint(svpt);
+    } catch (SQLException e) {
+      result.addErrorString(e.getMessage());
+    }
+    return result;
+  }
+
+  @Override
+  public IResult rollback(IResult result) {
+    Object o = result.getResultObject();
+    if (o instanceof Savepoint)
+      return rollback((Savepoint)o, result);
+    rolledBack();
+    try {
+      conn.rollback();
+      conn.setAutoCommit(true);
+      transactionEnded();
+    } catch (SQLException e) {
+      result.addErrorString(e.getMessage());
+    }
+    return result;
+  }
+
+  /**
+   * The transaction is being rolled back: any role set in it is undone
+   */
+  private void rolledBack() {
+    if (roleSetInTransaction)
+      roleKnown = false;
+    roleSetInTransaction = false;
+  }
+
+  //////////////////////////////
+  // Roles
+  //////////////////////////////
+
+  @Override
+  public IResult setProxyRole() {
+    return setProxyRole(new ResultPojo());
+  }
+
+  @Override
+  public IResult setProxyRole(IResult result) {
+    return setRole(roles.getProxyRole(), result);
+  }
+
+  @Override
+  public IResult setUsersRole() {
+    return setUsersRole(new ResultPojo());
+  }
+
+  @Override
+  public IResult setUsersRole(IResult result) {
+    return setRole(roles.getUsersRole(), result);
+  }
+
+  @Override
+  public IResult setConvRole() {
+    return setConvRole(new ResultPojo());
+  }
+
+  @Override
+  public IResult setConvRole(IResult result) {
+    return setRole(roles.getConvRole(), result);
+  }
+
+  @Override
+  public IResult setProxyRORole() {
+    return setProxyRORole(new ResultPojo());
+  }
+
+  @Override
+  public IResult setProxyRORole(IResult result) {
+    return setRole(roles.getProxyRORole(), result);
+  }
+
+  @Override
+  public IResult setUsersRORole() {
+    return setUsersRORole(new ResultPojo());
+  }
+
+  @Override
+  public IResult setUsersRORole(IResult result) {
+    return setRole(roles.getUsersRORole(), result);
+  }
+
+  @Override
+  public IResult setConvRORole() {
+    return setConvRORole(new ResultPojo());
+  }
+
+  @Override
+  public IResult setConvRORole(IResult result) {
+    return setRole(roles.getConvRORole(), result);
+  }
+
+  @Override
+  public IResult resetRole() {
+    return resetRole(new ResultPojo());
+  }
+
+  @Override
+  public IResult resetRole(IResult result) {
+    if (roleKnown && currentRole == null)
+      return result;
+    execute("RESET ROLE", result);
+    if (!result.hasError())
+      roleChanged(null);
+    return result;
+  }
+
+  /**
+   * Issue <code>SET ROLE</code> unless <code>role</code> is already in effect
+   * or <code>null</code>
+   * @param role
+   * @param result
+   * @return
+   */
+  public IResult setRole(String role, IResult result) {
+    if (role == null || (roleKnown && role.equals(currentRole)))
+      return result;
+    execute("SET ROLE \"" + role.replace("\"", "\"\"") + "\"", result);
+    if (!result.hasError())
+      roleChanged(role);
+    return result;
+  }
+
+  private void roleChanged(String role) {
+    currentRole = role;
+    roleKnown = true;
+    if (inTransaction)
+      roleSetInTransaction = true;
+  }
+
+  //////////////////////////////
+  // Plain statements
+  //////////////////////////////
+
+  @Override
+  public IResult executeSQL(String sql) {
+    return executeSQL(sql, new ResultPojo());
+  }
+
+  @Override
+  public IResult executeSQL(String sql, IResult result) {
+    checkSchemaChange(sql);
+    long t0 = System.nanoTime();
+    Statement s = null;
+    try {
+      s = track(conn.createStatement());
+      boolean rows = s.execute(sql);
+      if (rows) {
+        result.setResultObject(measuredResultSet(s.getResultSet(), sql, null, t0));
+        s = null;
+      } else
+        measured(sql, null, t0, s.getUpdateCount(), false);
+    } catch (SQLException e) {
+      result.addErrorString(e.getMessage());
+      measured(sql, null, t0, -1, true);
+    }
+    if (s != null)
+      closeStatement(s, result);
+    return result;
+  }
+
+  @Override
+  public IResult executeMultiSQL(String[] stmts) {
+    return executeMultiSQL(stmts, new ResultPojo());
+  }
+
+  /**
+   * Statements run in order and stop at the first error.
+   * The result object is the <code>List</code> of <code>ResultSet</code>s
+   * from those which returned rows.
+   */
+  @Override
+  public IResult executeMultiSQL(String[] stmts, IResult result) {
+    List<ResultSet> sets = new ArrayList<ResultSet>();
+    for (String sql : stmts) {
+      IResult r = executeSQL(sql, new ResultPojo());
+      if (r.hasError()) {
+        result.addErrorString(r.getErrorString());
+        break;
+      }
+      if (r.getResultObject() != null)
+        sets.add((ResultSet)r.getResultObject());
+    }
+    result.setResultObject(sets);
+    return result;
+  }
+
+  @Override
+  public IResult executeMultiSQL(List<String> sql) {
+    return executeMultiSQL(sql, new ResultPojo());
+  }
+
+  @Override
+  public IResult executeMultiSQL(List<String> sql, IResult result) {
+    return executeMultiSQL(sql.toArray(new String[sql.size()]), result);
+  }
+
+  @Override
+  public IResult executeMultiSQLPipelined(List<String> sql, IResult result) {
+    return executeMultiSQLPipelined(sql.toArray(new String[sql.size()]), result);
+  }
+
+  @Override
+  public IResult executeMultiSQLPipelined(String[] stmts, IResult result) {
+    for (String sql : stmts)
+      checkSchemaChange(sql);
+    boolean own = !inTransaction;
+    Savepoint svpt = null;
+    Statement s = null;
+    String label = stmts.length == 0 ? "" : stmts[0] + " (+" + (stmts.length - 1) + " batched)";
+    long t0 = System.nanoTime();
+    try {
+      if (own) {
+        beginTransaction(result);
+        if (result.hasError())
+          return result;
+      } else
+        svpt = conn.setSavepoint();
+      s = track(conn.createStatement());
+      for (String sql : stmts)
+        s.addBatch(sql);
+      t0 = System.nanoTime();
+      int [] counts = s.executeBatch();
+      measured(label, null, t0, sum(counts), false);
+      if (own) {
+        endTransaction(result);
+        if (inTransaction)
+          rollback(new ResultPojo());
+      } else
+        conn.releaseSavepoint(svpt);
+      result.setResultObject(counts);
+    } catch (BatchUpdateException e) {
+      int [] counts = e.getUpdateCounts();
+      int failed = counts == null ? 0 : counts.length;
+      for (int i = 0; i < failed; i++) {
+        if (counts[i] == Statement.EXECUTE_FAILED) {
+          failed = i;
+          break;
+        }
+      }
+      SQLException next = e.getNextException();
+      result.addErrorString("Statement " + failed + " failed: " +
+        (next != null ? next.getMessage() : e.getMessage()));
+      result.setResultObject(counts == null ? new int[0] : Arrays.copyOf(counts, Math.min(failed, counts.length)));
+      measured(label, null, t0, -1, true);
+      undoBatch(own, svpt, result);
+    } catch (SQLException e) {
+      result.addErrorString(e.getMessage());
+      measured(label, null, t0, -1, true);
+      undoBatch(own, svpt, result);
+    }
+    if (s != null)
+      closeStatement(s, result);
+    return result;
+  }
+
+  private void undoBatch(boolean own, Savepoint svpt, IResult result) {
+    if (own)
+      rollback(new ResultPojo());
+    else if (svpt != null)
+      rollback(svpt, new ResultPojo());
+  }
+
+  @Override
+  public IResult executeCount(String sql) {
+    return executeCount(sql, new ResultPojo());
+  }
+
+  @Override
+  public IResult executeCount(String sql, IResult result) {
+    long t0 = System.nanoTime();
+    Statement s = null;
+    try {
+      s = track(conn.createStatement());
+      ResultSet rs = s.executeQuery(sql);
+      boolean row = rs.next();
+      result.setResultObject(row ? rs.getLong(1) : 0L);
+      rs.close();
+      measured(sql, null, t0, row ? 1 : 0, false);
+    } catch (SQLException e) {
+      result.addErrorString(e.getMessage());
+      measured(sql, null, t0, -1, true);
+    }
+    if (s != null)
+      closeStatement(s, result);
+    return result;
+  }
+
+  @Override
+  public IResult executeUpdate(String sql) {
+    return executeUpdate(sql, new ResultPojo());
+  }
+
+  @Override
+  public IResult executeUpdate(String sql, IResult result) {
+    checkSchemaChange(sql);
+    long t0 = System.nanoTime();
+    Statement s = null;
+    try {
+      s = track(conn.createStatement());
+      int n = s.executeUpdate(sql);
+      measured(sql, null, t0, n, false);
+      result.setResultObject(n);
+    } catch (SQLException e) {
+      result.addErrorString(e.getMessage());
+      measured(sql, null, t0, -1, true);
+    }
+    if (s != null)
+      closeStatement(s, result);
+    return result;
+  }
+
+  @Override
+  public IResult executeSelect(String sql) {
+    return executeSelect(sql, new ResultPojo());
+  }
+
+  @Override
+  public IResult executeSelect(String sql, IResult result) {
+    long t0 = System.nanoTime();
+    Statement s = null;
+    try {
+      s = track(conn.createStatement());
+      result.setResultObject(measuredResultSet(s.executeQuery(sql), sql, null, t0));
+    } catch (SQLException e) {
+      result.addErrorString(e.getMessage());
+      measured(sql, null, t0, -1, true);
+      if (s != null)
+        closeStatement(s, result);
+    }
+    return result;
+  }
+
+  //////////////////////////////
+  // Prepared statements
+  //////////////////////////////
+
+  @Override
+  public IResult executeSQL(String sql, Object... vals) {
+    return executeSQL(sql, new ResultPojo(), vals);
+  }
+
+  @Override
+  public IResult executeSQL(String sql, IResult result, Object... vals) {
+    long t0 = System.nanoTime();
+    PreparedStatement s = null;
+    try {
+      s = prepare(sql);
+      setParameters(s, vals, 0, vals == null ? 0 : vals.length);
+      boolean rows = s.execute();
+      if (rows) {
+        result.setResultObject(measuredResultSet(s.getResultSet(), sql, vals, t0));
+        s = null;
+      } else
+        measured(sql, vals, t0, s.getUpdateCount(), false);
+    } catch (SQLException e) {
+      result.addErrorString(e.getMessage());
+      measured(sql, vals, t0, -1, true);
+      failed(s);
+    }
+    if (s != null)
+      closeStatement(s, result);
+    return result;
+  }
+
+  @Override
+  public IResult executeUpdate(String sql, Object... vals) {
+    return executeUpdate(sql, new ResultPojo(), vals);
+  }
+
+  @Override
+  public IResult executeUpdate(String sql, IResult result, Object... vals) {
+    long t0 = System.nanoTime();
+    PreparedStatement s = null;
+    try {
+      s = prepare(sql);
+      setParameters(s, vals, 0, vals == null ? 0 : vals.length);
+      int n = s.executeUpdate();
+      measured(sql, vals, t0, n, false);
+      result.setResultObject(n);
+    } catch (SQLException e) {
+      result.addErrorString(e.getMessage());
+      measured(sql, vals, t0, -1, true);
+      failed(s);
+    }
+    if (s != null)
+      closeStatement(s, result);
+    return result;
+  }
+
+  @Override
+  public IResult executeBatch(String sql, Object... vals) {
+    return executeBatch(sql, new ResultPojo(), vals);
+  }
+
+  /**
+   * <code>vals</code> holds the rows one after another; the row width
+   * is the number of parameters in <code>sql</code>. All rows go in one
+   * JDBC batch.
+   */
+  @Override
+  public IResult executeBatch(String sql, IResult result, Object... vals) {
+    int width = countParameters(sql);
+    int n = vals == null ? 0 : vals.length;
+    if (width == 0 || n % width != 0) {
+      result.addErrorString("Batch of " + n + " values does not fit " + width + " parameters");
+      return result;
+    }
+    List<Object[]> rows = new ArrayList<Object[]>(n / width);
+    for (int i = 0; i < n; i += width)
+      rows.add(Arrays.copyOfRange(vals, i, i + width));
+    return executeBatch(sql, rows, Math.max(1, rows.size()), false, result);
+  }
+
+  @Override
+  public IResult executeBatch(String sql, List<Object[]> rows, int chunkSize,
+                              boolean rewriteValues, IResult result) {
+    return executeBatch(sql, rows.iterator(), chunkSize, rewriteValues, result);
+  }
+
+  @Override
+  public IResult executeBatch(String sql, Iterator<Object[]> rows, int chunkSize,
+                              boolean rewriteValues, IResult result) {
+    int width = countParameters(sql);
+    ValuesTemplate values = rewriteValues ? ValuesTemplate.parse(sql) : null;
+    if (values != null)
+      chunkSize = Math.min(chunkSize, MAX_PARAMETERS / Math.max(1, width));
+    chunkSize = Math.max(1, chunkSize);
+    List<Object[]> chunk = new ArrayList<Object[]>(Math.min(chunkSize, 1024));
+    int [] counts = new int[16];
+    int chunks = 0;
+    int total = 0;
+    while (rows.hasNext()) {
+      Object [] row = rows.next();
+      if (row.length != width) {
+        result.addErrorString("Row of " + row.length + " values does not fit " + width + " parameters");
+        break;
+      }
+      chunk.add(row);
+      if (chunk.size() == chunkSize || !rows.hasNext()) {
+        int n = values != null ? executeValues(values, chunk, result) : executeChunk(sql, chunk, result);
+        if (result.hasError())
+          break;
+        if (chunks == counts.length)
+          counts = Arrays.copyOf(counts, chunks * 2);
+        counts[chunks++] = n;
+        total += n;
+        chunk.clear();
+      }
+    }
+    result.setResultObject(total);
+    result.setResultObjectA(Arrays.copyOf(counts, chunks));
+    return result;
+  }
+
+  /**
+   * One JDBC batch
+   * @return rows updated
+   */
+  private int executeChunk(String sql, List<Object[]> chunk, IResult result) {
+    int count = 0;
+    long t0 = System.nanoTime();
+    PreparedStatement s = null;
+    try {
+      s = prepare(sql);
+      for (Object [] row : chunk) {
+        setParameters(s, row, 0, row.length);
+        s.addBatch();
+      }
+      count = sum(s.executeBatch());
+      measured(sql, null, t0, count, false);
+    } catch (SQLException e) {
+      SQLException next = e.getNextException();
+      result.addErrorString(next != null ? e.getMessage() + "; " + next.getMessage() : e.getMessage());
+      measured(sql, null, t0, -1, true);
+      failed(s);
+    }
+    if (s != null)
+      closeStatement(s, result);
+    return count;
+  }
+
+  /**
+   * One multi-row VALUES statement
+   * @return rows updated
+   */
+  private int executeValues(ValuesTemplate values, List<Object[]> chunk, IResult result) {
+    int count = 0;
+    long t0 = System.nanoTime();
+    PreparedStatement s = null;
+    try {
+      s = prepare(values.toSql(chunk.size()));
+      int p = 1;
+      for (Object [] row : chunk) {
+        setParameters(s, p, row, 0, row.length);
+        p += row.length;
+      }
+      count = s.executeUpdate();
+      measured(values.getSql(), null, t0, count, false);
+    } catch (SQLException e) {
+      result.addErrorString(e.getMessage());
+      measured(values.getSql(), null, t0, -1, true);
+      failed(s);
+    }
+    if (s != null)
+      closeStatement(s, result);
+    return count;
+  }
+
+  @Override
+  public IResult executeSelect(String sql, Object... vals) {
+    return executeSelect(sql, new ResultPojo(), vals);
+  }
+
+  @Override
+  public IResult executeSelect(String sql, IResult result, Object... vals) {
+    long t0 = System.nanoTime();
+    PreparedStatement s = null;
+    try {
+      s = prepare(sql);
+      setParameters(s, vals, 0, vals == null ? 0 : vals.length);
+      result.setResultObject(measuredResultSet(s.executeQuery(), sql, vals, t0));
+    } catch (SQLException e) {
+      result.addErrorString(e.getMessage());
+      measured(sql, vals, t0, -1, true);
+      failed(s);
+      if (s != null)
+        closeStatement(s, result);
+    }
+    return result;
+  }
+
+  @Override
+  public IResult executeSelect(String sql, IResult result, int resultSetType,
+          int resultSetConcurrency, Object... vals) {
+    long t0 = System.nanoTime();
+    PreparedStatement s = null;
+    try {
+      s = track(conn.prepareStatement(sql, resultSetType, resultSetConcurrency));
+      setParameters(s, vals, 0, vals == null ? 0 : vals.length);
+      result.setResultObject(measuredResultSet(s.executeQuery(), sql, vals, t0));
+    } catch (SQLException e) {
+      result.addErrorString(e.getMessage());
+      measured(sql, vals, t0, -1, true);
+      if (s != null)
+        closeStatement(s, result);
+    }
+    return result;
+  }
+
+  @Override
+  public IResult executeSelect(String sql, IRowVisitor visitor, IResult result, Object... vals) {
+    long t0 = System.nanoTime();
+    PreparedStatement s = null;
+    ResultSet rs = null;
+    long count = 0;
+    boolean error = false;
+    try {
+      s = prepare(sql);
+      setParameters(s, vals, 0, vals == null ? 0 : vals.length);
+      rs = s.executeQuery();
+      count = ColumnReader.visit(rs, visitor);
+    } catch (SQLException e) {
+      result.addErrorString(e.getMessage());
+      error = true;
+      failed(s);
+    } finally {
+      if (rs != null)
+        closeResultSet(rs, result);
+      if (s != null)
+        closeStatement(s, result);
+    }
+    measured(sql, vals, t0, count, error);
+    result.setResultObject(count);
+    return result;
+  }
+
+  //////////////////////////////
+  // Streaming
+  //////////////////////////////
+
+  /**
+   * Do not end the transaction while the cursor is open: the server
+   * closes its cursor with it.
+   */
+  @Override
+  public <T> IResult openCursor(String sql, int fetchSize, IRowMapper<T> mapper, Object... vals) {
+    IResult result = new ResultPojo();
+    boolean own = !inTransaction;
+    if (own) {
+      beginTransaction(result);
+      if (result.hasError())
+        return result;
+    }
+    PreparedStatement s = null;
+    try {
+      s = track(conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY));
+      s.setFetchSize(fetchSize);
+      setParameters(s, vals, 0, vals == null ? 0 : vals.length);
+      long t0 = System.nanoTime();
+      ResultSet rs = measuredResultSet(s.executeQuery(), sql, vals, t0);
+      result.setResultObject(new RowCursor<T>(this, s, rs, mapper, own));
+    } catch (SQLException e) {
+      result.addErrorString(e.getMessage());
+      if (s != null)
+        closeStatement(s, result);
+      if (own)
+        rollback(new ResultPojo());
+    }
+    return result;
+  }
+
+  @Override
+  public IResult executeStream(String sql, int fetchSize, IRowHandler handler, Object... vals) {
+    IResult result = openCursor(sql, fetchSize, rs -> rs, vals);
+    if (result.hasError())
+      return result;
+    @SuppressWarnings("unchecked")
+    IResultCursor<ResultSet> cursor = (IResultCursor<ResultSet>)result.getResultObject();
+    long count = 0;
+    try {
+      while (cursor.hasNext()) {
+        count++;
+        if (!handler.handle(cursor.next()))
+          break;
+      }
+    } catch (SQLException e) {
+      result.addErrorString(e.getMessage());
+    } finally {
+      cursor.close();
+    }
+    if (cursor.hasError())
+      result.addErrorString(cursor.getErrorString());
+    result.setResultObject(count);
+    return result;
+  }
+
+  //////////////////////////////
+  // Housekeeping
+  //////////////////////////////
+
+  @Override
+  public IResult validateDatabase(String [] tableSchema) {
+    IResult result = new ResultPojo();
+    for (String sql : tableSchema) {
+      execute(sql, result);
+      if (result.hasError())
+        break;
+    }
+    return result;
+  }
+
+  @Override
+  public IResult createStatement() {
+    return createStatement(new ResultPojo());
+  }
+
+  @Override
+  public IResult createStatement(IResult result) {
+    try {
+      result.setResultObject(conn.createStatement());
+    } catch (SQLException e) {
+      result.addErrorString(e.getMessage());
+    }
+    return result;
+  }
+
+  @Override
+  public void closeResultSet(ResultSet rs, IResult result) {
+    try {
+      rs.close();
+    } catch (SQLException e) {
+      result.addErrorString(e.getMessage());
+    }
+  }
+
+  @Override
+  public void closeConnection(IResult result) {
+    invalidateStatements();
+    try {
+      conn.close();
+    } catch (SQLException e) {
+      result.addErrorString(e.getMessage());
+    }
+  }
+
+  @Override
+  public void closeStatement(Statement stmt, IResult result) {
+    if (statements != null && stmt instanceof PreparedStatement &&
+        statements.isCached((PreparedStatement)stmt))
+      return;
+    try {
+      stmt.close();
+    } catch (SQLException e) {
+      result.addErrorString(e.getMessage());
+    }
+  }
+
+  @Override
+  public void closeStatement(PreparedStatement stmt, IResult result) {
+    closeStatement((Statement)stmt, result);
+  }
+
+  //////////////////////////////
+  // Helpers
+  //////////////////////////////
+
+  /**
+   * Prepare <code>sql</code>, from the cache if there is one
+   * @param sql
+   * @return
+   * @throws SQLException
+   */
+  protected PreparedStatement prepare(String sql) throws SQLException {
+    if (statements != null)
+      return track(statements.prepare(sql));
+    return track(conn.prepareStatement(sql));
+  }
+
+  private <S extends Statement> S track(S s) {
+    current = s;
+    return s;
+  }
+
+  private void transactionEnded() {
+    if (inTransaction && metrics != null)
+      metrics.recordTransaction(System.nanoTime() - transactionStart);
+    inTransaction = false;
+  }
+
+  /**
+   * Record a statement started at <code>t0</code> with the metrics, if any
+   */
+  private void measured(String sql, Object [] vals, long t0, long rows, boolean error) {
+    QueryMetrics m = metrics;
+    if (m == null)
+      return;
+    SlowQuery q = m.record(sql, vals, System.nanoTime() - t0, rows, error);
+    if (q != null && !error && m.shouldExplain(sql))
+      q.setPlan(explain(sql, vals));
+  }
+
+  /**
+   * With metrics, wrap <code>rs</code> so the select is recorded once it has
+   * been read to the end or closed
+   */
+  private ResultSet measuredResultSet(ResultSet rs, String sql, Object [] vals, long t0) {
+    if (metrics == null || rs == null)
+      return rs;
+    return (ResultSet)Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+      new Class<?>[] {ResultSet.class}, new MeasuredResultSet(rs, sql, vals, t0));
+  }
+
+  /**
+   * Counts the rows read and records the select at the last row or on close
+   */
+  private final class MeasuredResultSet implements InvocationHandler {
+    private final ResultSet rs;
+    private final String sql;
+    private final Object [] vals;
+    private final long t0;
+    private long rows;
+    private boolean recorded;
+
+    MeasuredResultSet(ResultSet rs, String sql, Object [] vals, long t0) {
+      this.rs = rs;
+      this.sql = sql;
+      this.vals = vals;
+      this.t0 = t0;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method m, Object [] args) throws Throwable {
+      String name = m.getName();
+      Object result;
+      try {
+        result = m.invoke(rs, args);
+      } catch (InvocationTargetException e) {
+        if (name.equals("next"))
+          record(true);
+        throw e.getCause();
+      }
+      if (name.equals("next")) {
+        if ((Boolean)result)
+          rows++;
+        else
+          record(false);
+      } else if (name.equals("close"))
+        record(false);
+      return result;
+    }
+
+    private void record(boolean error) {
+      if (recorded)
+        return;
+      recorded = true;
+      measured(sql, vals, t0, rows, error);
+    }
+  }
+
+  /**
+   * Plan <code>sql</code> with EXPLAIN, which does not run it; inside a
+   * transaction, behind a savepoint so a failure cannot abort it
+   */
+  private String explain(String sql, Object [] vals) {
+    StringBuilder buf = new StringBuilder();
+    Savepoint svpt = null;
+    PreparedStatement s = null;
+    try {
+      if (inTransaction)
+        svpt = conn.setSavepoint();
+      s = conn.prepareStatement("EXPLAIN " + sql);
+      setParameters(s, vals, 0, vals == null ? 0 : vals.length);
+      ResultSet rs = s.executeQuery();
+      while (rs.next())
+        buf.append(rs.getString(1)).append('\n');
+      rs.close();
+      if (svpt != null)
+        conn.releaseSavepoint(svpt);
+    } catch (SQLException e) {
+      buf.append("EXPLAIN failed: ").append(e.getMessage());
+      if (svpt != null) {
+        try {
+          conn.rollback(svpt);
+        } catch (SQLException x) {
+          // the transaction reports its own state
+        }
+      }
+    }
+    if (s != null) {
+      try {
+        s.close();
+      } catch (SQLException e) {
+        // nothing to recover
+      }
+    }
+    return buf.toString();
+  }
+
+  /**
+   * <code>stmt</code> failed: do not reuse it
+   */
+  protected void failed(PreparedStatement stmt) {
+    if (statements != null && stmt != null)
+      statements.invalidate(stmt);
+  }
+
+  private void checkSchemaChange(String sql) {
+    if (statements != null && statements.size() > 0 && StatementCache.isSchemaChange(sql))
+      statements.invalidateAll();
+    // a role changed by hand is no longer what the cache says
+    if (ROLE_CHANGE.matcher(sql).lookingAt())
+      roleKnown = false;
+  }
+
+  /**
+   * Execute <code>sql</code> which returns no rows
+   * @param sql
+   * @param result
+   */
+  protected void execute(String sql, IResult result) {
+    checkSchemaChange(sql);
+    long t0 = System.nanoTime();
+    Statement s = null;
+    try {
+      s = track(conn.createStatement());
+      s.execute(sql);
+      measured(sql, null, t0, -1, false);
+    } catch (SQLException e) {
+      result.addErrorString(e.getMessage());
+      measured(sql, null, t0, -1, true);
+    }
+    if (s != null)
+      closeStatement(s, result);
+  }
+
+  /**
+   * Bind <code>len</code> values from <code>vals[off]</code>.
+   * <code>String[]</code>, <code>Long[]</code> and <code>Integer[]</code>
+   * become SQL arrays, e.g. for <code>= ANY(?)</code>.
+   */
+  protected void setParameters(PreparedStatement s, Object [] vals, int off, int len) throws SQLException {
+    setParameters(s, 1, vals, off, len);
+  }
+
+  /**
+   * Bind <code>len</code> values from <code>vals[off]</code> starting at
+   * parameter <code>first</code>
+   */
+  protected void setParameters(PreparedStatement s, int first, Object [] vals, int off, int len) throws SQLException {
+    for (int i = 0; i < len; i++) {
+      Object v = vals[off + i];
+      int p = first + i;
+      if (v instanceof String[])
+        s.setArray(p, conn.createArrayOf("text", (Object[])v));
+      else if (v instanceof Long[])
+        s.setArray(p, conn.createArrayOf("bigint", (Object[])v));
+      else if (v instanceof Integer[])
+        s.setArray(p, conn.createArrayOf("integer", (Object[])v));
+      else
+        s.setObject(p, v);
+    }
+  }
+
+  /**
+   * @param sql
+   * @return number of <code>?</code> placeholders outside quotes and
+   * comments; <code>??</code> is an escaped, literal <code>?</code>
+   */
+  public static int countParameters(String sql) {
+    int result = 0;
+    int n = sql.length();
+    int i = 0;
+    while (i < n) {
+      int j = skipLiteral(sql, i);
+      if (j > i) {
+        i = j;
+        continue;
+      }
+      if (sql.charAt(i) == '?') {
+        if (i + 1 < n && sql.charAt(i + 1) == '?')
+          i++;
+        else
+          result++;
+      }
+      i++;
+    }
+    return result;
+  }
+
+  /**
+   * @param sql
+   * @param i
+   * @return the index just past the quoted string, quoted identifier,
+   * dollar-quoted string or comment starting at <code>i</code>, or
+   * <code>i</code> if none starts there
+   */
+  static int skipLiteral(String sql, int i) {
+    int n = sql.length();
+    char c = sql.charAt(i);
+    if (c == '\'' || c == '"') {
+      int j = sql.indexOf(c, i + 1);
+      return j < 0 ? n : j + 1;
+    }
+    if (c == '-' && i + 1 < n && sql.charAt(i + 1) == '-') {
+      int j = sql.indexOf('\n', i + 2);
+      return j < 0 ? n : j + 1;
+    }
+    if (c == '/' && i + 1 < n && sql.charAt(i + 1) == '*') {
+      // block comments nest
+      int depth = 1;
+      int j = i + 2;
+      while (j < n && depth > 0) {
+        if (sql.startsWith("/*", j)) {
+          depth++;
+          j += 2;
+        } else if (sql.startsWith("*/", j)) {
+          depth--;
+          j += 2;
+        } else
+          j++;
+      }
+      return j;
+    }
+    if (c == '$' && (i == 0 || !isIdentifierPart(sql.charAt(i - 1)))) {
+      int j = i + 1;
+      while (j < n && isIdentifierPart(sql.charAt(j)) && sql.charAt(j) != '$')
+        j++;
+      // $1 is a positional parameter, not a tag
+      if (j >= n || sql.charAt(j) != '$' || (j > i + 1 && Character.isDigit(sql.charAt(i + 1))))
+        return i;
+      String tag = sql.substring(i, j + 1);
+      int end = sql.indexOf(tag, j + 1);
+      return end < 0 ? n : end + tag.length();
+    }
+    return i;
+  }
+
+  private static boolean isIdentifierPart(char c) {
+    return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+  }
+
+  /**
+   * Total rows from <code>executeBatch</code>; unknown counts are taken as one
+   */
+  protected static int sum(int [] counts) {
+    int result = 0;
+    for (int c : counts)
+      result += c >= 0 ? c : (c == Statement.SUCCESS_NO_INFO ? 1 : 0);
+    return result;
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2026, TopicQuests
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package org.topicquests.pg.jdbc;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>Latency histogram with power-of-two microsecond buckets, from under
+ * 1&micro;s up to about 40 days. Percentiles are reported as the upper
+ * bound of their bucket, so within a factor of two.</p>
+ * <p>Thread safe; recording does not lock.</p>
+ */
+public class LatencyHistogram {
+  private static final int BUCKETS = 42;
+  private final LongAdder [] counts = new LongAdder[BUCKETS];
+  private final LongAdder totalNanos = new LongAdder();
+  private final AtomicLong maxNanos = new AtomicLong();
+
+  public LatencyHistogram() {
+    for (int i = 0; i < BUCKETS; i++)
+      counts[i] = new LongAdder();
+  }
+
+  public void record(long nanos) {
+    long micros = Math.max(0, nanos / 1000);
+    int b = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+    counts[b].increment();
+    totalNanos.add(nanos);
+    long m = maxNanos.get();
+    while (nanos > m && !maxNanos.compareAndSet(m, nanos))
+      m = maxNanos.get();
+  }
+
+  public long getCount() {
+    long result = 0;
+    for (LongAdder c : counts)
+      result += c.sum();
+    return result;
+  }
+
+  public double getTotalMillis() {
+    return totalNanos.sum() / 1e6;
+  }
+
+  public double getMeanMillis() {
+    long n = getCount();
+    return n == 0 ? 0 : getTotalMillis() / n;
+  }
+
+  public double getMaxMillis() {
+    return maxNanos.get() / 1e6;
+  }
+
+  /**
+   * @param p e.g. <code>0.99</code>
+   * @return upper bound in milliseconds of the bucket holding the <code>p</code> quantile
+   */
+  public double getPercentileMillis(double p) {
+    long [] c = new long[BUCKETS];
+    long n = 0;
+    for (int i = 0; i < BUCKETS; i++)
+      n += c[i] = counts[i].sum();
+    if (n == 0)
+      return 0;
+    long rank = (long)Math.ceil(p * n);
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += c[i];
+      if (seen >= Math.max(1, rank))
+        return Math.min((1L << i) / 1000.0, getMaxMillis());
+    }
+    return getMaxMillis();
+  }
+
+  public void reset() {
+    for (LongAdder c : counts)
+      c.reset();
+    totalNanos.reset();
+    maxNanos.set(0);
+  }
+}
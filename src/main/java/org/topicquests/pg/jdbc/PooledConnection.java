@@ -0,0 +1,59 @@
+/*
+ * Copyright 2026, TopicQuests
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package org.topicquests.pg.jdbc;
+
+import org.topicquests.support.api.IResult;
+
+/**
+ * A connection borrowed from a {@link PostgresConnectionPool};
+ * closing it gives it back. Outside a transaction,
+ * <code>validateDatabase</code> goes through a {@link SchemaValidator},
+ * applying independent statements in parallel on connections from the
+ * same pool.
+ */
+class PooledConnection extends JdbcPostgresConnection {
+  /** most connections <code>validateDatabase</code> uses, this one included */
+  static final int SCHEMA_PARALLELISM = 4;
+  private final PostgresConnectionPool pool;
+  private final PostgresConnectionPool.Physical physical;
+  private boolean returned;
+
+  PooledConnection(PostgresConnectionPool pool, PostgresConnectionPool.Physical physical) {
+    super(physical.conn, pool.getRoles(), physical.role, physical.statements);
+    this.pool = pool;
+    this.physical = physical;
+    if (!physical.roleKnown)
+      forgetRole();
+  }
+
+  @Override
+  public IResult validateDatabase(String [] tableSchema) {
+    // a transaction, or a role we cannot match, keeps it all on this connection
+    if (isInTransaction() || !isRoleKnown())
+      return super.validateDatabase(tableSchema);
+    int parallelism = Math.min(SCHEMA_PARALLELISM, pool.getMaxSize());
+    return new SchemaValidator(pool, getCurrentRole(), parallelism, null, null)
+        .validate(tableSchema, this);
+  }
+
+  @Override
+  public void closeConnection(IResult result) {
+    if (returned)
+      return;
+    returned = true;
+    pool.giveBack(this, physical);
+  }
+}
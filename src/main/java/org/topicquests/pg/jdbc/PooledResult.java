@@ -0,0 +1,103 @@
+/*
+ * Copyright 2026, TopicQuests
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package org.topicquests.pg.jdbc;
+
+import org.topicquests.pg.api.IResettableResult;
+
+/**
+ * <p>{@link IResettableResult} which can go back to the {@link ResultPool}
+ * it came from. Errors are kept in a buffer reused across resets, and the
+ * error string is only built when asked for.</p>
+ * <p>Not thread safe.</p>
+ */
+public class PooledResult implements IResettableResult {
+  private static final int MAX_KEPT_CAPACITY = 4096;
+  private final ResultPool pool;
+  private Object resultObject;
+  private Object resultObjectA;
+  private StringBuilder errors = new StringBuilder();
+  private boolean error;
+  /** in its pool's free list, so a second release is ignored */
+  boolean released;
+
+  public PooledResult() {
+    this(null);
+  }
+
+  PooledResult(ResultPool pool) {
+    this.pool = pool;
+  }
+
+  @Override
+  public Object getResultObject() {
+    return resultObject;
+  }
+
+  @Override
+  public void setResultObject(Object o) {
+    resultObject = o;
+  }
+
+  @Override
+  public Object getResultObjectA() {
+    return resultObjectA;
+  }
+
+  @Override
+  public void setResultObjectA(Object o) {
+    resultObjectA = o;
+  }
+
+  @Override
+  public void addErrorString(String s) {
+    if (error)
+      errors.append('\n');
+    errors.append(s);
+    error = true;
+  }
+
+  @Override
+  public String getErrorString() {
+    return errors.toString();
+  }
+
+  @Override
+  public boolean hasError() {
+    return error;
+  }
+
+  @Override
+  public void reset() {
+    resultObject = null;
+    resultObjectA = null;
+    error = false;
+    if (errors.capacity() > MAX_KEPT_CAPACITY)
+      errors = new StringBuilder();
+    else
+      errors.setLength(0);
+  }
+
+  /**
+   * Reset this and give it back to its pool; it must not be used after.
+   * Releasing it again before it is next acquired does nothing.
+   */
+  public void release() {
+    if (pool != null)
+      pool.release(this);
+    else
+      reset();
+  }
+}
@@ -0,0 +1,515 @@
+/*
+ * Copyright 2026, TopicQuests
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package org.topicquests.pg.jdbc;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.topicquests.pg.api.IConnectionSource;
+import org.topicquests.pg.api.IPostgresConnection;
+import org.topicquests.support.ResultPojo;
+import org.topicquests.support.api.IResult;
+
+/**
+ * <p>Pool of {@link IPostgresConnection}s.</p>
+ * <p>Each physical connection remembers the role it was left in, and
+ * {@link #getConnection(String)} prefers an idle connection already in the
+ * wanted role, so the usual short request pays for neither a connect nor a
+ * <code>SET ROLE</code>. Role methods called on a borrowed connection only
+ * go to the server when the role actually changes. A role set inside a
+ * transaction which then rolls back is undone by the server, so such a
+ * connection's role is treated as unknown and set again when next needed.</p>
+ * <p>Idle connections are most-recently-used first. One which has sat idle
+ * longer than <code>validateAfterMillis</code> is checked with
+ * <code>Connection.isValid</code> before it is handed out; others are
+ * trusted.</p>
+ * <p>Each physical connection can keep a {@link StatementCache}, which
+ * lives as long as the connection does, across borrows.</p>
+ * <p>{@link IPostgresConnection#closeConnection(IResult)} on a borrowed
+ * connection returns it to the pool, rolling back any unfinished transaction;
+ * the borrowed object must not be used after that.</p>
+ * <p>Thread safe.</p>
+ */
+public class PostgresConnectionPool {
+  private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+  private final IConnectionSource source;
+  private final PostgresRoles roles;
+  private final int maxSize;
+  private final long maxWaitNanos;
+  private final long validateAfterNanos;
+  private final int statementCacheSize;
+  private final int prepareThreshold;
+  private final int serverPrepareThreshold;
+  private final StatementCache.Stats statementStats = new StatementCache.Stats();
+  private final AtomicLong schemaEpoch = new AtomicLong();
+  private volatile QueryMetrics metrics;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition available = lock.newCondition();
+  /** most recently returned first */
+  private final ArrayDeque<Physical> idle = new ArrayDeque<Physical>();
+  private int total;
+  private int waiting;
+  private boolean closed;
+  private final long startNanos = System.nanoTime();
+  private final LongAdder borrows = new LongAdder();
+  private final LongAdder roleHits = new LongAdder();
+  private final LongAdder timeouts = new LongAdder();
+  private final LongAdder created = new LongAdder();
+  private final LongAdder discarded = new LongAdder();
+  private final LongAdder waitNanos = new LongAdder();
+  private final AtomicLong maxWait = new AtomicLong();
+  private final LongAdder busyNanos = new LongAdder();
+
+  /** A physical connection and what the pool knows of it */
+  static final class Physical {
+    final Connection conn;
+    final StatementCache statements;
+    String role;
+    /** <code>false</code> if <code>role</code> cannot be trusted */
+    boolean roleKnown = true;
+    long schemaEpoch;
+    long lastUsed;
+    long borrowedAt;
+
+    Physical(Connection conn, StatementCache statements) {
+      this.conn = conn;
+      this.statements = statements;
+      this.lastUsed = System.nanoTime();
+    }
+  }
+
+  /**
+   * @param source opens new connections
+   * @param roles
+   * @param maxSize most connections open at once
+   * @param maxWaitMillis longest a borrower waits for a free connection
+   * @param validateAfterMillis idle time after which a connection is checked before use
+   */
+  public PostgresConnectionPool(IConnectionSource source, PostgresRoles roles,
+                                int maxSize, long maxWaitMillis, long validateAfterMillis) {
+    this(source, roles, maxSize, maxWaitMillis, validateAfterMillis, 0, 0);
+  }
+
+  /**
+   * @param source opens new connections
+   * @param roles
+   * @param maxSize most connections open at once
+   * @param maxWaitMillis longest a borrower waits for a free connection
+   * @param validateAfterMillis idle time after which a connection is checked before use
+   * @param statementCacheSize prepared statements kept per connection; <code>0</code> for none
+   * @param prepareThreshold times SQL is prepared before its statement is kept
+   */
+  public PostgresConnectionPool(IConnectionSource source, PostgresRoles roles,
+                                int maxSize, long maxWaitMillis, long validateAfterMillis,
+                                int statementCacheSize, int prepareThreshold) {
+    this(source, roles, maxSize, maxWaitMillis, validateAfterMillis,
+         statementCacheSize, prepareThreshold, 0);
+  }
+
+  /**
+   * @param source opens new connections
+   * @param roles
+   * @param maxSize most connections open at once
+   * @param maxWaitMillis longest a borrower waits for a free connection
+   * @param validateAfterMillis idle time after which a connection is checked before use
+   * @param statementCacheSize prepared statements kept per connection; <code>0</code> for none
+   * @param prepareThreshold times SQL is prepared before its statement is kept
+   * @param serverPrepareThreshold executions before the PostgreSQL driver makes
+   * a kept statement server-side; <code>0</code> for the driver's default
+   * (its <code>prepareThreshold</code> connection property, normally 5)
+   */
+  public PostgresConnectionPool(IConnectionSource source, PostgresRoles roles,
+                                int maxSize, long maxWaitMillis, long validateAfterMillis,
+                                int statementCacheSize, int prepareThreshold,
+                                int serverPrepareThreshold) {
+    this.source = source;
+    this.roles = roles;
+    this.maxSize = maxSize;
+    this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+    this.validateAfterNanos = TimeUnit.MILLISECONDS.toNanos(validateAfterMillis);
+    this.statementCacheSize = statementCacheSize;
+    this.prepareThreshold = prepareThreshold;
+    this.serverPrepareThreshold = serverPrepareThreshold;
+  }
+
+  /**
+   * Borrow a connection in whatever role it was left in; callers set the
+   * role they need, which is free if it is already in effect
+   * @return
+   * @throws SQLException if none could be had; a
+   * <code>SQLTransientConnectionException</code> if none was free in time
+   */
+  public JdbcPostgresConnection getConnection() throws SQLException {
+    return borrow(null, false);
+  }
+
+  /**
+   * Borrow a connection in <code>role</code>, preferring one already in it
+   * @param role one of the names in {@link PostgresRoles}, or <code>null</code>
+   * for the session user
+   * @return
+   * @throws SQLException if none could be had; a
+   * <code>SQLTransientConnectionException</code> if none was free in time
+   */
+  public JdbcPostgresConnection getConnection(String role) throws SQLException {
+    return borrow(role, true);
+  }
+
+  private JdbcPostgresConnection borrow(String role, boolean setRole) throws SQLException {
+    long start = System.nanoTime();
+    while (true) {
+      Physical p = take(role, setRole, start);
+      long now = System.nanoTime();
+      if (p == null)
+        p = open();
+      else if (now - p.lastUsed > validateAfterNanos && !isValid(p)) {
+        discard(p);
+        continue;
+      }
+      borrows.increment();
+      recordWait(now - start);
+      p.borrowedAt = now;
+      long epoch = schemaEpoch.get();
+      if (p.schemaEpoch != epoch) {
+        if (p.statements != null)
+          p.statements.invalidateAll();
+        p.schemaEpoch = epoch;
+      }
+      PooledConnection result = new PooledConnection(this, p);
+      result.setQueryMetrics(metrics);
+      if (setRole) {
+        IResult r = role == null ? result.resetRole() : result.setRole(role, new ResultPojo());
+        if (r.hasError()) {
+          discard(p);
+          throw new SQLException(r.getErrorString());
+        }
+      }
+      return result;
+    }
+  }
+
+  /**
+   * @return an idle connection, or <code>null</code> with a slot reserved
+   * for a new one
+   */
+  private Physical take(String role, boolean setRole, long start) throws SQLException {
+    lock.lock();
+    try {
+      while (true) {
+        if (closed)
+          throw new SQLException("Connection pool is closed");
+        if (!idle.isEmpty())
+          return takeIdle(role, setRole);
+        if (total < maxSize) {
+          total++;
+          return null;
+        }
+        long remaining = maxWaitNanos - (System.nanoTime() - start);
+        if (remaining <= 0) {
+          timeouts.increment();
+          throw new SQLTransientConnectionException("Timed out waiting for a connection; " + total + " in use");
+        }
+        waiting++;
+        try {
+          available.awaitNanos(remaining);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new SQLTransientConnectionException("Interrupted waiting for a connection");
+        } finally {
+          waiting--;
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Under lock, idle not empty
+   * @param wanted <code>false</code> if any role will do
+   */
+  private Physical takeIdle(String role, boolean wanted) {
+    if (!wanted)
+      return idle.pollFirst();
+    Iterator<Physical> itr = idle.iterator();
+    while (itr.hasNext()) {
+      Physical p = itr.next();
+      if (p.roleKnown && (role == null ? p.role == null : role.equals(p.role))) {
+        itr.remove();
+        roleHits.increment();
+        return p;
+      }
+    }
+    return idle.pollFirst();
+  }
+
+  private Physical open() throws SQLException {
+    try {
+      Connection conn = source.newConnection();
+      StatementCache sc = statementCacheSize > 0 ?
+        new StatementCache(conn, statementCacheSize, prepareThreshold,
+                           serverPrepareThreshold, statementStats) : null;
+      Physical result = new Physical(conn, sc);
+      result.schemaEpoch = schemaEpoch.get();
+      created.increment();
+      return result;
+    } catch (SQLException e) {
+      release();
+      throw e;
+    } catch (RuntimeException e) {
+      release();
+      throw e;
+    }
+  }
+
+  private boolean isValid(Physical p) {
+    try {
+      return p.conn.isValid(VALIDATION_TIMEOUT_SECONDS);
+    } catch (SQLException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Called when a borrowed connection is closed
+   * @param c
+   */
+  void giveBack(PooledConnection c, Physical p) {
+    long now = System.nanoTime();
+    busyNanos.add(now - p.borrowedAt);
+    boolean ok;
+    try {
+      if (c.isInTransaction())
+        ok = !c.rollback(new ResultPojo()).hasError();
+      else
+        ok = true;
+      if (ok && !p.conn.getAutoCommit()) {
+        // a transaction begun behind the wrapper's back; it may have set a role
+        p.conn.rollback();
+        p.conn.setAutoCommit(true);
+        c.forgetRole();
+      }
+      ok = ok && !p.conn.isClosed();
+    } catch (SQLException e) {
+      ok = false;
+    }
+    if (!ok) {
+      discard(p);
+      return;
+    }
+    p.role = c.getCurrentRole();
+    p.roleKnown = c.isRoleKnown();
+    p.lastUsed = now;
+    lock.lock();
+    try {
+      if (!closed) {
+        idle.addFirst(p);
+        available.signal();
+        return;
+      }
+    } finally {
+      lock.unlock();
+    }
+    discard(p);
+  }
+
+  private void discard(Physical p) {
+    discarded.increment();
+    try {
+      p.conn.close();
+    } catch (SQLException e) {
+      // already broken
+    }
+    release();
+  }
+
+  /** give up a slot */
+  private void release() {
+    lock.lock();
+    try {
+      total--;
+      available.signal();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void recordWait(long nanos) {
+    waitNanos.add(nanos);
+    long m = maxWait.get();
+    while (nanos > m && !maxWait.compareAndSet(m, nanos))
+      m = maxWait.get();
+  }
+
+  /**
+   * Close idle connections, and borrowed ones as they come back
+   */
+  public void close() {
+    ArrayDeque<Physical> toClose;
+    lock.lock();
+    try {
+      closed = true;
+      toClose = new ArrayDeque<Physical>(idle);
+      idle.clear();
+      available.signalAll();
+    } finally {
+      lock.unlock();
+    }
+    for (Physical p : toClose)
+      discard(p);
+  }
+
+  public PostgresRoles getRoles() {
+    return roles;
+  }
+
+  /**
+   * @param metrics recorded by every connection borrowed from now on;
+   * can be <code>null</code>
+   */
+  public void setQueryMetrics(QueryMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  public QueryMetrics getQueryMetrics() {
+    return metrics;
+  }
+
+  /**
+   * Drop the cached statements of every connection, e.g. after a schema
+   * change; each connection drops them the next time it is borrowed
+   */
+  public void invalidateStatements() {
+    schemaEpoch.incrementAndGet();
+  }
+
+  //////////////////////////////
+  // Metrics
+  //////////////////////////////
+
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  /**
+   * @return open connections, borrowed or idle
+   */
+  public int getTotalCount() {
+    lock.lock();
+    try {
+      return total;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public int getIdleCount() {
+    lock.lock();
+    try {
+      return idle.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public int getActiveCount() {
+    lock.lock();
+    try {
+      return total - idle.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return threads waiting for a connection
+   */
+  public int getWaitingCount() {
+    lock.lock();
+    try {
+      return waiting;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return prepared statement cache counters over all connections
+   */
+  public StatementCache.Stats getStatementCacheStats() {
+    return statementStats;
+  }
+
+  public long getBorrowCount() {
+    return borrows.sum();
+  }
+
+  /**
+   * @return borrows by {@link #getConnection(String)} served by an idle
+   * connection already in the wanted role
+   */
+  public long getRoleHitCount() {
+    return roleHits.sum();
+  }
+
+  public long getTimeoutCount() {
+    return timeouts.sum();
+  }
+
+  public long getCreatedCount() {
+    return created.sum();
+  }
+
+  /**
+   * @return connections closed as broken, stale or after {@link #close()}
+   */
+  public long getDiscardedCount() {
+    return discarded.sum();
+  }
+
+  public double getMeanWaitMillis() {
+    long n = borrows.sum();
+    return n == 0 ? 0 : waitNanos.sum() / 1e6 / n;
+  }
+
+  public double getMaxWaitMillis() {
+    return maxWait.get() / 1e6;
+  }
+
+  /**
+   * @return fraction of <code>maxSize</code> in use right now
+   */
+  public double getUtilization() {
+    return (double)getActiveCount() / maxSize;
+  }
+
+  /**
+   * @return fraction of total capacity spent borrowed since the pool
+   * was created, counting returned connections only
+   */
+  public double getMeanUtilization() {
+    long elapsed = System.nanoTime() - startNanos;
+    return elapsed <= 0 ? 0 : (double)busyNanos.sum() / ((double)elapsed * maxSize);
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2026, TopicQuests
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package org.topicquests.pg.jdbc;
+
+/**
+ * The database role names behind the role methods of
+ * {@link org.topicquests.pg.api.IPostgresConnection}.
+ * A <code>null</code> name makes that role method a no-op.
+ */
+public class PostgresRoles {
+  public static final String
+    DEFAULT_PROXY    = "tq_proxy",
+    DEFAULT_USERS    = "tq_users",
+    DEFAULT_CONV     = "tq_conv",
+    DEFAULT_PROXY_RO = "tq_proxy_ro",
+    DEFAULT_USERS_RO = "tq_users_ro",
+    DEFAULT_CONV_RO  = "tq_conv_ro";
+
+  /** No role switching at all */
+  public static final PostgresRoles NONE = new PostgresRoles(null, null, null, null, null, null);
+
+  private final String proxy, users, conv, proxyRO, usersRO, convRO;
+
+  /**
+   * The default role names
+   */
+  public PostgresRoles() {
+    this(DEFAULT_PROXY, DEFAULT_USERS, DEFAULT_CONV,
+         DEFAULT_PROXY_RO, DEFAULT_USERS_RO, DEFAULT_CONV_RO);
+  }
+
+  public PostgresRoles(String proxy, String users, String conv,
+                       String proxyRO, String usersRO, String convRO) {
+    this.proxy = proxy;
+    this.users = users;
+    this.conv = conv;
+    this.proxyRO = proxyRO;
+    this.usersRO = usersRO;
+    this.convRO = convRO;
+  }
+
+  public String getProxyRole() { return proxy; }
+  public String getUsersRole() { return users; }
+  public String getConvRole() { return conv; }
+  public String getProxyRORole() { return proxyRO; }
+  public String getUsersRORole() { return usersRO; }
+  public String getConvRORole() { return convRO; }
+
+  /**
+   * @param role
+   * @return <code>true</code> if <code>role</code> is one of the read-only roles
+   */
+  public boolean isReadOnly(String role) {
+    return role != null &&
+      (role.equals(proxyRO) || role.equals(usersRO) || role.equals(convRO));
+  }
+}
@@ -0,0 +1,331 @@
+/*
+ * Copyright 2026, TopicQuests
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package org.topicquests.pg.jdbc;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * <p>Per-statement metrics shared by any number of connections: for each
+ * SQL template, a latency histogram, rows and errors; time spent in
+ * transactions; and the most recent slow statements with their
+ * parameters.</p>
+ * <p>Templates are SQL with literals replaced by <code>?</code> and
+ * whitespace collapsed, so the same query with different constants is one
+ * template. Past <code>maxTemplates</code>, new ones are counted under
+ * {@link #OTHER}.</p>
+ * <p>Rows are those updated, or for a SELECT those read: a connection
+ * records a SELECT once its <code>ResultSet</code> has been read to the end
+ * or closed, so its latency includes fetching.</p>
+ * <p>With <code>explainSlow</code>, the plan of a slow plain SELECT is
+ * fetched with <code>EXPLAIN</code> on its connection, at most once a
+ * minute per template, and kept with the slow query. The plan is the
+ * planner's estimate: the statement is not run again, since even a SELECT
+ * may call functions with side effects. Other statements are never
+ * explained.</p>
+ * <p>Read with {@link #snapshot()} and {@link #listSlowQueries()}, or have
+ * a report written periodically with {@link #startReporting(long, int, Consumer)}.</p>
+ * <p>Thread safe.</p>
+ */
+public class QueryMetrics {
+  public static final String OTHER = "(other)";
+  private static final long EXPLAIN_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+  private static final int MAX_SQL_LENGTH = 1000;
+  private final long slowNanos;
+  private final int maxSlowQueries;
+  private final int maxTemplates;
+  private final boolean explainSlow;
+  /** raw SQL -&gt; stats, so normalizing happens once per distinct SQL */
+  private final ConcurrentHashMap<String, Template> bySql = new ConcurrentHashMap<String, Template>();
+  private final ConcurrentHashMap<String, Template> templates = new ConcurrentHashMap<String, Template>();
+  private final LatencyHistogram transactions = new LatencyHistogram();
+  private final ArrayDeque<SlowQuery> slow = new ArrayDeque<SlowQuery>();
+  private ScheduledExecutorService reporter;
+
+  /**
+   * Statistics for one SQL template
+   */
+  public static class Template {
+    private final String sql;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private volatile long lastExplained;
+
+    Template(String sql) {
+      this.sql = sql;
+    }
+
+    public String getSql() {
+      return sql;
+    }
+
+    public LatencyHistogram getLatency() {
+      return latency;
+    }
+
+    public long getCount() {
+      return latency.getCount();
+    }
+
+    /**
+     * @return rows updated, or read for selects
+     */
+    public long getRowCount() {
+      return rows.sum();
+    }
+
+    public long getErrorCount() {
+      return errors.sum();
+    }
+  }
+
+  /**
+   * @param slowMillis statements slower than this are captured
+   * @param maxSlowQueries how many recent slow statements to keep
+   * @param maxTemplates
+   * @param explainSlow
+   */
+  public QueryMetrics(long slowMillis, int maxSlowQueries, int maxTemplates, boolean explainSlow) {
+    this.slowNanos = TimeUnit.MILLISECONDS.toNanos(slowMillis);
+    this.maxSlowQueries = maxSlowQueries;
+    this.maxTemplates = maxTemplates;
+    this.explainSlow = explainSlow;
+  }
+
+  /**
+   * Record one statement
+   * @param sql
+   * @param vals can be <code>null</code>
+   * @param nanos
+   * @param rows <code>-1</code> if unknown
+   * @param error
+   * @return the slow query if one was captured, else <code>null</code>
+   */
+  public SlowQuery record(String sql, Object [] vals, long nanos, long rows, boolean error) {
+    Template t = template(sql);
+    t.latency.record(nanos);
+    if (rows > 0)
+      t.rows.add(rows);
+    if (error)
+      t.errors.increment();
+    if (nanos < slowNanos)
+      return null;
+    SlowQuery q = new SlowQuery(truncate(sql), vals, nanos / 1e6, error);
+    synchronized (slow) {
+      if (slow.size() >= maxSlowQueries)
+        slow.pollFirst();
+      slow.addLast(q);
+    }
+    return q;
+  }
+
+  /**
+   * @param sql a statement just captured as slow
+   * @return <code>true</code> if the caller should explain it now
+   */
+  boolean shouldExplain(String sql) {
+    if (!explainSlow || !isSelect(sql))
+      return false;
+    Template t = template(sql);
+    long now = System.nanoTime();
+    long last = t.lastExplained;
+    if (last != 0 && now - last < EXPLAIN_INTERVAL_NANOS)
+      return false;
+    t.lastExplained = now;
+    return true;
+  }
+
+  /**
+   * Record the time from beginning to ending a transaction
+   * @param nanos
+   */
+  public void recordTransaction(long nanos) {
+    transactions.record(nanos);
+  }
+
+  public LatencyHistogram getTransactionLatency() {
+    return transactions;
+  }
+
+  /**
+   * @return templates, most total time first
+   */
+  public List<Template> snapshot() {
+    List<Template> result = new ArrayList<Template>(templates.values());
+    Collections.sort(result, new Comparator<Template>() {
+      @Override
+      public int compare(Template a, Template b) {
+        return Double.compare(b.latency.getTotalMillis(), a.latency.getTotalMillis());
+      }
+    });
+    return result;
+  }
+
+  /**
+   * @return recent slow statements, oldest first
+   */
+  public List<SlowQuery> listSlowQueries() {
+    synchronized (slow) {
+      return new ArrayList<SlowQuery>(slow);
+    }
+  }
+
+  public void reset() {
+    bySql.clear();
+    templates.clear();
+    transactions.reset();
+    synchronized (slow) {
+      slow.clear();
+    }
+  }
+
+  /**
+   * @param top how many templates to list
+   * @return a plain text report
+   */
+  public String report(int top) {
+    StringBuilder buf = new StringBuilder();
+    buf.append(String.format("%10s %10s %10s %10s %10s %8s %10s  %s%n",
+      "count", "total ms", "mean ms", "p95 ms", "p99 ms", "errors", "rows", "sql"));
+    int n = 0;
+    for (Template t : snapshot()) {
+      if (n++ >= top)
+        break;
+      LatencyHistogram h = t.latency;
+      buf.append(String.format("%10d %10.1f %10.3f %10.3f %10.3f %8d %10d  %s%n",
+        h.getCount(), h.getTotalMillis(), h.getMeanMillis(), h.getPercentileMillis(0.95),
+        h.getPercentileMillis(0.99), t.getErrorCount(), t.getRowCount(), t.sql));
+    }
+    buf.append(String.format("transactions: %d, mean %.3f ms, p99 %.3f ms, max %.3f ms%n",
+      transactions.getCount(), transactions.getMeanMillis(),
+      transactions.getPercentileMillis(0.99), transactions.getMaxMillis()));
+    return buf.toString();
+  }
+
+  /**
+   * Write {@link #report(int)} to <code>sink</code> every <code>periodMillis</code>
+   * @param periodMillis
+   * @param top
+   * @param sink e.g. a logger
+   */
+  public synchronized void startReporting(long periodMillis, final int top, final Consumer<String> sink) {
+    stopReporting();
+    reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread t = new Thread(r, "pg-query-metrics");
+      t.setDaemon(true);
+      return t;
+    });
+    reporter.scheduleAtFixedRate(() -> sink.accept(report(top)), periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+  }
+
+  public synchronized void stopReporting() {
+    if (reporter != null) {
+      reporter.shutdown();
+      reporter = null;
+    }
+  }
+
+  private Template template(String sql) {
+    Template t = bySql.get(sql);
+    if (t != null)
+      return t;
+    String key = normalize(sql);
+    if (templates.size() >= maxTemplates && !templates.containsKey(key))
+      key = OTHER;
+    t = templates.computeIfAbsent(key, Template::new);
+    if (bySql.size() < maxTemplates * 4)
+      bySql.putIfAbsent(sql, t);
+    return t;
+  }
+
+  /**
+   * @param sql
+   * @return <code>sql</code> with string and numeric literals replaced by
+   * <code>?</code> and runs of whitespace by one space
+   */
+  public static String normalize(String sql) {
+    StringBuilder buf = new StringBuilder(Math.min(sql.length(), MAX_SQL_LENGTH));
+    int n = sql.length();
+    int i = 0;
+    while (i < n && buf.length() < MAX_SQL_LENGTH) {
+      char c = sql.charAt(i);
+      if (c == '\'') {
+        i++;
+        while (i < n) {
+          if (sql.charAt(i) == '\'') {
+            if (i + 1 < n && sql.charAt(i + 1) == '\'')
+              i++;
+            else
+              break;
+          }
+          i++;
+        }
+        i++;
+        buf.append('?');
+      } else if (Character.isDigit(c) && (buf.length() == 0 || !isIdentifierChar(buf.charAt(buf.length() - 1)))) {
+        while (i < n && (Character.isDigit(sql.charAt(i)) || sql.charAt(i) == '.'))
+          i++;
+        buf.append('?');
+      } else if (Character.isWhitespace(c)) {
+        while (i < n && Character.isWhitespace(sql.charAt(i)))
+          i++;
+        if (buf.length() > 0)
+          buf.append(' ');
+      } else {
+        buf.append(c);
+        i++;
+      }
+    }
+    int end = buf.length();
+    while (end > 0 && buf.charAt(end - 1) == ' ')
+      end--;
+    buf.setLength(end);
+    return buf.toString();
+  }
+
+  /**
+   * @return <code>true</code> for a plain SELECT, with no locking clause or
+   * sequence call: the only statements planned with <code>EXPLAIN</code>
+   */
+  static boolean isSelect(String sql) {
+    int i = 0;
+    while (i < sql.length() && Character.isWhitespace(sql.charAt(i)))
+      i++;
+    if (!sql.regionMatches(true, i, "SELECT", 0, 6))
+      return false;
+    String upper = sql.toUpperCase();
+    return upper.indexOf("FOR UPDATE") < 0 && upper.indexOf("FOR SHARE") < 0 &&
+      upper.indexOf("NEXTVAL") < 0;
+  }
+
+  private static boolean isIdentifierChar(char c) {
+    return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+  }
+
+  private static String truncate(String sql) {
+    return sql.length() <= MAX_SQL_LENGTH ? sql : sql.substring(0, MAX_SQL_LENGTH) + "...";
+  }
+}
@@ -0,0 +1,290 @@
+/*
+ * Copyright 2026, TopicQuests
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package org.topicquests.pg.jdbc;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.topicquests.support.ResultPojo;
+
+/**
+ * <p>Sends read-only work to replicas. It holds a primary
+ * {@link PostgresConnectionPool} and one pool per replica, and hands out
+ * {@link RoutingPostgresConnection}s. Those go to a replica when one of
+ * the RO roles is set, and to the primary otherwise.</p>
+ * <p>The replica with the fewest borrowed connections is chosen; ties go
+ * round robin. If {@link #startLagChecks(long)} has been called, each
+ * replica's replay lag is measured at that interval. A replica more than
+ * <code>maxLagMillis</code> behind is passed over until it catches up. One
+ * which cannot be reached is passed over for {@link #RETRY_MILLIS}, or
+ * until a lag check reaches it. A replica whose pool is merely busy is
+ * only skipped for that borrow. With no replica usable, reads go to the
+ * primary.</p>
+ * <p>Thread safe.</p>
+ */
+public class ReplicaRouter {
+  /** milliseconds behind the primary; <code>0</code> when all received WAL is replayed */
+  public static final String LAG_SQL =
+      "SELECT CASE WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 " +
+      "ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000, 0) END";
+  /** lag of a replica which could not be checked */
+  public static final long UNREACHABLE = Long.MAX_VALUE;
+  /** how long a replica which could not be connected to is passed over */
+  public static final long RETRY_MILLIS = 5000;
+  private static final long RETRY_NANOS = TimeUnit.MILLISECONDS.toNanos(RETRY_MILLIS);
+  private final PostgresConnectionPool primary;
+  private final List<Replica> replicas;
+  private final long maxLagMillis;
+  private final long pinMillis;
+  private final AtomicInteger next = new AtomicInteger();
+  private final LongAdder primaryRoutes = new LongAdder();
+  private final LongAdder replicaRoutes = new LongAdder();
+  private final LongAdder fallbacks = new LongAdder();
+  private ScheduledExecutorService checker;
+
+  static final class Replica {
+    final PostgresConnectionPool pool;
+    volatile long lagMillis;
+    /** <code>System.nanoTime()</code> before which it is not tried; <code>0</code> if reachable */
+    volatile long downUntil;
+
+    boolean isDown() {
+      long d = downUntil;
+      if (d == 0)
+        return false;
+      if (System.nanoTime() - d < 0)
+        return true;
+      downUntil = 0;
+      return false;
+    }
+
+    Replica(PostgresConnectionPool pool) {
+      this.pool = pool;
+    }
+  }
+
+  /**
+   * @param primary takes writes, and reads when no replica will do
+   * @param replicas
+   * @param maxLagMillis replicas further behind than this are not used
+   * @param pinMillis after a write, a session reads from the primary for this long;
+   * <code>Long.MAX_VALUE</code> for the rest of the session
+   */
+  public ReplicaRouter(PostgresConnectionPool primary, List<PostgresConnectionPool> replicas,
+                       long maxLagMillis, long pinMillis) {
+    this.primary = primary;
+    List<Replica> r = new ArrayList<Replica>(replicas.size());
+    for (PostgresConnectionPool p : replicas)
+      r.add(new Replica(p));
+    this.replicas = Collections.unmodifiableList(r);
+    this.maxLagMillis = maxLagMillis;
+    this.pinMillis = pinMillis;
+  }
+
+  /**
+   * @return a session which borrows its connection when first used;
+   * {@link RoutingPostgresConnection#closeConnection(org.topicquests.support.api.IResult)}
+   * gives it back
+   */
+  public RoutingPostgresConnection getConnection() {
+    return new RoutingPostgresConnection(this);
+  }
+
+  public PostgresConnectionPool getPrimary() {
+    return primary;
+  }
+
+  public long getPinMillis() {
+    return pinMillis;
+  }
+
+  /**
+   * Borrow from the primary
+   * @param role can be <code>null</code> to leave the role as it is
+   * @return
+   * @throws SQLException
+   */
+  JdbcPostgresConnection borrowPrimary(String role) throws SQLException {
+    primaryRoutes.increment();
+    return role == null ? primary.getConnection() : primary.getConnection(role);
+  }
+
+  /**
+   * Borrow from the best replica, trying the others if it fails
+   * @param role
+   * @return <code>null</code> if no replica can be had
+   */
+  JdbcPostgresConnection borrowReplica(String role) {
+    int n = replicas.size();
+    if (n == 0)
+      return null;
+    int start = Math.floorMod(next.getAndIncrement(), n);
+    boolean [] tried = new boolean[n];
+    for (int attempt = 0; attempt < n; attempt++) {
+      int best = -1;
+      int bestActive = Integer.MAX_VALUE;
+      for (int k = 0; k < n; k++) {
+        int i = (start + k) % n;
+        Replica r = replicas.get(i);
+        if (tried[i] || r.lagMillis > maxLagMillis || r.isDown())
+          continue;
+        int active = r.pool.getActiveCount();
+        if (active < bestActive) {
+          best = i;
+          bestActive = active;
+        }
+      }
+      if (best < 0)
+        break;
+      tried[best] = true;
+      Replica r = replicas.get(best);
+      try {
+        JdbcPostgresConnection result = role == null ? r.pool.getConnection() : r.pool.getConnection(role);
+        replicaRoutes.increment();
+        return result;
+      } catch (SQLTransientConnectionException e) {
+        // busy, not broken: try another this time
+      } catch (SQLException e) {
+        r.downUntil = System.nanoTime() + RETRY_NANOS;
+      }
+    }
+    fallbacks.increment();
+    return null;
+  }
+
+  //////////////////////////////
+  // Lag
+  //////////////////////////////
+
+  /**
+   * Measure every replica's lag now
+   */
+  public void checkLag() {
+    for (Replica r : replicas) {
+      long lag = measureLag(r);
+      r.lagMillis = lag;
+      if (lag != UNREACHABLE)
+        r.downUntil = 0;
+    }
+  }
+
+  /**
+   * @return lag now; the last lag if its pool is too busy to check
+   */
+  private static long measureLag(Replica r) {
+    long result = UNREACHABLE;
+    JdbcPostgresConnection conn = null;
+    try {
+      conn = r.pool.getConnection();
+      try (Statement s = conn.getConnection().createStatement();
+           ResultSet rs = s.executeQuery(LAG_SQL)) {
+        if (rs.next())
+          result = Math.max(0, (long)rs.getDouble(1));
+      }
+    } catch (SQLTransientConnectionException e) {
+      result = r.lagMillis;
+    } catch (SQLException e) {
+      result = UNREACHABLE;
+    } finally {
+      if (conn != null)
+        conn.closeConnection(new ResultPojo());
+    }
+    return result;
+  }
+
+  /**
+   * Check lag every <code>periodMillis</code> on a background thread,
+   * starting now
+   * @param periodMillis
+   */
+  public synchronized void startLagChecks(long periodMillis) {
+    stopLagChecks();
+    checker = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread t = new Thread(r, "pg-replica-lag");
+      t.setDaemon(true);
+      return t;
+    });
+    checker.scheduleWithFixedDelay(this::checkLag, 0, periodMillis, TimeUnit.MILLISECONDS);
+  }
+
+  public synchronized void stopLagChecks() {
+    if (checker != null) {
+      checker.shutdownNow();
+      checker = null;
+    }
+  }
+
+  /**
+   * Stop lag checks and close every pool
+   */
+  public void close() {
+    stopLagChecks();
+    for (Replica r : replicas)
+      r.pool.close();
+    primary.close();
+  }
+
+  //////////////////////////////
+  // Metrics
+  //////////////////////////////
+
+  public int getReplicaCount() {
+    return replicas.size();
+  }
+
+  public PostgresConnectionPool getReplica(int index) {
+    return replicas.get(index).pool;
+  }
+
+  /**
+   * @param index
+   * @return lag when last checked, or {@link #UNREACHABLE}
+   */
+  public long getLagMillis(int index) {
+    return replicas.get(index).lagMillis;
+  }
+
+  /**
+   * @return connections borrowed from the primary
+   */
+  public long getPrimaryRouteCount() {
+    return primaryRoutes.sum();
+  }
+
+  /**
+   * @return connections borrowed from replicas
+   */
+  public long getReplicaRouteCount() {
+    return replicaRoutes.sum();
+  }
+
+  /**
+   * @return reads sent to the primary because no replica was usable
+   */
+  public long getFallbackCount() {
+    return fallbacks.sum();
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2026, TopicQuests
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package org.topicquests.pg.jdbc;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>Free lists of {@link PooledResult}s, one per thread, so a hot loop
+ * can pass the same few results to the <code>execute</code> overloads
+ * which take an IResult rather than allocate one per call.</p>
+ * <pre>
+ * PooledResult r = pool.acquire();
+ * try {
+ *   conn.executeUpdate(sql, r, vals);
+ *   ...
+ * } finally {
+ *   r.release();
+ * }
+ * </pre>
+ * <p>A result released on another thread joins that thread's list. Each
+ * list keeps at most <code>maxPerThread</code>; extras are left to the
+ * garbage collector.</p>
+ * <p>Thread safe.</p>
+ */
+public class ResultPool {
+  private final int maxPerThread;
+  private final ThreadLocal<ArrayDeque<PooledResult>> free;
+  private final LongAdder created = new LongAdder();
+  private final LongAdder reused = new LongAdder();
+
+  /**
+   * @param maxPerThread
+   */
+  public ResultPool(final int maxPerThread) {
+    this.maxPerThread = maxPerThread;
+    this.free = ThreadLocal.withInitial(() -> new ArrayDeque<PooledResult>(maxPerThread));
+  }
+
+  /**
+   * @return an empty result
+   */
+  public PooledResult acquire() {
+    PooledResult result = free.get().pollFirst();
+    if (result != null) {
+      result.released = false;
+      reused.increment();
+      return result;
+    }
+    created.increment();
+    return new PooledResult(this);
+  }
+
+  /**
+   * Reset <code>r</code> and keep it for reuse. A result already released
+   * is ignored, so it cannot be handed out twice.
+   * @param r must not be used after
+   */
+  public void release(PooledResult r) {
+    if (r.released)
+      return;
+    r.released = true;
+    r.reset();
+    ArrayDeque<PooledResult> list = free.get();
+    if (list.size() < maxPerThread)
+      list.addFirst(r);
+  }
+
+  public long getCreatedCount() {
+    return created.sum();
+  }
+
+  public long getReusedCount() {
+    return reused.sum();
+  }
+}
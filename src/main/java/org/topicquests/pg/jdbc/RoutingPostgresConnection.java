@@ -0,0 +1,285 @@
+/*
+ * Copyright 2026, TopicQuests
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package org.topicquests.pg.jdbc;
+
+import java.sql.SQLException;
+import java.util.Iterator;
+
+import org.topicquests.pg.api.IExtendedPostgresConnection;
+import org.topicquests.support.api.IResult;
+
+/**
+ * <p>A session whose connection comes from a {@link ReplicaRouter}.</p>
+ * <p>Setting an RO role (for example {@link #setProxyRORole(IResult)})
+ * moves the session to a replica. Setting a read-write role, or resetting
+ * the role, moves it to the primary. A session not yet in a role uses the
+ * primary. The
+ * connection is swapped only between transactions; inside a transaction,
+ * a role change applies to the connection already in use.</p>
+ * <p>Read your writes: once a write on the primary is committed, RO roles
+ * stay on the primary for the router's pin time. Replicas may not have
+ * replayed the write yet.</p>
+ * <p>{@link #closeConnection(IResult)} gives back the connection, but the
+ * session keeps its pin and can be used again.</p>
+ * <p>Not thread safe, like any other connection.</p>
+ */
+public class RoutingPostgresConnection extends DelegatingPostgresConnection {
+  private final ReplicaRouter router;
+  private final PostgresRoles roles;
+  private JdbcPostgresConnection conn;
+  private boolean onReplica;
+  /** written in the current transaction */
+  private boolean dirty;
+  private long pinnedUntil;
+  private boolean pinned;
+
+  RoutingPostgresConnection(ReplicaRouter router) {
+    this.router = router;
+    this.roles = router.getPrimary().getRoles();
+  }
+
+  @Override
+  protected IExtendedPostgresConnection delegate() throws SQLException {
+    if (conn == null) {
+      conn = router.borrowPrimary(null);
+      onReplica = false;
+    }
+    return conn;
+  }
+
+  @Override
+  protected IExtendedPostgresConnection current() {
+    return conn;
+  }
+
+  /**
+   * @return <code>true</code> if the session's connection is from a replica
+   */
+  public boolean isOnReplica() {
+    return conn != null && onReplica;
+  }
+
+  /**
+   * @return <code>true</code> if reads are held on the primary after a write
+   */
+  public boolean isPinned() {
+    if (pinned && pinnedUntil - System.nanoTime() <= 0)
+      pinned = false;
+    return pinned;
+  }
+
+  /**
+   * Hold reads on the primary as if this session had just written, e.g.
+   * after a write made through another connection
+   */
+  public void pin() {
+    long pin = router.getPinMillis();
+    if (pin <= 0)
+      return;
+    long now = System.nanoTime();
+    long nanos = pin >= Long.MAX_VALUE / 1000000 ? Long.MAX_VALUE - now : pin * 1000000;
+    pinnedUntil = now + nanos;
+    pinned = true;
+  }
+
+  public void unpin() {
+    pinned = false;
+  }
+
+  //////////////////////////////
+  // Routing
+  //////////////////////////////
+
+  private IResult routeRead(String role, IResult result) {
+    if (conn != null && (conn.isInTransaction() || (onReplica && !isPinned())))
+      return conn.setRole(role, result);
+    if (!isPinned() && router.getReplicaCount() > 0) {
+      JdbcPostgresConnection c = router.borrowReplica(role);
+      if (c != null) {
+        swap(c, true, result);
+        return result;
+      }
+    }
+    return routePrimary(role, result);
+  }
+
+  private IResult routePrimary(String role, IResult result) {
+    if (conn != null && (!onReplica || conn.isInTransaction()))
+      return conn.setRole(role, result);
+    try {
+      JdbcPostgresConnection c = router.borrowPrimary(role);
+      swap(c, false, result);
+    } catch (SQLException e) {
+      result.addErrorString(e.getMessage());
+    }
+    return result;
+  }
+
+  private void swap(JdbcPostgresConnection c, boolean replica, IResult result) {
+    if (conn != null)
+      conn.closeConnection(result);
+    conn = c;
+    onReplica = replica;
+    dirty = false;
+  }
+
+  /**
+   * Note a write, pinning the session once it is committed
+   */
+  private IResult wrote(IResult result) {
+    if (conn != null && !onReplica) {
+      dirty = true;
+      if (!conn.isInTransaction())
+        committed();
+    }
+    return result;
+  }
+
+  private void committed() {
+    if (dirty)
+      pin();
+    dirty = false;
+  }
+
+  private static boolean isRead(String sql) {
+    int n = sql.length();
+    int i = 0;
+    while (i < n && (Character.isWhitespace(sql.charAt(i)) || sql.charAt(i) == '('))
+      i++;
+    return sql.regionMatches(true, i, "SELECT", 0, 6);
+  }
+
+  //////////////////////////////
+  // Roles
+  //////////////////////////////
+
+  @Override
+  public IResult resetRole(IResult result) {
+    // the session user is not read-only, so it belongs on the primary
+    if (conn != null && onReplica && !conn.isInTransaction()) {
+      routePrimary(null, result);
+      if (result.hasError())
+        return result;
+    }
+    return super.resetRole(result);
+  }
+
+  @Override
+  public IResult setProxyRole(IResult result) {
+    return routePrimary(roles.getProxyRole(), result);
+  }
+
+  @Override
+  public IResult setUsersRole(IResult result) {
+    return routePrimary(roles.getUsersRole(), result);
+  }
+
+  @Override
+  public IResult setConvRole(IResult result) {
+    return routePrimary(roles.getConvRole(), result);
+  }
+
+  @Override
+  public IResult setProxyRORole(IResult result) {
+    return routeRead(roles.getProxyRORole(), result);
+  }
+
+  @Override
+  public IResult setUsersRORole(IResult result) {
+    return routeRead(roles.getUsersRORole(), result);
+  }
+
+  @Override
+  public IResult setConvRORole(IResult result) {
+    return routeRead(roles.getConvRORole(), result);
+  }
+
+  //////////////////////////////
+  // Writes
+  //////////////////////////////
+
+  @Override
+  public IResult endTransaction(IResult result) {
+    super.endTransaction(result);
+    if (conn != null && !conn.isInTransaction())
+      committed();
+    return result;
+  }
+
+  @Override
+  public IResult rollback(IResult result) {
+    super.rollback(result);
+    dirty = false;
+    return result;
+  }
+
+  @Override
+  public IResult executeSQL(String sql, IResult result) {
+    super.executeSQL(sql, result);
+    return isRead(sql) ? result : wrote(result);
+  }
+
+  @Override
+  public IResult executeSQL(String sql, IResult result, Object... vals) {
+    super.executeSQL(sql, result, vals);
+    return isRead(sql) ? result : wrote(result);
+  }
+
+  @Override
+  public IResult executeMultiSQL(String[] stmts, IResult result) {
+    return wrote(super.executeMultiSQL(stmts, result));
+  }
+
+  @Override
+  public IResult executeMultiSQLPipelined(String[] stmts, IResult result) {
+    return wrote(super.executeMultiSQLPipelined(stmts, result));
+  }
+
+  @Override
+  public IResult executeUpdate(String sql, IResult result) {
+    return wrote(super.executeUpdate(sql, result));
+  }
+
+  @Override
+  public IResult executeUpdate(String sql, IResult result, Object... vals) {
+    return wrote(super.executeUpdate(sql, result, vals));
+  }
+
+  @Override
+  public IResult executeBatch(String sql, IResult result, Object... vals) {
+    return wrote(super.executeBatch(sql, result, vals));
+  }
+
+  @Override
+  public IResult executeBatch(String sql, Iterator<Object[]> rows, int chunkSize,
+                              boolean rewriteValues, IResult result) {
+    return wrote(super.executeBatch(sql, rows, chunkSize, rewriteValues, result));
+  }
+
+  @Override
+  public IResult validateDatabase(String [] tableSchema) {
+    return wrote(super.validateDatabase(tableSchema));
+  }
+
+  @Override
+  public void closeConnection(IResult result) {
+    if (conn != null) {
+      conn.closeConnection(result);
+      conn = null;
+    }
+    dirty = false;
+  }
+}
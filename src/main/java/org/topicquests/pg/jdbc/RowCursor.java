@@ -0,0 +1,126 @@
+/*
+ * Copyright 2026, TopicQuests
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package org.topicquests.pg.jdbc;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.topicquests.pg.api.IResultCursor;
+import org.topicquests.pg.api.IRowMapper;
+import org.topicquests.support.ResultPojo;
+import org.topicquests.support.api.IResult;
+
+/**
+ * {@link IResultCursor} over a ResultSet read with a fetch size.
+ * If it opened the transaction holding the server-side cursor, it
+ * ends it on close: committed after the last row, rolled back on error.
+ * @param <T>
+ */
+class RowCursor<T> implements IResultCursor<T> {
+  private final JdbcPostgresConnection conn;
+  private final PreparedStatement stmt;
+  private final ResultSet rs;
+  private final IRowMapper<T> mapper;
+  private final boolean ownsTransaction;
+  private final IResult result = new ResultPojo();
+  private T next;
+  private boolean ready;
+  private boolean closed;
+  private long rows;
+
+  RowCursor(JdbcPostgresConnection conn, PreparedStatement stmt, ResultSet rs,
+            IRowMapper<T> mapper, boolean ownsTransaction) {
+    this.conn = conn;
+    this.stmt = stmt;
+    this.rs = rs;
+    this.mapper = mapper;
+    this.ownsTransaction = ownsTransaction;
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (ready)
+      return true;
+    if (closed)
+      return false;
+    try {
+      if (rs.next()) {
+        next = mapper.map(rs);
+        ready = true;
+        rows++;
+        return true;
+      }
+    } catch (SQLException e) {
+      result.addErrorString(e.getMessage());
+    }
+    close();
+    return false;
+  }
+
+  @Override
+  public T next() {
+    if (!hasNext())
+      throw new NoSuchElementException();
+    T t = next;
+    next = null;
+    ready = false;
+    return t;
+  }
+
+  @Override
+  public Stream<T> stream() {
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED), false)
+      .onClose(this::close);
+  }
+
+  @Override
+  public long getRowCount() {
+    return rows;
+  }
+
+  @Override
+  public boolean hasError() {
+    return result.hasError();
+  }
+
+  @Override
+  public String getErrorString() {
+    return result.getErrorString();
+  }
+
+  @Override
+  public void close() {
+    if (closed)
+      return;
+    closed = true;
+    ready = false;
+    next = null;
+    conn.closeResultSet(rs, result);
+    conn.closeStatement(stmt, result);
+    if (ownsTransaction) {
+      if (result.hasError())
+        conn.rollback(new ResultPojo());
+      else
+        conn.endTransaction(result);
+    }
+  }
+}
@@ -0,0 +1,497 @@
+/*
+ * Copyright 2026, TopicQuests
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package org.topicquests.pg.jdbc;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.topicquests.support.ResultPojo;
+import org.topicquests.support.api.IResult;
+
+/**
+ * <p>A faster <code>validateDatabase</code> for service start.</p>
+ * <p>The catalog is read in one query: relations (tables, indexes,
+ * sequences, views), columns, schemas and extensions. Each expected
+ * statement is then matched against it. These are skipped when their
+ * object already exists:</p>
+ * <ul>
+ * <li><code>CREATE TABLE</code></li>
+ * <li><code>CREATE INDEX</code></li>
+ * <li><code>CREATE SEQUENCE</code></li>
+ * <li><code>CREATE VIEW</code> without <code>OR REPLACE</code></li>
+ * <li><code>CREATE SCHEMA</code></li>
+ * <li><code>CREATE EXTENSION</code></li>
+ * <li><code>ALTER TABLE ... ADD COLUMN</code></li>
+ * </ul>
+ * <p>Any other statement always runs. So does every statement when the
+ * catalog cannot be read, e.g. on an {@link EmbeddedDatabase}.</p>
+ * <p>What is missing is applied in waves on connections from the pool.
+ * A statement waits for any earlier statement which creates or alters a
+ * relation it names anywhere in its text: <code>ON</code>,
+ * <code>REFERENCES</code>, <code>INHERITS</code>, <code>LIKE</code>,
+ * <code>PARTITION OF</code>, a view's query, or a sequence in
+ * <code>nextval('...')</code>. A name which only looks like one, such as a
+ * column named like a table, merely costs some parallelism.
+ * Statements it cannot classify, and schema and extension statements, run
+ * alone after everything before them, so their order is kept. Other
+ * statements in a wave run in parallel.</p>
+ * <p>After a clean run, a SHA-256 fingerprint of the database key and the
+ * statements is added to <code>fingerprintFile</code>. A later start with
+ * the same fingerprint skips validation without connecting. Call
+ * {@link #forget()} if the database is dropped or changed by other means.</p>
+ * <p>A pooled connection's <code>validateDatabase</code> uses this outside
+ * a transaction, running on itself as well as on connections it borrows,
+ * so it works on a pool of one.</p>
+ * <p>Unqualified names match a relation of that name in any schema other
+ * than the system ones.</p>
+ */
+public class SchemaValidator {
+  private static final String IDENT = "((?:\"[^\"]+\"|[\\w$]+)(?:\\s*\\.\\s*(?:\"[^\"]+\"|[\\w$]+))?)";
+  private static final Pattern CREATE_RELATION = Pattern.compile(
+      "(?is)\\s*CREATE\\s+(?:(?:UNLOGGED|TEMP|TEMPORARY)\\s+)?(TABLE|SEQUENCE|VIEW|MATERIALIZED\\s+VIEW)\\s+(?:IF\\s+NOT\\s+EXISTS\\s+)?" + IDENT + ".*");
+  private static final Pattern CREATE_INDEX = Pattern.compile(
+      "(?is)\\s*CREATE\\s+(?:UNIQUE\\s+)?INDEX\\s+(?:CONCURRENTLY\\s+)?(?:IF\\s+NOT\\s+EXISTS\\s+)?" + IDENT + "\\s+ON\\s+(?:ONLY\\s+)?" + IDENT + ".*");
+  private static final Pattern CREATE_SCHEMA = Pattern.compile(
+      "(?is)\\s*CREATE\\s+(SCHEMA|EXTENSION)\\s+(?:IF\\s+NOT\\s+EXISTS\\s+)?" + IDENT + ".*");
+  private static final Pattern ADD_COLUMN = Pattern.compile(
+      "(?is)\\s*ALTER\\s+TABLE\\s+(?:IF\\s+EXISTS\\s+)?(?:ONLY\\s+)?" + IDENT +
+      "\\s+ADD\\s+(?:COLUMN\\s+)?(?:IF\\s+NOT\\s+EXISTS\\s+)?" + IDENT + "\\s+[^,]*");
+  /** anything which may name a relation, including inside string literals */
+  private static final Pattern NAME = Pattern.compile(IDENT);
+  private static final String CATALOG_SQL =
+      "SELECT 'r', n.nspname, c.relname FROM pg_class c JOIN pg_namespace n ON n.oid = c.relnamespace " +
+      "WHERE n.nspname NOT IN ('pg_catalog', 'information_schema') AND n.nspname NOT LIKE 'pg_toast%' " +
+      "UNION ALL SELECT 'c', n.nspname || '.' || c.relname, a.attname FROM pg_attribute a " +
+      "JOIN pg_class c ON c.oid = a.attrelid JOIN pg_namespace n ON n.oid = c.relnamespace " +
+      "WHERE c.relkind IN ('r', 'p') AND a.attnum > 0 AND NOT a.attisdropped " +
+      "AND n.nspname NOT IN ('pg_catalog', 'information_schema') " +
+      "UNION ALL SELECT 's', '', nspname FROM pg_namespace " +
+      "UNION ALL SELECT 'e', '', extname FROM pg_extension";
+  private final PostgresConnectionPool pool;
+  private final String role;
+  private final int parallelism;
+  private final Path fingerprintFile;
+  private final String databaseKey;
+
+  /** What the database already has */
+  static final class Catalog {
+    final Set<String> relations = new HashSet<String>();
+    final Set<String> columns = new HashSet<String>();
+    final Set<String> schemas = new HashSet<String>();
+    final Set<String> extensions = new HashSet<String>();
+  }
+
+  /** One expected statement */
+  static final class Ddl {
+    final int index;
+    final String sql;
+    /** created relation, schema or extension, or <code>null</code> */
+    String creates;
+    /** table it adds a column to, or <code>null</code> */
+    String alters;
+    /** keep its place in the order */
+    boolean barrier;
+    boolean present;
+    int wave;
+
+    Ddl(int index, String sql) {
+      this.index = index;
+      this.sql = sql;
+    }
+  }
+
+  /**
+   * @param pool
+   * @param role role to run the statements in, or <code>null</code> for any
+   * @param parallelism most statements run at once
+   * @param fingerprintFile can be <code>null</code> to validate on every start
+   * @param databaseKey names the database, e.g. its JDBC URL, so one file can
+   * serve several databases
+   */
+  public SchemaValidator(PostgresConnectionPool pool, String role, int parallelism,
+                         Path fingerprintFile, String databaseKey) {
+    this.pool = pool;
+    this.role = role;
+    this.parallelism = Math.max(1, parallelism);
+    this.fingerprintFile = fingerprintFile;
+    this.databaseKey = databaseKey == null ? "" : databaseKey;
+  }
+
+  /**
+   * @param tableSchema as for <code>validateDatabase</code>
+   * @return result object is the <code>Integer</code> number of statements run,
+   * <code>0</code> if the fingerprint matched; result object A is the
+   * <code>List&lt;String&gt;</code> of statements run
+   */
+  public IResult validate(String [] tableSchema) {
+    return validate(tableSchema, null);
+  }
+
+  /**
+   * @param tableSchema
+   * @param held a connection the caller has borrowed from the pool, used
+   * alongside the others; statements then run in its role. Can be
+   * <code>null</code>
+   * @return as for {@link #validate(String[])}
+   */
+  IResult validate(String [] tableSchema, JdbcPostgresConnection held) {
+    IResult result = new ResultPojo();
+    result.setResultObject(0);
+    result.setResultObjectA(Collections.<String>emptyList());
+    String fingerprint = fingerprint(tableSchema);
+    Set<String> known = readFingerprints();
+    if (known.contains(fingerprint))
+      return result;
+    JdbcPostgresConnection conn;
+    try {
+      conn = held != null ? held : borrow(null);
+    } catch (SQLException e) {
+      result.addErrorString(e.getMessage());
+      return result;
+    }
+    Catalog catalog;
+    try {
+      catalog = readCatalog(conn);
+    } catch (SQLException e) {
+      // not PostgreSQL, or not allowed to look: run everything
+      catalog = new Catalog();
+    } finally {
+      if (conn != held)
+        conn.closeConnection(new ResultPojo());
+    }
+    List<String> ran = apply(plan(tableSchema, catalog), held, result);
+    result.setResultObject(ran.size());
+    result.setResultObjectA(ran);
+    if (!result.hasError() && fingerprintFile != null) {
+      known.add(fingerprint);
+      writeFingerprints(known, result);
+    }
+    return result;
+  }
+
+  /**
+   * Drop the remembered fingerprints, so the next start validates
+   */
+  public void forget() throws IOException {
+    if (fingerprintFile != null)
+      Files.deleteIfExists(fingerprintFile);
+  }
+
+  //////////////////////////////
+  // Catalog and plan
+  //////////////////////////////
+
+  static Catalog readCatalog(JdbcPostgresConnection conn) throws SQLException {
+    Catalog result = new Catalog();
+    try (Statement s = conn.getConnection().createStatement();
+         ResultSet rs = s.executeQuery(CATALOG_SQL)) {
+      while (rs.next()) {
+        String kind = rs.getString(1);
+        String owner = rs.getString(2);
+        String name = rs.getString(3);
+        switch (kind) {
+          case "r":
+            result.relations.add(name);
+            result.relations.add(owner + "." + name);
+            break;
+          case "c":
+            result.columns.add(owner + "." + name);
+            result.columns.add(owner.substring(owner.indexOf('.') + 1) + "." + name);
+            break;
+          case "s":
+            result.schemas.add(name);
+            break;
+          default:
+            result.extensions.add(name);
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return the statements still to run, each with its wave
+   */
+  static List<Ddl> plan(String [] tableSchema, Catalog catalog) {
+    Map<String, Ddl> creators = new HashMap<String, Ddl>();
+    List<Ddl> result = new ArrayList<Ddl>();
+    int lastBarrier = -1;
+    int maxWave = -1;
+    for (int i = 0; i < tableSchema.length; i++) {
+      Ddl d = classify(i, tableSchema[i], catalog);
+      if (d.present)
+        continue;
+      int wave = lastBarrier + 1;
+      if (d.barrier)
+        wave = maxWave + 1;
+      Matcher n = NAME.matcher(d.sql);
+      while (n.find()) {
+        String need = name(n.group(1));
+        Ddl c = creators.get(need);
+        if (c == null)
+          c = creators.get(unqualified(need));
+        if (c != null)
+          wave = Math.max(wave, c.wave + 1);
+      }
+      d.wave = wave;
+      maxWave = Math.max(maxWave, wave);
+      if (d.barrier)
+        lastBarrier = wave;
+      // later statements wait for whatever last created or altered what they need
+      String touched = d.creates != null ? d.creates : d.alters;
+      if (touched != null) {
+        creators.put(touched, d);
+        creators.put(unqualified(touched), d);
+      }
+      result.add(d);
+    }
+    return result;
+  }
+
+  static Ddl classify(int index, String sql, Catalog catalog) {
+    Ddl result = new Ddl(index, sql);
+    Matcher m = CREATE_INDEX.matcher(sql);
+    if (m.matches()) {
+      result.creates = name(m.group(1));
+      result.present = catalog.relations.contains(result.creates);
+      return result;
+    }
+    m = CREATE_RELATION.matcher(sql);
+    if (m.matches()) {
+      result.creates = name(m.group(2));
+      result.present = catalog.relations.contains(result.creates);
+      return result;
+    }
+    m = ADD_COLUMN.matcher(sql);
+    if (m.matches() && !m.group(2).equalsIgnoreCase("CONSTRAINT")) {
+      String table = name(m.group(1));
+      result.alters = table;
+      result.present = catalog.columns.contains(table + "." + name(m.group(2)));
+      return result;
+    }
+    m = CREATE_SCHEMA.matcher(sql);
+    if (m.matches()) {
+      String name = name(m.group(2));
+      result.barrier = true;
+      result.present = m.group(1).equalsIgnoreCase("SCHEMA") ?
+          catalog.schemas.contains(name) : catalog.extensions.contains(name);
+      return result;
+    }
+    result.barrier = true;
+    return result;
+  }
+
+  /**
+   * Fold unquoted identifiers to lower case, as the server does
+   */
+  static String name(String ident) {
+    StringBuilder buf = new StringBuilder(ident.length());
+    for (String part : ident.split("\\s*\\.\\s*(?=(?:[^\"]*\"[^\"]*\")*[^\"]*$)")) {
+      if (buf.length() > 0)
+        buf.append('.');
+      if (part.startsWith("\"") && part.endsWith("\"") && part.length() > 1)
+        buf.append(part, 1, part.length() - 1);
+      else
+        buf.append(part.toLowerCase(Locale.ROOT));
+    }
+    return buf.toString();
+  }
+
+  private static String unqualified(String name) {
+    return name.substring(name.lastIndexOf('.') + 1);
+  }
+
+  //////////////////////////////
+  // Applying
+  //////////////////////////////
+
+  /**
+   * @param held if not <code>null</code>, runs the first statement of each
+   * wave, and all of them if <code>parallelism</code> is 1
+   */
+  private List<String> apply(List<Ddl> todo, JdbcPostgresConnection held, IResult result) {
+    List<String> ran = new ArrayList<String>();
+    if (todo.isEmpty())
+      return ran;
+    int waves = 0;
+    for (Ddl d : todo)
+      waves = Math.max(waves, d.wave + 1);
+    int threads = held == null ? parallelism : parallelism - 1;
+    ExecutorService executor = parallelism > 1 ? Executors.newFixedThreadPool(threads, r -> {
+      Thread t = new Thread(r, "pg-schema-validator");
+      t.setDaemon(true);
+      return t;
+    }) : null;
+    try {
+      for (int w = 0; w < waves && !result.hasError(); w++) {
+        List<Ddl> wave = new ArrayList<Ddl>();
+        for (Ddl d : todo)
+          if (d.wave == w)
+            wave.add(d);
+        List<IResult> outcomes = new ArrayList<IResult>(wave.size());
+        if (executor == null || wave.size() == 1) {
+          for (Ddl d : wave)
+            outcomes.add(run(d.sql, held, held));
+        } else {
+          int first = held == null ? 0 : 1;
+          List<Future<IResult>> futures = new ArrayList<Future<IResult>>(wave.size());
+          for (final Ddl d : wave.subList(first, wave.size()))
+            futures.add(executor.submit(() -> run(d.sql, null, held)));
+          if (held != null)
+            outcomes.add(run(wave.get(0).sql, held, held));
+          for (Future<IResult> f : futures)
+            outcomes.add(get(f));
+        }
+        for (int i = 0; i < wave.size(); i++) {
+          IResult r = outcomes.get(i);
+          if (r.hasError())
+            result.addErrorString(wave.get(i).sql + ": " + r.getErrorString());
+          else
+            ran.add(wave.get(i).sql);
+        }
+      }
+    } finally {
+      if (executor != null)
+        executor.shutdown();
+    }
+    return ran;
+  }
+
+  /**
+   * @param sql
+   * @param conn to run on, or <code>null</code> to borrow one
+   * @param held as for {@link #validate(String[], JdbcPostgresConnection)}
+   */
+  private IResult run(String sql, JdbcPostgresConnection conn, JdbcPostgresConnection held) {
+    IResult result = new ResultPojo();
+    boolean borrowed = conn == null;
+    try {
+      if (borrowed)
+        conn = borrow(held);
+    } catch (SQLException e) {
+      result.addErrorString(e.getMessage());
+      return result;
+    }
+    try {
+      conn.executeSQL(sql, result);
+      Object o = result.getResultObject();
+      if (o instanceof ResultSet)
+        conn.closeResultSet((ResultSet)o, result);
+    } finally {
+      if (borrowed)
+        conn.closeConnection(new ResultPojo());
+    }
+    return result;
+  }
+
+  /**
+   * @param held if not <code>null</code>, borrow in its role, even the
+   * session user's
+   */
+  private JdbcPostgresConnection borrow(JdbcPostgresConnection held) throws SQLException {
+    if (held != null)
+      return pool.getConnection(held.getCurrentRole());
+    return role == null ? pool.getConnection() : pool.getConnection(role);
+  }
+
+  private static IResult get(Future<IResult> f) {
+    try {
+      return f.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      IResult result = new ResultPojo();
+      result.addErrorString("Interrupted");
+      return result;
+    } catch (ExecutionException e) {
+      IResult result = new ResultPojo();
+      result.addErrorString(e.getCause().toString());
+      return result;
+    }
+  }
+
+  //////////////////////////////
+  // Fingerprints
+  //////////////////////////////
+
+  String fingerprint(String [] tableSchema) {
+    try {
+      MessageDigest md = MessageDigest.getInstance("SHA-256");
+      md.update(databaseKey.getBytes(StandardCharsets.UTF_8));
+      for (String sql : tableSchema) {
+        md.update((byte)0);
+        md.update(sql.getBytes(StandardCharsets.UTF_8));
+      }
+      byte [] digest = md.digest();
+      StringBuilder buf = new StringBuilder(digest.length * 2);
+      for (byte b : digest)
+        buf.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+      return buf.toString();
+    } catch (NoSuchAlgorithmException e) {
+      // every JVM has SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private Set<String> readFingerprints() {
+    Set<String> known = new HashSet<String>();
+    if (fingerprintFile == null || !Files.exists(fingerprintFile))
+      return known;
+    try {
+      for (String line : Files.readAllLines(fingerprintFile, StandardCharsets.UTF_8))
+        if (!line.trim().isEmpty())
+          known.add(line.trim());
+    } catch (IOException e) {
+      // validate rather than fail the start
+      known.clear();
+    }
+    return known;
+  }
+
+  private void writeFingerprints(Set<String> known, IResult result) {
+    try {
+      Path dir = fingerprintFile.toAbsolutePath().getParent();
+      if (dir != null)
+        Files.createDirectories(dir);
+      Path tmp = Files.createTempFile(dir, "schema", ".tmp");
+      Files.write(tmp, known, StandardCharsets.UTF_8);
+      Files.move(tmp, fingerprintFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      result.addErrorString("Schema fingerprint not saved: " + e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2026, TopicQuests
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package org.topicquests.pg.jdbc;
+
+import java.util.Arrays;
+
+/**
+ * A statement which took longer than the slow query threshold.
+ */
+public class SlowQuery {
+  private static final int MAX_PARAMETER_LENGTH = 200;
+  private final String sql;
+  private final String parameters;
+  private final double millis;
+  private final long timestamp;
+  private final boolean error;
+  private volatile String plan;
+
+  SlowQuery(String sql, Object [] vals, double millis, boolean error) {
+    this.sql = sql;
+    this.parameters = vals == null ? "" : render(vals);
+    this.millis = millis;
+    this.error = error;
+    this.timestamp = System.currentTimeMillis();
+  }
+
+  public String getSql() {
+    return sql;
+  }
+
+  /**
+   * @return the bound values, each truncated
+   */
+  public String getParameters() {
+    return parameters;
+  }
+
+  public double getMillis() {
+    return millis;
+  }
+
+  /**
+   * @return when it finished, in epoch milliseconds
+   */
+  public long getTimestamp() {
+    return timestamp;
+  }
+
+  public boolean isError() {
+    return error;
+  }
+
+  /**
+   * @return <code>EXPLAIN</code> output, or <code>null</code>
+   */
+  public String getPlan() {
+    return plan;
+  }
+
+  void setPlan(String plan) {
+    this.plan = plan;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder buf = new StringBuilder();
+    buf.append(String.format("%.1fms", millis)).append(error ? " FAILED " : " ").append(sql);
+    if (!parameters.isEmpty())
+      buf.append(" ").append(parameters);
+    if (plan != null)
+      buf.append('\n').append(plan);
+    return buf.toString();
+  }
+
+  private static String render(Object [] vals) {
+    StringBuilder buf = new StringBuilder("[");
+    for (int i = 0; i < vals.length; i++) {
+      if (i > 0)
+        buf.append(", ");
+      Object v = vals[i];
+      String s = v instanceof Object[] ? Arrays.toString((Object[])v) : String.valueOf(v);
+      if (s.length() > MAX_PARAMETER_LENGTH)
+        s = s.substring(0, MAX_PARAMETER_LENGTH) + "...";
+      buf.append(s);
+    }
+    return buf.append(']').toString();
+  }
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright 2026, TopicQuests
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package org.topicquests.pg.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.postgresql.PGStatement;
+
+/**
+ * <p>LRU cache of <code>PreparedStatement</code>s for one connection,
+ * keyed by SQL text.</p>
+ * <p>A statement is kept once its SQL has been prepared
+ * <code>threshold</code> times, so one-off SQL does not churn the cache.
+ * Reusing the same statement object is also what lets the PostgreSQL
+ * driver switch it to a named server-side statement (after its own
+ * <code>prepareThreshold</code> executions) so the server stops parsing
+ * and planning it. A <code>serverPrepareThreshold</code> above zero is set
+ * on each statement the cache keeps, through
+ * <code>org.postgresql.PGStatement.setPrepareThreshold</code>, so a kept
+ * statement is switched sooner (e.g. <code>1</code>: on its first reuse);
+ * otherwise, and for statements of other drivers, the driver's own
+ * setting applies.</p>
+ * <p>A cached statement whose last <code>ResultSet</code> is still open is
+ * not handed out again; the caller gets a fresh, uncached one instead.
+ * Nor is such a statement closed when it is evicted or invalidated: it is
+ * only detached, so that it is no longer cached and the caller's own
+ * <code>close</code> really closes it.</p>
+ * <p>Not thread safe: it belongs to one connection.</p>
+ */
+public class StatementCache {
+  private final Connection conn;
+  private final int maxSize;
+  private final int threshold;
+  private final int serverPrepareThreshold;
+  private final Stats stats;
+  private final LinkedHashMap<String, PreparedStatement> cache;
+  /** cached statement -&gt; its SQL */
+  private final IdentityHashMap<PreparedStatement, String> cached;
+  /** SQL not yet cached -&gt; times prepared */
+  private final LinkedHashMap<String, int []> uses;
+
+  /**
+   * Counters which may be shared by the caches of many connections
+   */
+  public static class Stats {
+    final LongAdder hits = new LongAdder();
+    final LongAdder misses = new LongAdder();
+    final LongAdder evictions = new LongAdder();
+    final LongAdder invalidations = new LongAdder();
+
+    public long getHitCount() {
+      return hits.sum();
+    }
+
+    public long getMissCount() {
+      return misses.sum();
+    }
+
+    public long getEvictionCount() {
+      return evictions.sum();
+    }
+
+    /**
+     * @return statements dropped on error or schema change
+     */
+    public long getInvalidationCount() {
+      return invalidations.sum();
+    }
+
+    public double getHitRatio() {
+      long h = hits.sum();
+      long n = h + misses.sum();
+      return n == 0 ? 0 : (double)h / n;
+    }
+  }
+
+  /**
+   * @param conn
+   * @param maxSize most statements kept
+   * @param threshold times SQL is prepared before its statement is kept
+   * @param stats can be <code>null</code>
+   */
+  public StatementCache(Connection conn, final int maxSize, int threshold, Stats stats) {
+    this(conn, maxSize, threshold, 0, stats);
+  }
+
+  /**
+   * @param conn
+   * @param maxSize most statements kept
+   * @param threshold times SQL is prepared before its statement is kept
+   * @param serverPrepareThreshold executions before the PostgreSQL driver
+   * makes a kept statement server-side; <code>0</code> for the driver's default
+   * @param stats can be <code>null</code>
+   */
+  public StatementCache(Connection conn, final int maxSize, int threshold,
+                        int serverPrepareThreshold, Stats stats) {
+    this.conn = conn;
+    this.maxSize = maxSize;
+    this.threshold = Math.max(1, threshold);
+    this.serverPrepareThreshold = serverPrepareThreshold;
+    this.stats = stats != null ? stats : new Stats();
+    this.cached = new IdentityHashMap<PreparedStatement, String>();
+    this.cache = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+        if (size() <= StatementCache.this.maxSize)
+          return false;
+        StatementCache.this.stats.evictions.increment();
+        drop(eldest.getValue());
+        return true;
+      }
+    };
+    this.uses = new LinkedHashMap<String, int []>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, int []> eldest) {
+        return size() > 4 * StatementCache.this.maxSize;
+      }
+    };
+  }
+
+  /**
+   * @param sql
+   * @return a statement for <code>sql</code> with no parameters or batch set
+   * @throws SQLException
+   */
+  public PreparedStatement prepare(String sql) throws SQLException {
+    PreparedStatement result = cache.get(sql);
+    if (result != null) {
+      if (!isBusy(result)) {
+        stats.hits.increment();
+        result.clearParameters();
+        result.clearBatch();
+        return result;
+      }
+      stats.misses.increment();
+      return conn.prepareStatement(sql);
+    }
+    stats.misses.increment();
+    result = conn.prepareStatement(sql);
+    int [] n = uses.get(sql);
+    if (n == null)
+      uses.put(sql, n = new int[1]);
+    if (++n[0] >= threshold) {
+      uses.remove(sql);
+      if (serverPrepareThreshold > 0) {
+        try {
+          setServerPrepareThreshold(result, serverPrepareThreshold);
+        } catch (SQLException e) {
+          result.close();
+          throw e;
+        }
+      }
+      cached.put(result, sql);
+      cache.put(sql, result);
+    }
+    return result;
+  }
+
+  /**
+   * @param stmt
+   * @return <code>true</code> if <code>stmt</code> is kept by this cache and
+   * must not be closed by its user
+   */
+  public boolean isCached(PreparedStatement stmt) {
+    return cached.containsKey(stmt);
+  }
+
+  /**
+   * Stop caching <code>stmt</code>, e.g. after it failed. It is not closed:
+   * its user holds it and now closes it as an uncached statement.
+   * @param stmt
+   */
+  public void invalidate(PreparedStatement stmt) {
+    String sql = cached.remove(stmt);
+    if (sql != null) {
+      cache.remove(sql);
+      stats.invalidations.increment();
+    }
+  }
+
+  /**
+   * Drop every statement, e.g. after a schema change
+   */
+  public void invalidateAll() {
+    stats.invalidations.add(cache.size());
+    for (PreparedStatement ps : cache.values())
+      drop(ps);
+    cache.clear();
+    uses.clear();
+  }
+
+  public int size() {
+    return cache.size();
+  }
+
+  public Stats getStats() {
+    return stats;
+  }
+
+  /**
+   * @param sql
+   * @return <code>true</code> if <code>sql</code> may change what cached
+   * statements refer to
+   */
+  public static boolean isSchemaChange(String sql) {
+    int i = 0;
+    int n = sql.length();
+    while (i < n && Character.isWhitespace(sql.charAt(i)))
+      i++;
+    return sql.regionMatches(true, i, "CREATE", 0, 6) ||
+      sql.regionMatches(true, i, "ALTER", 0, 5) ||
+      sql.regionMatches(true, i, "DROP", 0, 4) ||
+      sql.regionMatches(true, i, "SET SEARCH_PATH", 0, 15);
+  }
+
+  /**
+   * Only called when asked for, so the PostgreSQL driver need not be present otherwise
+   */
+  private static void setServerPrepareThreshold(PreparedStatement ps, int n) throws SQLException {
+    if (ps.isWrapperFor(PGStatement.class))
+      ps.unwrap(PGStatement.class).setPrepareThreshold(n);
+  }
+
+  private static boolean isBusy(PreparedStatement ps) {
+    try {
+      ResultSet rs = ps.getResultSet();
+      return rs != null && !rs.isClosed();
+    } catch (SQLException e) {
+      return true;
+    }
+  }
+
+  /**
+   * Forget <code>ps</code>; close it unless a caller is still reading it
+   */
+  private void drop(PreparedStatement ps) {
+    cached.remove(ps);
+    if (isBusy(ps))
+      return;
+    try {
+      ps.close();
+    } catch (SQLException e) {
+      // nothing to recover
+    }
+  }
+}
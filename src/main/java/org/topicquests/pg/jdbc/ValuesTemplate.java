@@ -0,0 +1,134 @@
+/*
+ * Copyright 2026, TopicQuests
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package org.topicquests.pg.jdbc;
+
+/**
+ * <p>An <code>INSERT ... VALUES (?, ...) [tail]</code> split around its
+ * one <code>VALUES</code> group, so it can be repeated for many rows:</p>
+ * <pre>INSERT INTO t (a, b) VALUES (?, ?), (?, ?), (?, ?) ON CONFLICT DO NOTHING</pre>
+ * <p>As pgjdbc does with <code>reWriteBatchedInserts</code>, but
+ * independent of the driver.</p>
+ */
+class ValuesTemplate {
+  private final String head;
+  private final String group;
+  private final String tail;
+  private final String sql;
+  /** last statement built, since chunks mostly repeat their size */
+  private String lastSql;
+  private int lastRows;
+
+  private ValuesTemplate(String head, String group, String tail) {
+    this.head = head;
+    this.group = group;
+    this.tail = tail;
+    this.sql = head + group + tail;
+  }
+
+  /**
+   * @return the single-row statement
+   */
+  String getSql() {
+    return sql;
+  }
+
+  /**
+   * @param sql
+   * @return <code>null</code> unless <code>sql</code> is an INSERT with one
+   * <code>VALUES</code> group holding all of its parameters
+   */
+  static ValuesTemplate parse(String sql) {
+    String trimmed = sql.trim();
+    if (!trimmed.regionMatches(true, 0, "INSERT", 0, 6))
+      return null;
+    int v = findValues(sql);
+    if (v < 0)
+      return null;
+    int open = v + 6;
+    while (open < sql.length() && Character.isWhitespace(sql.charAt(open)))
+      open++;
+    if (open >= sql.length() || sql.charAt(open) != '(')
+      return null;
+    int close = matchParen(sql, open);
+    if (close < 0)
+      return null;
+    String group = sql.substring(open, close + 1);
+    String tail = sql.substring(close + 1);
+    int params = JdbcPostgresConnection.countParameters(group);
+    if (params == 0 || params != JdbcPostgresConnection.countParameters(sql))
+      return null;
+    // a second group means the caller already wrote a multi-row statement
+    if (tail.trim().startsWith(","))
+      return null;
+    return new ValuesTemplate(sql.substring(0, open), group, tail);
+  }
+
+  String toSql(int rows) {
+    if (rows == lastRows && lastSql != null)
+      return lastSql;
+    StringBuilder buf = new StringBuilder(head.length() + tail.length() + rows * (group.length() + 1));
+    buf.append(head);
+    for (int i = 0; i < rows; i++) {
+      if (i > 0)
+        buf.append(',');
+      buf.append(group);
+    }
+    buf.append(tail);
+    lastRows = rows;
+    lastSql = buf.toString();
+    return lastSql;
+  }
+
+  /** index of the VALUES keyword outside quotes and comments, or -1 */
+  private static int findValues(String sql) {
+    int n = sql.length();
+    int i = 0;
+    while (i < n) {
+      int j = JdbcPostgresConnection.skipLiteral(sql, i);
+      if (j > i) {
+        i = j;
+        continue;
+      }
+      char c = sql.charAt(i);
+      if ((c == 'V' || c == 'v') && sql.regionMatches(true, i, "VALUES", 0, 6) &&
+          (i == 0 || !Character.isLetterOrDigit(sql.charAt(i - 1))) &&
+          (i + 6 == n || !Character.isLetterOrDigit(sql.charAt(i + 6))))
+        return i;
+      i++;
+    }
+    return -1;
+  }
+
+  private static int matchParen(String sql, int open) {
+    int depth = 0;
+    int n = sql.length();
+    int i = open;
+    while (i < n) {
+      int j = JdbcPostgresConnection.skipLiteral(sql, i);
+      if (j > i) {
+        i = j;
+        continue;
+      }
+      char c = sql.charAt(i);
+      if (c == '(')
+        depth++;
+      else if (c == ')' && --depth == 0)
+        return i;
+      i++;
+    }
+    return -1;
+  }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2026 TopicQuests Foundation
+ *  This source code is available under the terms of the Affero General Public License v3.
+ *  Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+ */
+package org.topicquests.hyperbrane.persist;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class FrequencySketchTest {
+
+	@Test
+	public void countsUpToFifteen() {
+		FrequencySketch sketch = new FrequencySketch(64);
+		int hash = 0x5bd1e995;
+		assertEquals(0, sketch.frequency(hash));
+		for (int i = 0; i < 5; i++)
+			sketch.increment(hash);
+		assertEquals(5, sketch.frequency(hash));
+		for (int i = 0; i < 20; i++)
+			sketch.increment(hash);
+		assertEquals(15, sketch.frequency(hash));
+	}
+
+	@Test
+	public void agesOldCounts() {
+		FrequencySketch sketch = new FrequencySketch(16);
+		int hot = 0x2545f491;
+		for (int i = 0; i < 15; i++)
+			sketch.increment(hot);
+		// enough other increments to pass the sample size of 160
+		for (int i = 0; i < 200; i++)
+			sketch.increment(i * 0x9E3779B9);
+		assertTrue(sketch.frequency(hot) < 15);
+	}
+}
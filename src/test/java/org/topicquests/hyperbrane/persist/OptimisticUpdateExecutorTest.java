@@ -0,0 +1,188 @@
+/*
+ * Copyright 2026 TopicQuests Foundation
+ *  This source code is available under the terms of the Affero General Public License v3.
+ *  Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+ */
+package org.topicquests.hyperbrane.persist;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.topicquests.hyperbrane.api.IWordGram;
+import org.topicquests.pg.api.IExtendedPostgresConnection;
+import org.topicquests.pg.api.IPostgresConnection;
+import org.topicquests.pg.jdbc.DelegatingPostgresConnection;
+import org.topicquests.pg.jdbc.EmbeddedDatabase;
+import org.topicquests.pg.jdbc.JdbcPostgresConnection;
+import org.topicquests.support.ResultPojo;
+import org.topicquests.support.api.IResult;
+
+public class OptimisticUpdateExecutorTest {
+	private static final AtomicInteger DATABASES = new AtomicInteger();
+	private EmbeddedDatabase db;
+	private JdbcPostgresConnection conn;
+
+	/** reads a gram's version; grams named x... need no row */
+	private final IWordGramProvider provider = new IWordGramProvider() {
+		@Override
+		public IWordGram getWordGram(IPostgresConnection c, String gramId, IResult r) {
+			String version = gramId.startsWith("x") ? "0" : String.valueOf(get(c, gramId, "version"));
+			return (IWordGram)Proxy.newProxyInstance(IWordGram.class.getClassLoader(),
+				new Class<?>[] {IWordGram.class}, (proxy, m, args) -> {
+					if (m.getName().equals("getID"))
+						return gramId;
+					if (m.getName().equals("getVersion"))
+						return version;
+					throw new UnsupportedOperationException(m.getName());
+				});
+		}
+	};
+
+	/** adds a hit if the gram's version is unchanged */
+	private final IVersionedUpdate hit = (c, g, r) -> {
+		IResult u = c.executeUpdate("UPDATE tq_gram SET hits = hits + 1, version = version + 1 " +
+			"WHERE id = ? AND version = ?", g.getID(), Long.parseLong(g.getVersion()));
+		if (u.hasError())
+			r.addErrorString(u.getErrorString());
+		return ((Integer)u.getResultObject()) == 1;
+	};
+
+	@Before
+	public void setUp() throws SQLException {
+		db = new EmbeddedDatabase("optimistic" + DATABASES.incrementAndGet());
+		conn = db.getConnection();
+		ok(conn.validateDatabase(new String[] {
+			"CREATE TABLE IF NOT EXISTS tq_gram (id text PRIMARY KEY, version bigint NOT NULL, hits int NOT NULL)"}));
+		for (String id : new String[] {"a", "b", "c"})
+			ok(conn.executeUpdate("INSERT INTO tq_gram (id, version, hits) VALUES (?, 1, 0)", id));
+	}
+
+	@After
+	public void tearDown() throws SQLException {
+		conn.closeConnection(new ResultPojo());
+		db.close();
+	}
+
+	private static IResult ok(IResult r) {
+		assertFalse(r.getErrorString(), r.hasError());
+		return r;
+	}
+
+	private static long get(IPostgresConnection c, String gramId, String column) {
+		return (Long)ok(c.executeCount("SELECT " + column + " FROM tq_gram WHERE id = '" + gramId + "'")).getResultObject();
+	}
+
+	/** another writer changes the gram's version the first time this runs */
+	private IVersionedUpdate racing(IVersionedUpdate update) {
+		AtomicInteger calls = new AtomicInteger();
+		return (c, g, r) -> {
+			if (calls.getAndIncrement() == 0)
+				ok(c.executeUpdate("UPDATE tq_gram SET version = version + 1 WHERE id = ?", g.getID()));
+			return update.apply(c, g, r);
+		};
+	}
+
+	@Test
+	public void retriesAfterAConflict() {
+		OptimisticUpdateExecutor ex = new OptimisticUpdateExecutor(provider, 3, 0, 0);
+		IResult r = ok(ex.execute(conn, "a", racing(hit)));
+		assertEquals("a", ((IWordGram)r.getResultObject()).getID());
+		assertEquals(1, get(conn, "a", "hits"));
+		assertEquals(3, get(conn, "a", "version"));
+		assertEquals(1, ex.getTotalConflictCount());
+		assertEquals(1, ex.getConflictCount("a"));
+		assertEquals(Arrays.asList("a"), ex.listHotGrams(5));
+	}
+
+	@Test
+	public void givesUpAfterMaxAttempts() {
+		OptimisticUpdateExecutor ex = new OptimisticUpdateExecutor(provider, 2, 0, 0);
+		IResult r = ex.execute(conn, "a", (c, g, res) -> false);
+		assertTrue(r.hasError());
+		assertEquals(2, ex.getTotalConflictCount());
+		assertEquals(1, ex.getExhaustedCount());
+	}
+
+	@Test
+	public void batchRollsBackOnlyTheFailingGram() {
+		OptimisticUpdateExecutor ex = new OptimisticUpdateExecutor(provider, 3, 0, 0);
+		IVersionedUpdate broken = (c, g, r) -> {
+			hit.apply(c, g, r);
+			r.addErrorString("broken");
+			return true;
+		};
+		Map<String, List<IVersionedUpdate>> updates = new LinkedHashMap<String, List<IVersionedUpdate>>();
+		updates.put("a", Collections.singletonList(racing(hit)));
+		updates.put("b", Collections.singletonList(broken));
+		updates.put("c", Collections.singletonList(hit));
+		IResult r = ex.executeBatch(conn, updates);
+		assertTrue(r.hasError());
+		assertEquals(Arrays.asList("b"), r.getResultObject());
+		assertFalse(conn.isInTransaction());
+		assertEquals(1, get(conn, "a", "hits"));
+		assertEquals(0, get(conn, "b", "hits"));
+		assertEquals(1, get(conn, "b", "version"));
+		assertEquals(1, get(conn, "c", "hits"));
+		assertEquals(1, ex.getConflictCount("a"));
+	}
+
+	@Test
+	public void failedCommitIsRolledBack() {
+		// a connection whose commit fails without ending the transaction
+		IPostgresConnection failing = new DelegatingPostgresConnection() {
+			@Override
+			protected IExtendedPostgresConnection delegate() {
+				return conn;
+			}
+
+			@Override
+			protected IExtendedPostgresConnection current() {
+				return conn;
+			}
+
+			@Override
+			public IResult endTransaction(IResult result) {
+				result.addErrorString("commit failed");
+				return result;
+			}
+
+			@Override
+			public void closeConnection(IResult result) {
+			}
+		};
+		OptimisticUpdateExecutor ex = new OptimisticUpdateExecutor(provider, 3, 0, 0);
+		IResult r = ex.executeBatch(failing, Collections.singletonMap("a", Collections.singletonList(hit)));
+		assertTrue(r.hasError());
+		assertEquals(Arrays.asList("a"), r.getResultObject());
+		assertFalse(conn.isInTransaction());
+		assertEquals(0, get(conn, "a", "hits"));
+	}
+
+	@Test
+	public void hotGramsStayBounded() {
+		OptimisticUpdateExecutor ex = new OptimisticUpdateExecutor(provider, 1, 0, 0);
+		for (int round = 0; round < 3; round++)
+			ex.execute(conn, "xhot", (c, g, r) -> false);
+		for (int i = 0; i < OptimisticUpdateExecutor.HOT_GRAMS * 4; i++)
+			ex.execute(conn, "x" + i, (c, g, r) -> false);
+		List<String> hot = ex.listHotGrams(Integer.MAX_VALUE);
+		assertEquals(OptimisticUpdateExecutor.HOT_GRAMS, hot.size());
+		assertEquals("xhot", hot.get(0));
+		ex.resetStats();
+		assertTrue(ex.listHotGrams(5).isEmpty());
+		assertEquals(0, ex.getConflictCount("xhot"));
+	}
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2026 TopicQuests Foundation
+ *  This source code is available under the terms of the Affero General Public License v3.
+ *  Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+ */
+package org.topicquests.hyperbrane.persist;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.topicquests.hyperbrane.api.IWordGram;
+import org.topicquests.support.ResultPojo;
+import org.topicquests.support.api.IResult;
+
+public class RedirectResolverTest {
+	/** gram id to its redirect target */
+	private final Map<String, String> redirects = new HashMap<String, String>();
+	private final AtomicInteger fetches = new AtomicInteger();
+
+	private final IWordGramProvider provider = (conn, gramId, r) -> {
+		fetches.incrementAndGet();
+		if (gramId.equals("broken")) {
+			r.addErrorString("fetch failed");
+			return null;
+		}
+		String target = redirects.get(gramId);
+		return (IWordGram)Proxy.newProxyInstance(IWordGram.class.getClassLoader(),
+			new Class<?>[] {IWordGram.class}, (proxy, m, args) -> {
+				switch (m.getName()) {
+				case "getID":
+					return gramId;
+				case "hasRedirectToId":
+					return target != null;
+				case "getRedirectToId":
+					return target;
+				default:
+					throw new UnsupportedOperationException(m.getName());
+				}
+			});
+	};
+
+	private String resolve(RedirectResolver resolver, String gramId) {
+		IResult r = new ResultPojo();
+		String result = resolver.resolve(null, gramId, r);
+		assertFalse(r.getErrorString(), r.hasError());
+		return result;
+	}
+
+	@Test
+	public void followsAndCompressesChains() {
+		redirects.put("a", "b");
+		redirects.put("b", "c");
+		redirects.put("c", "d");
+		RedirectResolver resolver = new RedirectResolver(provider, 100);
+		assertEquals("d", resolve(resolver, "a"));
+		assertEquals(4, fetches.get());
+		// every gram on the path now resolves without a fetch
+		assertEquals("d", resolve(resolver, "b"));
+		assertEquals("d", resolve(resolver, "c"));
+		assertEquals("d", resolve(resolver, "d"));
+		assertEquals(4, fetches.get());
+		assertEquals(4, resolver.size());
+	}
+
+	@Test
+	public void redirectChangeRetiresShortcuts() {
+		redirects.put("a", "b");
+		redirects.put("b", "c");
+		RedirectResolver resolver = new RedirectResolver(provider, 100);
+		assertEquals("c", resolve(resolver, "a"));
+		resolver.redirectChanged("c", "e");
+		assertEquals("e", resolve(resolver, "a"));
+		resolver.redirectChanged("b", null);
+		assertEquals("b", resolve(resolver, "a"));
+		assertEquals(4, fetches.get());
+	}
+
+	@Test
+	public void reportsCycles() {
+		redirects.put("a", "b");
+		redirects.put("b", "a");
+		IResult r = new ResultPojo();
+		assertNull(new RedirectResolver(provider, 100).resolve(null, "a", r));
+		assertTrue(r.hasError());
+		// a long chain ending in a cycle
+		for (int i = 0; i < 20; i++)
+			redirects.put("g" + i, "g" + (i + 1));
+		redirects.put("g20", "g10");
+		r = new ResultPojo();
+		assertNull(new RedirectResolver(provider, 100).resolve(null, "g0", r));
+		assertTrue(r.hasError());
+	}
+
+	@Test
+	public void reportsFetchErrors() {
+		redirects.put("a", "broken");
+		IResult r = new ResultPojo();
+		assertNull(new RedirectResolver(provider, 100).resolve(null, "a", r));
+		assertTrue(r.hasError());
+	}
+
+	@Test
+	public void clearsWhenFull() {
+		RedirectResolver resolver = new RedirectResolver(provider, 3);
+		for (int i = 0; i < 10; i++)
+			assertEquals("x" + i, resolve(resolver, "x" + i));
+		assertTrue(resolver.size() <= 3);
+	}
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2026 TopicQuests Foundation
+ *  This source code is available under the terms of the Affero General Public License v3.
+ *  Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+ */
+package org.topicquests.hyperbrane.persist;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.topicquests.hyperbrane.api.IWordGram;
+import org.topicquests.pg.jdbc.EmbeddedDatabase;
+import org.topicquests.pg.jdbc.JdbcPostgresConnection;
+import org.topicquests.support.ResultPojo;
+import org.topicquests.support.api.IResult;
+
+import net.minidev.json.JSONObject;
+
+public class TopicLocatorIndexTest {
+	private static final AtomicInteger DATABASES = new AtomicInteger();
+	private static final String SELECT = "SELECT id, json FROM tq_wordgram WHERE id = ANY(?)";
+	private static final String UPDATE = "UPDATE tq_wordgram SET json = ? WHERE id = ?";
+	private EmbeddedDatabase db;
+	private JdbcPostgresConnection conn;
+	private TopicLocatorIndex index;
+
+	/** a gram's json column is just its comma separated locators */
+	private final IWordGramRowMapper mapper = rs -> {
+		String id = rs.getString(1);
+		List<String> locs = new ArrayList<String>(Arrays.asList(rs.getString(2).split(",")));
+		return (IWordGram)Proxy.newProxyInstance(IWordGram.class.getClassLoader(),
+			new Class<?>[] {IWordGram.class}, (proxy, m, args) -> {
+				switch (m.getName()) {
+				case "getID":
+					return id;
+				case "listTopicLocators":
+					return locs;
+				case "substituteTopicLocator":
+					locs.set(locs.indexOf(args[0]), (String)args[1]);
+					return null;
+				case "getJSONObject":
+					return new JSONObject() {
+						@Override
+						public String toJSONString() {
+							return String.join(",", locs);
+						}
+					};
+				default:
+					throw new UnsupportedOperationException(m.getName());
+				}
+			});
+	};
+
+	@Before
+	public void setUp() throws SQLException {
+		db = new EmbeddedDatabase("locators" + DATABASES.incrementAndGet());
+		conn = db.getConnection();
+		ok(conn.validateDatabase(new String[] {
+			"CREATE TABLE IF NOT EXISTS tq_wordgram (id text PRIMARY KEY, json text NOT NULL)"}));
+		ok(conn.executeUpdate("INSERT INTO tq_wordgram (id, json) VALUES ('a', 't1,t2'), ('b', 't1'), ('c', 't3')"));
+		index = new TopicLocatorIndex();
+		index.topicLocatorAdded("a", "t1");
+		index.topicLocatorAdded("a", "t2");
+		index.topicLocatorAdded("b", "t1");
+		index.topicLocatorAdded("c", "t1"); // stale: c no longer carries t1
+		index.topicLocatorAdded("c", "t3");
+	}
+
+	@After
+	public void tearDown() throws SQLException {
+		conn.closeConnection(new ResultPojo());
+		db.close();
+	}
+
+	private static IResult ok(IResult r) {
+		assertFalse(r.getErrorString(), r.hasError());
+		return r;
+	}
+
+	private String json(String id) {
+		IResult r = ok(conn.executeSelect("SELECT json FROM tq_wordgram WHERE id = ?", id));
+		try (ResultSet rs = (ResultSet)r.getResultObject()) {
+			assertTrue(rs.next());
+			return rs.getString(1);
+		} catch (SQLException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	@Test
+	public void substitutesInOneSelectAndOneBatch() {
+		IResult r = ok(index.substituteTopicLocator(conn, "t1", "t9", mapper, SELECT, UPDATE, null));
+		assertEquals(2, r.getResultObject());
+		assertEquals("t9,t2", json("a"));
+		assertEquals("t9", json("b"));
+		assertEquals("t3", json("c"));
+		assertTrue(index.listWordGramIds("t1").isEmpty());
+		assertEquals(new HashSet<String>(Arrays.asList("a", "b")), new HashSet<String>(index.listWordGramIds("t9")));
+		assertEquals(Collections.singletonList("c"), index.listWordGramIds("t3"));
+		assertFalse(conn.isInTransaction());
+	}
+
+	@Test
+	public void failedUpdateChangesNothing() {
+		IResult r = index.substituteTopicLocator(conn, "t1", "t9", mapper, SELECT,
+			"UPDATE tq_wordgram SET nosuch = ? WHERE id = ?", null);
+		assertTrue(r.hasError());
+		assertEquals("t1,t2", json("a"));
+		assertEquals(3, index.getWordGramCount("t1"));
+		assertEquals(0, index.getWordGramCount("t9"));
+		assertFalse(conn.isInTransaction());
+	}
+
+	@Test
+	public void nothingToDo() {
+		IResult r = ok(index.substituteTopicLocator(conn, "t7", "t9", mapper, SELECT, UPDATE, null));
+		assertEquals(0, r.getResultObject());
+	}
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2026 TopicQuests Foundation
+ *  This source code is available under the terms of the Affero General Public License v3.
+ *  Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+ */
+package org.topicquests.hyperbrane.persist;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+public class WordGramBloomFilterTest {
+
+	@Test
+	public void addedGramsAreAlwaysFound() {
+		WordGramBloomFilter filter = new WordGramBloomFilter(1000, 0.01);
+		for (int i = 1; i <= 20000; i++)
+			filter.add(i + "." + (i + 1));
+		for (int i = 1; i <= 20000; i++)
+			assertTrue(filter.mightContain(i + "." + (i + 1)));
+		assertTrue(filter.getApproximateCount() > 15000);
+	}
+
+	@Test
+	public void falsePositivesStayNearTheTarget() {
+		WordGramBloomFilter filter = new WordGramBloomFilter(1000, 0.01);
+		for (int i = 1; i <= 10000; i++)
+			filter.add(i + ".1");
+		int hits = 0;
+		for (int i = 1; i <= 10000; i++)
+			if (filter.mightContain(i + ".2"))
+				hits++;
+		assertTrue("false positives: " + hits, hits < 300);
+	}
+
+	@Test
+	public void numericFormsAgree() {
+		WordGramBloomFilter filter = new WordGramBloomFilter(100, 0.01);
+		filter.add("12.7.3391");
+		assertTrue(filter.mightContain(new long[] {12, 7, 3391}, 0, 3));
+		filter.add(new long[] {0, 5, 6}, 1, 2);
+		assertTrue(filter.mightContain("5.6"));
+		filter.wordGramCreated("not.a.number");
+		assertTrue(filter.mightContain("not.a.number"));
+		assertFalse(filter.mightContain(new long[] {7, 12, 3391}, 0, 3));
+	}
+
+	@Test
+	public void survivesWriteAndRead() throws IOException {
+		WordGramBloomFilter filter = new WordGramBloomFilter(100, 0.01);
+		for (int i = 1; i <= 500; i++)
+			filter.add(i + ".9");
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		filter.writeTo(out);
+		WordGramBloomFilter back = WordGramBloomFilter.readFrom(new ByteArrayInputStream(out.toByteArray()));
+		assertEquals(filter.getBitCount(), back.getBitCount());
+		assertEquals(filter.getApproximateCount(), back.getApproximateCount());
+		for (int i = 1; i <= 500; i++)
+			assertTrue(back.mightContain(i + ".9"));
+	}
+}
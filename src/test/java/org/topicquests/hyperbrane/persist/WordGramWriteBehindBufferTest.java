@@ -0,0 +1,162 @@
+/*
+ * Copyright 2026 TopicQuests Foundation
+ *  This source code is available under the terms of the Affero General Public License v3.
+ *  Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+ */
+package org.topicquests.hyperbrane.persist;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.topicquests.hyperbrane.api.IWordGramFields;
+import org.topicquests.pg.api.IPostgresConnection;
+import org.topicquests.pg.jdbc.EmbeddedDatabase;
+import org.topicquests.pg.jdbc.JdbcPostgresConnection;
+import org.topicquests.support.ResultPojo;
+import org.topicquests.support.api.IResult;
+
+public class WordGramWriteBehindBufferTest {
+	private static final AtomicInteger DATABASES = new AtomicInteger();
+	private EmbeddedDatabase db;
+	private JdbcPostgresConnection conn;
+	private final AtomicInteger writes = new AtomicInteger();
+	private volatile boolean failWrites;
+
+	/** sets the lemma of each gram; fails after writing when asked */
+	private final IWordGramUpdateWriter writer = new IWordGramUpdateWriter() {
+		@Override
+		public void writeUpdates(IPostgresConnection c, List<WordGramUpdate> updates, IResult r) {
+			writes.incrementAndGet();
+			for (WordGramUpdate u : updates) {
+				Object lemma = u.getSets().get(IWordGramFields.LEMMA);
+				if (lemma != null)
+					c.executeUpdate("UPDATE tq_gram SET lemma = ? WHERE id = ?", r, lemma, u.getGramId());
+			}
+			if (failWrites)
+				r.addErrorString("write failed");
+		}
+	};
+
+	@Before
+	public void setUp() throws SQLException {
+		db = new EmbeddedDatabase("writebehind" + DATABASES.incrementAndGet());
+		conn = db.getConnection();
+		ok(conn.validateDatabase(new String[] {
+			"CREATE TABLE IF NOT EXISTS tq_gram (id text PRIMARY KEY, lemma text)"}));
+		for (String id : new String[] {"1", "2", "3", "4"})
+			ok(conn.executeUpdate("INSERT INTO tq_gram (id) VALUES (?)", id));
+	}
+
+	@After
+	public void tearDown() throws SQLException {
+		conn.closeConnection(new ResultPojo());
+		db.close();
+	}
+
+	private static IResult ok(IResult r) {
+		assertFalse(r.getErrorString(), r.hasError());
+		return r;
+	}
+
+	private String lemma(String id) {
+		IResult r = ok(conn.executeSelect("SELECT lemma FROM tq_gram WHERE id = ?", id));
+		try (ResultSet rs = (ResultSet)r.getResultObject()) {
+			assertTrue(rs.next());
+			return rs.getString(1);
+		} catch (SQLException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	@Test
+	public void coalescesMutationsPerGram() {
+		WordGramWriteBehindBuffer buffer = new WordGramWriteBehindBuffer(conn, writer, 100, 10, 1000);
+		buffer.set("1", IWordGramFields.LEMMA, "a");
+		buffer.set("1", IWordGramFields.LEMMA, "b");
+		buffer.set("2", IWordGramFields.LEMMA, "c");
+		assertEquals(2, buffer.getPendingCount());
+		ok(buffer.flush());
+		assertEquals(3, buffer.getMutationCount());
+		assertEquals(2, buffer.getGramsWrittenCount());
+		assertEquals(0, buffer.getPendingCount());
+		assertEquals("b", lemma("1"));
+		assertEquals("c", lemma("2"));
+	}
+
+	@Test
+	public void failedBatchIsRolledBackAndKept() {
+		WordGramWriteBehindBuffer buffer = new WordGramWriteBehindBuffer(conn, writer, 100, 10, 1000);
+		buffer.set("1", IWordGramFields.LEMMA, "a");
+		failWrites = true;
+		assertTrue(buffer.flush().hasError());
+		assertEquals(null, lemma("1"));
+		assertTrue(buffer.hasPending("1"));
+		assertEquals(1, buffer.getFailureCount());
+		// a later change is folded into the kept one
+		buffer.set("1", IWordGramFields.LEMMA, "b");
+		failWrites = false;
+		ok(buffer.flush());
+		assertEquals("b", lemma("1"));
+		assertFalse(buffer.hasPending("1"));
+	}
+
+	@Test
+	public void inFlightUpdatesComeBackOnRollback() throws Exception {
+		WordGramWriteBehindBuffer buffer = new WordGramWriteBehindBuffer(conn, writer, 100, 10, 1000);
+		buffer.set("1", IWordGramFields.LEMMA, "a");
+		ok(conn.beginTransaction());
+		IResult r = new ResultPojo();
+		WordGramWriteBehindBuffer.InFlight f = buffer.flush(conn, r);
+		ok(r);
+		assertEquals(1, f.size());
+		// another flush leaves grams in the caller's transaction alone
+		buffer.set("1", IWordGramFields.LEMMA, "b");
+		ok(buffer.flush());
+		assertTrue(buffer.hasPending("1"));
+		conn.rollback();
+		buffer.rolledBack(f);
+		ok(buffer.flush());
+		assertEquals("b", lemma("1"));
+	}
+
+	@Test
+	public void inlineFlushBacksOffAfterFailure() {
+		WordGramWriteBehindBuffer buffer = new WordGramWriteBehindBuffer(conn, writer, 2, 10, 60000);
+		failWrites = true;
+		for (String id : new String[] {"1", "2", "3", "4"})
+			buffer.set(id, IWordGramFields.LEMMA, "x");
+		assertEquals(1, writes.get());
+		assertEquals(4, buffer.getPendingCount());
+		assertEquals(null, lemma("1"));
+	}
+
+	@Test
+	public void listFieldsKeepOrderAndDuplicates() {
+		WordGramUpdate u = new WordGramUpdate("1");
+		u.add(IWordGramFields.WORD_IDS, "7");
+		u.add(IWordGramFields.WORD_IDS, "3");
+		u.add(IWordGramFields.WORD_IDS, "7");
+		assertEquals(Arrays.asList("7", "3", "7"), u.getAdds().get(IWordGramFields.WORD_IDS));
+		u.remove(IWordGramFields.WORD_IDS, "7");
+		assertEquals(Arrays.asList("7", "3"), u.getAdds().get(IWordGramFields.WORD_IDS));
+		assertEquals(Arrays.asList("7"), u.getRemoves().get(IWordGramFields.WORD_IDS));
+		WordGramUpdate later = new WordGramUpdate("1");
+		later.add(IWordGramFields.WORD_IDS, "7");
+		u.merge(later);
+		Map<String, List<String>> removes = u.getRemoves();
+		assertTrue(removes.get(IWordGramFields.WORD_IDS).isEmpty());
+		assertEquals(Arrays.asList("7", "3", "7"), u.getAdds().get(IWordGramFields.WORD_IDS));
+		assertEquals(5, u.getMutationCount());
+	}
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2026 TopicQuests Foundation
+ *  This source code is available under the terms of the Affero General Public License v3.
+ *  Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+ */
+package org.topicquests.hyperbrane.persist;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.topicquests.hyperbrane.api.ISentence;
+import org.topicquests.hyperbrane.api.IWordGram;
+import org.topicquests.pg.jdbc.EmbeddedDatabase;
+import org.topicquests.pg.jdbc.JdbcPostgresConnection;
+import org.topicquests.support.ResultPojo;
+import org.topicquests.support.api.IResult;
+
+public class WorkingSentenceHydratorTest {
+	private static final AtomicInteger DATABASES = new AtomicInteger();
+	private static final String SELECT = "SELECT id FROM tq_wordgram WHERE id = ANY(?)";
+	private EmbeddedDatabase db;
+	private JdbcPostgresConnection conn;
+	private final AtomicInteger mapped = new AtomicInteger();
+
+	private final IWordGramRowMapper mapper = rs -> {
+		mapped.incrementAndGet();
+		return gram(rs.getString(1));
+	};
+
+	/** a plain map, counting hits */
+	private static final class MapCache implements IWordGramCache {
+		final Map<String, IWordGram> grams = new HashMap<String, IWordGram>();
+		int hits;
+
+		@Override
+		public IWordGram get(String gramId) {
+			IWordGram g = grams.get(gramId);
+			if (g != null)
+				hits++;
+			return g;
+		}
+
+		@Override
+		public void put(IWordGram gram) {
+			grams.put(gram.getID(), gram);
+		}
+
+		@Override
+		public void invalidate(String gramId) {
+			grams.remove(gramId);
+		}
+
+		@Override
+		public void clear() {
+			grams.clear();
+		}
+	}
+
+	private static IWordGram gram(String id) {
+		return (IWordGram)Proxy.newProxyInstance(IWordGram.class.getClassLoader(),
+			new Class<?>[] {IWordGram.class}, (proxy, m, args) -> {
+				if (m.getName().equals("getID"))
+					return id;
+				throw new UnsupportedOperationException(m.getName());
+			});
+	}
+
+	/** a sentence which remembers the working sentence it is given */
+	private static ISentence sentence(String id, List<IWordGram> into, String... gramIds) {
+		return (ISentence)Proxy.newProxyInstance(ISentence.class.getClassLoader(),
+			new Class<?>[] {ISentence.class}, (proxy, m, args) -> {
+				switch (m.getName()) {
+				case "getID":
+					return id;
+				case "getWorkingSentenceIds":
+					return Arrays.asList(gramIds);
+				case "setWorkingSentence":
+					@SuppressWarnings("unchecked")
+					List<IWordGram> ws = (List<IWordGram>)args[0];
+					into.addAll(ws);
+					return null;
+				default:
+					throw new UnsupportedOperationException(m.getName());
+				}
+			});
+	}
+
+	private static List<String> ids(List<IWordGram> grams) {
+		List<String> result = new ArrayList<String>(grams.size());
+		for (IWordGram g : grams)
+			result.add(g.getID());
+		return result;
+	}
+
+	@Before
+	public void setUp() throws SQLException {
+		db = new EmbeddedDatabase("hydrator" + DATABASES.incrementAndGet());
+		conn = db.getConnection();
+		ok(conn.validateDatabase(new String[] {
+			"CREATE TABLE IF NOT EXISTS tq_wordgram (id text PRIMARY KEY)"}));
+		for (String id : new String[] {"1", "2", "3", "4", "5"})
+			ok(conn.executeUpdate("INSERT INTO tq_wordgram (id) VALUES (?)", id));
+	}
+
+	@After
+	public void tearDown() throws SQLException {
+		conn.closeConnection(new ResultPojo());
+		db.close();
+	}
+
+	private static IResult ok(IResult r) {
+		assertFalse(r.getErrorString(), r.hasError());
+		return r;
+	}
+
+	@Test
+	public void fetchesEachGramOnceAcrossSentences() {
+		MapCache cache = new MapCache();
+		cache.put(gram("2"));
+		List<IWordGram> first = new ArrayList<IWordGram>();
+		List<IWordGram> second = new ArrayList<IWordGram>();
+		WorkingSentenceHydrator h = new WorkingSentenceHydrator(cache, mapper, SELECT, 2);
+		IResult r = ok(h.hydrate(conn, Arrays.asList(
+			sentence("s1", first, "1", "2", "3", "1"),
+			sentence("s2", second, "3", "4", "5"))));
+		// 1, 3, 4, 5 fetched in two rounds of two; 2 came from the cache
+		assertEquals(4, r.getResultObject());
+		assertEquals(4, mapped.get());
+		assertEquals(1, cache.hits);
+		assertEquals(Arrays.asList("1", "2", "3", "1"), ids(first));
+		assertEquals(Arrays.asList("3", "4", "5"), ids(second));
+		assertEquals(5, cache.grams.size());
+	}
+
+	@Test
+	public void secondHydrationUsesTheCache() {
+		MapCache cache = new MapCache();
+		WorkingSentenceHydrator h = new WorkingSentenceHydrator(cache, mapper, SELECT, 100);
+		ok(h.hydrate(conn, sentence("s1", new ArrayList<IWordGram>(), "1", "2")));
+		IResult r = ok(h.hydrate(conn, sentence("s1", new ArrayList<IWordGram>(), "1", "2")));
+		assertEquals(0, r.getResultObject());
+		assertEquals(2, mapped.get());
+	}
+
+	@Test
+	public void reportsMissingGrams() {
+		List<IWordGram> ws = new ArrayList<IWordGram>();
+		WorkingSentenceHydrator h = new WorkingSentenceHydrator(null, mapper, SELECT, 100);
+		IResult r = h.hydrate(conn, sentence("s1", ws, "1", "nosuch", "2"));
+		assertTrue(r.hasError());
+		assertTrue(r.getErrorString().contains("nosuch"));
+		assertEquals(Arrays.asList("1", "2"), ids(ws));
+	}
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2026 TopicQuests Foundation
+ *  This source code is available under the terms of the Affero General Public License v3.
+ *  Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+ */
+package org.topicquests.hyperbrane.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.topicquests.hyperbrane.api.ILexTypes;
+
+public class LexTypeSetTest {
+
+	@Test
+	public void knownAndOtherCodes() {
+		LexTypeSet set = new LexTypeSet();
+		assertTrue(set.isEmpty());
+		assertTrue(set.add(ILexTypes.VERB));
+		assertFalse(set.add(ILexTypes.VERB));
+		assertTrue(set.add("custom"));
+		assertFalse(set.add("custom"));
+		assertTrue(set.contains(ILexTypes.VERB));
+		assertTrue(set.contains("custom"));
+		assertFalse(set.contains(ILexTypes.NOUN));
+		assertEquals(2, set.size());
+		assertTrue(set.remove("custom"));
+		assertTrue(set.remove(ILexTypes.VERB));
+		assertTrue(set.isEmpty());
+	}
+
+	@Test
+	public void likeMatchesWithinAFamily() {
+		LexTypeSet set = LexTypeSet.fromList(Arrays.asList(ILexTypes.INFERRED_VERB));
+		assertTrue(set.containsLike(ILexTypes.VERB));
+		assertFalse(set.contains(ILexTypes.VERB));
+		assertFalse(set.containsLike(ILexTypes.NOUN));
+		assertTrue(set.containsAny(LexTypeSet.VERBS));
+		assertFalse(set.containsAny(LexTypeSet.NOUNS));
+	}
+
+	@Test
+	public void listsKnownTypesThenOthers() {
+		LexTypeSet set = LexTypeSet.fromList(Arrays.asList("zz", ILexTypes.VERB, ILexTypes.NOUN));
+		assertEquals(Arrays.asList(ILexTypes.NOUN, ILexTypes.VERB, "zz"), set.asList());
+		set.clear();
+		assertTrue(set.asList().isEmpty());
+	}
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2026 TopicQuests Foundation
+ *  This source code is available under the terms of the Affero General Public License v3.
+ *  Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+ */
+package org.topicquests.hyperbrane.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class SentenceGramGeneratorTest {
+	private static final long [] SENTENCE = {0, 11, 12, 13, 14, 0};
+
+	@Test
+	public void emitsEveryGramInSentenceOrder() {
+		SentenceGramGenerator gen = new SentenceGramGenerator();
+		GramBuffer grams = new GramBuffer();
+		int n = gen.generate(SENTENCE, 1, 4, grams);
+		assertEquals(10, n);
+		assertEquals(gen.countGrams(4), n);
+		List<String> ids = new ArrayList<String>();
+		for (int i = 0; i < grams.size(); i++)
+			ids.add(grams.getId(i));
+		List<String> expected = new ArrayList<String>();
+		String [] e = {"11", "11.12", "11.12.13", "11.12.13.14", "12", "12.13", "12.13.14", "13", "13.14", "14"};
+		for (String s : e)
+			expected.add(s);
+		assertEquals(expected, ids);
+	}
+
+	@Test
+	public void respectsSizeLimits() {
+		SentenceGramGenerator gen = new SentenceGramGenerator(2, 3);
+		GramBuffer grams = new GramBuffer();
+		gen.generate(SENTENCE, 1, 4, grams);
+		assertEquals(5, grams.size());
+		for (int i = 0; i < grams.size(); i++) {
+			int size = grams.getGramSize(i);
+			assertEquals(true, size >= 2 && size <= 3);
+		}
+		long [] longSentence = new long[20];
+		for (int i = 0; i < longSentence.length; i++)
+			longSentence[i] = i + 1;
+		assertEquals(new SentenceGramGenerator().countGrams(20),
+			new SentenceGramGenerator().generate(longSentence, 0, 20, new GramBuffer()));
+	}
+
+	@Test
+	public void bufferIsReusedAcrossSentences() {
+		SentenceGramGenerator gen = new SentenceGramGenerator();
+		GramBuffer grams = new GramBuffer(2);
+		gen.generate(SENTENCE, 1, 4, grams);
+		gen.generate(new long[] {7, 8}, 0, 2, grams);
+		assertEquals(3, grams.size());
+		assertEquals("7.8", grams.getId(1));
+		assertEquals(8, grams.getWordId(1, 1));
+	}
+
+	@Test
+	public void visitorCanStopEarly() {
+		final int [] seen = {0};
+		int n = new SentenceGramGenerator().generate(SENTENCE, 1, 4, new IGramVisitor() {
+			@Override
+			public boolean visit(long [] words, int start, int size) {
+				return ++seen[0] < 3;
+			}
+		});
+		assertEquals(3, n);
+		assertEquals(3, seen[0]);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsBadSizes() {
+		new SentenceGramGenerator(3, 2);
+	}
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2026 TopicQuests Foundation
+ *  This source code is available under the terms of the Affero General Public License v3.
+ *  Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+ */
+package org.topicquests.hyperbrane.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class SentencePostingListTest {
+
+	@Test
+	public void addContainsRemove() {
+		SentencePostingList list = new SentencePostingList();
+		assertTrue(list.isEmpty());
+		assertTrue(list.add(42));
+		assertFalse(list.add(42));
+		assertTrue(list.add("70000"));
+		assertTrue(list.contains(42));
+		assertTrue(list.contains("70000"));
+		assertFalse(list.contains(43));
+		assertEquals(2, list.size());
+		assertTrue(list.remove(42));
+		assertFalse(list.remove(42));
+		assertEquals(1, list.size());
+	}
+
+	@Test
+	public void denseContainerKeepsEveryId() {
+		SentencePostingList list = new SentencePostingList();
+		int n = SentencePostingList.ARRAY_MAX * 2;
+		for (int i = 0; i < n; i++)
+			list.add(i * 3);
+		assertEquals(n, list.size());
+		for (int i = 0; i < n; i++) {
+			assertTrue(list.contains(i * 3));
+			assertFalse(list.contains(i * 3 + 1));
+		}
+		for (int i = 0; i < n; i += 2)
+			list.remove(i * 3);
+		assertEquals(n / 2, list.size());
+		assertFalse(list.contains(0));
+		assertTrue(list.contains(3));
+	}
+
+	@Test
+	public void iteratesInOrder() {
+		SentencePostingList list = new SentencePostingList();
+		int [] ids = {900000, 5, 65536, 65535, 12};
+		for (int id : ids)
+			list.add(id);
+		List<Integer> seen = new ArrayList<Integer>();
+		list.forEachId(seen::add);
+		assertEquals(Arrays.asList(5, 12, 65535, 65536, 900000), seen);
+		assertEquals(Arrays.asList("5", "12", "65535", "65536", "900000"), new ArrayList<String>(list.asStringList()));
+	}
+
+	@Test
+	public void unionAndIntersection() {
+		SentencePostingList a = SentencePostingList.fromStrings(Arrays.asList("1", "2", "3", "100000"));
+		SentencePostingList b = SentencePostingList.fromStrings(Arrays.asList("2", "3", "4", "200000"));
+		SentencePostingList u = SentencePostingList.union(a, b);
+		SentencePostingList i = SentencePostingList.intersection(a, b);
+		assertEquals(6, u.size());
+		assertEquals(2, i.size());
+		assertTrue(i.contains(2) && i.contains(3));
+		assertEquals(2, SentencePostingList.intersectionSize(a, b));
+	}
+
+	@Test
+	public void bytesRoundTrip() {
+		SentencePostingList list = new SentencePostingList();
+		for (int i = 0; i < SentencePostingList.ARRAY_MAX + 10; i++)
+			list.add(i);
+		list.add(1 << 20);
+		list.add(1 << 24);
+		SentencePostingList back = SentencePostingList.fromBase64(list.toBase64());
+		assertEquals(list.size(), back.size());
+		assertArrayEquals(list.toBytes(), back.toBytes());
+		assertTrue(back.contains(1 << 24));
+		assertTrue(back.contains(SentencePostingList.ARRAY_MAX));
+	}
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2026 TopicQuests Foundation
+ *  This source code is available under the terms of the Affero General Public License v3.
+ *  Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+ */
+package org.topicquests.hyperbrane.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+import org.topicquests.hyperbrane.api.IWordDictionary;
+
+public class WordDictionaryTest {
+
+	@Test
+	public void assignsStableIds() {
+		ConcurrentWordDictionary dict = new ConcurrentWordDictionary();
+		long the = dict.addWord("the");
+		long cat = dict.addWord("cat");
+		assertTrue(the != IWordDictionary.NO_WORD && the != cat);
+		assertEquals(the, dict.addWord("the"));
+		assertEquals(the, dict.getWordId("the"));
+		assertEquals(IWordDictionary.NO_WORD, dict.getWordId("dog"));
+		assertEquals("cat", dict.getWord(cat));
+		assertNull(dict.getWord(cat + 100));
+		assertEquals(2, dict.size());
+	}
+
+	@Test
+	public void concurrentAddsAgree() throws Exception {
+		final ConcurrentWordDictionary dict = new ConcurrentWordDictionary();
+		ExecutorService pool = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<long []>> futures = new ArrayList<Future<long []>>();
+			for (int t = 0; t < 4; t++)
+				futures.add(pool.submit(new Callable<long []>() {
+					@Override
+					public long [] call() {
+						long [] ids = new long[5000];
+						for (int i = 0; i < ids.length; i++)
+							ids[i] = dict.addWord("w" + i);
+						return ids;
+					}
+				}));
+			long [] first = futures.get(0).get();
+			for (Future<long []> f : futures) {
+				long [] ids = f.get();
+				for (int i = 0; i < ids.length; i++)
+					assertEquals(first[i], ids[i]);
+			}
+			Set<Long> distinct = new HashSet<Long>();
+			for (long id : first)
+				distinct.add(id);
+			assertEquals(5000, distinct.size());
+			assertEquals(5000, dict.size());
+			assertEquals(5000, dict.getMaxWordId());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void frozenDictionaryMapsBackFromDisk() throws IOException {
+		ConcurrentWordDictionary dict = new ConcurrentWordDictionary();
+		String [] words = {"zebra", "apple", "\u00e9t\u00e9", "mango"};
+		for (String w : words)
+			dict.addWord(w);
+		Path file = Files.createTempFile("words", ".dict");
+		try {
+			dict.freeze().write(file);
+			FrozenWordDictionary frozen = FrozenWordDictionary.map(file);
+			assertEquals(words.length, frozen.size());
+			for (String w : words) {
+				assertEquals(dict.getWordId(w), frozen.getWordId(w));
+				assertEquals(w, frozen.getWord(frozen.getWordId(w)));
+			}
+			assertEquals(IWordDictionary.NO_WORD, frozen.getWordId("pear"));
+			// new words go on from the frozen ids
+			ConcurrentWordDictionary next = new ConcurrentWordDictionary(frozen);
+			assertEquals(dict.getWordId("apple"), next.addWord("apple"));
+			assertEquals(frozen.getMaxWordId() + 1, next.addWord("pear"));
+			assertEquals("pear", next.getWord(frozen.getMaxWordId() + 1));
+		} finally {
+			Files.delete(file);
+		}
+	}
+}
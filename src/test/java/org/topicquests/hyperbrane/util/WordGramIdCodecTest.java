@@ -0,0 +1,84 @@
+/*
+ * Copyright 2026 TopicQuests Foundation
+ *  This source code is available under the terms of the Affero General Public License v3.
+ *  Please see LICENSE.txt for full license terms, including the availability of proprietary exceptions.
+ */
+package org.topicquests.hyperbrane.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class WordGramIdCodecTest {
+
+	@Test
+	public void parseAndFormatRoundTrip() {
+		long [] words = new long[WordGramIdCodec.MAX_GRAM_SIZE];
+		int len = WordGramIdCodec.parse("12.7.3391", words, 0);
+		assertEquals(3, len);
+		assertArrayEquals(new long[] {12, 7, 3391}, Arrays.copyOf(words, len));
+		assertEquals("12.7.3391", WordGramIdCodec.toString(words, 0, len));
+	}
+
+	@Test
+	public void packRoundTripsEverySize() {
+		long [] words = new long[WordGramIdCodec.MAX_GRAM_SIZE];
+		long [] back = new long[WordGramIdCodec.MAX_GRAM_SIZE];
+		for (int size = 1; size <= WordGramIdCodec.MAX_GRAM_SIZE; size++) {
+			for (int i = 0; i < size; i++)
+				words[i] = i + 1;
+			long packed = WordGramIdCodec.pack(words, 0, size);
+			assertTrue(packed != WordGramIdCodec.NOT_PACKABLE);
+			assertEquals(size, WordGramIdCodec.packedSize(packed));
+			assertEquals(size, WordGramIdCodec.unpack(packed, back, 0));
+			assertArrayEquals(Arrays.copyOf(words, size), Arrays.copyOf(back, size));
+			assertEquals(WordGramIdCodec.toString(words, 0, size), WordGramIdCodec.toString(packed));
+		}
+	}
+
+	@Test
+	public void largeOrZeroWordsDoNotPack() {
+		assertFalse(WordGramIdCodec.isPackable(new long[] {1, 0}, 0, 2));
+		assertFalse(WordGramIdCodec.isPackable(new long[] {1, 1L << 30}, 0, 2));
+		assertTrue(WordGramIdCodec.isPackable(new long[] {1, (1L << 30) - 1}, 0, 2));
+		assertEquals(WordGramIdCodec.NOT_PACKABLE, WordGramIdCodec.parsePacked("1.2.3.4.5.6.7.200"));
+		assertEquals(WordGramIdCodec.NOT_PACKABLE, WordGramIdCodec.pack(new long[9], 0, 9));
+	}
+
+	@Test
+	public void hashIgnoresOffset() {
+		long [] a = {12, 7, 3391};
+		long [] b = {99, 12, 7, 3391, 5};
+		assertEquals(WordGramIdCodec.hash64(a, 0, 3), WordGramIdCodec.hash64(b, 1, 3));
+		assertTrue(WordGramIdCodec.hash64(a, 0, 3) != WordGramIdCodec.hash64(a, 0, 2));
+	}
+
+	@Test
+	public void compareOrdersWordByWordThenByLength() {
+		long [] a = {1, 2};
+		long [] b = {1, 2, 3};
+		long [] c = {1, 3};
+		assertTrue(WordGramIdCodec.compare(a, 0, 2, b, 0, 3) < 0);
+		assertTrue(WordGramIdCodec.compare(b, 0, 3, c, 0, 2) < 0);
+		assertEquals(0, WordGramIdCodec.compare(a, 0, 2, b, 0, 2));
+	}
+
+	@Test
+	public void parseRejectsMalformedIds() {
+		long [] words = new long[WordGramIdCodec.MAX_GRAM_SIZE];
+		String [] bad = {"", ".", "1.", ".1", "1..2", "1.a", "1.2.3.4.5.6.7.8.9", "99999999999999999999"};
+		for (String id : bad) {
+			try {
+				WordGramIdCodec.parse(id, words, 0);
+				throw new AssertionError("accepted " + id);
+			} catch (IllegalArgumentException e) {
+				// expected
+			}
+		}
+	}
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2026, TopicQuests
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package org.topicquests.pg.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.topicquests.support.ResultPojo;
+import org.topicquests.support.api.IResult;
+
+/**
+ * {@link AsyncPostgresConnection} over a pool on an {@link EmbeddedDatabase}
+ */
+public class AsyncPostgresConnectionTest {
+  private static final AtomicInteger DATABASES = new AtomicInteger();
+  private EmbeddedDatabase db;
+  private PostgresConnectionPool pool;
+  private AsyncPostgresConnection async;
+
+  @Before
+  public void setUp() throws SQLException {
+    db = new EmbeddedDatabase("async" + DATABASES.incrementAndGet());
+    JdbcPostgresConnection conn = db.getConnection();
+    ok(conn.validateDatabase(new String[] {"CREATE TABLE IF NOT EXISTS tq_item (id bigint PRIMARY KEY)"}));
+    conn.closeConnection(new ResultPojo());
+    pool = db.newPool(2);
+    async = new AsyncPostgresConnection(pool, null, 0);
+  }
+
+  @After
+  public void tearDown() throws SQLException {
+    async.close();
+    pool.close();
+    db.close();
+  }
+
+  private static IResult ok(IResult r) {
+    assertFalse(r.getErrorString(), r.hasError());
+    return r;
+  }
+
+  private static IResult get(CompletableFuture<IResult> f) throws Exception {
+    return ok(f.get(10, TimeUnit.SECONDS));
+  }
+
+  /** a future completes just before its connection goes back */
+  private int activeAfterCalls() throws InterruptedException {
+    for (int i = 0; i < 100 && pool.getActiveCount() > 0; i++)
+      Thread.sleep(10);
+    return pool.getActiveCount();
+  }
+
+  @Test
+  public void runsCallsOnPooledConnections() throws Exception {
+    for (long i = 1; i <= 3; i++)
+      assertEquals(1, get(async.executeUpdate("INSERT INTO tq_item (id) VALUES (?)", i)).getResultObject());
+    assertEquals(3L, get(async.executeCount("SELECT COUNT(*) FROM tq_item")).getResultObject());
+    IResult r = get(async.executeSelect("SELECT id FROM tq_item WHERE id > ? ORDER BY id", rs -> rs.getLong(1), 1L));
+    assertEquals(Arrays.asList(2L, 3L), r.getResultObject());
+    assertEquals(0, activeAfterCalls());
+  }
+
+  @Test
+  public void ownThreadsAreNamedDaemons() throws Exception {
+    IResult r = get(async.execute(c -> {
+      IResult x = new ResultPojo();
+      x.setResultObject(Thread.currentThread());
+      return x;
+    }));
+    Thread t = (Thread)r.getResultObject();
+    assertTrue(t.getName(), t.getName().startsWith("pg-async-"));
+    assertTrue(t.isDaemon());
+  }
+
+  @Test
+  public void anyThrowableCompletesTheFuture() throws Exception {
+    Error boom = new AssertionError("boom");
+    CompletableFuture<IResult> f = async.execute(c -> {
+      throw boom;
+    });
+    try {
+      f.get(10, TimeUnit.SECONDS);
+      fail();
+    } catch (ExecutionException e) {
+      assertSame(boom, e.getCause());
+    }
+    // the connection went back
+    assertEquals(1L, get(async.executeCount("SELECT 1")).getResultObject());
+    assertEquals(0, activeAfterCalls());
+  }
+
+  @Test
+  public void slowCallsTimeOut() throws Exception {
+    CompletableFuture<IResult> f = async.execute(null, 50, c -> {
+      try {
+        Thread.sleep(2000);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return new ResultPojo();
+    });
+    try {
+      f.get(10, TimeUnit.SECONDS);
+      fail();
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof TimeoutException);
+    }
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2026, TopicQuests
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package org.topicquests.pg.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.topicquests.support.ResultPojo;
+import org.topicquests.support.api.IResult;
+
+/**
+ * {@link BulkLoader} with {@link BatchRowSink} on an {@link EmbeddedDatabase}
+ */
+public class BulkLoaderTest {
+  private static final AtomicInteger DATABASES = new AtomicInteger();
+  private static final String [] COLUMNS = {"id", "name"};
+  private static final List<String> PRE = Collections.singletonList("DROP INDEX IF EXISTS tq_item_name");
+  private static final List<String> POST =
+    Collections.singletonList("CREATE INDEX IF NOT EXISTS tq_item_name ON tq_item (name)");
+  private EmbeddedDatabase db;
+  private JdbcPostgresConnection conn;
+
+  @Before
+  public void setUp() throws SQLException {
+    db = new EmbeddedDatabase("bulk" + DATABASES.incrementAndGet());
+    conn = db.getConnection();
+    ok(conn.validateDatabase(new String[] {
+      "CREATE TABLE IF NOT EXISTS tq_item (id bigint PRIMARY KEY, name text NOT NULL)",
+      "CREATE INDEX IF NOT EXISTS tq_item_name ON tq_item (name)",
+      "CREATE TABLE IF NOT EXISTS tq_other (id bigint PRIMARY KEY, name text)"}));
+  }
+
+  @After
+  public void tearDown() throws SQLException {
+    conn.closeConnection(new ResultPojo());
+    db.close();
+  }
+
+  private static IResult ok(IResult r) {
+    assertFalse(r.getErrorString(), r.hasError());
+    return r;
+  }
+
+  private long count(String sql) {
+    return (Long)ok(conn.executeCount(sql)).getResultObject();
+  }
+
+  private boolean hasIndex() {
+    return count("SELECT COUNT(*) FROM information_schema.indexes WHERE index_name = 'tq_item_name'") > 0;
+  }
+
+  @Test
+  public void loadsTablesInParallel() throws SQLException {
+    BulkLoader loader = new BulkLoader(db, BatchRowSink.factory(7), 16);
+    loader.addTable("tq_item", COLUMNS, PRE, POST);
+    loader.addTable("tq_other", COLUMNS, null, null);
+    assertEquals(Arrays.asList("tq_item", "tq_other"), loader.listTables());
+    loader.start();
+    for (long i = 1; i <= 100; i++) {
+      loader.add("tq_item", new Object[] {i, "item" + i});
+      if (i % 2 == 0)
+        loader.add("tq_other", new Object[] {i, null});
+    }
+    IResult r = ok(loader.finish());
+    @SuppressWarnings("unchecked")
+    Map<String, Long> counts = (Map<String, Long>)r.getResultObject();
+    assertEquals(100L, (long)counts.get("tq_item"));
+    assertEquals(50L, (long)counts.get("tq_other"));
+    assertEquals(100, count("SELECT COUNT(*) FROM tq_item"));
+    assertEquals(50, count("SELECT COUNT(*) FROM tq_other"));
+    assertTrue(hasIndex());
+  }
+
+  @Test
+  public void failedLoadIsRolledBackAndRestored() throws SQLException {
+    BulkLoader loader = new BulkLoader(db, BatchRowSink.factory(7), 16);
+    loader.addTable("tq_item", COLUMNS, PRE, POST);
+    loader.start();
+    try {
+      for (long i = 1; i <= 100; i++)
+        loader.add("tq_item", new Object[] {i, i == 50 ? null : "item" + i});
+    } catch (SQLException e) {
+      // the load has failed; finish reports it
+    }
+    IResult r = loader.finish();
+    assertTrue(r.hasError());
+    assertEquals(0, count("SELECT COUNT(*) FROM tq_item"));
+    assertTrue(hasIndex());
+  }
+
+  @Test(expected = SQLException.class)
+  public void rejectsRowsOfTheWrongWidth() throws SQLException {
+    BulkLoader loader = new BulkLoader(db, BatchRowSink.factory(7), 16);
+    loader.addTable("tq_item", COLUMNS, null, null);
+    try {
+      loader.add("tq_item", new Object[] {1L});
+    } finally {
+      loader.abort();
+    }
+  }
+}
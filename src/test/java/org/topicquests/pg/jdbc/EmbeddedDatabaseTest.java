@@ -0,0 +1,344 @@
+/*
+ * Copyright 2026, TopicQuests
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package org.topicquests.pg.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.topicquests.pg.api.IRowVisitor;
+import org.topicquests.support.ResultPojo;
+import org.topicquests.support.api.IResult;
+
+/**
+ * Runs PostgreSQL flavoured SQL through {@link JdbcPostgresConnection} and
+ * {@link PostgresConnectionPool} against an in-memory H2 database
+ */
+public class EmbeddedDatabaseTest {
+  private static final AtomicInteger DATABASES = new AtomicInteger();
+  private static final String [] SCHEMA = {
+    "CREATE TABLE IF NOT EXISTS tq_item (id bigint PRIMARY KEY, name text NOT NULL, tags text[], " +
+      "data jsonb, body bytea, created timestamptz)",
+    "CREATE INDEX IF NOT EXISTS tq_item_name ON tq_item USING BTREE (name)",
+    "CREATE INDEX IF NOT EXISTS tq_item_data ON tq_item USING GIN (data)",
+    "GRANT ALL PRIVILEGES ON tq_item TO tq_proxy"};
+  private static final String INSERT = "INSERT INTO tq_item (id, name) VALUES (?, ?)";
+  private EmbeddedDatabase db;
+  private JdbcPostgresConnection conn;
+
+  @Before
+  public void setUp() throws SQLException {
+    db = new EmbeddedDatabase("test" + DATABASES.incrementAndGet());
+    conn = db.getConnection();
+    ok(conn.validateDatabase(SCHEMA));
+  }
+
+  @After
+  public void tearDown() throws SQLException {
+    conn.closeConnection(new ResultPojo());
+    db.close();
+  }
+
+  private static IResult ok(IResult r) {
+    assertFalse(r.getErrorString(), r.hasError());
+    return r;
+  }
+
+  private long count() {
+    return (Long)ok(conn.executeCount("SELECT COUNT(*) FROM tq_item")).getResultObject();
+  }
+
+  private static List<Object[]> rows(int n) {
+    List<Object[]> result = new ArrayList<Object[]>(n);
+    for (long i = 1; i <= n; i++)
+      result.add(new Object[] {i, "item" + i});
+    return result;
+  }
+
+  @Test
+  public void translatesPostgresDdl() {
+    assertEquals(EmbeddedDatabase.NOOP, EmbeddedDatabase.translate(SCHEMA[2]));
+    assertEquals(EmbeddedDatabase.NOOP, EmbeddedDatabase.translate(SCHEMA[3]));
+    assertEquals(EmbeddedDatabase.NOOP, EmbeddedDatabase.translate("CREATE EXTENSION IF NOT EXISTS pg_trgm"));
+    assertEquals("CREATE TABLE t (a CLOB, b VARCHAR ARRAY, c VARBINARY, d TIMESTAMP WITH TIME ZONE)",
+        EmbeddedDatabase.translate("CREATE TABLE t (a jsonb, b text[], c bytea, d timestamptz)"));
+    assertEquals("CREATE INDEX i ON t (a)", EmbeddedDatabase.translate("CREATE INDEX i ON t USING BTREE (a)"));
+    assertEquals("SELECT text FROM t", EmbeddedDatabase.translate("SELECT text FROM t"));
+    assertEquals("EXPLAIN SELECT 1", EmbeddedDatabase.translate("EXPLAIN (COSTS OFF) SELECT 1"));
+    assertEquals(EmbeddedDatabase.NOOP, EmbeddedDatabase.translate("ALTER TABLE tq_item OWNER TO tq_admin"));
+    assertEquals(EmbeddedDatabase.NOOP,
+        EmbeddedDatabase.translate("ALTER TABLE IF EXISTS ONLY tq_item OWNER TO tq_admin"));
+  }
+
+  @Test
+  public void dmlMentioningOwnerToRuns() {
+    String sql = "INSERT INTO tq_item (id, name) VALUES (1, 'passed from owner to owner using hash')";
+    assertEquals(sql, EmbeddedDatabase.translate(sql));
+    ok(conn.executeSQL(sql));
+    ok(conn.executeUpdate("UPDATE tq_item SET name = 'grant owner to tq_proxy' WHERE id = 1"));
+    assertEquals(1L, ok(conn.executeCount(
+        "SELECT COUNT(*) FROM tq_item WHERE name = 'grant owner to tq_proxy'")).getResultObject());
+  }
+
+  @Test
+  public void validateDatabaseCanRunAgain() {
+    ok(conn.validateDatabase(SCHEMA));
+    assertEquals(0, count());
+  }
+
+  @Test
+  public void commitKeepsAndRollbackUndoes() {
+    ok(conn.beginTransaction());
+    ok(conn.executeUpdate(INSERT, 1L, "kept"));
+    ok(conn.endTransaction());
+    assertFalse(conn.isInTransaction());
+    ok(conn.beginTransaction());
+    ok(conn.executeUpdate(INSERT, 2L, "undone"));
+    ok(conn.rollback());
+    assertFalse(conn.isInTransaction());
+    assertEquals(1, count());
+  }
+
+  @Test
+  public void failedCommitEndsTheTransaction() throws SQLException {
+    Connection real = db.newConnection();
+    Connection failing = (Connection)Proxy.newProxyInstance(Connection.class.getClassLoader(),
+        new Class<?>[] {Connection.class}, (proxy, m, args) -> {
+          if (m.getName().equals("commit"))
+            throw new SQLException("commit failed");
+          try {
+            return m.invoke(real, args);
+          } catch (InvocationTargetException e) {
+            throw e.getCause();
+          }
+        });
+    JdbcPostgresConnection c = new JdbcPostgresConnection(failing, PostgresRoles.NONE);
+    try {
+      ok(c.beginTransaction());
+      ok(c.executeUpdate(INSERT, 1L, "lost"));
+      assertTrue(c.endTransaction().hasError());
+      assertFalse(c.isInTransaction());
+      assertTrue(real.getAutoCommit());
+      // rolled back, and the connection is usable again
+      assertEquals(0L, ok(c.executeCount("SELECT COUNT(*) FROM tq_item")).getResultObject());
+      ok(c.executeUpdate(INSERT, 2L, "kept"));
+      assertEquals(1, count());
+    } finally {
+      c.closeConnection(new ResultPojo());
+    }
+  }
+
+  @Test
+  public void savepointUndoesPartOfATransaction() throws SQLException {
+    ok(conn.beginTransaction());
+    ok(conn.executeUpdate(INSERT, 1L, "kept"));
+    IResult svpt = ok(conn.setSavepoint());
+    assertNotNull(svpt.getResultObject());
+    ok(conn.executeUpdate(INSERT, 2L, "undone"));
+    ok(conn.rollback(svpt));
+    ok(conn.executeUpdate(INSERT, 3L, "kept too"));
+    ok(conn.endTransaction());
+    assertEquals(2, count());
+    IResult r = ok(conn.executeSelect("SELECT name FROM tq_item WHERE id = ?", 2L));
+    ResultSet rs = (ResultSet)r.getResultObject();
+    assertFalse(rs.next());
+    conn.closeResultSet(rs, r);
+  }
+
+  @Test
+  public void batchWithoutRewrite() {
+    IResult r = ok(conn.executeBatch(INSERT, rows(10), 4, false, new ResultPojo()));
+    assertEquals(10, ((Number)r.getResultObject()).intValue());
+    assertEquals(10, count());
+  }
+
+  @Test
+  public void batchRewrittenAsMultiRowValues() {
+    IResult r = ok(conn.executeBatch(INSERT, rows(10), 4, true, new ResultPojo()));
+    assertEquals(10, ((Number)r.getResultObject()).intValue());
+    assertEquals(10, count());
+  }
+
+  @Test
+  public void pipelinedStatementsAllTakeEffect() {
+    IResult r = ok(conn.executeMultiSQLPipelined(new String[] {
+      "INSERT INTO tq_item (id, name) VALUES (1, 'a')",
+      "INSERT INTO tq_item (id, name) VALUES (2, 'b')",
+      "UPDATE tq_item SET name = 'c'"}, new ResultPojo()));
+    assertTrue(Arrays.equals(new int[] {1, 1, 2}, (int[])r.getResultObject()));
+    assertFalse(conn.isInTransaction());
+    assertEquals(2, count());
+  }
+
+  @Test
+  public void pipelinedFailureUndoesTheWholeBatch() {
+    IResult r = conn.executeMultiSQLPipelined(Arrays.asList(
+      "INSERT INTO tq_item (id, name) VALUES (1, 'a')",
+      "INSERT INTO tq_item (id, name) VALUES (1, 'again')",
+      "INSERT INTO tq_item (id, name) VALUES (3, 'c')"), new ResultPojo());
+    assertTrue(r.hasError());
+    assertFalse(conn.isInTransaction());
+    assertEquals(0, count());
+  }
+
+  @Test
+  public void pipelinedFailureKeepsTheCallersTransaction() {
+    ok(conn.beginTransaction());
+    ok(conn.executeUpdate(INSERT, 1L, "kept"));
+    IResult r = conn.executeMultiSQLPipelined(new String[] {
+      "INSERT INTO tq_item (id, name) VALUES (2, 'undone')",
+      "INSERT INTO tq_item (id, name) VALUES (1, 'clash')"}, new ResultPojo());
+    assertTrue(r.hasError());
+    assertTrue(conn.isInTransaction());
+    ok(conn.executeUpdate(INSERT, 3L, "kept too"));
+    ok(conn.endTransaction());
+    assertEquals(2, count());
+  }
+
+  @Test
+  public void visitorSeesEveryRow() {
+    ok(conn.executeBatch(INSERT, rows(5), 5, true, new ResultPojo()));
+    final List<String> names = new ArrayList<String>();
+    final long [] sum = new long[1];
+    IRowVisitor visitor = new IRowVisitor() {
+      @Override
+      public void longColumn(int column, long value, boolean isNull) {
+        sum[0] += value;
+      }
+
+      @Override
+      public void doubleColumn(int column, double value, boolean isNull) {
+      }
+
+      @Override
+      public void booleanColumn(int column, boolean value, boolean isNull) {
+      }
+
+      @Override
+      public void stringColumn(int column, String value) {
+        names.add(value);
+      }
+
+      @Override
+      public void bytesColumn(int column, byte [] value) {
+      }
+
+      @Override
+      public void objectColumn(int column, Object value) {
+      }
+
+      @Override
+      public boolean endRow() {
+        return true;
+      }
+    };
+    IResult r = ok(conn.executeSelect("SELECT id, name FROM tq_item WHERE id > ? ORDER BY id",
+        visitor, new ResultPojo(), 2L));
+    assertEquals(3L, r.getResultObject());
+    assertEquals(Arrays.asList("item3", "item4", "item5"), names);
+    assertEquals(12, sum[0]);
+  }
+
+  @Test
+  public void poolReusesConnectionsAndStatements() throws SQLException {
+    PostgresConnectionPool pool = db.newPool(2);
+    try {
+      for (long i = 1; i <= 3; i++) {
+        JdbcPostgresConnection c = pool.getConnection((String)null);
+        ok(c.executeUpdate(INSERT, i, "pooled"));
+        IResult r = new ResultPojo();
+        c.closeConnection(r);
+        ok(r);
+      }
+      assertEquals(1, pool.getCreatedCount());
+      assertEquals(3, pool.getBorrowCount());
+      assertEquals(2, pool.getRoleHitCount());
+      assertEquals(1, pool.getIdleCount());
+      assertEquals(1, pool.getStatementCacheStats().getHitCount());
+      assertEquals(3, count());
+    } finally {
+      pool.close();
+    }
+  }
+
+  @Test
+  public void roleHitsCountOnlyWhenARoleIsWanted() throws SQLException {
+    PostgresConnectionPool pool = db.newPool(1);
+    try {
+      for (int i = 0; i < 2; i++)
+        pool.getConnection().closeConnection(new ResultPojo());
+      assertEquals(0, pool.getRoleHitCount());
+      pool.getConnection((String)null).closeConnection(new ResultPojo());
+      assertEquals(1, pool.getRoleHitCount());
+    } finally {
+      pool.close();
+    }
+  }
+
+  @Test
+  public void schemaChangeDropsCachedStatements() throws SQLException {
+    PostgresConnectionPool pool = db.newPool(1);
+    try {
+      JdbcPostgresConnection c = pool.getConnection();
+      ok(c.executeUpdate(INSERT, 1L, "a"));
+      ok(c.executeUpdate(INSERT, 2L, "b"));
+      StatementCache.Stats stats = pool.getStatementCacheStats();
+      assertEquals(0, stats.getInvalidationCount());
+      ok(c.executeSQL("ALTER TABLE tq_item ADD COLUMN extra integer"));
+      assertTrue(stats.getInvalidationCount() > 0);
+      ok(c.executeUpdate("INSERT INTO tq_item (id, name, extra) VALUES (?, ?, ?)", 3L, "c", 7));
+      c.closeConnection(new ResultPojo());
+    } finally {
+      pool.close();
+    }
+    assertEquals(3, count());
+  }
+
+  @Test
+  public void selectsRecordTheRowsRead() throws SQLException {
+    ok(conn.executeBatch(INSERT, new ResultPojo(), 1L, "a", 2L, "b", 3L, "c"));
+    QueryMetrics metrics = new QueryMetrics(1000, 10, 100, false);
+    conn.setQueryMetrics(metrics);
+    ResultSet rs = (ResultSet)ok(conn.executeSelect("SELECT id FROM tq_item WHERE id > ?",
+        new ResultPojo(), 0L)).getResultObject();
+    assertTrue(metrics.snapshot().isEmpty());
+    while (rs.next())
+      ;
+    conn.closeResultSet(rs, new ResultPojo());
+    rs = (ResultSet)ok(conn.executeSelect("SELECT id FROM tq_item WHERE id > ?",
+        new ResultPojo(), 1L)).getResultObject();
+    rs.next();
+    conn.closeResultSet(rs, new ResultPojo());
+    List<QueryMetrics.Template> snapshot = metrics.snapshot();
+    assertEquals(1, snapshot.size());
+    assertEquals(2, snapshot.get(0).getCount());
+    assertEquals(4, snapshot.get(0).getRowCount());
+  }
+}
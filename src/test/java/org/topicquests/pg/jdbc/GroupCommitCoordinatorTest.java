@@ -0,0 +1,122 @@
+/*
+ * Copyright 2026, TopicQuests
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package org.topicquests.pg.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.topicquests.support.ResultPojo;
+import org.topicquests.support.api.IResult;
+
+public class GroupCommitCoordinatorTest {
+  private static final AtomicInteger DATABASES = new AtomicInteger();
+  private static final String [] SCHEMA = {
+    "CREATE TABLE IF NOT EXISTS tq_item (id bigint PRIMARY KEY, name text NOT NULL)"};
+  private static final String INSERT = "INSERT INTO tq_item (id, name) VALUES (?, ?)";
+  private EmbeddedDatabase db;
+  private PostgresConnectionPool pool;
+  private GroupCommitCoordinator coordinator;
+
+  @Before
+  public void setUp() throws SQLException {
+    db = new EmbeddedDatabase("group" + DATABASES.incrementAndGet());
+    pool = db.newPool(2);
+    JdbcPostgresConnection conn = pool.getConnection();
+    ok(conn.validateDatabase(SCHEMA));
+    conn.closeConnection(new ResultPojo());
+    // one committer and a long window, so everything submitted at once shares a group
+    coordinator = new GroupCommitCoordinator(pool, null, 500, 4, 1);
+  }
+
+  @After
+  public void tearDown() throws SQLException {
+    coordinator.close();
+    pool.close();
+    db.close();
+  }
+
+  private static IResult ok(IResult r) {
+    assertFalse(r.getErrorString(), r.hasError());
+    return r;
+  }
+
+  private long count(String where) throws SQLException {
+    JdbcPostgresConnection conn = pool.getConnection();
+    try {
+      return (Long)ok(conn.executeCount("SELECT COUNT(*) FROM tq_item WHERE " + where)).getResultObject();
+    } finally {
+      conn.closeConnection(new ResultPojo());
+    }
+  }
+
+  @Test
+  public void failuresRollBackOnlyTheirOwnWork() throws Exception {
+    CompletableFuture<IResult> kept = coordinator.submit(c -> c.executeUpdate(INSERT, new ResultPojo(), 1L, "kept"));
+    CompletableFuture<IResult> erred = coordinator.submit(c -> {
+      IResult r = c.executeUpdate(INSERT, new ResultPojo(), 2L, "erred");
+      r.addErrorString("rejected");
+      return r;
+    });
+    CompletableFuture<IResult> thrown = coordinator.submit(c -> {
+      c.executeUpdate(INSERT, new ResultPojo(), 3L, "thrown");
+      throw new AssertionError("boom");
+    });
+    CompletableFuture<IResult> partial = coordinator.submit(c -> {
+      c.executeUpdate(INSERT, new ResultPojo(), 4L, "partial");
+      IResult svpt = c.setSavepoint("part");
+      c.executeUpdate(INSERT, new ResultPojo(), 5L, "undone");
+      return c.rollback(svpt);
+    });
+    ok(kept.get());
+    assertTrue(erred.get().hasError());
+    try {
+      thrown.get();
+      fail("an Error thrown by the work should fail its future");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof AssertionError);
+    }
+    ok(partial.get());
+    assertEquals(1, coordinator.getGroupCount());
+    assertEquals(2, coordinator.getFailedCount());
+    assertEquals(2, count("TRUE"));
+    assertEquals(1, count("id = 1"));
+    assertEquals(1, count("id = 4"));
+  }
+
+  @Test
+  public void keepsCommittingAfterAnError() throws SQLException {
+    try {
+      coordinator.submit(c -> {
+        throw new StackOverflowError();
+      }).get();
+      fail();
+    } catch (InterruptedException | ExecutionException e) {
+      // expected
+    }
+    ok(coordinator.execute(c -> c.executeUpdate(INSERT, new ResultPojo(), 1L, "after")));
+    assertEquals(1, count("TRUE"));
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2026, TopicQuests
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package org.topicquests.pg.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class QueryMetricsTest {
+  private static final long FAST = TimeUnit.MILLISECONDS.toNanos(1);
+  private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(500);
+
+  @Test
+  public void normalizeReplacesLiterals() {
+    assertEquals("SELECT * FROM t1 WHERE a = ? AND b = ? AND c = ?",
+        QueryMetrics.normalize("SELECT *\n  FROM t1 WHERE a = 'x''y' AND b = 42 AND c = 3.5  "));
+    assertEquals(QueryMetrics.normalize("DELETE FROM t WHERE id = 1"),
+        QueryMetrics.normalize("DELETE FROM t WHERE id = 2"));
+  }
+
+  @Test
+  public void onlyPlainSelectsAreSafeToExplain() {
+    assertTrue(QueryMetrics.isSelect("  select * from t"));
+    assertFalse(QueryMetrics.isSelect("SELECT * FROM t FOR UPDATE"));
+    assertFalse(QueryMetrics.isSelect("SELECT nextval('s')"));
+    assertFalse(QueryMetrics.isSelect("UPDATE t SET a = 1"));
+  }
+
+  @Test
+  public void groupsStatementsByTemplate() {
+    QueryMetrics m = new QueryMetrics(100, 10, 100, false);
+    m.record("UPDATE t SET a = 1 WHERE id = 1", null, FAST, 1, false);
+    m.record("UPDATE t SET a = 2 WHERE id = 2", null, FAST, 1, false);
+    m.record("SELECT 1", null, FAST, -1, true);
+    List<QueryMetrics.Template> snapshot = m.snapshot();
+    assertEquals(2, snapshot.size());
+    QueryMetrics.Template update = null;
+    for (QueryMetrics.Template t : snapshot)
+      if (t.getSql().startsWith("UPDATE"))
+        update = t;
+    assertNotNull(update);
+    assertEquals(2, update.getCount());
+    assertEquals(2, update.getRowCount());
+    assertEquals(0, update.getErrorCount());
+  }
+
+  @Test
+  public void extraTemplatesShareOne() {
+    QueryMetrics m = new QueryMetrics(100, 10, 2, false);
+    m.record("SELECT a FROM t", null, FAST, -1, false);
+    m.record("SELECT b FROM t", null, FAST, -1, false);
+    m.record("SELECT c FROM t", null, FAST, -1, false);
+    m.record("SELECT d FROM t", null, FAST, -1, false);
+    long other = 0;
+    for (QueryMetrics.Template t : m.snapshot())
+      if (QueryMetrics.OTHER.equals(t.getSql()))
+        other = t.getCount();
+    assertEquals(2, other);
+  }
+
+  @Test
+  public void keepsRecentSlowQueries() {
+    QueryMetrics m = new QueryMetrics(100, 2, 100, false);
+    assertNull(m.record("SELECT 1", null, FAST, -1, false));
+    assertNotNull(m.record("SELECT 2", new Object[] {"x"}, SLOW, -1, false));
+    m.record("SELECT 3", null, SLOW, -1, false);
+    m.record("SELECT 4", null, SLOW, -1, true);
+    List<SlowQuery> slow = m.listSlowQueries();
+    assertEquals(2, slow.size());
+    assertTrue(slow.get(1).isError());
+  }
+
+  @Test
+  public void explainsEachSlowSelectAtMostOnceAMinute() {
+    QueryMetrics m = new QueryMetrics(100, 10, 100, true);
+    assertTrue(m.shouldExplain("SELECT * FROM t WHERE a = 1"));
+    assertFalse(m.shouldExplain("SELECT * FROM t WHERE a = 2"));
+    assertFalse(m.shouldExplain("UPDATE t SET a = 1"));
+    assertFalse(new QueryMetrics(100, 10, 100, false).shouldExplain("SELECT 1"));
+  }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2026, TopicQuests
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package org.topicquests.pg.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.topicquests.support.ResultPojo;
+import org.topicquests.support.api.IResult;
+
+/**
+ * Routes a {@link RoutingPostgresConnection} between two
+ * {@link EmbeddedDatabase}s standing in for a primary and its replica.
+ * Nothing replicates between them, so which one a read went to is plain
+ * from its answer.
+ */
+public class ReplicaRouterTest {
+  private static final AtomicInteger DATABASES = new AtomicInteger();
+  private static final String [] SCHEMA = {
+    "CREATE TABLE IF NOT EXISTS tq_item (id bigint PRIMARY KEY, name text NOT NULL)"};
+  private static final String COUNT = "SELECT COUNT(*) FROM tq_item";
+  private EmbeddedDatabase primaryDb;
+  private EmbeddedDatabase replicaDb;
+  private ReplicaRouter router;
+
+  @Before
+  public void setUp() throws SQLException {
+    int n = DATABASES.incrementAndGet();
+    primaryDb = new EmbeddedDatabase("primary" + n);
+    replicaDb = new EmbeddedDatabase("replica" + n);
+    for (EmbeddedDatabase db : new EmbeddedDatabase[] {primaryDb, replicaDb}) {
+      JdbcPostgresConnection conn = db.getConnection();
+      ok(conn.validateDatabase(SCHEMA));
+      conn.closeConnection(new ResultPojo());
+    }
+  }
+
+  @After
+  public void tearDown() throws SQLException {
+    if (router != null)
+      router.close();
+    primaryDb.close();
+    replicaDb.close();
+  }
+
+  private static IResult ok(IResult r) {
+    assertFalse(r.getErrorString(), r.hasError());
+    return r;
+  }
+
+  private ReplicaRouter newRouter(long pinMillis) {
+    router = new ReplicaRouter(primaryDb.newPool(2), Arrays.asList(replicaDb.newPool(2)), 1000, pinMillis);
+    return router;
+  }
+
+  private static long count(RoutingPostgresConnection conn) {
+    return (Long)ok(conn.executeCount(COUNT)).getResultObject();
+  }
+
+  private static void insert(RoutingPostgresConnection conn, long id) {
+    ok(conn.executeUpdate("INSERT INTO tq_item (id, name) VALUES (?, ?)", new ResultPojo(), id, "x"));
+  }
+
+  @Test
+  public void readsGoToTheReplica() {
+    RoutingPostgresConnection conn = newRouter(Long.MAX_VALUE).getConnection();
+    ok(conn.setProxyRORole(new ResultPojo()));
+    assertTrue(conn.isOnReplica());
+    assertEquals(0, count(conn));
+    ok(conn.setProxyRole(new ResultPojo()));
+    assertFalse(conn.isOnReplica());
+    conn.closeConnection(new ResultPojo());
+    assertEquals(1, router.getReplicaRouteCount());
+  }
+
+  @Test
+  public void aWritePinsReadsToThePrimary() {
+    RoutingPostgresConnection conn = newRouter(Long.MAX_VALUE).getConnection();
+    ok(conn.setProxyRole(new ResultPojo()));
+    insert(conn, 1);
+    assertTrue(conn.isPinned());
+    ok(conn.setProxyRORole(new ResultPojo()));
+    assertFalse(conn.isOnReplica());
+    assertEquals(1, count(conn));
+    conn.closeConnection(new ResultPojo());
+    ok(conn.setProxyRORole(new ResultPojo()));
+    assertFalse("the pin outlives the borrowed connection", conn.isOnReplica());
+    conn.unpin();
+    ok(conn.setProxyRORole(new ResultPojo()));
+    assertTrue(conn.isOnReplica());
+    assertEquals(0, count(conn));
+    conn.closeConnection(new ResultPojo());
+    assertEquals(0, router.getFallbackCount());
+  }
+
+  @Test
+  public void aWriteInATransactionPinsOnlyOnceCommitted() {
+    RoutingPostgresConnection conn = newRouter(Long.MAX_VALUE).getConnection();
+    ok(conn.setProxyRole(new ResultPojo()));
+    ok(conn.beginTransaction(new ResultPojo()));
+    insert(conn, 1);
+    assertFalse(conn.isPinned());
+    ok(conn.rollback(new ResultPojo()));
+    assertFalse(conn.isPinned());
+    ok(conn.beginTransaction(new ResultPojo()));
+    insert(conn, 2);
+    ok(conn.endTransaction(new ResultPojo()));
+    assertTrue(conn.isPinned());
+    conn.closeConnection(new ResultPojo());
+  }
+
+  @Test
+  public void thePinExpires() throws InterruptedException {
+    RoutingPostgresConnection conn = newRouter(20).getConnection();
+    ok(conn.setProxyRole(new ResultPojo()));
+    insert(conn, 1);
+    ok(conn.setProxyRORole(new ResultPojo()));
+    assertFalse(conn.isOnReplica());
+    Thread.sleep(50);
+    ok(conn.setProxyRORole(new ResultPojo()));
+    assertTrue(conn.isOnReplica());
+    assertEquals(0, count(conn));
+    conn.closeConnection(new ResultPojo());
+  }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2026, TopicQuests
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package org.topicquests.pg.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+public class ResultPoolTest {
+
+  @Test
+  public void reusesReleasedResults() {
+    ResultPool pool = new ResultPool(4);
+    PooledResult r = pool.acquire();
+    r.setResultObject("x");
+    r.addErrorString("first");
+    r.addErrorString("second");
+    assertEquals("first\nsecond", r.getErrorString());
+    r.release();
+    PooledResult again = pool.acquire();
+    assertSame(r, again);
+    assertNull(again.getResultObject());
+    assertFalse(again.hasError());
+    assertEquals("", again.getErrorString());
+    assertEquals(1, pool.getCreatedCount());
+    assertEquals(1, pool.getReusedCount());
+  }
+
+  @Test
+  public void secondReleaseIsIgnored() {
+    ResultPool pool = new ResultPool(4);
+    PooledResult r = pool.acquire();
+    r.release();
+    r.release();
+    PooledResult a = pool.acquire();
+    PooledResult b = pool.acquire();
+    assertNotSame(a, b);
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2026, TopicQuests
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package org.topicquests.pg.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.topicquests.pg.api.IResultCursor;
+import org.topicquests.support.ResultPojo;
+import org.topicquests.support.api.IResult;
+
+/**
+ * Cursor selects through {@link JdbcPostgresConnection} on an {@link EmbeddedDatabase}
+ */
+public class RowCursorTest {
+  private static final AtomicInteger DATABASES = new AtomicInteger();
+  private static final String SELECT = "SELECT id FROM tq_item WHERE id > ? ORDER BY id";
+  private EmbeddedDatabase db;
+  private JdbcPostgresConnection conn;
+
+  @Before
+  public void setUp() throws SQLException {
+    db = new EmbeddedDatabase("cursor" + DATABASES.incrementAndGet());
+    conn = db.getConnection();
+    ok(conn.validateDatabase(new String[] {"CREATE TABLE IF NOT EXISTS tq_item (id bigint PRIMARY KEY)"}));
+    for (long i = 1; i <= 10; i++)
+      ok(conn.executeUpdate("INSERT INTO tq_item (id) VALUES (?)", i));
+  }
+
+  @After
+  public void tearDown() throws SQLException {
+    conn.closeConnection(new ResultPojo());
+    db.close();
+  }
+
+  private static IResult ok(IResult r) {
+    assertFalse(r.getErrorString(), r.hasError());
+    return r;
+  }
+
+  @SuppressWarnings("unchecked")
+  private IResultCursor<Long> cursor(long after) {
+    return (IResultCursor<Long>)ok(conn.openCursor(SELECT, 3, rs -> rs.getLong(1), after)).getResultObject();
+  }
+
+  @Test
+  public void readsEveryRowAndEndsItsTransaction() {
+    IResultCursor<Long> c = cursor(0);
+    assertTrue(conn.isInTransaction());
+    List<Long> ids = new ArrayList<Long>();
+    while (c.hasNext())
+      ids.add(c.next());
+    assertEquals(10, ids.size());
+    assertEquals(Long.valueOf(10), ids.get(9));
+    assertEquals(10, c.getRowCount());
+    assertFalse(c.hasError());
+    // reading past the end closed it
+    assertFalse(conn.isInTransaction());
+  }
+
+  @Test
+  public void streamClosesOnClose() {
+    List<Long> ids;
+    try (Stream<Long> s = cursor(5).stream()) {
+      ids = s.limit(2).collect(Collectors.toList());
+    }
+    assertEquals(Arrays.asList(6L, 7L), ids);
+    assertFalse(conn.isInTransaction());
+  }
+
+  @Test
+  public void leavesTheCallersTransactionOpen() {
+    ok(conn.beginTransaction());
+    IResultCursor<Long> c = cursor(8);
+    while (c.hasNext())
+      c.next();
+    c.close();
+    assertTrue(conn.isInTransaction());
+    ok(conn.endTransaction());
+  }
+
+  @Test
+  public void mapperErrorsRollBack() {
+    @SuppressWarnings("unchecked")
+    IResultCursor<String> c = (IResultCursor<String>)ok(conn.openCursor(SELECT, 3, rs -> rs.getString(7), 0L))
+      .getResultObject();
+    assertFalse(c.hasNext());
+    assertTrue(c.hasError());
+    assertFalse(conn.isInTransaction());
+  }
+
+  @Test
+  public void streamStopsWhenTheHandlerSays() {
+    List<Long> seen = new ArrayList<Long>();
+    IResult r = ok(conn.executeStream(SELECT, 4, rs -> {
+      seen.add(rs.getLong(1));
+      return seen.size() < 5;
+    }, 0L));
+    assertEquals(5L, r.getResultObject());
+    assertEquals(Arrays.asList(1L, 2L, 3L, 4L, 5L), seen);
+    assertFalse(conn.isInTransaction());
+  }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2026, TopicQuests
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package org.topicquests.pg.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.topicquests.support.ResultPojo;
+import org.topicquests.support.api.IResult;
+
+public class SchemaValidatorTest {
+  private static final AtomicInteger DATABASES = new AtomicInteger();
+  private static final String [] SCHEMA = {
+    "CREATE TABLE IF NOT EXISTS tq_a (id bigint PRIMARY KEY, name text)",
+    "CREATE TABLE IF NOT EXISTS tq_b (id bigint PRIMARY KEY, a bigint REFERENCES tq_a (id))",
+    "CREATE TABLE IF NOT EXISTS tq_c (id bigint PRIMARY KEY)",
+    "CREATE INDEX IF NOT EXISTS tq_a_name ON tq_a (name)",
+    "CREATE INDEX IF NOT EXISTS tq_b_a ON tq_b (a)"};
+
+  private static Map<String, Integer> waves(String [] schema, SchemaValidator.Catalog catalog) {
+    Map<String, Integer> result = new HashMap<String, Integer>();
+    for (SchemaValidator.Ddl d : SchemaValidator.plan(schema, catalog))
+      result.put(d.sql, d.wave);
+    return result;
+  }
+
+  @Test
+  public void independentStatementsShareAWave() {
+    String [] schema = {
+      "CREATE TABLE a (id bigint)",
+      "CREATE TABLE b (id bigint)",
+      "CREATE INDEX a_id ON a (id)",
+      "CREATE INDEX b_id ON b (id)"};
+    Map<String, Integer> w = waves(schema, new SchemaValidator.Catalog());
+    assertEquals(0, (int)w.get(schema[0]));
+    assertEquals(0, (int)w.get(schema[1]));
+    assertEquals(1, (int)w.get(schema[2]));
+    assertEquals(1, (int)w.get(schema[3]));
+  }
+
+  @Test
+  public void statementsWaitForWhatTheyName() {
+    String [] schema = {
+      "CREATE SEQUENCE s.ids",
+      "CREATE TABLE s.base (id bigint DEFAULT nextval('s.ids'))",
+      "CREATE TABLE child (x int) INHERITS (s.base)",
+      "CREATE TABLE copy (LIKE base)",
+      "CREATE TABLE other (y int REFERENCES s.base (id))",
+      "CREATE VIEW v AS SELECT * FROM child JOIN other ON true",
+      "ALTER TABLE other ADD COLUMN z int",
+      "CREATE INDEX other_z ON other (z)"};
+    Map<String, Integer> w = waves(schema, new SchemaValidator.Catalog());
+    assertTrue(w.get(schema[1]) > w.get(schema[0]));
+    assertTrue(w.get(schema[2]) > w.get(schema[1]));
+    assertTrue(w.get(schema[3]) > w.get(schema[1]));
+    assertTrue(w.get(schema[4]) > w.get(schema[1]));
+    assertTrue(w.get(schema[5]) > w.get(schema[2]));
+    assertTrue(w.get(schema[5]) > w.get(schema[4]));
+    assertTrue(w.get(schema[6]) > w.get(schema[4]));
+    assertTrue(w.get(schema[7]) > w.get(schema[6]));
+  }
+
+  @Test
+  public void unknownStatementsKeepTheirPlace() {
+    String [] schema = {
+      "CREATE TABLE a (id bigint)",
+      "GRANT ALL ON a TO someone",
+      "CREATE TABLE b (id bigint)"};
+    Map<String, Integer> w = waves(schema, new SchemaValidator.Catalog());
+    assertEquals(0, (int)w.get(schema[0]));
+    assertEquals(1, (int)w.get(schema[1]));
+    assertEquals(2, (int)w.get(schema[2]));
+  }
+
+  @Test
+  public void skipsWhatTheCatalogHas() {
+    SchemaValidator.Catalog catalog = new SchemaValidator.Catalog();
+    catalog.relations.add("a");
+    catalog.relations.add("public.a");
+    catalog.columns.add("a.id");
+    catalog.schemas.add("s");
+    String [] schema = {
+      "CREATE TABLE IF NOT EXISTS a (id bigint)",
+      "ALTER TABLE a ADD COLUMN IF NOT EXISTS id bigint",
+      "ALTER TABLE a ADD COLUMN name text",
+      "CREATE SCHEMA IF NOT EXISTS s",
+      "CREATE INDEX a_name ON a (name)"};
+    List<SchemaValidator.Ddl> todo = SchemaValidator.plan(schema, catalog);
+    assertEquals(2, todo.size());
+    assertEquals(schema[2], todo.get(0).sql);
+    assertEquals(0, todo.get(0).wave);
+    assertEquals(1, todo.get(1).wave);
+  }
+
+  @Test
+  public void foldsNamesLikeTheServer() {
+    assertEquals("public.mytable", SchemaValidator.name("Public . MyTable"));
+    assertEquals("public.MyTable", SchemaValidator.name("public.\"MyTable\""));
+    assertFalse(SchemaValidator.name("\"A.B\"").contains("\""));
+  }
+
+  /**
+   * Validate {@link #SCHEMA} through a connection borrowed from a pool of
+   * <code>poolSize</code>, then check every table is there
+   */
+  private static IResult validatePooled(int poolSize) throws SQLException {
+    EmbeddedDatabase db = new EmbeddedDatabase("schema" + DATABASES.incrementAndGet());
+    PostgresConnectionPool pool = db.newPool(poolSize);
+    try {
+      JdbcPostgresConnection conn = pool.getConnection();
+      IResult result = conn.validateDatabase(SCHEMA);
+      assertFalse(result.getErrorString(), result.hasError());
+      for (String table : new String[] {"tq_a", "tq_b", "tq_c"})
+        assertFalse(conn.executeCount("SELECT COUNT(*) FROM " + table).hasError());
+      conn.closeConnection(new ResultPojo());
+      assertEquals(0, pool.getActiveCount());
+      return result;
+    } finally {
+      pool.close();
+      db.close();
+    }
+  }
+
+  @Test
+  public void pooledValidationRunsInParallel() throws SQLException {
+    IResult result = validatePooled(4);
+    assertEquals(SCHEMA.length, (int)(Integer)result.getResultObject());
+  }
+
+  @Test
+  public void pooledValidationWorksOnAPoolOfOne() throws SQLException {
+    IResult result = validatePooled(1);
+    assertEquals(SCHEMA.length, (int)(Integer)result.getResultObject());
+  }
+
+  @Test
+  public void pooledValidationStopsAtAnError() throws SQLException {
+    EmbeddedDatabase db = new EmbeddedDatabase("schema" + DATABASES.incrementAndGet());
+    PostgresConnectionPool pool = db.newPool(2);
+    try {
+      JdbcPostgresConnection conn = pool.getConnection();
+      IResult result = conn.validateDatabase(new String[] {
+        "CREATE TABLE tq_a (id bigint PRIMARY KEY)",
+        "CREATE TABLE tq_b (id bigint REFERENCES tq_missing (id))",
+        "CREATE INDEX tq_b_id ON tq_b (id)"});
+      assertTrue(result.hasError());
+      assertEquals(1, ((List<?>)result.getResultObjectA()).size());
+      conn.closeConnection(new ResultPojo());
+    } finally {
+      pool.close();
+      db.close();
+    }
+  }
+}
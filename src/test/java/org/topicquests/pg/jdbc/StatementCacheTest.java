@@ -0,0 +1,115 @@
+/*
+ * Copyright 2026, TopicQuests
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package org.topicquests.pg.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+import org.postgresql.PGStatement;
+
+public class StatementCacheTest {
+
+  /** What a fake statement was told */
+  private static final class Calls {
+    boolean closed;
+    int serverThreshold;
+  }
+
+  private final Map<PreparedStatement, Calls> calls = new HashMap<PreparedStatement, Calls>();
+
+  /** a connection whose statements look like the PostgreSQL driver's */
+  private Connection connection() {
+    return (Connection)Proxy.newProxyInstance(getClass().getClassLoader(),
+        new Class<?>[] {Connection.class}, (proxy, m, args) -> {
+          if (!m.getName().equals("prepareStatement"))
+            throw new UnsupportedOperationException(m.getName());
+          Calls c = new Calls();
+          PreparedStatement ps = (PreparedStatement)Proxy.newProxyInstance(getClass().getClassLoader(),
+              new Class<?>[] {PreparedStatement.class, PGStatement.class}, (p, sm, sargs) -> {
+                switch (sm.getName()) {
+                case "isWrapperFor":
+                  return ((Class<?>)sargs[0]).isInstance(p);
+                case "unwrap":
+                  return p;
+                case "setPrepareThreshold":
+                  c.serverThreshold = (Integer)sargs[0];
+                  return null;
+                case "close":
+                  c.closed = true;
+                  return null;
+                case "getResultSet":
+                  return null;
+                case "hashCode":
+                  return System.identityHashCode(p);
+                case "equals":
+                  return p == sargs[0];
+                default:
+                  return null;
+                }
+              });
+          calls.put(ps, c);
+          return ps;
+        });
+  }
+
+  @Test
+  public void keepsSqlOncePreparedThresholdTimes() throws Exception {
+    StatementCache cache = new StatementCache(connection(), 4, 2, null);
+    PreparedStatement first = cache.prepare("SELECT 1");
+    assertFalse(cache.isCached(first));
+    PreparedStatement second = cache.prepare("SELECT 1");
+    assertTrue(cache.isCached(second));
+    assertSame(second, cache.prepare("SELECT 1"));
+    assertEquals(1, cache.getStats().getHitCount());
+    assertEquals(2, cache.getStats().getMissCount());
+    // the driver default is left alone
+    assertEquals(0, calls.get(second).serverThreshold);
+  }
+
+  @Test
+  public void setsServerPrepareThresholdOnKeptStatements() throws Exception {
+    StatementCache cache = new StatementCache(connection(), 4, 2, 1, null);
+    PreparedStatement first = cache.prepare("SELECT 1");
+    PreparedStatement kept = cache.prepare("SELECT 1");
+    assertNotSame(first, kept);
+    assertEquals(0, calls.get(first).serverThreshold);
+    assertEquals(1, calls.get(kept).serverThreshold);
+  }
+
+  @Test
+  public void evictionAndInvalidationClose() throws Exception {
+    StatementCache cache = new StatementCache(connection(), 1, 1, null);
+    PreparedStatement a = cache.prepare("SELECT 1");
+    PreparedStatement b = cache.prepare("SELECT 2");
+    assertTrue(calls.get(a).closed);
+    assertFalse(cache.isCached(a));
+    cache.invalidateAll();
+    assertTrue(calls.get(b).closed);
+    assertEquals(0, cache.size());
+    assertEquals(1, cache.getStats().getEvictionCount());
+    assertEquals(1, cache.getStats().getInvalidationCount());
+  }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2026, TopicQuests
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package org.topicquests.pg.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+public class ValuesTemplateTest {
+
+  @Test
+  public void repeatsTheValuesGroup() {
+    ValuesTemplate t = ValuesTemplate.parse("INSERT INTO t (a, b) VALUES (?, lower(?)) ON CONFLICT DO NOTHING");
+    assertNotNull(t);
+    assertEquals("INSERT INTO t (a, b) VALUES (?, lower(?)) ON CONFLICT DO NOTHING", t.getSql());
+    assertEquals("INSERT INTO t (a, b) VALUES (?, lower(?)),(?, lower(?)),(?, lower(?)) ON CONFLICT DO NOTHING",
+        t.toSql(3));
+    assertEquals(t.toSql(1), t.getSql());
+  }
+
+  @Test
+  public void rejectsWhatCannotBeRepeated() {
+    assertNull(ValuesTemplate.parse("UPDATE t SET a = ?"));
+    assertNull(ValuesTemplate.parse("INSERT INTO t (a) VALUES (1)"));
+    assertNull(ValuesTemplate.parse("INSERT INTO t (a) VALUES (?), (?)"));
+    assertNull(ValuesTemplate.parse("INSERT INTO t (a) SELECT ?"));
+    // a parameter outside the group would be repeated too
+    assertNull(ValuesTemplate.parse("INSERT INTO t (a) VALUES (?) ON CONFLICT (a) DO UPDATE SET b = ?"));
+  }
+
+  @Test
+  public void ignoresValuesInQuotesAndComments() {
+    ValuesTemplate t = ValuesTemplate.parse("INSERT INTO t (a, b) /* VALUES (?) */ VALUES (?, ')') -- values");
+    assertNotNull(t);
+    assertEquals("INSERT INTO t (a, b) /* VALUES (?) */ VALUES (?, ')'),(?, ')') -- values", t.toSql(2));
+  }
+
+  @Test
+  public void countsOnlyRealPlaceholders() {
+    assertEquals(1, JdbcPostgresConnection.countParameters("SELECT ?, '?', \"?\""));
+    assertEquals(1, JdbcPostgresConnection.countParameters("SELECT 1 -- ?\n, ?"));
+    assertEquals(1, JdbcPostgresConnection.countParameters("SELECT /* ? /* ? */ ? */ ?"));
+    assertEquals(1, JdbcPostgresConnection.countParameters("SELECT $$ ? $$, $tag$ ?$$? $tag$, ?"));
+    assertEquals(1, JdbcPostgresConnection.countParameters("SELECT data ?? 'k', ?"));
+    assertEquals(1, JdbcPostgresConnection.countParameters("SELECT $1, a$b, ?"));
+    assertEquals(0, JdbcPostgresConnection.countParameters("SELECT 1"));
+  }
+}